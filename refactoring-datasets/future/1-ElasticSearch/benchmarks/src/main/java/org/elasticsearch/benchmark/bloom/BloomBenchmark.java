@@ -0,0 +1,110 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.benchmark.bloom;
+
+import org.apache.lucene.codecs.bloom.FuzzySet;
+import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.common.Strings;
+import org.elasticsearch.common.util.BloomFilter;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares lookups of absent keys in our {@link BloomFilter} with Lucene's {@link FuzzySet} of the same size.
+ * The number of false positives each filter reports is reported through auxiliary counters.
+ */
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+public class BloomBenchmark {
+
+    @Param({"100000", "1000000"})
+    public int numberOfElements;
+
+    @Param({"0.01"})
+    public double fpp;
+
+    private BloomFilter bloomFilter;
+
+    private FuzzySet fuzzySet;
+
+    private BytesRef[] probes;
+
+    private int upto;
+
+    @Setup
+    public void setUp() throws IOException {
+        Random random = new Random(0);
+        bloomFilter = BloomFilter.create(numberOfElements, fpp);
+        fuzzySet = FuzzySet.createSetBasedOnMaxMemory((int) bloomFilter.getSizeInBytes());
+        for (int i = 0; i < numberOfElements; i++) {
+            BytesRef bytesRef = new BytesRef(Strings.randomBase64UUID(random));
+            bloomFilter.put(bytesRef);
+            fuzzySet.addValue(bytesRef);
+        }
+        probes = new BytesRef[8192];
+        for (int i = 0; i < probes.length; i++) {
+            probes[i] = new BytesRef(Strings.randomBase64UUID(random));
+        }
+    }
+
+    /**
+     * Counts how many of the probed keys, which are all absent, each filter reports as maybe present. JMH reports
+     * these counters next to the throughput of the benchmark.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class FalsePositives {
+
+        public long probes;
+
+        public long falsePositives;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            probes = 0;
+            falsePositives = 0;
+        }
+
+        boolean count(boolean mightContain) {
+            probes++;
+            if (mightContain) {
+                falsePositives++;
+            }
+            return mightContain;
+        }
+    }
+
+    @Benchmark
+    public boolean bloomFilterMightContain(FalsePositives falsePositives) {
+        return falsePositives.count(bloomFilter.mightContain(probes[upto++ & (probes.length - 1)]));
+    }
+
+    @Benchmark
+    public boolean fuzzySetContains(FalsePositives falsePositives) {
+        return falsePositives.count(fuzzySet.contains(probes[upto++ & (probes.length - 1)]) == FuzzySet.ContainsResult.MAYBE);
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.benchmark.common.compress;
+
+import org.elasticsearch.common.base.Charsets;
+import org.elasticsearch.common.compress.Compressor;
+import org.elasticsearch.common.compress.CompressorFactory;
+import org.elasticsearch.common.xcontent.XContentFactory;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compresses and uncompresses JSON sources of different sizes with the default compressor, as done for
+ * compressed <tt>_source</tt> and for compressed transport messages.
+ */
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+public class CompressorBenchmark {
+
+    @Param({"1024", "65536"})
+    public int size;
+
+    private Compressor compressor;
+
+    private byte[] data;
+
+    private byte[] compressed;
+
+    @Setup
+    public void setUp() throws IOException {
+        compressor = CompressorFactory.defaultCompressor();
+        Random random = new Random(0);
+        StringBuilder source = new StringBuilder("[");
+        while (source.length() < size) {
+            if (source.length() > 1) {
+                source.append(',');
+            }
+            source.append(XContentFactory.jsonBuilder().startObject()
+                    .field("id", random.nextInt(100000))
+                    .field("user", "user_" + random.nextInt(100))
+                    .field("message", "trying out elasticsearch " + random.nextInt(10))
+                    .field("likes", random.nextInt(1000))
+                    .endObject().string());
+        }
+        data = source.append(']').toString().getBytes(Charsets.UTF_8);
+        compressed = compressor.compress(data, 0, data.length);
+    }
+
+    @Benchmark
+    public byte[] compress() throws IOException {
+        return compressor.compress(data, 0, data.length);
+    }
+
+    @Benchmark
+    public byte[] uncompress() throws IOException {
+        return compressor.uncompress(compressed, 0, compressed.length);
+    }
+}
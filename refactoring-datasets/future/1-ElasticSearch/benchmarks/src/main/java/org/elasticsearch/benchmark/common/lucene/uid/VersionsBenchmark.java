@@ -0,0 +1,111 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.benchmark.common.lucene.uid;
+
+import org.apache.lucene.analysis.core.KeywordAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.NumericDocValuesField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.store.RAMDirectory;
+import org.elasticsearch.common.lucene.Lucene;
+import org.elasticsearch.common.lucene.uid.Versions;
+import org.elasticsearch.index.mapper.internal.UidFieldMapper;
+import org.elasticsearch.index.mapper.internal.VersionFieldMapper;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Looks up versions by <tt>_uid</tt> on a multi-segment index, which is done for every index, update and
+ * delete operation that is not served by the live version map.
+ */
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+public class VersionsBenchmark {
+
+    @Param({"100000"})
+    public int numberOfDocs;
+
+    @Param({"1", "10"})
+    public int numberOfSegments;
+
+    private RAMDirectory directory;
+
+    private DirectoryReader reader;
+
+    private Term[] existing;
+
+    private Term[] missing;
+
+    private int upto;
+
+    @Setup
+    public void setUp() throws IOException {
+        directory = new RAMDirectory();
+        IndexWriterConfig config = new IndexWriterConfig(Lucene.VERSION, new KeywordAnalyzer());
+        try (IndexWriter writer = new IndexWriter(directory, config)) {
+            int docsPerSegment = numberOfDocs / numberOfSegments;
+            for (int i = 0; i < numberOfDocs; i++) {
+                Document doc = new Document();
+                doc.add(new StringField(UidFieldMapper.NAME, "type#" + i, Field.Store.NO));
+                doc.add(new NumericDocValuesField(VersionFieldMapper.NAME, 1 + (i % 5)));
+                writer.addDocument(doc);
+                if ((i + 1) % docsPerSegment == 0) {
+                    writer.commit();
+                }
+            }
+        }
+        reader = DirectoryReader.open(directory);
+        Random random = new Random(0);
+        existing = new Term[4096];
+        missing = new Term[existing.length];
+        for (int i = 0; i < existing.length; i++) {
+            existing[i] = new Term(UidFieldMapper.NAME, "type#" + random.nextInt(numberOfDocs));
+            missing[i] = new Term(UidFieldMapper.NAME, "type#" + (numberOfDocs + random.nextInt(numberOfDocs)));
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        reader.close();
+        directory.close();
+    }
+
+    @Benchmark
+    public long loadExistingVersion() throws IOException {
+        return Versions.loadVersion(reader, existing[upto++ & (existing.length - 1)]);
+    }
+
+    @Benchmark
+    public long loadMissingVersion() throws IOException {
+        return Versions.loadVersion(reader, missing[upto++ & (missing.length - 1)]);
+    }
+}
@@ -0,0 +1,146 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.benchmark.common.util;
+
+import org.elasticsearch.cache.recycler.PageCacheRecycler;
+import org.elasticsearch.common.settings.ImmutableSettings;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.util.BigArrays;
+import org.elasticsearch.common.util.ByteArray;
+import org.elasticsearch.common.util.LongArray;
+import org.elasticsearch.threadpool.ThreadPool;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares allocation, growth and random access of big arrays that are backed by plain heap pages, recycled
+ * heap pages and off-heap pages.
+ */
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+public class BigArraysBenchmark {
+
+    @Param({"heap", "recycling", "off_heap"})
+    public String mode;
+
+    @Param({"1000", "1000000"})
+    public int size;
+
+    private ThreadPool threadPool;
+
+    private BigArrays bigArrays;
+
+    private LongArray longs;
+
+    private ByteArray bytes;
+
+    private int[] offsets;
+
+    @Setup
+    public void setUp() {
+        if ("heap".equals(mode)) {
+            bigArrays = BigArrays.NON_RECYCLING_INSTANCE;
+        } else {
+            Settings settings = ImmutableSettings.settingsBuilder()
+                    .put("common.util." + BigArrays.OFF_HEAP_ENABLED, "off_heap".equals(mode))
+                    .build();
+            threadPool = new ThreadPool();
+            bigArrays = new BigArrays(settings, new PageCacheRecycler(settings, threadPool));
+        }
+        longs = bigArrays.newLongArray(size, false);
+        bytes = bigArrays.newByteArray(size * 8L, false);
+        for (int i = 0; i < size; i++) {
+            longs.set(i, i);
+        }
+        offsets = new int[Math.min(size, 4096)];
+        for (int i = 0; i < offsets.length; i++) {
+            offsets[i] = (int) ((i * 2654435761L) % size);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        longs.release();
+        bytes.release();
+        if (threadPool != null) {
+            threadPool.shutdownNow();
+        }
+    }
+
+    @Benchmark
+    public long allocateAndFill() {
+        LongArray array = bigArrays.newLongArray(size, false);
+        try {
+            for (int i = 0; i < size; i++) {
+                array.set(i, i);
+            }
+            return array.get(size - 1);
+        } finally {
+            array.release();
+        }
+    }
+
+    @Benchmark
+    public long grow() {
+        LongArray array = bigArrays.newLongArray(1, false);
+        try {
+            for (int i = 0; i < size; i++) {
+                array = bigArrays.grow(array, i + 1);
+                array.set(i, i);
+            }
+            return array.size();
+        } finally {
+            array.release();
+        }
+    }
+
+    @Benchmark
+    public long randomGet() {
+        long sum = 0;
+        for (int offset : offsets) {
+            sum += longs.get(offset);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public long randomIncrement() {
+        long sum = 0;
+        for (int offset : offsets) {
+            sum += longs.increment(offset, 1);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public byte bytesSetAndGet() {
+        byte b = 0;
+        for (int offset : offsets) {
+            bytes.set(offset * 8L, (byte) offset);
+            b ^= bytes.get(offset * 8L + 7);
+        }
+        return b;
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.benchmark.common.util;
+
+import org.elasticsearch.common.util.BigArrays;
+import org.elasticsearch.common.util.LongHash;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Adds keys with a configurable number of distinct values to a {@link LongHash}, which is
+ * what the terms aggregation does for every collected value of a numeric field.
+ */
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+public class LongHashBenchmark {
+
+    @Param({"100000"})
+    public int numberOfKeys;
+
+    @Param({"10", "1000", "100000"})
+    public int numberOfDistinctKeys;
+
+    private long[] keys;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(0);
+        long[] distinct = new long[numberOfDistinctKeys];
+        for (int i = 0; i < distinct.length; i++) {
+            distinct[i] = random.nextLong();
+        }
+        keys = new long[numberOfKeys];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = distinct[random.nextInt(distinct.length)];
+        }
+    }
+
+    @Benchmark
+    public long add() {
+        LongHash hash = new LongHash(16, BigArrays.NON_RECYCLING_INSTANCE);
+        try {
+            for (long key : keys) {
+                hash.add(key);
+            }
+            return hash.size();
+        } finally {
+            hash.release();
+        }
+    }
+}
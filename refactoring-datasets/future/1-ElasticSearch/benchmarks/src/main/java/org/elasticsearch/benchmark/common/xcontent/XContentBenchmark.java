@@ -0,0 +1,94 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.benchmark.common.xcontent;
+
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.xcontent.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures building and parsing a typical log event style document.
+ */
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+public class XContentBenchmark {
+
+    @Param({"json", "smile", "yaml"})
+    public String type;
+
+    private XContentType xContentType;
+
+    private BytesReference source;
+
+    @Setup
+    public void setUp() throws IOException {
+        xContentType = XContentType.valueOf(type.toUpperCase(Locale.ROOT));
+        source = build();
+    }
+
+    @Benchmark
+    public BytesReference build() throws IOException {
+        XContentBuilder builder = XContentFactory.contentBuilder(xContentType);
+        builder.startObject()
+                .field("@timestamp", 1393804800000L)
+                .field("host", "web-042.example.com")
+                .field("message", "GET /products/elasticsearch-in-action HTTP/1.1 200 4523")
+                .field("status", 200)
+                .field("bytes", 4523)
+                .field("response_time", 0.0427d)
+                .array("tags", "production", "frontend", "eu-west-1")
+                .startObject("geo")
+                    .field("lat", 52.3667d)
+                    .field("lon", 4.9d)
+                    .field("country", "NL")
+                .endObject()
+                .startArray("headers");
+        for (int i = 0; i < 8; i++) {
+            builder.startObject().field("name", "X-Header-" + i).field("value", "value-" + i).endObject();
+        }
+        builder.endArray().endObject();
+        return builder.bytes();
+    }
+
+    @Benchmark
+    public Map<String, Object> parseMap() {
+        return XContentHelper.convertToMap(source, false).v2();
+    }
+
+    @Benchmark
+    public int parseTokens() throws IOException {
+        int tokens = 0;
+        try (XContentParser parser = XContentFactory.xContent(xContentType).createParser(source)) {
+            while (parser.nextToken() != null) {
+                tokens++;
+            }
+        }
+        return tokens;
+    }
+}
@@ -0,0 +1,151 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.benchmark.search.aggregations;
+
+import org.elasticsearch.action.bulk.BulkRequestBuilder;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.action.search.SearchType;
+import org.elasticsearch.client.Client;
+import org.elasticsearch.common.io.FileSystemUtils;
+import org.elasticsearch.common.settings.ImmutableSettings;
+import org.elasticsearch.node.Node;
+import org.elasticsearch.search.aggregations.AggregationBuilders;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.elasticsearch.cluster.metadata.IndexMetaData.SETTING_NUMBER_OF_REPLICAS;
+import static org.elasticsearch.cluster.metadata.IndexMetaData.SETTING_NUMBER_OF_SHARDS;
+import static org.elasticsearch.common.xcontent.XContentFactory.jsonBuilder;
+import static org.elasticsearch.index.query.QueryBuilders.matchAllQuery;
+import static org.elasticsearch.node.NodeBuilder.nodeBuilder;
+
+/**
+ * Runs a terms aggregation over all documents of a single shard index on a local node, with fielddata
+ * loaded from the inverted index or from doc values.
+ */
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+public class TermsAggregationBenchmark {
+
+    private static final String INDEX = "test";
+    private static final String TYPE = "type";
+
+    @Param({"100000"})
+    public int numberOfDocs;
+
+    @Param({"100", "10000"})
+    public int numberOfTerms;
+
+    @Param({"s_value", "s_value_dv", "l_value", "l_value_dv"})
+    public String field;
+
+    @Param({"map", "ordinals"})
+    public String executionHint;
+
+    private File dataDir;
+
+    private Node node;
+
+    private Client client;
+
+    @Setup
+    public void setUp() throws IOException {
+        dataDir = Files.createTempDirectory("es-benchmark").toFile();
+        node = nodeBuilder().local(true)
+                .clusterName(TermsAggregationBenchmark.class.getSimpleName())
+                .settings(ImmutableSettings.settingsBuilder()
+                        .put("path.data", dataDir.getAbsolutePath())
+                        .put("http.enabled", false)
+                        .put("index.refresh_interval", "-1")
+                        .put(SETTING_NUMBER_OF_SHARDS, 1)
+                        .put(SETTING_NUMBER_OF_REPLICAS, 0))
+                .node();
+        client = node.client();
+        client.admin().indices().prepareCreate(INDEX).addMapping(TYPE, jsonBuilder()
+                .startObject()
+                    .startObject(TYPE)
+                        .startObject("properties")
+                            .startObject("s_value").field("type", "string").field("index", "not_analyzed").endObject()
+                            .startObject("s_value_dv").field("type", "string").field("index", "no")
+                                .startObject("fielddata").field("format", "doc_values").endObject()
+                            .endObject()
+                            .startObject("l_value").field("type", "long").endObject()
+                            .startObject("l_value_dv").field("type", "long").field("index", "no")
+                                .startObject("fielddata").field("format", "doc_values").endObject()
+                            .endObject()
+                        .endObject()
+                    .endObject()
+                .endObject()).get();
+        client.admin().cluster().prepareHealth(INDEX).setWaitForGreenStatus().get();
+
+        Random random = new Random(0);
+        String[] sValues = new String[numberOfTerms];
+        long[] lValues = new long[numberOfTerms];
+        for (int i = 0; i < numberOfTerms; i++) {
+            sValues[i] = "term_" + Long.toString(random.nextLong(), Character.MAX_RADIX);
+            lValues[i] = random.nextLong();
+        }
+        BulkRequestBuilder bulk = client.prepareBulk();
+        for (int i = 0; i < numberOfDocs; i++) {
+            String sValue = sValues[random.nextInt(numberOfTerms)];
+            long lValue = lValues[random.nextInt(numberOfTerms)];
+            bulk.add(client.prepareIndex(INDEX, TYPE, Integer.toString(i)).setSource(jsonBuilder().startObject()
+                    .field("s_value", sValue)
+                    .field("s_value_dv", sValue)
+                    .field("l_value", lValue)
+                    .field("l_value_dv", lValue)
+                    .endObject()));
+            if (bulk.numberOfActions() == 1000) {
+                bulk.get();
+                bulk = client.prepareBulk();
+            }
+        }
+        if (bulk.numberOfActions() > 0) {
+            bulk.get();
+        }
+        client.admin().indices().prepareRefresh(INDEX).get();
+        client.admin().indices().prepareOptimize(INDEX).setMaxNumSegments(1).get();
+        client.admin().indices().prepareRefresh(INDEX).get();
+    }
+
+    @TearDown
+    public void tearDown() {
+        node.close();
+        FileSystemUtils.deleteRecursively(dataDir);
+    }
+
+    @Benchmark
+    public SearchResponse terms() {
+        return client.prepareSearch(INDEX)
+                .setSearchType(SearchType.COUNT)
+                .setQuery(matchAllQuery())
+                .addAggregation(AggregationBuilders.terms("terms").field(field).executionHint(executionHint).size(10))
+                .get();
+    }
+}
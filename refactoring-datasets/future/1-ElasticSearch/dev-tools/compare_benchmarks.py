@@ -0,0 +1,68 @@
+# Licensed to Elasticsearch under one or more contributor
+# license agreements. See the NOTICE file distributed with
+# this work for additional information regarding copyright
+# ownership. Elasticsearch licenses this file to you under
+# the Apache License, Version 2.0 (the "License"); you may
+# not use this file except in compliance  with the License.
+# You may obtain a copy of the License at
+#
+#     http://www.apache.org/licenses/LICENSE-2.0
+#
+# Unless required by applicable law or agreed to in writing,
+# software distributed under the License is distributed on 
+# an 'AS IS' BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+# either express or implied. See the License for the specific
+# language governing permissions and limitations under the License.
+
+import argparse
+import json
+import sys
+
+# Compares two JMH result files written with `-rf json` and fails if any benchmark
+# regressed by more than the given threshold. Usage:
+#
+#   python3 dev-tools/compare_benchmarks.py baseline.json candidate.json --threshold 10
+#
+
+def load(path):
+  with open(path) as f:
+    results = {}
+    for result in json.load(f):
+      params = result.get('params') or {}
+      key = result['benchmark'] + ''.join(' %s=%s' % (k, params[k]) for k in sorted(params))
+      metric = result['primaryMetric']
+      results[key] = (result['mode'], metric['score'], metric['scoreUnit'])
+    return results
+
+def change(mode, baseline, candidate):
+  # throughput is better when higher, all other modes report time and are better when lower
+  if mode == 'thrpt':
+    return (baseline - candidate) / baseline * 100
+  return (candidate - baseline) / baseline * 100
+
+if __name__ == '__main__':
+  parser = argparse.ArgumentParser(description='Compares two JMH json result files')
+  parser.add_argument('baseline', help='results of the baseline run')
+  parser.add_argument('candidate', help='results of the run to check')
+  parser.add_argument('--threshold', type=float, default=10.0,
+                      help='maximum allowed regression in percent (default: 10)')
+  args = parser.parse_args()
+
+  baseline = load(args.baseline)
+  candidate = load(args.candidate)
+  regressions = 0
+  for key in sorted(baseline):
+    if key not in candidate:
+      print('%-100s missing in candidate' % key)
+      continue
+    mode, base_score, unit = baseline[key]
+    score = candidate[key][1]
+    regression = change(mode, base_score, score)
+    marker = ''
+    if regression > args.threshold:
+      regressions += 1
+      marker = '  <-- REGRESSION'
+    print('%-100s %12.3f -> %12.3f %-10s %+7.2f%%%s' % (key, base_score, score, unit, 0.0 - regression, marker))
+  if regressions > 0:
+    print('%d benchmark(s) regressed by more than %.1f%%' % (regressions, args.threshold))
+    sys.exit(1)
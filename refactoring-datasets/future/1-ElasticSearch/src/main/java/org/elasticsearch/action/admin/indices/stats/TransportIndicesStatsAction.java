@@ -193,6 +193,9 @@ public class TransportIndicesStatsAction extends TransportBroadcastOperationActi
         if (request.request.translog()) {
             flags.set(CommonStatsFlags.Flag.Translog);
         }
+        if (request.request.queryCache()) {
+            flags.set(CommonStatsFlags.Flag.QueryCache);
+        }
 
         return new ShardStats(indexShard, flags);
     }
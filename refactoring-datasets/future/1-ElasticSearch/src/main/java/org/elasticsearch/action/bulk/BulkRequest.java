@@ -38,6 +38,7 @@ import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.common.xcontent.XContent;
 import org.elasticsearch.common.xcontent.XContentFactory;
 import org.elasticsearch.common.xcontent.XContentParser;
+import org.elasticsearch.common.xcontent.XContentType;
 import org.elasticsearch.index.VersionType;
 
 import java.io.IOException;
@@ -54,7 +55,7 @@ import static org.elasticsearch.action.ValidateActions.addValidationError;
  */
 public class BulkRequest extends ActionRequest<BulkRequest> {
 
-    private static final int REQUEST_OVERHEAD = 50;
+    static final int REQUEST_OVERHEAD = 50;
 
     final List<ActionRequest> requests = Lists.newArrayList();
     List<Object> payloads = null;
@@ -247,7 +248,16 @@ public class BulkRequest extends ActionRequest<BulkRequest> {
     }
 
     public BulkRequest add(BytesReference data, boolean contentUnsafe, @Nullable String defaultIndex, @Nullable String defaultType, @Nullable String defaultRouting, @Nullable Object payload, boolean allowExplicitIndex) throws Exception {
-        XContent xContent = XContentFactory.xContent(data);
+        return add(data, contentUnsafe, null, defaultIndex, defaultType, defaultRouting, payload, allowExplicitIndex);
+    }
+
+    /**
+     * Adds a framed data in binary format, encoded in the provided content type. When no content type is
+     * provided it is detected from the data itself. Each action and source is parsed from a slice of the
+     * data, without copying it.
+     */
+    public BulkRequest add(BytesReference data, boolean contentUnsafe, @Nullable XContentType contentType, @Nullable String defaultIndex, @Nullable String defaultType, @Nullable String defaultRouting, @Nullable Object payload, boolean allowExplicitIndex) throws Exception {
+        XContent xContent = contentType != null ? XContentFactory.xContent(contentType) : XContentFactory.xContent(data);
         int from = 0;
         int length = data.length();
         byte marker = xContent.streamSeparator();
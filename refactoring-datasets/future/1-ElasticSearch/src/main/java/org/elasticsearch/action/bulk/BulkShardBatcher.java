@@ -0,0 +1,309 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.action.bulk;
+
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.ActionRequest;
+import org.elasticsearch.action.delete.DeleteRequest;
+import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.action.update.UpdateRequest;
+import org.elasticsearch.cluster.ClusterService;
+import org.elasticsearch.cluster.ClusterState;
+import org.elasticsearch.cluster.metadata.MappingMetaData;
+import org.elasticsearch.cluster.metadata.MetaData;
+import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
+import org.elasticsearch.index.shard.ShardId;
+import org.elasticsearch.indices.IndexMissingException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Batches bulk items per target shard and executes them directly as {@link BulkShardRequest}s on the
+ * {@link TransportShardBulkAction}, without going through {@link TransportBulkAction} and its per request split.
+ * <p/>
+ * Adding items never blocks: each shard has its own lock free queue, and the thread that pushes a queue over the
+ * flush thresholds drains it. Items that can't be routed to a single existing shard (their index does not exist
+ * yet, or they need to be broadcast) are handed back by {@link #add(BulkRequest)} so they can go through the
+ * regular bulk action.
+ */
+public class BulkShardBatcher {
+
+    /**
+     * Notified of the outcome of each shard level bulk executed by the batcher.
+     */
+    public static interface Listener {
+
+        void afterBulk(ShardId shardId, BulkShardResponse response);
+
+        void afterBulk(ShardId shardId, int numberOfActions, Throwable e);
+    }
+
+    private final ClusterService clusterService;
+    private final TransportShardBulkAction shardBulkAction;
+    private final Listener listener;
+
+    private final int bulkActions;
+    private final long bulkSize;
+    private final int maxQueuedActions;
+    private final Semaphore inFlight;
+
+    private final ConcurrentMap<ShardId, ShardQueue> queues = ConcurrentCollections.newConcurrentMap();
+
+    private final AtomicLong droppedActions = new AtomicLong();
+    private final AtomicLong failedActions = new AtomicLong();
+
+    public BulkShardBatcher(ClusterService clusterService, TransportShardBulkAction shardBulkAction, int bulkActions, ByteSizeValue bulkSize,
+                            int maxQueuedActions, int concurrentRequests, Listener listener) {
+        this.clusterService = clusterService;
+        this.shardBulkAction = shardBulkAction;
+        this.bulkActions = bulkActions;
+        this.bulkSize = bulkSize.bytes();
+        this.maxQueuedActions = maxQueuedActions;
+        this.inFlight = new Semaphore(concurrentRequests);
+        this.listener = listener;
+    }
+
+    /**
+     * Queues the items of the request on their target shard, flushing the shards that reach the bulk thresholds.
+     * Returns the items that could not be routed directly, or <tt>null</tt> if all of them were.
+     */
+    public BulkRequest add(BulkRequest bulkRequest) {
+        ClusterState clusterState = clusterService.state();
+        BulkRequest unrouted = null;
+        for (ActionRequest request : bulkRequest.requests) {
+            ShardId shardId;
+            try {
+                shardId = resolveShard(clusterState, request);
+            } catch (Throwable e) {
+                // the regular bulk action would report it as an item failure, nobody waits for the response here
+                failedActions.incrementAndGet();
+                continue;
+            }
+            if (shardId == null) {
+                if (unrouted == null) {
+                    unrouted = new BulkRequest();
+                }
+                unrouted.add(request);
+                continue;
+            }
+            ShardQueue queue = queues.get(shardId);
+            if (queue == null) {
+                ShardQueue newQueue = new ShardQueue(shardId);
+                queue = queues.putIfAbsent(shardId, newQueue);
+                if (queue == null) {
+                    queue = newQueue;
+                }
+            }
+            if (queue.size.get() >= maxQueuedActions) {
+                droppedActions.incrementAndGet();
+                continue;
+            }
+            queue.requests.add(request);
+            int size = queue.size.incrementAndGet();
+            long sizeInBytes = queue.sizeInBytes.addAndGet(sizeInBytes(request));
+            if (size >= bulkActions || sizeInBytes >= bulkSize) {
+                execute(queue);
+            }
+        }
+        return unrouted;
+    }
+
+    /**
+     * Flushes all the queued items, as far as the number of concurrent requests allows.
+     */
+    public void flush() {
+        MetaData metaData = clusterService.state().metaData();
+        for (Map.Entry<ShardId, ShardQueue> entry : queues.entrySet()) {
+            ShardQueue queue = entry.getValue();
+            while (queue.size.get() > 0) {
+                if (!execute(queue)) {
+                    break;
+                }
+            }
+            if (queue.size.get() == 0 && !metaData.hasIndex(entry.getKey().index().name())) {
+                // the index is gone, whatever gets queued on it concurrently would fail anyway
+                queues.remove(entry.getKey(), queue);
+            }
+        }
+    }
+
+    /**
+     * The number of items waiting in the shard queues.
+     */
+    public long queuedActions() {
+        long queued = 0;
+        for (ShardQueue queue : queues.values()) {
+            queued += queue.size.get();
+        }
+        return queued;
+    }
+
+    /**
+     * The number of items dropped because their shard queue was full.
+     */
+    public long droppedActions() {
+        return droppedActions.get();
+    }
+
+    /**
+     * The number of items that failed to be routed to their shard.
+     */
+    public long failedActions() {
+        return failedActions.get();
+    }
+
+    /**
+     * Resolves the shard the request should be executed on, or <tt>null</tt> if it needs the regular bulk action.
+     */
+    private ShardId resolveShard(ClusterState clusterState, ActionRequest request) {
+        MetaData metaData = clusterState.metaData();
+        if (request instanceof IndexRequest) {
+            IndexRequest indexRequest = (IndexRequest) request;
+            String aliasOrIndex = indexRequest.index();
+            String index = concreteIndex(metaData, aliasOrIndex);
+            if (index == null) {
+                return null;
+            }
+            indexRequest.index(index);
+            indexRequest.process(metaData, aliasOrIndex, metaData.index(index).mappingOrDefault(indexRequest.type()), true);
+            return clusterService.operationRouting().indexShards(clusterState, index, indexRequest.type(), indexRequest.id(), indexRequest.routing()).shardId();
+        } else if (request instanceof DeleteRequest) {
+            DeleteRequest deleteRequest = (DeleteRequest) request;
+            String index = concreteIndex(metaData, deleteRequest.index());
+            if (index == null) {
+                return null;
+            }
+            String routing = metaData.resolveIndexRouting(deleteRequest.routing(), deleteRequest.index());
+            MappingMetaData mappingMd = metaData.index(index).mappingOrDefault(deleteRequest.type());
+            if (mappingMd != null && mappingMd.routing().required() && routing == null) {
+                // needs to be broadcast to all the shards
+                return null;
+            }
+            deleteRequest.routing(routing);
+            deleteRequest.index(index);
+            return clusterService.operationRouting().deleteShards(clusterState, index, deleteRequest.type(), deleteRequest.id(), routing).shardId();
+        } else if (request instanceof UpdateRequest) {
+            UpdateRequest updateRequest = (UpdateRequest) request;
+            String index = concreteIndex(metaData, updateRequest.index());
+            if (index == null) {
+                return null;
+            }
+            String routing = metaData.resolveIndexRouting(updateRequest.routing(), updateRequest.index());
+            MappingMetaData mappingMd = metaData.index(index).mappingOrDefault(updateRequest.type());
+            if (mappingMd != null && mappingMd.routing().required() && routing == null) {
+                return null;
+            }
+            updateRequest.routing(routing);
+            updateRequest.index(index);
+            return clusterService.operationRouting().indexShards(clusterState, index, updateRequest.type(), updateRequest.id(), routing).shardId();
+        }
+        return null;
+    }
+
+    private static String concreteIndex(MetaData metaData, String aliasOrIndex) {
+        try {
+            return metaData.concreteIndex(aliasOrIndex);
+        } catch (IndexMissingException e) {
+            // let the regular bulk action create it
+            return null;
+        }
+    }
+
+    private static long sizeInBytes(ActionRequest request) {
+        if (request instanceof IndexRequest) {
+            return ((IndexRequest) request).source().length() + BulkRequest.REQUEST_OVERHEAD;
+        }
+        return BulkRequest.REQUEST_OVERHEAD;
+    }
+
+    /**
+     * Drains up to one bulk worth of items from the queue and executes it. Returns <tt>false</tt> if nothing was
+     * executed, either because the queue was empty or because too many requests are in flight, in which case the
+     * items stay queued until the next flush.
+     */
+    private boolean execute(final ShardQueue queue) {
+        if (!inFlight.tryAcquire()) {
+            return false;
+        }
+        List<BulkItemRequest> items = new ArrayList<BulkItemRequest>(Math.min(queue.size.get(), bulkActions));
+        long sizeInBytes = 0;
+        ActionRequest request;
+        while (items.size() < bulkActions && sizeInBytes < bulkSize && (request = queue.requests.poll()) != null) {
+            items.add(new BulkItemRequest(items.size(), request));
+            sizeInBytes += sizeInBytes(request);
+        }
+        queue.size.addAndGet(-items.size());
+        queue.sizeInBytes.addAndGet(-sizeInBytes);
+        if (items.isEmpty()) {
+            inFlight.release();
+            return false;
+        }
+        final int numberOfActions = items.size();
+        BulkShardRequest bulkShardRequest = new BulkShardRequest(queue.shardId.index().name(), queue.shardId.id(), false, items.toArray(new BulkItemRequest[numberOfActions]));
+        try {
+            shardBulkAction.execute(bulkShardRequest, new ActionListener<BulkShardResponse>() {
+                @Override
+                public void onResponse(BulkShardResponse response) {
+                    inFlight.release();
+                    listener.afterBulk(queue.shardId, response);
+                    executeIfFull(queue);
+                }
+
+                @Override
+                public void onFailure(Throwable e) {
+                    inFlight.release();
+                    listener.afterBulk(queue.shardId, numberOfActions, e);
+                    executeIfFull(queue);
+                }
+            });
+        } catch (Throwable e) {
+            inFlight.release();
+            listener.afterBulk(queue.shardId, numberOfActions, e);
+        }
+        return true;
+    }
+
+    private void executeIfFull(ShardQueue queue) {
+        // the queue might have reached the thresholds while the in flight limit was reached
+        if (queue.size.get() >= bulkActions || queue.sizeInBytes.get() >= bulkSize) {
+            execute(queue);
+        }
+    }
+
+    static final class ShardQueue {
+
+        final ShardId shardId;
+        final Queue<ActionRequest> requests = ConcurrentCollections.newQueue();
+        final AtomicInteger size = new AtomicInteger();
+        final AtomicLong sizeInBytes = new AtomicLong();
+
+        ShardQueue(ShardId shardId) {
+            this.shardId = shardId;
+        }
+    }
+}
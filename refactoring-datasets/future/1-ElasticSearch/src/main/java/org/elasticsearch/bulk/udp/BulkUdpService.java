@@ -20,10 +20,10 @@
 package org.elasticsearch.bulk.udp;
 
 import org.elasticsearch.ElasticsearchException;
-import org.elasticsearch.action.bulk.BulkProcessor;
-import org.elasticsearch.action.bulk.BulkRequest;
-import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.action.ActionRequest;
+import org.elasticsearch.action.bulk.*;
 import org.elasticsearch.client.Client;
+import org.elasticsearch.cluster.ClusterService;
 import org.elasticsearch.common.bytes.ChannelBufferBytesReference;
 import org.elasticsearch.common.component.AbstractLifecycleComponent;
 import org.elasticsearch.common.inject.Inject;
@@ -33,25 +33,45 @@ import org.elasticsearch.common.transport.PortsRange;
 import org.elasticsearch.common.unit.ByteSizeUnit;
 import org.elasticsearch.common.unit.ByteSizeValue;
 import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.common.util.concurrent.EsExecutors;
+import org.elasticsearch.common.util.concurrent.EsRejectedExecutionException;
+import org.elasticsearch.index.shard.ShardId;
+import org.elasticsearch.threadpool.ThreadPool;
+import org.jboss.netty.bootstrap.Bootstrap;
 import org.jboss.netty.bootstrap.ConnectionlessBootstrap;
+import org.jboss.netty.bootstrap.ServerBootstrap;
 import org.jboss.netty.buffer.ChannelBuffer;
 import org.jboss.netty.channel.*;
+import org.jboss.netty.channel.socket.DatagramChannel;
 import org.jboss.netty.channel.socket.nio.NioDatagramChannelFactory;
+import org.jboss.netty.channel.socket.nio.NioServerSocketChannelFactory;
+import org.jboss.netty.handler.codec.frame.LengthFieldBasedFrameDecoder;
 
 import java.io.IOException;
 import java.net.BindException;
 import java.net.InetAddress;
 import java.net.InetSocketAddress;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 
 import static org.elasticsearch.common.util.concurrent.EsExecutors.daemonThreadFactory;
 
 /**
+ * Listens for bulk formatted data over UDP datagrams, and optionally over TCP as length prefixed frames. Each
+ * datagram or frame is parsed on one of the ingest workers and its items are queued per target shard by a
+ * {@link BulkShardBatcher}, which executes them directly on the shard bulk action. Items for indices that don't
+ * exist yet go through the regular bulk action so the index gets created.
  */
 public class BulkUdpService extends AbstractLifecycleComponent<BulkUdpService> {
 
     private final Client client;
+    private final ClusterService clusterService;
+    private final TransportShardBulkAction shardBulkAction;
+    private final ThreadPool threadPool;
     private final NetworkService networkService;
 
     private final boolean enabled;
@@ -65,15 +85,34 @@ public class BulkUdpService extends AbstractLifecycleComponent<BulkUdpService> {
     final ByteSizeValue bulkSize;
     final TimeValue flushInterval;
     final int concurrentRequests;
+    final int maxQueuedActions;
+    final int workers;
+    final int queueSize;
+
+    final boolean tcpEnabled;
+    final String tcpPort;
+    final ByteSizeValue tcpMaxFrameSize;
+
+    private final AtomicLong receivedFrames = new AtomicLong();
+    private final AtomicLong droppedFrames = new AtomicLong();
 
     private BulkProcessor bulkProcessor;
+    private BulkShardBatcher batcher;
+    private ExecutorService ingestExecutor;
+    private ScheduledFuture<?> flushFuture;
     private ConnectionlessBootstrap bootstrap;
-    private Channel channel;
+    private ServerBootstrap tcpBootstrap;
+    Channel channel;
+    Channel tcpChannel;
 
     @Inject
-    public BulkUdpService(Settings settings, Client client, NetworkService networkService) {
+    public BulkUdpService(Settings settings, Client client, ClusterService clusterService, TransportShardBulkAction shardBulkAction,
+                          ThreadPool threadPool, NetworkService networkService) {
         super(settings);
         this.client = client;
+        this.clusterService = clusterService;
+        this.shardBulkAction = shardBulkAction;
+        this.threadPool = threadPool;
         this.networkService = networkService;
 
         this.host = componentSettings.get("host");
@@ -83,14 +122,21 @@ public class BulkUdpService extends AbstractLifecycleComponent<BulkUdpService> {
         this.bulkSize = componentSettings.getAsBytesSize("bulk_size", new ByteSizeValue(5, ByteSizeUnit.MB));
         this.flushInterval = componentSettings.getAsTime("flush_interval", TimeValue.timeValueSeconds(5));
         this.concurrentRequests = componentSettings.getAsInt("concurrent_requests", 4);
+        this.maxQueuedActions = componentSettings.getAsInt("max_queued_actions", bulkActions * 10);
+        this.workers = componentSettings.getAsInt("workers", EsExecutors.boundedNumberOfProcessors(settings));
+        this.queueSize = componentSettings.getAsInt("queue_size", 1000);
 
         this.receiveBufferSize = componentSettings.getAsBytesSize("receive_buffer_size", new ByteSizeValue(10, ByteSizeUnit.MB));
         this.receiveBufferSizePredictorFactory = new FixedReceiveBufferSizePredictorFactory(componentSettings.getAsBytesSize("receive_predictor_size", receiveBufferSize).bytesAsInt());
 
+        this.tcpEnabled = componentSettings.getAsBoolean("tcp.enabled", false);
+        this.tcpPort = componentSettings.get("tcp.port", "9800-9900");
+        this.tcpMaxFrameSize = componentSettings.getAsBytesSize("tcp.max_frame_size", new ByteSizeValue(10, ByteSizeUnit.MB));
+
         this.enabled = componentSettings.getAsBoolean("enabled", false);
 
-        logger.debug("using enabled [{}], host [{}], port [{}], bulk_actions [{}], bulk_size [{}], flush_interval [{}], concurrent_requests [{}]",
-                enabled, host, port, bulkActions, bulkSize, flushInterval, concurrentRequests);
+        logger.debug("using enabled [{}], host [{}], port [{}], bulk_actions [{}], bulk_size [{}], flush_interval [{}], concurrent_requests [{}], workers [{}], tcp [{}]",
+                enabled, host, port, bulkActions, bulkSize, flushInterval, concurrentRequests, workers, tcpEnabled);
     }
 
     @Override
@@ -98,13 +144,25 @@ public class BulkUdpService extends AbstractLifecycleComponent<BulkUdpService> {
         if (!enabled) {
             return;
         }
+        // only used for items that can't be sent straight to their shard
         bulkProcessor = BulkProcessor.builder(client, new BulkListener())
                 .setBulkActions(bulkActions)
                 .setBulkSize(bulkSize)
                 .setFlushInterval(flushInterval)
                 .setConcurrentRequests(concurrentRequests)
                 .build();
+        batcher = new BulkShardBatcher(clusterService, shardBulkAction, bulkActions, bulkSize, maxQueuedActions, concurrentRequests, new ShardBulkListener());
+        ingestExecutor = EsExecutors.newFixed(workers, queueSize, daemonThreadFactory(settings, "bulk_udp_ingest"));
+        flushFuture = threadPool.scheduleWithFixedDelay(new FlushTask(), flushInterval);
 
+        InetAddress hostAddressX;
+        try {
+            hostAddressX = networkService.resolveBindHostAddress(host);
+        } catch (IOException e) {
+            logger.warn("failed to resolve host {}", e, host);
+            return;
+        }
+        final InetAddress hostAddress = hostAddressX;
 
         bootstrap = new ConnectionlessBootstrap(new NioDatagramChannelFactory(Executors.newCachedThreadPool(daemonThreadFactory(settings, "bulk_udp_worker"))));
 
@@ -114,30 +172,50 @@ public class BulkUdpService extends AbstractLifecycleComponent<BulkUdpService> {
         // Enable broadcast
         bootstrap.setOption("broadcast", "false");
 
+        final Handler handler = new Handler();
         bootstrap.setPipelineFactory(new ChannelPipelineFactory() {
             @Override
             public ChannelPipeline getPipeline() throws Exception {
-                return Channels.pipeline(new Handler());
+                return Channels.pipeline(handler);
             }
         });
 
+        channel = bind(bootstrap, hostAddress, port);
+        if (channel != null) {
+            logger.info("address {}", channel.getLocalAddress());
+        }
 
-        InetAddress hostAddressX;
-        try {
-            hostAddressX = networkService.resolveBindHostAddress(host);
-        } catch (IOException e) {
-            logger.warn("failed to resolve host {}", e, host);
-            return;
+        if (tcpEnabled) {
+            tcpBootstrap = new ServerBootstrap(new NioServerSocketChannelFactory(
+                    Executors.newCachedThreadPool(daemonThreadFactory(settings, "bulk_udp_tcp_boss")),
+                    Executors.newCachedThreadPool(daemonThreadFactory(settings, "bulk_udp_tcp_worker"))));
+            tcpBootstrap.setPipelineFactory(new ChannelPipelineFactory() {
+                @Override
+                public ChannelPipeline getPipeline() throws Exception {
+                    // each frame is a bulk body prefixed with its length as a 4 bytes int
+                    return Channels.pipeline(new LengthFieldBasedFrameDecoder(tcpMaxFrameSize.bytesAsInt(), 0, 4, 0, 4), handler);
+                }
+            });
+            tcpChannel = bind(tcpBootstrap, hostAddress, tcpPort);
+            if (tcpChannel != null) {
+                logger.info("tcp address {}", tcpChannel.getLocalAddress());
+            }
         }
-        final InetAddress hostAddress = hostAddressX;
+    }
 
+    private Channel bind(final Bootstrap bootstrap, final InetAddress hostAddress, String port) {
         PortsRange portsRange = new PortsRange(port);
         final AtomicReference<Exception> lastException = new AtomicReference<Exception>();
+        final AtomicReference<Channel> boundChannel = new AtomicReference<Channel>();
         boolean success = portsRange.iterate(new PortsRange.PortCallback() {
             @Override
             public boolean onPortNumber(int portNumber) {
                 try {
-                    channel = bootstrap.bind(new InetSocketAddress(hostAddress, portNumber));
+                    if (bootstrap instanceof ServerBootstrap) {
+                        boundChannel.set(((ServerBootstrap) bootstrap).bind(new InetSocketAddress(hostAddress, portNumber)));
+                    } else {
+                        boundChannel.set(((ConnectionlessBootstrap) bootstrap).bind(new InetSocketAddress(hostAddress, portNumber)));
+                    }
                 } catch (Exception e) {
                     lastException.set(e);
                     return false;
@@ -147,10 +225,9 @@ public class BulkUdpService extends AbstractLifecycleComponent<BulkUdpService> {
         });
         if (!success) {
             logger.warn("failed to bind to {}/{}", lastException.get(), hostAddress, port);
-            return;
+            return null;
         }
-
-        logger.info("address {}", channel.getLocalAddress());
+        return boundChannel.get();
     }
 
     @Override
@@ -161,9 +238,23 @@ public class BulkUdpService extends AbstractLifecycleComponent<BulkUdpService> {
         if (channel != null) {
             channel.close().awaitUninterruptibly();
         }
+        if (tcpChannel != null) {
+            tcpChannel.close().awaitUninterruptibly();
+        }
         if (bootstrap != null) {
             bootstrap.releaseExternalResources();
         }
+        if (tcpBootstrap != null) {
+            tcpBootstrap.releaseExternalResources();
+        }
+        flushFuture.cancel(false);
+        ingestExecutor.shutdown();
+        try {
+            ingestExecutor.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        batcher.flush();
         bulkProcessor.close();
     }
 
@@ -171,16 +262,80 @@ public class BulkUdpService extends AbstractLifecycleComponent<BulkUdpService> {
     protected void doClose() throws ElasticsearchException {
     }
 
+    /**
+     * Returns the ingest counters, <tt>null</tt> if the service is disabled or not started.
+     */
+    public Stats stats() {
+        if (!enabled || batcher == null) {
+            return null;
+        }
+        return new Stats(receivedFrames.get(), droppedFrames.get(), batcher.queuedActions(), batcher.droppedActions(), batcher.failedActions());
+    }
+
+    public static class Stats {
+
+        private final long receivedFrames;
+        private final long droppedFrames;
+        private final long queuedActions;
+        private final long droppedActions;
+        private final long failedActions;
+
+        Stats(long receivedFrames, long droppedFrames, long queuedActions, long droppedActions, long failedActions) {
+            this.receivedFrames = receivedFrames;
+            this.droppedFrames = droppedFrames;
+            this.queuedActions = queuedActions;
+            this.droppedActions = droppedActions;
+            this.failedActions = failedActions;
+        }
+
+        /**
+         * The number of datagrams and tcp frames received.
+         */
+        public long getReceivedFrames() {
+            return receivedFrames;
+        }
+
+        /**
+         * The number of datagrams and tcp frames dropped, because the ingest workers were overloaded or they
+         * could not be parsed.
+         */
+        public long getDroppedFrames() {
+            return droppedFrames;
+        }
+
+        /**
+         * The number of actions currently waiting in the shard queues.
+         */
+        public long getQueuedActions() {
+            return queuedActions;
+        }
+
+        /**
+         * The number of actions dropped because their shard queue was full.
+         */
+        public long getDroppedActions() {
+            return droppedActions;
+        }
+
+        /**
+         * The number of actions that failed to be routed to their shard.
+         */
+        public long getFailedActions() {
+            return failedActions;
+        }
+    }
+
     class Handler extends SimpleChannelUpstreamHandler {
 
         @Override
         public void messageReceived(ChannelHandlerContext ctx, MessageEvent e) throws Exception {
             ChannelBuffer buffer = (ChannelBuffer) e.getMessage();
             logger.trace("received message size [{}]", buffer.readableBytes());
+            receivedFrames.incrementAndGet();
             try {
-                bulkProcessor.add(new ChannelBufferBytesReference(buffer), false, null, null);
-            } catch (Exception e1) {
-                logger.warn("failed to execute bulk request", e1);
+                ingestExecutor.execute(new IngestTask(buffer));
+            } catch (EsRejectedExecutionException e1) {
+                droppedFrames.incrementAndGet();
             }
         }
 
@@ -191,6 +346,84 @@ public class BulkUdpService extends AbstractLifecycleComponent<BulkUdpService> {
                 return;
             }
             logger.warn("failure caught", e.getCause());
+            if (!(e.getChannel() instanceof DatagramChannel)) {
+                // we can't find the next frame of a tcp stream after a failure
+                e.getChannel().close();
+            }
+        }
+    }
+
+    class IngestTask implements Runnable {
+
+        private final ChannelBuffer buffer;
+
+        IngestTask(ChannelBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public void run() {
+            BulkRequest bulkRequest = new BulkRequest();
+            try {
+                bulkRequest.add(new ChannelBufferBytesReference(buffer), false, null, null);
+            } catch (Exception e) {
+                droppedFrames.incrementAndGet();
+                logger.warn("failed to parse bulk request", e);
+                return;
+            }
+            BulkRequest unrouted = batcher.add(bulkRequest);
+            if (unrouted != null) {
+                for (ActionRequest request : unrouted.requests()) {
+                    bulkProcessor.add(request);
+                }
+            }
+        }
+    }
+
+    class FlushTask implements Runnable {
+
+        private long lastDroppedFrames;
+        private long lastDroppedActions;
+
+        @Override
+        public void run() {
+            batcher.flush();
+            Stats stats = stats();
+            if (stats.getDroppedFrames() > lastDroppedFrames || stats.getDroppedActions() > lastDroppedActions) {
+                logger.warn("dropped [{}] frames and [{}] actions in the last [{}], [{}] actions queued",
+                        stats.getDroppedFrames() - lastDroppedFrames, stats.getDroppedActions() - lastDroppedActions, flushInterval, stats.getQueuedActions());
+            } else if (logger.isDebugEnabled()) {
+                logger.debug("received [{}] frames, [{}] actions queued", stats.getReceivedFrames(), stats.getQueuedActions());
+            }
+            lastDroppedFrames = stats.getDroppedFrames();
+            lastDroppedActions = stats.getDroppedActions();
+        }
+    }
+
+    class ShardBulkListener implements BulkShardBatcher.Listener {
+
+        @Override
+        public void afterBulk(ShardId shardId, BulkShardResponse response) {
+            if (logger.isTraceEnabled()) {
+                logger.trace("{} executed [{}] actions", shardId, response.getResponses().length);
+            }
+            int failures = 0;
+            String failureMessage = null;
+            for (BulkItemResponse itemResponse : response.getResponses()) {
+                if (itemResponse.isFailed()) {
+                    if (failures++ == 0) {
+                        failureMessage = itemResponse.getFailureMessage();
+                    }
+                }
+            }
+            if (failures > 0) {
+                logger.warn("{} failed to execute [{}] out of [{}] bulk actions, first failure: {}", shardId, failures, response.getResponses().length, failureMessage);
+            }
+        }
+
+        @Override
+        public void afterBulk(ShardId shardId, int numberOfActions, Throwable e) {
+            logger.warn("{} failed to execute [{}] bulk actions", e, shardId, numberOfActions);
         }
     }
 
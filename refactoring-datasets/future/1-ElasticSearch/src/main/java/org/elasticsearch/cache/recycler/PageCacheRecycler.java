@@ -26,10 +26,18 @@ import org.elasticsearch.common.inject.Inject;
 import org.elasticsearch.common.recycler.AbstractRecyclerC;
 import org.elasticsearch.common.recycler.Recycler;
 import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.ByteSizeValue;
 import org.elasticsearch.common.util.BigArrays;
 import org.elasticsearch.common.util.concurrent.EsExecutors;
+import org.elasticsearch.monitor.jvm.JvmInfo;
 import org.elasticsearch.threadpool.ThreadPool;
 
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.security.AccessController;
+import java.security.PrivilegedActionException;
+import java.security.PrivilegedExceptionAction;
 import java.util.Arrays;
 import java.util.Locale;
 
@@ -40,6 +48,7 @@ public class PageCacheRecycler extends AbstractComponent {
 
     public static final String TYPE = "page.type";
     public static final String LIMIT_HEAP = "page.limit.heap";
+    public static final String LIMIT_OFF_HEAP = "page.limit.off_heap";
     public static final String LIMIT_PER_THREAD = "page.limit.per_thread";
     public static final String WEIGHT = "page.weight";
 
@@ -49,6 +58,9 @@ public class PageCacheRecycler extends AbstractComponent {
     private final Recycler<float[]> floatPage;
     private final Recycler<double[]> doublePage;
     private final Recycler<Object[]> objectPage;
+    private final Recycler<ByteBuffer> directPage;
+
+    private static final byte[] ZERO_PAGE = new byte[BigArrays.PAGE_SIZE_IN_BYTES];
 
     public void close() {
         bytePage.close();
@@ -57,6 +69,7 @@ public class PageCacheRecycler extends AbstractComponent {
         floatPage.close();
         doublePage.close();
         objectPage.close();
+        directPage.close();
     }
 
     private static int maximumSearchThreadPoolSize(ThreadPool threadPool, Settings settings) {
@@ -171,6 +184,54 @@ public class PageCacheRecycler extends AbstractComponent {
                 Arrays.fill(value, null); // we need to remove the strong refs on the objects stored in the array
             }
         });
+
+        // off-heap pages are only used when big arrays are configured to store their data off-heap, they are not
+        // part of the heap limit and get their own limit, relative to the maximum amount of direct memory
+        final long directMemoryMax = JvmInfo.jvmInfo().mem().directMemoryMax().bytes();
+        final long offHeapLimit = componentSettings.getAsBytesSize(LIMIT_OFF_HEAP, new ByteSizeValue(directMemoryMax / 10)).bytes();
+        directPage = build(type, maxCount(offHeapLimit, BigArrays.PAGE_SIZE_IN_BYTES, 1d, 1d), searchThreadPoolSize, availableProcessors, new AbstractRecyclerC<ByteBuffer>() {
+            @Override
+            public ByteBuffer newInstance(int sizing) {
+                return ByteBuffer.allocateDirect(BigArrays.PAGE_SIZE_IN_BYTES).order(ByteOrder.nativeOrder());
+            }
+            @Override
+            public void recycle(ByteBuffer value) {
+                // nothing to do, pages are only accessed using absolute offsets
+            }
+            @Override
+            public void destroy(ByteBuffer value) {
+                // pages that don't fit in the cache anymore have already been released from the off-heap breaker,
+                // so free them now instead of waiting for a GC to notice that the buffer is not referenced anymore
+                if (!freeDirectPage(value)) {
+                    logger.trace("could not eagerly free an off-heap page, it will be freed on the next GC");
+                }
+            }
+        });
+    }
+
+    /**
+     * Free the native memory of a direct page, the page must not be accessed anymore after this method returned
+     * <tt>true</tt>. Returns <tt>false</tt> if the JVM doesn't allow to free direct buffers eagerly.
+     */
+    static boolean freeDirectPage(final ByteBuffer page) {
+        assert page.isDirect();
+        try {
+            AccessController.doPrivileged(new PrivilegedExceptionAction<Void>() {
+                @Override
+                public Void run() throws Exception {
+                    final Method getCleanerMethod = page.getClass().getMethod("cleaner");
+                    getCleanerMethod.setAccessible(true);
+                    final Object cleaner = getCleanerMethod.invoke(page);
+                    if (cleaner != null) {
+                        cleaner.getClass().getMethod("clean").invoke(cleaner);
+                    }
+                    return null;
+                }
+            });
+            return true;
+        } catch (PrivilegedActionException e) {
+            return false;
+        }
     }
 
     public Recycler.V<byte[]> bytePage(boolean clear) {
@@ -218,6 +279,20 @@ public class PageCacheRecycler extends AbstractComponent {
         return objectPage.obtain();
     }
 
+    /**
+     * Obtain an off-heap page of {@link BigArrays#PAGE_SIZE_IN_BYTES} bytes, using the native byte order.
+     */
+    public Recycler.V<ByteBuffer> directPage(boolean clear) {
+        final Recycler.V<ByteBuffer> v = directPage.obtain();
+        if (v.isRecycled() && clear) {
+            final ByteBuffer page = v.v();
+            page.clear();
+            page.put(ZERO_PAGE);
+            page.clear();
+        }
+        return v;
+    }
+
     private static <T> Recycler<T> build(Type type, int limit, int estimatedThreadPoolSize, int availableProcessors, Recycler.C<T> c) {
         final Recycler<T> recycler;
         if (limit == 0) {
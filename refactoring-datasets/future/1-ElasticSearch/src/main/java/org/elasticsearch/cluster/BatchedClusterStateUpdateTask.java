@@ -0,0 +1,37 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.cluster;
+
+/**
+ * An extension interface to {@link ClusterStateUpdateTask} for tasks that can be executed together with other pending
+ * tasks of the same class and priority. The tasks of a batch are executed in order, each one on the state returned by
+ * the previous one, and the resulting cluster state is published once. Failures are reported to the failing task only,
+ * while the processed and acknowledgement callbacks of the other tasks refer to the published state.
+ */
+public interface BatchedClusterStateUpdateTask extends ClusterStateUpdateTask {
+
+    /**
+     * Called once the tasks of a batch have been executed, with the resulting cluster state, if at least one of them
+     * changed it. Work that only depends on the final state, like rerouting, should be done here instead of in
+     * {@link #execute(ClusterState)} so that it runs once per batch. It is called on one of the executed tasks, a
+     * failure fails all the executed tasks of the batch.
+     */
+    ClusterState executeBatchCompleted(ClusterState batchState) throws Exception;
+}
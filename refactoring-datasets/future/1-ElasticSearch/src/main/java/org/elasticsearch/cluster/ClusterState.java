@@ -98,8 +98,12 @@ public class ClusterState implements ToXContent {
     }
 
 
+    public static final String UNKNOWN_UUID = "_na_";
+
     private final long version;
 
+    private final String uuid;
+
     private final RoutingTable routingTable;
 
     private final DiscoveryNodes nodes;
@@ -116,11 +120,12 @@ public class ClusterState implements ToXContent {
     private SettingsFilter settingsFilter;
 
     public ClusterState(long version, ClusterState state) {
-        this(version, state.metaData(), state.routingTable(), state.nodes(), state.blocks(), state.customs());
+        this(version, Strings.randomBase64UUID(), state.metaData(), state.routingTable(), state.nodes(), state.blocks(), state.customs());
     }
 
-    public ClusterState(long version, MetaData metaData, RoutingTable routingTable, DiscoveryNodes nodes, ClusterBlocks blocks, ImmutableOpenMap<String, Custom> customs) {
+    public ClusterState(long version, String uuid, MetaData metaData, RoutingTable routingTable, DiscoveryNodes nodes, ClusterBlocks blocks, ImmutableOpenMap<String, Custom> customs) {
         this.version = version;
+        this.uuid = uuid;
         this.metaData = metaData;
         this.routingTable = routingTable;
         this.nodes = nodes;
@@ -136,6 +141,18 @@ public class ClusterState implements ToXContent {
         return version();
     }
 
+    /**
+     * The unique id of this cluster state, a new one is generated each time a cluster state is built. Used
+     * to verify that a cluster state diff is applied on the exact same state it was computed against.
+     */
+    public String uuid() {
+        return this.uuid;
+    }
+
+    public String getUuid() {
+        return uuid();
+    }
+
     public DiscoveryNodes nodes() {
         return this.nodes;
     }
@@ -431,6 +448,7 @@ public class ClusterState implements ToXContent {
     public static class Builder {
 
         private long version = 0;
+        private String uuid = UNKNOWN_UUID;
         private MetaData metaData = MetaData.EMPTY_META_DATA;
         private RoutingTable routingTable = RoutingTable.EMPTY_ROUTING_TABLE;
         private DiscoveryNodes nodes = DiscoveryNodes.EMPTY_NODES;
@@ -496,6 +514,14 @@ public class ClusterState implements ToXContent {
             return this;
         }
 
+        /**
+         * Sets the uuid of the built cluster state, if not set (the default) a new random uuid is generated.
+         */
+        public Builder uuid(String uuid) {
+            this.uuid = uuid;
+            return this;
+        }
+
         public Custom getCustom(String type) {
             return customs.get(type);
         }
@@ -511,7 +537,11 @@ public class ClusterState implements ToXContent {
         }
 
         public ClusterState build() {
-            return new ClusterState(version, metaData, routingTable, nodes, blocks, customs.build());
+            String uuid = this.uuid;
+            if (UNKNOWN_UUID.equals(uuid)) {
+                uuid = Strings.randomBase64UUID();
+            }
+            return new ClusterState(version, uuid, metaData, routingTable, nodes, blocks, customs.build());
         }
 
         public static byte[] toBytes(ClusterState state) throws IOException {
@@ -526,6 +556,9 @@ public class ClusterState implements ToXContent {
 
         public static void writeTo(ClusterState state, StreamOutput out) throws IOException {
             out.writeLong(state.version());
+            if (out.getVersion().onOrAfter(Version.V_2_0_0)) {
+                out.writeString(state.uuid());
+            }
             MetaData.Builder.writeTo(state.metaData(), out);
             RoutingTable.Builder.writeTo(state.routingTable(), out);
             DiscoveryNodes.Builder.writeTo(state.nodes(), out);
@@ -541,9 +574,64 @@ public class ClusterState implements ToXContent {
             }
         }
 
+        /**
+         * Writes the changes required to get from the previous cluster state to the provided cluster state. Only
+         * the index meta data and index routing tables that changed are written, the rest of the state is small
+         * and written in full. The diff can only be applied (using {@link #readDiffFrom(StreamInput, ClusterState, DiscoveryNode)})
+         * on a cluster state with the same uuid as the previous cluster state.
+         */
+        public static void writeDiffTo(ClusterState previousState, ClusterState state, StreamOutput out) throws IOException {
+            out.writeString(previousState.uuid());
+            out.writeLong(state.version());
+            out.writeString(state.uuid());
+            MetaData.Builder.writeDiffTo(previousState.metaData(), state.metaData(), out);
+            RoutingTable.Builder.writeDiffTo(previousState.routingTable(), state.routingTable(), out);
+            DiscoveryNodes.Builder.writeTo(state.nodes(), out);
+            ClusterBlocks.Builder.writeClusterBlocks(state.blocks(), out);
+            out.writeVInt(state.customs().size());
+            for (ObjectObjectCursor<String, Custom> cursor : state.customs()) {
+                out.writeString(cursor.key);
+                lookupFactorySafe(cursor.key).writeTo(cursor.value, out);
+            }
+        }
+
+        /**
+         * Reads a diff written by {@link #writeDiffTo(ClusterState, ClusterState, StreamOutput)} and applies it on the
+         * provided previous cluster state.
+         *
+         * @throws IncompatibleClusterStateVersionException if the diff was not computed against the previous cluster state
+         */
+        public static ClusterState readDiffFrom(StreamInput in, @Nullable ClusterState previousState, @Nullable DiscoveryNode localNode) throws IOException {
+            String previousUuid = in.readString();
+            if (previousState == null) {
+                throw new IncompatibleClusterStateVersionException("received a cluster state diff based on [" + previousUuid + "] but no previous cluster state is known");
+            }
+            if (!previousUuid.equals(previousState.uuid())) {
+                throw new IncompatibleClusterStateVersionException("received a cluster state diff based on [" + previousUuid + "] but the known cluster state is ["
+                        + previousState.uuid() + "], version [" + previousState.version() + "]");
+            }
+            Builder builder = new Builder();
+            builder.version = in.readLong();
+            builder.uuid = in.readString();
+            builder.metaData = MetaData.Builder.readDiffFrom(in, previousState.metaData());
+            builder.routingTable = RoutingTable.Builder.readDiffFrom(in, previousState.routingTable());
+            builder.nodes = DiscoveryNodes.Builder.readFrom(in, localNode);
+            builder.blocks = ClusterBlocks.Builder.readClusterBlocks(in);
+            int customSize = in.readVInt();
+            for (int i = 0; i < customSize; i++) {
+                String type = in.readString();
+                Custom customIndexMetaData = lookupFactorySafe(type).readFrom(in);
+                builder.putCustom(type, customIndexMetaData);
+            }
+            return builder.build();
+        }
+
         public static ClusterState readFrom(StreamInput in, @Nullable DiscoveryNode localNode) throws IOException {
             Builder builder = new Builder();
             builder.version = in.readLong();
+            if (in.getVersion().onOrAfter(Version.V_2_0_0)) {
+                builder.uuid = in.readString();
+            }
             builder.metaData = MetaData.Builder.readFrom(in);
             builder.routingTable = RoutingTable.Builder.readFrom(in);
             builder.nodes = DiscoveryNodes.Builder.readFrom(in, localNode);
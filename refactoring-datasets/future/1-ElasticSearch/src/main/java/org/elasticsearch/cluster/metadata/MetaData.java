@@ -1357,6 +1357,75 @@ public class MetaData implements Iterable<IndexMetaData> {
             return builder.build();
         }
 
+        /**
+         * Writes the global meta data in full, but only the index meta data that was added or changed (by
+         * identity) compared to the previous meta data, plus the names of the indices that were removed.
+         */
+        public static void writeDiffTo(MetaData previousMetaData, MetaData metaData, StreamOutput out) throws IOException {
+            out.writeLong(metaData.version);
+            out.writeString(metaData.uuid);
+            writeSettingsToStream(metaData.transientSettings(), out);
+            writeSettingsToStream(metaData.persistentSettings(), out);
+            List<IndexMetaData> changedIndices = new ArrayList<IndexMetaData>();
+            for (IndexMetaData indexMetaData : metaData) {
+                if (previousMetaData.indices.get(indexMetaData.index()) != indexMetaData) {
+                    changedIndices.add(indexMetaData);
+                }
+            }
+            out.writeVInt(changedIndices.size());
+            for (IndexMetaData indexMetaData : changedIndices) {
+                IndexMetaData.Builder.writeTo(indexMetaData, out);
+            }
+            List<String> removedIndices = new ArrayList<String>();
+            for (IndexMetaData indexMetaData : previousMetaData) {
+                if (!metaData.indices.containsKey(indexMetaData.index())) {
+                    removedIndices.add(indexMetaData.index());
+                }
+            }
+            out.writeStringArray(removedIndices.toArray(new String[removedIndices.size()]));
+            out.writeVInt(metaData.templates.size());
+            for (ObjectCursor<IndexTemplateMetaData> cursor : metaData.templates.values()) {
+                IndexTemplateMetaData.Builder.writeTo(cursor.value, out);
+            }
+            out.writeVInt(metaData.customs().size());
+            for (ObjectObjectCursor<String, Custom> cursor : metaData.customs()) {
+                out.writeString(cursor.key);
+                lookupFactorySafe(cursor.key).writeTo(cursor.value, out);
+            }
+        }
+
+        /**
+         * Reads a diff written by {@link #writeDiffTo(MetaData, MetaData, StreamOutput)}, unchanged index meta data is
+         * reused from the previous meta data.
+         */
+        public static MetaData readDiffFrom(StreamInput in, MetaData previousMetaData) throws IOException {
+            Builder builder = new Builder(previousMetaData);
+            builder.version = in.readLong();
+            builder.uuid = in.readString();
+            builder.transientSettings(readSettingsFromStream(in));
+            builder.persistentSettings(readSettingsFromStream(in));
+            int size = in.readVInt();
+            for (int i = 0; i < size; i++) {
+                builder.put(IndexMetaData.Builder.readFrom(in), false);
+            }
+            for (String index : in.readStringArray()) {
+                builder.remove(index);
+            }
+            builder.templates.clear();
+            size = in.readVInt();
+            for (int i = 0; i < size; i++) {
+                builder.put(IndexTemplateMetaData.Builder.readFrom(in));
+            }
+            builder.customs.clear();
+            int customSize = in.readVInt();
+            for (int i = 0; i < customSize; i++) {
+                String type = in.readString();
+                Custom customIndexMetaData = lookupFactorySafe(type).readFrom(in);
+                builder.putCustom(type, customIndexMetaData);
+            }
+            return builder.build();
+        }
+
         public static void writeTo(MetaData metaData, StreamOutput out) throws IOException {
             out.writeLong(metaData.version);
             out.writeString(metaData.uuid);
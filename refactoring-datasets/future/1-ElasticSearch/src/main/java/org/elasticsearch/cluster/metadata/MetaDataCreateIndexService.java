@@ -31,6 +31,7 @@ import org.elasticsearch.Version;
 import org.elasticsearch.action.admin.indices.alias.Alias;
 import org.elasticsearch.action.admin.indices.create.CreateIndexClusterStateUpdateRequest;
 import org.elasticsearch.cluster.AckedClusterStateUpdateTask;
+import org.elasticsearch.cluster.BatchedClusterStateUpdateTask;
 import org.elasticsearch.cluster.ClusterService;
 import org.elasticsearch.cluster.ClusterState;
 import org.elasticsearch.cluster.ack.ClusterStateUpdateListener;
@@ -177,280 +178,298 @@ public class MetaDataCreateIndexService extends AbstractComponent {
     }
 
     private void createIndex(final CreateIndexClusterStateUpdateRequest request, final ClusterStateUpdateListener listener, final Semaphore mdLock) {
-        clusterService.submitStateUpdateTask("create-index [" + request.index() + "], cause [" + request.cause() + "]", Priority.URGENT, new AckedClusterStateUpdateTask() {
+        clusterService.submitStateUpdateTask("create-index [" + request.index() + "], cause [" + request.cause() + "]", Priority.URGENT, new CreateIndexTask(request, listener, mdLock));
+    }
 
-            @Override
-            public boolean mustAck(DiscoveryNode discoveryNode) {
-                return true;
-            }
+    private class CreateIndexTask implements AckedClusterStateUpdateTask, BatchedClusterStateUpdateTask {
 
-            @Override
-            public void onAllNodesAcked(@Nullable Throwable t) {
-                mdLock.release();
-                listener.onResponse(new ClusterStateUpdateResponse(true));
-            }
+        private final CreateIndexClusterStateUpdateRequest request;
+        private final ClusterStateUpdateListener listener;
+        private final Semaphore mdLock;
 
-            @Override
-            public void onAckTimeout() {
-                mdLock.release();
-                listener.onResponse(new ClusterStateUpdateResponse(false));
-            }
-
-            @Override
-            public TimeValue ackTimeout() {
-                return request.ackTimeout();
-            }
+        CreateIndexTask(CreateIndexClusterStateUpdateRequest request, ClusterStateUpdateListener listener, Semaphore mdLock) {
+            this.request = request;
+            this.listener = listener;
+            this.mdLock = mdLock;
+        }
 
-            @Override
-            public TimeValue timeout() {
-                return request.masterNodeTimeout();
-            }
+        @Override
+        public boolean mustAck(DiscoveryNode discoveryNode) {
+            return true;
+        }
 
-            @Override
-            public void onFailure(String source, Throwable t) {
-                mdLock.release();
-                listener.onFailure(t);
-            }
+        @Override
+        public void onAllNodesAcked(@Nullable Throwable t) {
+            mdLock.release();
+            listener.onResponse(new ClusterStateUpdateResponse(true));
+        }
 
-            @Override
-            public ClusterState execute(ClusterState currentState) throws Exception {
-                boolean indexCreated = false;
-                String failureReason = null;
-                try {
-                    validate(request, currentState);
+        @Override
+        public void onAckTimeout() {
+            mdLock.release();
+            listener.onResponse(new ClusterStateUpdateResponse(false));
+        }
 
-                    for (Alias alias : request.aliases()) {
-                        aliasValidator.validateAlias(alias, request.index(), currentState.metaData());
-                    }
+        @Override
+        public TimeValue ackTimeout() {
+            return request.ackTimeout();
+        }
 
-                    // we only find a template when its an API call (a new index)
-                    // find templates, highest order are better matching
-                    List<IndexTemplateMetaData> templates = findTemplates(request, currentState);
+        @Override
+        public TimeValue timeout() {
+            return request.masterNodeTimeout();
+        }
 
-                    Map<String, Custom> customs = Maps.newHashMap();
+        @Override
+        public void onFailure(String source, Throwable t) {
+            mdLock.release();
+            listener.onFailure(t);
+        }
 
-                    // add the request mapping
-                    Map<String, Map<String, Object>> mappings = Maps.newHashMap();
+        @Override
+        public ClusterState execute(ClusterState currentState) throws Exception {
+            boolean indexCreated = false;
+            String failureReason = null;
+            try {
+                validate(request, currentState);
 
-                    Map<String, AliasMetaData> templatesAliases = Maps.newHashMap();
+                for (Alias alias : request.aliases()) {
+                    aliasValidator.validateAlias(alias, request.index(), currentState.metaData());
+                }
 
-                    for (Map.Entry<String, String> entry : request.mappings().entrySet()) {
-                        mappings.put(entry.getKey(), parseMapping(entry.getValue()));
-                    }
+                // we only find a template when its an API call (a new index)
+                // find templates, highest order are better matching
+                List<IndexTemplateMetaData> templates = findTemplates(request, currentState);
 
-                    for (Map.Entry<String, Custom> entry : request.customs().entrySet()) {
-                        customs.put(entry.getKey(), entry.getValue());
-                    }
+                Map<String, Custom> customs = Maps.newHashMap();
 
-                    // apply templates, merging the mappings into the request mapping if exists
-                    for (IndexTemplateMetaData template : templates) {
-                        for (ObjectObjectCursor<String, CompressedString> cursor : template.mappings()) {
-                            if (mappings.containsKey(cursor.key)) {
-                                XContentHelper.mergeDefaults(mappings.get(cursor.key), parseMapping(cursor.value.string()));
-                            } else {
-                                mappings.put(cursor.key, parseMapping(cursor.value.string()));
-                            }
-                        }
-                        // handle custom
-                        for (ObjectObjectCursor<String, Custom> cursor : template.customs()) {
-                            String type = cursor.key;
-                            IndexMetaData.Custom custom = cursor.value;
-                            IndexMetaData.Custom existing = customs.get(type);
-                            if (existing == null) {
-                                customs.put(type, custom);
-                            } else {
-                                IndexMetaData.Custom merged = IndexMetaData.lookupFactorySafe(type).merge(existing, custom);
-                                customs.put(type, merged);
-                            }
-                        }
-                        //handle aliases
-                        for (ObjectObjectCursor<String, AliasMetaData> cursor : template.aliases()) {
-                            AliasMetaData aliasMetaData = cursor.value;
-                            //if an alias with same name came with the create index request itself,
-                            // ignore this one taken from the index template
-                            if (request.aliases().contains(new Alias(aliasMetaData.alias()))) {
-                                continue;
-                            }
-                            //if an alias with same name was already processed, ignore this one
-                            if (templatesAliases.containsKey(cursor.key)) {
-                                continue;
-                            }
-
-                            //Allow templatesAliases to be templated by replacing a token with the name of the index that we are applying it to
-                            if (aliasMetaData.alias().contains("{index}")) {
-                                String templatedAlias = aliasMetaData.alias().replace("{index}", request.index());
-                                aliasMetaData = AliasMetaData.newAliasMetaData(aliasMetaData, templatedAlias);
-                            }
-
-                            aliasValidator.validateAliasMetaData(aliasMetaData, request.index(), currentState.metaData());
-                            templatesAliases.put(aliasMetaData.alias(), aliasMetaData);
-                        }
-                    }
+                // add the request mapping
+                Map<String, Map<String, Object>> mappings = Maps.newHashMap();
 
-                    // now add config level mappings
-                    File mappingsDir = new File(environment.configFile(), "mappings");
-                    if (mappingsDir.exists() && mappingsDir.isDirectory()) {
-                        // first index level
-                        File indexMappingsDir = new File(mappingsDir, request.index());
-                        if (indexMappingsDir.exists() && indexMappingsDir.isDirectory()) {
-                            addMappings(mappings, indexMappingsDir);
-                        }
+                Map<String, AliasMetaData> templatesAliases = Maps.newHashMap();
 
-                        // second is the _default mapping
-                        File defaultMappingsDir = new File(mappingsDir, "_default");
-                        if (defaultMappingsDir.exists() && defaultMappingsDir.isDirectory()) {
-                            addMappings(mappings, defaultMappingsDir);
-                        }
-                    }
+                for (Map.Entry<String, String> entry : request.mappings().entrySet()) {
+                    mappings.put(entry.getKey(), parseMapping(entry.getValue()));
+                }
 
-                    ImmutableSettings.Builder indexSettingsBuilder = settingsBuilder();
-                    // apply templates, here, in reverse order, since first ones are better matching
-                    for (int i = templates.size() - 1; i >= 0; i--) {
-                        indexSettingsBuilder.put(templates.get(i).settings());
-                    }
-                    // now, put the request settings, so they override templates
-                    indexSettingsBuilder.put(request.settings());
+                for (Map.Entry<String, Custom> entry : request.customs().entrySet()) {
+                    customs.put(entry.getKey(), entry.getValue());
+                }
 
-                    if (indexSettingsBuilder.get(SETTING_NUMBER_OF_SHARDS) == null) {
-                        if (request.index().equals(riverIndexName)) {
-                            indexSettingsBuilder.put(SETTING_NUMBER_OF_SHARDS, settings.getAsInt(SETTING_NUMBER_OF_SHARDS, 1));
+                // apply templates, merging the mappings into the request mapping if exists
+                for (IndexTemplateMetaData template : templates) {
+                    for (ObjectObjectCursor<String, CompressedString> cursor : template.mappings()) {
+                        if (mappings.containsKey(cursor.key)) {
+                            XContentHelper.mergeDefaults(mappings.get(cursor.key), parseMapping(cursor.value.string()));
                         } else {
-                            indexSettingsBuilder.put(SETTING_NUMBER_OF_SHARDS, settings.getAsInt(SETTING_NUMBER_OF_SHARDS, 5));
+                            mappings.put(cursor.key, parseMapping(cursor.value.string()));
                         }
                     }
-                    if (indexSettingsBuilder.get(SETTING_NUMBER_OF_REPLICAS) == null) {
-                        if (request.index().equals(riverIndexName)) {
-                            indexSettingsBuilder.put(SETTING_NUMBER_OF_REPLICAS, settings.getAsInt(SETTING_NUMBER_OF_REPLICAS, 1));
+                    // handle custom
+                    for (ObjectObjectCursor<String, Custom> cursor : template.customs()) {
+                        String type = cursor.key;
+                        IndexMetaData.Custom custom = cursor.value;
+                        IndexMetaData.Custom existing = customs.get(type);
+                        if (existing == null) {
+                            customs.put(type, custom);
                         } else {
-                            indexSettingsBuilder.put(SETTING_NUMBER_OF_REPLICAS, settings.getAsInt(SETTING_NUMBER_OF_REPLICAS, 1));
-                        }
-                    }
-
-                    if (settings.get(SETTING_AUTO_EXPAND_REPLICAS) != null && indexSettingsBuilder.get(SETTING_AUTO_EXPAND_REPLICAS) == null) {
-                        indexSettingsBuilder.put(SETTING_AUTO_EXPAND_REPLICAS, settings.get(SETTING_AUTO_EXPAND_REPLICAS));
-                    }
-
-                    if (indexSettingsBuilder.get(SETTING_VERSION_CREATED) == null) {
-                        indexSettingsBuilder.put(SETTING_VERSION_CREATED, version);
-                    }
-                    indexSettingsBuilder.put(SETTING_UUID, Strings.randomBase64UUID());
-
-                    Settings actualIndexSettings = indexSettingsBuilder.build();
-
-                    // Set up everything, now locally create the index to see that things are ok, and apply
-
-                    // create the index here (on the master) to validate it can be created, as well as adding the mapping
-                    indicesService.createIndex(request.index(), actualIndexSettings, clusterService.localNode().id());
-                    indexCreated = true;
-                    // now add the mappings
-                    IndexService indexService = indicesService.indexServiceSafe(request.index());
-                    MapperService mapperService = indexService.mapperService();
-                    // first, add the default mapping
-                    if (mappings.containsKey(MapperService.DEFAULT_MAPPING)) {
-                        try {
-                            mapperService.merge(MapperService.DEFAULT_MAPPING, new CompressedString(XContentFactory.jsonBuilder().map(mappings.get(MapperService.DEFAULT_MAPPING)).string()), false);
-                        } catch (Exception e) {
-                            failureReason = "failed on parsing default mapping on index creation";
-                            throw new MapperParsingException("mapping [" + MapperService.DEFAULT_MAPPING + "]", e);
+                            IndexMetaData.Custom merged = IndexMetaData.lookupFactorySafe(type).merge(existing, custom);
+                            customs.put(type, merged);
                         }
                     }
-                    for (Map.Entry<String, Map<String, Object>> entry : mappings.entrySet()) {
-                        if (entry.getKey().equals(MapperService.DEFAULT_MAPPING)) {
+                    //handle aliases
+                    for (ObjectObjectCursor<String, AliasMetaData> cursor : template.aliases()) {
+                        AliasMetaData aliasMetaData = cursor.value;
+                        //if an alias with same name came with the create index request itself,
+                        // ignore this one taken from the index template
+                        if (request.aliases().contains(new Alias(aliasMetaData.alias()))) {
                             continue;
                         }
-                        try {
-                            // apply the default here, its the first time we parse it
-                            mapperService.merge(entry.getKey(), new CompressedString(XContentFactory.jsonBuilder().map(entry.getValue()).string()), true);
-                        } catch (Exception e) {
-                            failureReason = "failed on parsing mappings on index creation";
-                            throw new MapperParsingException("mapping [" + entry.getKey() + "]", e);
+                        //if an alias with same name was already processed, ignore this one
+                        if (templatesAliases.containsKey(cursor.key)) {
+                            continue;
                         }
-                    }
 
-                    IndexQueryParserService indexQueryParserService = indexService.queryParserService();
-                    for (Alias alias : request.aliases()) {
-                        if (Strings.hasLength(alias.filter())) {
-                            aliasValidator.validateAliasFilter(alias.name(), alias.filter(), indexQueryParserService);
-                        }
-                    }
-                    for (AliasMetaData aliasMetaData : templatesAliases.values()) {
-                        if (aliasMetaData.filter() != null) {
-                            aliasValidator.validateAliasFilter(aliasMetaData.alias(), aliasMetaData.filter().uncompressed(), indexQueryParserService);
+                        //Allow templatesAliases to be templated by replacing a token with the name of the index that we are applying it to
+                        if (aliasMetaData.alias().contains("{index}")) {
+                            String templatedAlias = aliasMetaData.alias().replace("{index}", request.index());
+                            aliasMetaData = AliasMetaData.newAliasMetaData(aliasMetaData, templatedAlias);
                         }
+
+                        aliasValidator.validateAliasMetaData(aliasMetaData, request.index(), currentState.metaData());
+                        templatesAliases.put(aliasMetaData.alias(), aliasMetaData);
                     }
+                }
 
-                    // now, update the mappings with the actual source
-                    Map<String, MappingMetaData> mappingsMetaData = Maps.newHashMap();
-                    for (DocumentMapper mapper : mapperService) {
-                        MappingMetaData mappingMd = new MappingMetaData(mapper);
-                        mappingsMetaData.put(mapper.type(), mappingMd);
+                // now add config level mappings
+                File mappingsDir = new File(environment.configFile(), "mappings");
+                if (mappingsDir.exists() && mappingsDir.isDirectory()) {
+                    // first index level
+                    File indexMappingsDir = new File(mappingsDir, request.index());
+                    if (indexMappingsDir.exists() && indexMappingsDir.isDirectory()) {
+                        addMappings(mappings, indexMappingsDir);
                     }
 
-                    final IndexMetaData.Builder indexMetaDataBuilder = IndexMetaData.builder(request.index()).settings(actualIndexSettings);
-                    for (MappingMetaData mappingMd : mappingsMetaData.values()) {
-                        indexMetaDataBuilder.putMapping(mappingMd);
+                    // second is the _default mapping
+                    File defaultMappingsDir = new File(mappingsDir, "_default");
+                    if (defaultMappingsDir.exists() && defaultMappingsDir.isDirectory()) {
+                        addMappings(mappings, defaultMappingsDir);
                     }
+                }
 
-                    for (AliasMetaData aliasMetaData : templatesAliases.values()) {
-                        indexMetaDataBuilder.putAlias(aliasMetaData);
+                ImmutableSettings.Builder indexSettingsBuilder = settingsBuilder();
+                // apply templates, here, in reverse order, since first ones are better matching
+                for (int i = templates.size() - 1; i >= 0; i--) {
+                    indexSettingsBuilder.put(templates.get(i).settings());
+                }
+                // now, put the request settings, so they override templates
+                indexSettingsBuilder.put(request.settings());
+
+                if (indexSettingsBuilder.get(SETTING_NUMBER_OF_SHARDS) == null) {
+                    if (request.index().equals(riverIndexName)) {
+                        indexSettingsBuilder.put(SETTING_NUMBER_OF_SHARDS, settings.getAsInt(SETTING_NUMBER_OF_SHARDS, 1));
+                    } else {
+                        indexSettingsBuilder.put(SETTING_NUMBER_OF_SHARDS, settings.getAsInt(SETTING_NUMBER_OF_SHARDS, 5));
                     }
-                    for (Alias alias : request.aliases()) {
-                        AliasMetaData aliasMetaData = AliasMetaData.builder(alias.name()).filter(alias.filter())
-                                .indexRouting(alias.indexRouting()).searchRouting(alias.searchRouting()).build();
-                        indexMetaDataBuilder.putAlias(aliasMetaData);
+                }
+                if (indexSettingsBuilder.get(SETTING_NUMBER_OF_REPLICAS) == null) {
+                    if (request.index().equals(riverIndexName)) {
+                        indexSettingsBuilder.put(SETTING_NUMBER_OF_REPLICAS, settings.getAsInt(SETTING_NUMBER_OF_REPLICAS, 1));
+                    } else {
+                        indexSettingsBuilder.put(SETTING_NUMBER_OF_REPLICAS, settings.getAsInt(SETTING_NUMBER_OF_REPLICAS, 1));
                     }
+                }
 
-                    for (Map.Entry<String, Custom> customEntry : customs.entrySet()) {
-                        indexMetaDataBuilder.putCustom(customEntry.getKey(), customEntry.getValue());
-                    }
+                if (settings.get(SETTING_AUTO_EXPAND_REPLICAS) != null && indexSettingsBuilder.get(SETTING_AUTO_EXPAND_REPLICAS) == null) {
+                    indexSettingsBuilder.put(SETTING_AUTO_EXPAND_REPLICAS, settings.get(SETTING_AUTO_EXPAND_REPLICAS));
+                }
+
+                if (indexSettingsBuilder.get(SETTING_VERSION_CREATED) == null) {
+                    indexSettingsBuilder.put(SETTING_VERSION_CREATED, version);
+                }
+                indexSettingsBuilder.put(SETTING_UUID, Strings.randomBase64UUID());
 
-                    indexMetaDataBuilder.state(request.state());
+                Settings actualIndexSettings = indexSettingsBuilder.build();
 
-                    final IndexMetaData indexMetaData;
+                // Set up everything, now locally create the index to see that things are ok, and apply
+
+                // create the index here (on the master) to validate it can be created, as well as adding the mapping
+                indicesService.createIndex(request.index(), actualIndexSettings, clusterService.localNode().id());
+                indexCreated = true;
+                // now add the mappings
+                IndexService indexService = indicesService.indexServiceSafe(request.index());
+                MapperService mapperService = indexService.mapperService();
+                // first, add the default mapping
+                if (mappings.containsKey(MapperService.DEFAULT_MAPPING)) {
                     try {
-                        indexMetaData = indexMetaDataBuilder.build();
+                        mapperService.merge(MapperService.DEFAULT_MAPPING, new CompressedString(XContentFactory.jsonBuilder().map(mappings.get(MapperService.DEFAULT_MAPPING)).string()), false);
                     } catch (Exception e) {
-                        failureReason = "failed to build index metadata";
-                        throw e;
+                        failureReason = "failed on parsing default mapping on index creation";
+                        throw new MapperParsingException("mapping [" + MapperService.DEFAULT_MAPPING + "]", e);
                     }
+                }
+                for (Map.Entry<String, Map<String, Object>> entry : mappings.entrySet()) {
+                    if (entry.getKey().equals(MapperService.DEFAULT_MAPPING)) {
+                        continue;
+                    }
+                    try {
+                        // apply the default here, its the first time we parse it
+                        mapperService.merge(entry.getKey(), new CompressedString(XContentFactory.jsonBuilder().map(entry.getValue()).string()), true);
+                    } catch (Exception e) {
+                        failureReason = "failed on parsing mappings on index creation";
+                        throw new MapperParsingException("mapping [" + entry.getKey() + "]", e);
+                    }
+                }
 
-                    MetaData newMetaData = MetaData.builder(currentState.metaData())
-                            .put(indexMetaData, false)
-                            .build();
-
-                    logger.info("[{}] creating index, cause [{}], shards [{}]/[{}], mappings {}", request.index(), request.cause(), indexMetaData.numberOfShards(), indexMetaData.numberOfReplicas(), mappings.keySet());
-
-                    ClusterBlocks.Builder blocks = ClusterBlocks.builder().blocks(currentState.blocks());
-                    if (!request.blocks().isEmpty()) {
-                        for (ClusterBlock block : request.blocks()) {
-                            blocks.addIndexBlock(request.index(), block);
-                        }
+                IndexQueryParserService indexQueryParserService = indexService.queryParserService();
+                for (Alias alias : request.aliases()) {
+                    if (Strings.hasLength(alias.filter())) {
+                        aliasValidator.validateAliasFilter(alias.name(), alias.filter(), indexQueryParserService);
                     }
-                    if (request.state() == State.CLOSE) {
-                        blocks.addIndexBlock(request.index(), MetaDataIndexStateService.INDEX_CLOSED_BLOCK);
+                }
+                for (AliasMetaData aliasMetaData : templatesAliases.values()) {
+                    if (aliasMetaData.filter() != null) {
+                        aliasValidator.validateAliasFilter(aliasMetaData.alias(), aliasMetaData.filter().uncompressed(), indexQueryParserService);
                     }
+                }
 
-                    ClusterState updatedState = ClusterState.builder(currentState).blocks(blocks).metaData(newMetaData).build();
+                // now, update the mappings with the actual source
+                Map<String, MappingMetaData> mappingsMetaData = Maps.newHashMap();
+                for (DocumentMapper mapper : mapperService) {
+                    MappingMetaData mappingMd = new MappingMetaData(mapper);
+                    mappingsMetaData.put(mapper.type(), mappingMd);
+                }
 
-                    if (request.state() == State.OPEN) {
-                        RoutingTable.Builder routingTableBuilder = RoutingTable.builder(updatedState.routingTable())
-                                .addAsNew(updatedState.metaData().index(request.index()));
-                        RoutingAllocation.Result routingResult = allocationService.reroute(ClusterState.builder(updatedState).routingTable(routingTableBuilder).build());
-                        updatedState = ClusterState.builder(updatedState).routingResult(routingResult).build();
-                    }
-                    return updatedState;
-                } finally {
-                    if (indexCreated) {
-                        // Index was already partially created - need to clean up
-                        indicesService.removeIndex(request.index(), failureReason != null ? failureReason : "failed to create index");
+                final IndexMetaData.Builder indexMetaDataBuilder = IndexMetaData.builder(request.index()).settings(actualIndexSettings);
+                for (MappingMetaData mappingMd : mappingsMetaData.values()) {
+                    indexMetaDataBuilder.putMapping(mappingMd);
+                }
+
+                for (AliasMetaData aliasMetaData : templatesAliases.values()) {
+                    indexMetaDataBuilder.putAlias(aliasMetaData);
+                }
+                for (Alias alias : request.aliases()) {
+                    AliasMetaData aliasMetaData = AliasMetaData.builder(alias.name()).filter(alias.filter())
+                            .indexRouting(alias.indexRouting()).searchRouting(alias.searchRouting()).build();
+                    indexMetaDataBuilder.putAlias(aliasMetaData);
+                }
+
+                for (Map.Entry<String, Custom> customEntry : customs.entrySet()) {
+                    indexMetaDataBuilder.putCustom(customEntry.getKey(), customEntry.getValue());
+                }
+
+                indexMetaDataBuilder.state(request.state());
+
+                final IndexMetaData indexMetaData;
+                try {
+                    indexMetaData = indexMetaDataBuilder.build();
+                } catch (Exception e) {
+                    failureReason = "failed to build index metadata";
+                    throw e;
+                }
+
+                MetaData newMetaData = MetaData.builder(currentState.metaData())
+                        .put(indexMetaData, false)
+                        .build();
+
+                logger.info("[{}] creating index, cause [{}], shards [{}]/[{}], mappings {}", request.index(), request.cause(), indexMetaData.numberOfShards(), indexMetaData.numberOfReplicas(), mappings.keySet());
+
+                ClusterBlocks.Builder blocks = ClusterBlocks.builder().blocks(currentState.blocks());
+                if (!request.blocks().isEmpty()) {
+                    for (ClusterBlock block : request.blocks()) {
+                        blocks.addIndexBlock(request.index(), block);
                     }
                 }
-            }
+                if (request.state() == State.CLOSE) {
+                    blocks.addIndexBlock(request.index(), MetaDataIndexStateService.INDEX_CLOSED_BLOCK);
+                }
 
-            @Override
-            public void clusterStateProcessed(String source, ClusterState oldState, ClusterState newState) {
+                ClusterState updatedState = ClusterState.builder(currentState).blocks(blocks).metaData(newMetaData).build();
+
+                if (request.state() == State.OPEN) {
+                    RoutingTable.Builder routingTableBuilder = RoutingTable.builder(updatedState.routingTable())
+                            .addAsNew(updatedState.metaData().index(request.index()));
+                    // the new shards are allocated by the reroute in executeBatchCompleted
+                    updatedState = ClusterState.builder(updatedState).routingTable(routingTableBuilder).build();
+                }
+                return updatedState;
+            } finally {
+                if (indexCreated) {
+                    // Index was already partially created - need to clean up
+                    indicesService.removeIndex(request.index(), failureReason != null ? failureReason : "failed to create index");
+                }
             }
-        });
+        }
+
+        @Override
+        public ClusterState executeBatchCompleted(ClusterState batchState) {
+            RoutingAllocation.Result routingResult = allocationService.reroute(batchState);
+            return ClusterState.builder(batchState).routingResult(routingResult).build();
+        }
+
+        @Override
+        public void clusterStateProcessed(String source, ClusterState oldState, ClusterState newState) {
+        }
     }
 
     private Map<String, Object> parseMapping(String mappingSource) throws Exception {
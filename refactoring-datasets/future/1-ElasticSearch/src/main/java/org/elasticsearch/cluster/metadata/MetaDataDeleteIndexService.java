@@ -20,6 +20,7 @@
 package org.elasticsearch.cluster.metadata;
 
 import org.elasticsearch.action.support.master.MasterNodeOperationRequest;
+import org.elasticsearch.cluster.BatchedClusterStateUpdateTask;
 import org.elasticsearch.cluster.ClusterService;
 import org.elasticsearch.cluster.ClusterState;
 import org.elasticsearch.cluster.TimeoutClusterStateUpdateTask;
@@ -100,82 +101,96 @@ public class MetaDataDeleteIndexService extends AbstractComponent {
 
     private void deleteIndex(final Request request, final Listener userListener, Semaphore mdLock) {
         final DeleteIndexListener listener = new DeleteIndexListener(mdLock, userListener);
-        clusterService.submitStateUpdateTask("delete-index [" + request.index + "]", Priority.URGENT, new TimeoutClusterStateUpdateTask() {
+        clusterService.submitStateUpdateTask("delete-index [" + request.index + "]", Priority.URGENT, new DeleteIndexTask(request, listener));
+    }
 
-            @Override
-            public TimeValue timeout() {
-                return request.masterTimeout;
-            }
+    private class DeleteIndexTask implements TimeoutClusterStateUpdateTask, BatchedClusterStateUpdateTask {
 
-            @Override
-            public void onFailure(String source, Throwable t) {
-                listener.onFailure(t);
-            }
+        private final Request request;
+        private final DeleteIndexListener listener;
 
-            @Override
-            public ClusterState execute(final ClusterState currentState) {
-                if (!currentState.metaData().hasConcreteIndex(request.index)) {
-                    throw new IndexMissingException(new Index(request.index));
-                }
+        DeleteIndexTask(Request request, DeleteIndexListener listener) {
+            this.request = request;
+            this.listener = listener;
+        }
+
+        @Override
+        public TimeValue timeout() {
+            return request.masterTimeout;
+        }
 
-                logger.info("[{}] deleting index", request.index);
-
-                RoutingTable.Builder routingTableBuilder = RoutingTable.builder(currentState.routingTable());
-                routingTableBuilder.remove(request.index);
-
-                MetaData newMetaData = MetaData.builder(currentState.metaData())
-                        .remove(request.index)
-                        .build();
-
-                RoutingAllocation.Result routingResult = allocationService.reroute(
-                        ClusterState.builder(currentState).routingTable(routingTableBuilder).metaData(newMetaData).build());
-
-                ClusterBlocks blocks = ClusterBlocks.builder().blocks(currentState.blocks()).removeIndexBlocks(request.index).build();
-
-                // wait for events from all nodes that it has been removed from their respective metadata...
-                int count = currentState.nodes().size();
-                // add the notifications that the store was deleted from *data* nodes
-                count += currentState.nodes().dataNodes().size();
-                final AtomicInteger counter = new AtomicInteger(count);
-                // this listener will be notified once we get back a notification based on the cluster state change below.
-                final NodeIndexDeletedAction.Listener nodeIndexDeleteListener = new NodeIndexDeletedAction.Listener() {
-                    @Override
-                    public void onNodeIndexDeleted(String index, String nodeId) {
-                        if (index.equals(request.index)) {
-                            if (counter.decrementAndGet() == 0) {
-                                listener.onResponse(new Response(true));
-                                nodeIndexDeletedAction.remove(this);
-                            }
+        @Override
+        public void onFailure(String source, Throwable t) {
+            listener.onFailure(t);
+        }
+
+        @Override
+        public ClusterState execute(final ClusterState currentState) {
+            if (!currentState.metaData().hasConcreteIndex(request.index)) {
+                throw new IndexMissingException(new Index(request.index));
+            }
+
+            logger.info("[{}] deleting index", request.index);
+
+            RoutingTable.Builder routingTableBuilder = RoutingTable.builder(currentState.routingTable());
+            routingTableBuilder.remove(request.index);
+
+            MetaData newMetaData = MetaData.builder(currentState.metaData())
+                    .remove(request.index)
+                    .build();
+
+            ClusterBlocks blocks = ClusterBlocks.builder().blocks(currentState.blocks()).removeIndexBlocks(request.index).build();
+
+            // wait for events from all nodes that it has been removed from their respective metadata...
+            int count = currentState.nodes().size();
+            // add the notifications that the store was deleted from *data* nodes
+            count += currentState.nodes().dataNodes().size();
+            final AtomicInteger counter = new AtomicInteger(count);
+            // this listener will be notified once we get back a notification based on the cluster state change below.
+            final NodeIndexDeletedAction.Listener nodeIndexDeleteListener = new NodeIndexDeletedAction.Listener() {
+                @Override
+                public void onNodeIndexDeleted(String index, String nodeId) {
+                    if (index.equals(request.index)) {
+                        if (counter.decrementAndGet() == 0) {
+                            listener.onResponse(new Response(true));
+                            nodeIndexDeletedAction.remove(this);
                         }
                     }
+                }
 
-                    @Override
-                    public void onNodeIndexStoreDeleted(String index, String nodeId) {
-                        if (index.equals(request.index)) {
-                            if (counter.decrementAndGet() == 0) {
-                                listener.onResponse(new Response(true));
-                                nodeIndexDeletedAction.remove(this);
-                            }
+                @Override
+                public void onNodeIndexStoreDeleted(String index, String nodeId) {
+                    if (index.equals(request.index)) {
+                        if (counter.decrementAndGet() == 0) {
+                            listener.onResponse(new Response(true));
+                            nodeIndexDeletedAction.remove(this);
                         }
                     }
-                };
-                nodeIndexDeletedAction.add(nodeIndexDeleteListener);
-
-                listener.future = threadPool.schedule(request.timeout, ThreadPool.Names.SAME, new Runnable() {
-                    @Override
-                    public void run() {
-                        listener.onResponse(new Response(false));
-                        nodeIndexDeletedAction.remove(nodeIndexDeleteListener);
-                    }
-                });
+                }
+            };
+            nodeIndexDeletedAction.add(nodeIndexDeleteListener);
+
+            listener.future = threadPool.schedule(request.timeout, ThreadPool.Names.SAME, new Runnable() {
+                @Override
+                public void run() {
+                    listener.onResponse(new Response(false));
+                    nodeIndexDeletedAction.remove(nodeIndexDeleteListener);
+                }
+            });
 
-                return ClusterState.builder(currentState).routingResult(routingResult).metaData(newMetaData).blocks(blocks).build();
-            }
+            // the shards of the deleted index get rebalanced by the reroute in executeBatchCompleted
+            return ClusterState.builder(currentState).routingTable(routingTableBuilder).metaData(newMetaData).blocks(blocks).build();
+        }
 
-            @Override
-            public void clusterStateProcessed(String source, ClusterState oldState, ClusterState newState) {
-            }
-        });
+        @Override
+        public ClusterState executeBatchCompleted(ClusterState batchState) {
+            RoutingAllocation.Result routingResult = allocationService.reroute(batchState);
+            return ClusterState.builder(batchState).routingResult(routingResult).build();
+        }
+
+        @Override
+        public void clusterStateProcessed(String source, ClusterState oldState, ClusterState newState) {
+        }
     }
 
     class DeleteIndexListener implements Listener {
@@ -437,6 +437,73 @@ public class RoutingTable implements Iterable<IndexRoutingTable> {
             return builder.build();
         }
 
+        /**
+         * Writes only the index routing tables that were added or changed compared to the previous routing table,
+         * plus the names of the indices that were removed from it.
+         */
+        public static void writeDiffTo(RoutingTable previousTable, RoutingTable table, StreamOutput out) throws IOException {
+            out.writeLong(table.version);
+            List<IndexRoutingTable> changedIndices = new ArrayList<IndexRoutingTable>();
+            for (IndexRoutingTable index : table.indicesRouting.values()) {
+                IndexRoutingTable previousIndex = previousTable.indicesRouting.get(index.index());
+                if (previousIndex == null || !sameRouting(previousIndex, index)) {
+                    changedIndices.add(index);
+                }
+            }
+            out.writeVInt(changedIndices.size());
+            for (IndexRoutingTable index : changedIndices) {
+                IndexRoutingTable.Builder.writeTo(index, out);
+            }
+            List<String> removedIndices = new ArrayList<String>();
+            for (String index : previousTable.indicesRouting.keySet()) {
+                if (!table.indicesRouting.containsKey(index)) {
+                    removedIndices.add(index);
+                }
+            }
+            out.writeStringArray(removedIndices.toArray(new String[removedIndices.size()]));
+        }
+
+        /**
+         * Reads a diff written by {@link #writeDiffTo(RoutingTable, RoutingTable, StreamOutput)} and applies it on the
+         * previous routing table.
+         */
+        public static RoutingTable readDiffFrom(StreamInput in, RoutingTable previousTable) throws IOException {
+            Builder builder = new Builder(previousTable);
+            builder.version = in.readLong();
+            int size = in.readVInt();
+            for (int i = 0; i < size; i++) {
+                builder.add(IndexRoutingTable.Builder.readFrom(in));
+            }
+            for (String index : in.readStringArray()) {
+                builder.remove(index);
+            }
+            return builder.build();
+        }
+
+        /**
+         * Index routing tables are rebuilt on every change, so compare them shard by shard, including the shard versions.
+         */
+        private static boolean sameRouting(IndexRoutingTable previousIndex, IndexRoutingTable index) {
+            if (previousIndex.shards().size() != index.shards().size()) {
+                return false;
+            }
+            for (IndexShardRoutingTable shard : index) {
+                IndexShardRoutingTable previousShard = previousIndex.shard(shard.shardId().id());
+                if (previousShard == null || previousShard.primaryAllocatedPostApi() != shard.primaryAllocatedPostApi()
+                        || previousShard.size() != shard.size()) {
+                    return false;
+                }
+                for (int i = 0; i < shard.size(); i++) {
+                    ShardRouting previousShardRouting = previousShard.shards().get(i);
+                    ShardRouting shardRouting = shard.shards().get(i);
+                    if (previousShardRouting.version() != shardRouting.version() || !previousShardRouting.equals(shardRouting)) {
+                        return false;
+                    }
+                }
+            }
+            return true;
+        }
+
         public static void writeTo(RoutingTable table, StreamOutput out) throws IOException {
             out.writeLong(table.version);
             out.writeVInt(table.indicesRouting.size());
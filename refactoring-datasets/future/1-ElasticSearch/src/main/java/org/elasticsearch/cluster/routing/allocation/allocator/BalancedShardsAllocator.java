@@ -273,6 +273,7 @@ public class BalancedShardsAllocator extends AbstractComponent implements Shards
 
         private final float threshold;
         private final MetaData metaData;
+        private final Map<MutableShardRouting, Decision> rebalanceDecisions = new IdentityHashMap<MutableShardRouting, Decision>();
 
         private final Predicate<MutableShardRouting> assignedFilter = new Predicate<MutableShardRouting>() {
             @Override
@@ -425,13 +426,12 @@ public class BalancedShardsAllocator extends AbstractComponent implements Shards
                                  * a relocation must bring us closer to the balance if we only achieve the same delta the relocation is useless */
                                 if (tryRelocateShard(Operation.BALANCE, minNode, maxNode, index, delta)) {
                                     /*
-                                     * TODO we could be a bit smarter here, we don't need to fully sort necessarily
-                                     * we could just find the place to insert linearly but the win might be minor
-                                     * compared to the added complexity
+                                     * only the weights of the two nodes involved changed, we move them to their
+                                     * new place instead of sorting all nodes again
                                      */
                                     weights[lowIdx] = sorter.weight(Operation.BALANCE, modelNodes[lowIdx]);
                                     weights[highIdx] = sorter.weight(Operation.BALANCE, modelNodes[highIdx]);
-                                    sorter.sort(0, weights.length);
+                                    sorter.resort();
                                     lowIdx = 0;
                                     highIdx = weights.length - 1;
                                     changed = true;
@@ -775,6 +775,20 @@ public class BalancedShardsAllocator extends AbstractComponent implements Shards
             return changed;
         }
 
+        /**
+         * Returns whether the given shard can be rebalanced at all. This doesn't depend on the target node so the
+         * decision is cached until the routing changes, otherwise we would ask the deciders again for every pair of
+         * nodes we try while walking the window of nodes when balancing an index.
+         */
+        private Decision canRebalance(MutableShardRouting shard) {
+            Decision decision = rebalanceDecisions.get(shard);
+            if (decision == null) {
+                decision = allocation.deciders().canRebalance(shard, allocation);
+                rebalanceDecisions.put(shard, decision);
+            }
+            return decision;
+        }
+
         /**
          * Tries to find a relocation from the max node to the minimal node for an arbitrary shard of the given index on the
          * balance model. Iff this method returns a <code>true</code> the relocation has already been executed on the
@@ -796,24 +810,26 @@ public class BalancedShardsAllocator extends AbstractComponent implements Shards
                 for (MutableShardRouting shard : shards) {
                     if (shard.started()) {
                         // skip initializing, unassigned and relocating shards we can't relocate them anyway
-                        Decision allocationDecision = deciders.canAllocate(shard, node, allocation);
-                        Decision rebalanceDecision = deciders.canRebalance(shard, allocation);
-                        if (((allocationDecision.type() == Type.YES) || (allocationDecision.type() == Type.THROTTLE))
-                                && ((rebalanceDecision.type() == Type.YES) || (rebalanceDecision.type() == Type.THROTTLE))) {
-                            Decision srcDecision;
-                            if ((srcDecision = maxNode.removeShard(shard)) != null) {
-                                minNode.addShard(shard, srcDecision);
-                                final float delta = weight.weight(operation, this, minNode, idx) - weight.weight(operation, this, maxNode, idx);
-                                if (delta < minCost ||
-                                        (candidate != null && delta == minCost && candidate.id() > shard.id())) {
-                                    /* this last line is a tie-breaker to make the shard allocation alg deterministic
-                                     * otherwise we rely on the iteration order of the index.getAllShards() which is a set.*/
-                                    minCost = delta;
-                                    candidate = shard;
-                                    decision = new Decision.Multi().add(allocationDecision).add(rebalanceDecision);
+                        Decision srcDecision;
+                        if ((srcDecision = maxNode.removeShard(shard)) != null) {
+                            minNode.addShard(shard, srcDecision);
+                            final float delta = weight.weight(operation, this, minNode, idx) - weight.weight(operation, this, maxNode, idx);
+                            minNode.removeShard(shard);
+                            maxNode.addShard(shard, srcDecision);
+                            /* the weights are cheap to simulate, only ask the deciders if the relocation is worth it */
+                            if (delta < minCost ||
+                                    (candidate != null && delta == minCost && candidate.id() > shard.id())) {
+                                /* this last line is a tie-breaker to make the shard allocation alg deterministic
+                                 * otherwise we rely on the iteration order of the index.getAllShards() which is a set.*/
+                                Decision rebalanceDecision = canRebalance(shard);
+                                if ((rebalanceDecision.type() == Type.YES) || (rebalanceDecision.type() == Type.THROTTLE)) {
+                                    Decision allocationDecision = deciders.canAllocate(shard, node, allocation);
+                                    if ((allocationDecision.type() == Type.YES) || (allocationDecision.type() == Type.THROTTLE)) {
+                                        minCost = delta;
+                                        candidate = shard;
+                                        decision = new Decision.Multi().add(allocationDecision).add(rebalanceDecision);
+                                    }
                                 }
-                                minNode.removeShard(shard);
-                                maxNode.addShard(shard, srcDecision);
                             }
                         }
                     }
@@ -840,6 +856,8 @@ public class BalancedShardsAllocator extends AbstractComponent implements Shards
                             assert candidate.unassigned();
                             routingNodes.assign(candidate, routingNodes.node(minNode.getNodeId()).nodeId());
                         }
+                        /* the routing changed, the deciders might come to different conclusions now */
+                        rebalanceDecisions.clear();
                         return true;
 
                     }
@@ -857,9 +875,9 @@ public class BalancedShardsAllocator extends AbstractComponent implements Shards
     static class ModelNode implements Iterable<ModelIndex> {
         private final String id;
         private final Map<String, ModelIndex> indices = new HashMap<String, ModelIndex>();
-        /* cached stats - invalidated on add/remove and lazily calculated */
-        private int numShards = -1;
-        private int numPrimaries = -1;
+        /* stats are maintained on add/remove such that weights can be calculated in constant time */
+        private int numShards = 0;
+        private int numPrimaries = 0;
 
         public ModelNode(String id) {
             this.id = id;
@@ -874,13 +892,6 @@ public class BalancedShardsAllocator extends AbstractComponent implements Shards
         }
 
         public int numShards() {
-            if (numShards == -1) {
-                int sum = 0;
-                for (ModelIndex index : indices.values()) {
-                    sum += index.numShards();
-                }
-                numShards = sum;
-            }
             return numShards;
         }
 
@@ -895,13 +906,6 @@ public class BalancedShardsAllocator extends AbstractComponent implements Shards
         }
 
         public int numPrimaries() {
-            if (numPrimaries == -1) {
-                int sum = 0;
-                for (ModelIndex index : indices.values()) {
-                    sum += index.numPrimaries();
-                }
-                numPrimaries = sum;
-            }
             return numPrimaries;
         }
 
@@ -922,23 +926,31 @@ public class BalancedShardsAllocator extends AbstractComponent implements Shards
         }
 
         public void addShard(MutableShardRouting shard, Decision decision) {
-            numPrimaries = numShards = -1;
             ModelIndex index = indices.get(shard.index());
             if (index == null) {
                 index = new ModelIndex(shard.index());
                 indices.put(index.getIndexId(), index);
             }
             index.addShard(shard, decision);
+            numShards++;
+            if (shard.primary()) {
+                numPrimaries++;
+            }
         }
 
         public Decision removeShard(MutableShardRouting shard) {
-            numPrimaries = numShards = -1;
             ModelIndex index = indices.get(shard.index());
             Decision removed = null;
             if (index != null) {
                 removed = index.removeShard(shard);
-                if (removed != null && index.numShards() == 0) {
-                    indices.remove(shard.index());
+                if (removed != null) {
+                    numShards--;
+                    if (shard.primary()) {
+                        numPrimaries--;
+                    }
+                    if (index.numShards() == 0) {
+                        indices.remove(shard.index());
+                    }
                 }
             }
             return removed;
@@ -965,7 +977,8 @@ public class BalancedShardsAllocator extends AbstractComponent implements Shards
     static final class ModelIndex {
         private final String id;
         private final Map<MutableShardRouting, Decision> shards = new HashMap<MutableShardRouting, Decision>();
-        private int numPrimaries = -1;
+        private int numPrimaries = 0;
+        /* lazily calculated - only invalidated when the highest primary is removed */
         private int highestPrimary = -1;
 
         public ModelIndex(String id) {
@@ -1002,28 +1015,30 @@ public class BalancedShardsAllocator extends AbstractComponent implements Shards
         }
 
         public int numPrimaries() {
-            if (numPrimaries == -1) {
-                int num = 0;
-                for (MutableShardRouting shard : shards.keySet()) {
-                    if (shard.primary()) {
-                        num++;
-                    }
-                }
-                return numPrimaries = num;
-            }
             return numPrimaries;
         }
 
         public Decision removeShard(MutableShardRouting shard) {
-            highestPrimary = numPrimaries = -1;
-            return shards.remove(shard);
+            Decision removed = shards.remove(shard);
+            if (removed != null && shard.primary()) {
+                numPrimaries--;
+                if (shard.id() == highestPrimary) {
+                    highestPrimary = -1;
+                }
+            }
+            return removed;
         }
 
         public void addShard(MutableShardRouting shard, Decision decision) {
-            highestPrimary = numPrimaries = -1;
             assert decision != null;
             assert !shards.containsKey(shard) : "Shard already allocated on current node: " + shards.get(shard) + " " + shard;
             shards.put(shard, decision);
+            if (shard.primary()) {
+                numPrimaries++;
+                if (highestPrimary != -1) {
+                    highestPrimary = Math.max(highestPrimary, shard.id());
+                }
+            }
         }
 
         public boolean containsShard(MutableShardRouting shard) {
@@ -1040,6 +1055,7 @@ public class BalancedShardsAllocator extends AbstractComponent implements Shards
         private String index;
         private final Balancer balancer;
         private float pivotWeight;
+        private String pivotNodeId;
 
         public NodeSorter(ModelNode[] modelNodes, WeightFunction function, Balancer balancer) {
             this.function = function;
@@ -1050,7 +1066,8 @@ public class BalancedShardsAllocator extends AbstractComponent implements Shards
 
         /**
          * Resets the sorter, recalculates the weights per node and sorts the
-         * nodes by weight, with minimal weight first.
+         * nodes by weight, with minimal weight first. Nodes of equal weight are
+         * ordered by node id.
          */
         public void reset(Operation operation, String index) {
             this.index = index;
@@ -1064,6 +1081,19 @@ public class BalancedShardsAllocator extends AbstractComponent implements Shards
             return function.weight(operation, balancer, node, index);
         }
 
+        /**
+         * Restores the order of the nodes after the weights of a few of them changed. The sort is an insertion
+         * sort which takes linear time if only a constant number of nodes is out of place. Since ties are broken
+         * on the node id the order is the same as the one a full sort would produce.
+         */
+        public void resort() {
+            for (int i = 1; i < weights.length; i++) {
+                for (int j = i; j > 0 && compare(j - 1, j) > 0; j--) {
+                    swap(j - 1, j);
+                }
+            }
+        }
+
         @Override
         protected void swap(int i, int j) {
             final ModelNode tmpNode = modelNodes[i];
@@ -1076,17 +1106,20 @@ public class BalancedShardsAllocator extends AbstractComponent implements Shards
 
         @Override
         protected int compare(int i, int j) {
-            return Float.compare(weights[i], weights[j]);
+            final int cmp = Float.compare(weights[i], weights[j]);
+            return cmp != 0 ? cmp : modelNodes[i].getNodeId().compareTo(modelNodes[j].getNodeId());
         }
 
         @Override
         protected void setPivot(int i) {
             pivotWeight = weights[i];
+            pivotNodeId = modelNodes[i].getNodeId();
         }
 
         @Override
         protected int comparePivot(int j) {
-            return Float.compare(pivotWeight, weights[j]);
+            final int cmp = Float.compare(pivotWeight, weights[j]);
+            return cmp != 0 ? cmp : pivotNodeId.compareTo(modelNodes[j].getNodeId());
         }
 
         public float delta() {
@@ -19,6 +19,7 @@
 
 package org.elasticsearch.cluster.service;
 
+import com.google.common.base.Predicate;
 import org.elasticsearch.ElasticsearchException;
 import org.elasticsearch.ElasticsearchIllegalStateException;
 import org.elasticsearch.cluster.*;
@@ -48,6 +49,7 @@ import org.elasticsearch.threadpool.ThreadPool;
 import org.elasticsearch.transport.TransportService;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Queue;
@@ -72,6 +74,8 @@ public class InternalClusterService extends AbstractLifecycleComponent<ClusterSe
 
     private final TimeValue reconnectInterval;
 
+    private final int maxBatchSize;
+
     private volatile PrioritizedEsThreadPoolExecutor updateTasksExecutor;
 
     private final List<ClusterStateListener> priorityClusterStateListeners = new CopyOnWriteArrayList<ClusterStateListener>();
@@ -100,6 +104,7 @@ public class InternalClusterService extends AbstractLifecycleComponent<ClusterSe
         this.nodeSettingsService.setClusterService(this);
 
         this.reconnectInterval = componentSettings.getAsTime("reconnect_interval", TimeValue.timeValueSeconds(10));
+        this.maxBatchSize = componentSettings.getAsInt("max_batch_size", 100);
 
         localNodeMasterListeners = new LocalNodeMasterListeners(threadPool);
     }
@@ -301,31 +306,52 @@ public class InternalClusterService extends AbstractLifecycleComponent<ClusterSe
                 logger.debug("processing [{}]: ignoring, cluster_service not started", source);
                 return;
             }
+            final List<UpdateTask> batch = drainBatch();
+            final String source = batch.size() == 1 ? this.source : this.source + " (+" + (batch.size() - 1) + " batched tasks)";
             logger.debug("processing [{}]: execute", source);
             ClusterState previousClusterState = clusterState;
-            ClusterState newClusterState;
-            try {
-                newClusterState = updateTask.execute(previousClusterState);
-            } catch (Throwable e) {
-                if (logger.isTraceEnabled()) {
-                    StringBuilder sb = new StringBuilder("failed to execute cluster state update, state:\nversion [").append(previousClusterState.version()).append("], source [").append(source).append("]\n");
-                    sb.append(previousClusterState.nodes().prettyPrint());
-                    sb.append(previousClusterState.routingTable().prettyPrint());
-                    sb.append(previousClusterState.readOnlyRoutingNodes().prettyPrint());
-                    logger.trace(sb.toString(), e);
+            ClusterState newClusterState = previousClusterState;
+            List<UpdateTask> executed = new ArrayList<UpdateTask>(batch.size());
+            for (UpdateTask task : batch) {
+                try {
+                    newClusterState = task.updateTask.execute(newClusterState);
+                    executed.add(task);
+                } catch (Throwable e) {
+                    if (logger.isTraceEnabled()) {
+                        StringBuilder sb = new StringBuilder("failed to execute cluster state update, state:\nversion [").append(newClusterState.version()).append("], source [").append(task.source).append("]\n");
+                        sb.append(newClusterState.nodes().prettyPrint());
+                        sb.append(newClusterState.routingTable().prettyPrint());
+                        sb.append(newClusterState.readOnlyRoutingNodes().prettyPrint());
+                        logger.trace(sb.toString(), e);
+                    }
+                    task.updateTask.onFailure(task.source, e);
                 }
-                updateTask.onFailure(source, e);
+            }
+            if (executed.isEmpty()) {
                 return;
             }
+            if (previousClusterState != newClusterState && updateTask instanceof BatchedClusterStateUpdateTask) {
+                try {
+                    newClusterState = ((BatchedClusterStateUpdateTask) executed.get(0).updateTask).executeBatchCompleted(newClusterState);
+                } catch (Throwable e) {
+                    logger.debug("failed to complete cluster state update batch [{}]", e, source);
+                    for (UpdateTask task : executed) {
+                        task.updateTask.onFailure(task.source, e);
+                    }
+                    return;
+                }
+            }
 
             if (previousClusterState == newClusterState) {
                 logger.debug("processing [{}]: no change in cluster_state", source);
-                if (updateTask instanceof AckedClusterStateUpdateTask) {
-                    //no need to wait for ack if nothing changed, the update can be counted as acknowledged
-                    ((AckedClusterStateUpdateTask) updateTask).onAllNodesAcked(null);
-                }
-                if (updateTask instanceof ProcessedClusterStateUpdateTask) {
-                    ((ProcessedClusterStateUpdateTask) updateTask).clusterStateProcessed(source, previousClusterState, newClusterState);
+                for (UpdateTask task : executed) {
+                    if (task.updateTask instanceof AckedClusterStateUpdateTask) {
+                        //no need to wait for ack if nothing changed, the update can be counted as acknowledged
+                        ((AckedClusterStateUpdateTask) task.updateTask).onAllNodesAcked(null);
+                    }
+                    if (task.updateTask instanceof ProcessedClusterStateUpdateTask) {
+                        ((ProcessedClusterStateUpdateTask) task.updateTask).clusterStateProcessed(task.source, previousClusterState, newClusterState);
+                    }
                 }
                 return;
             }
@@ -343,13 +369,17 @@ public class InternalClusterService extends AbstractLifecycleComponent<ClusterSe
                     }
                     newClusterState = builder.build();
 
-                    if (updateTask instanceof AckedClusterStateUpdateTask) {
-                        final AckedClusterStateUpdateTask ackedUpdateTask = (AckedClusterStateUpdateTask) updateTask;
+                    List<Discovery.AckListener> ackListeners = new ArrayList<Discovery.AckListener>();
+                    for (UpdateTask task : executed) {
+                        if (!(task.updateTask instanceof AckedClusterStateUpdateTask)) {
+                            continue;
+                        }
+                        final AckedClusterStateUpdateTask ackedUpdateTask = (AckedClusterStateUpdateTask) task.updateTask;
                         if (ackedUpdateTask.ackTimeout() == null || ackedUpdateTask.ackTimeout().millis() == 0) {
                             ackedUpdateTask.onAckTimeout();
                         } else {
                             try {
-                                ackListener = new AckCountDownListener(ackedUpdateTask, newClusterState.version(), newClusterState.nodes(), threadPool);
+                                ackListeners.add(new AckCountDownListener(ackedUpdateTask, newClusterState.version(), newClusterState.nodes(), threadPool));
                             } catch (EsRejectedExecutionException ex) {
                                 if (logger.isDebugEnabled()) {
                                     logger.debug("Couldn't schedule timeout thread - node might be shutting down", ex);
@@ -359,6 +389,11 @@ public class InternalClusterService extends AbstractLifecycleComponent<ClusterSe
                             }
                         }
                     }
+                    if (ackListeners.size() == 1) {
+                        ackListener = ackListeners.get(0);
+                    } else if (ackListeners.size() > 1) {
+                        ackListener = new DelegatingAckListener(ackListeners);
+                    }
                 } else {
                     if (previousClusterState.blocks().hasGlobalBlock(Discovery.NO_MASTER_BLOCK) && !newClusterState.blocks().hasGlobalBlock(Discovery.NO_MASTER_BLOCK)) {
                         // force an update, its a fresh update from the master as we transition from a start of not having a master to having one
@@ -450,8 +485,14 @@ public class InternalClusterService extends AbstractLifecycleComponent<ClusterSe
                     }
                 }
 
-                if (updateTask instanceof ProcessedClusterStateUpdateTask) {
-                    ((ProcessedClusterStateUpdateTask) updateTask).clusterStateProcessed(source, previousClusterState, newClusterState);
+                for (UpdateTask task : executed) {
+                    if (task.updateTask instanceof ProcessedClusterStateUpdateTask) {
+                        try {
+                            ((ProcessedClusterStateUpdateTask) task.updateTask).clusterStateProcessed(task.source, previousClusterState, newClusterState);
+                        } catch (Throwable t) {
+                            logger.warn("failed to notify [{}] that the cluster state update was processed (version: {})", t, task.source, newClusterState.version());
+                        }
+                    }
                 }
 
                 logger.debug("processing [{}]: done applying updated cluster_state (version: {})", source, newClusterState.version());
@@ -464,6 +505,30 @@ public class InternalClusterService extends AbstractLifecycleComponent<ClusterSe
                 // TODO: do we want to call updateTask.onFailure here?
             }
         }
+
+        /**
+         * Returns this task along with the pending tasks that can be executed in the same batch, which are the
+         * {@link BatchedClusterStateUpdateTask}s of the same class and priority that are directly behind it in the queue.
+         */
+        private List<UpdateTask> drainBatch() {
+            if (!(updateTask instanceof BatchedClusterStateUpdateTask) || maxBatchSize <= 1) {
+                return Collections.singletonList(this);
+            }
+            final Class<?> taskClass = updateTask.getClass();
+            List<Runnable> drained = updateTasksExecutor.drainHead(new Predicate<Runnable>() {
+                @Override
+                public boolean apply(Runnable runnable) {
+                    return runnable instanceof UpdateTask && ((UpdateTask) runnable).updateTask.getClass() == taskClass
+                            && ((UpdateTask) runnable).priority() == priority();
+                }
+            }, maxBatchSize - 1);
+            List<UpdateTask> batch = new ArrayList<UpdateTask>(drained.size() + 1);
+            batch.add(this);
+            for (Runnable runnable : drained) {
+                batch.add((UpdateTask) runnable);
+            }
+            return batch;
+        }
     }
 
     class NotifyTimeout implements Runnable {
@@ -635,6 +700,35 @@ public class InternalClusterService extends AbstractLifecycleComponent<ClusterSe
         }
     }
 
+    private static class DelegatingAckListener implements Discovery.AckListener {
+
+        private static final ESLogger logger = Loggers.getLogger(DelegatingAckListener.class);
+
+        private final List<Discovery.AckListener> listeners;
+
+        private DelegatingAckListener(List<Discovery.AckListener> listeners) {
+            this.listeners = listeners;
+        }
+
+        @Override
+        public void onNodeAck(DiscoveryNode node, @Nullable Throwable t) {
+            for (Discovery.AckListener listener : listeners) {
+                try {
+                    listener.onNodeAck(node, t);
+                } catch (Throwable e) {
+                    logger.debug("error while processing ack from node [{}]", e, node);
+                }
+            }
+        }
+
+        @Override
+        public void onTimeout() {
+            for (Discovery.AckListener listener : listeners) {
+                listener.onTimeout();
+            }
+        }
+    }
+
     private static class AckCountDownListener implements Discovery.AckListener {
 
         private static final ESLogger logger = Loggers.getLogger(AckCountDownListener.class);
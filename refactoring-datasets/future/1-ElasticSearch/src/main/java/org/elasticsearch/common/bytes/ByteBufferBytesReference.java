@@ -66,7 +66,7 @@ public class ByteBufferBytesReference implements BytesReference {
 
     @Override
     public StreamInput streamInput() {
-        return new ByteBufferStreamInput(buffer);
+        return new ByteBufferStreamInput(buffer.duplicate());
     }
 
     @Override
@@ -77,8 +77,9 @@ public class ByteBufferBytesReference implements BytesReference {
             byte[] tmp = new byte[8192];
             ByteBuffer buf = buffer.duplicate();
             while (buf.hasRemaining()) {
-                buf.get(tmp, 0, Math.min(tmp.length, buf.remaining()));
-                os.write(tmp);
+                int length = Math.min(tmp.length, buf.remaining());
+                buf.get(tmp, 0, length);
+                os.write(tmp, 0, length);
             }
         }
     }
@@ -145,7 +146,7 @@ public class ByteBufferBytesReference implements BytesReference {
         final CharBuffer dst = CharBuffer.allocate(
                 (int) ((double) buffer.remaining() * decoder.maxCharsPerByte()));
         try {
-            CoderResult cr = decoder.decode(buffer, dst, true);
+            CoderResult cr = decoder.decode(buffer.duplicate(), dst, true);
             if (!cr.isUnderflow()) {
                 cr.throwException();
             }
@@ -0,0 +1,287 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.common.bytes;
+
+import com.google.common.base.Charsets;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.Counter;
+import org.elasticsearch.ElasticsearchIllegalArgumentException;
+import org.elasticsearch.common.Nullable;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.util.BigArrays;
+import org.elasticsearch.common.util.ByteArray;
+import org.jboss.netty.buffer.ChannelBuffer;
+import org.jboss.netty.buffer.ChannelBuffers;
+import org.jboss.netty.buffer.CompositeChannelBuffer;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A page based {@link BytesReference} on top of a {@link ByteArray}. Pages are shared instead of copied whenever
+ * possible, for example {@link #toChannelBuffer()} returns a composite buffer that wraps the pages.
+ */
+public class PagedBytesReference implements BytesReference {
+
+    private static final int PAGE_SIZE = BigArrays.BYTE_PAGE_SIZE;
+
+    private final ByteArray bytes;
+    private final int offset;
+    private final int length;
+
+    public PagedBytesReference(ByteArray bytes, int length) {
+        this(bytes, 0, length);
+    }
+
+    public PagedBytesReference(ByteArray bytes, int offset, int length) {
+        if (offset < 0 || length < 0 || offset + (long) length > bytes.size()) {
+            throw new ElasticsearchIllegalArgumentException("can't reference [" + length + "] bytes at offset [" + offset + "] of an array of size [" + bytes.size() + "]");
+        }
+        this.bytes = bytes;
+        this.offset = offset;
+        this.length = length;
+    }
+
+    @Override
+    public byte get(int index) {
+        return bytes.get(offset + index);
+    }
+
+    @Override
+    public int length() {
+        return length;
+    }
+
+    @Override
+    public BytesReference slice(int from, int length) {
+        if (from < 0 || (from + length) > this.length) {
+            throw new ElasticsearchIllegalArgumentException("can't slice a buffer with length [" + this.length + "], with slice parameters from [" + from + "], length [" + length + "]");
+        }
+        return new PagedBytesReference(bytes, offset + from, length);
+    }
+
+    @Override
+    public StreamInput streamInput() {
+        return new PagedBytesStreamInput();
+    }
+
+    @Override
+    public void writeTo(OutputStream os) throws IOException {
+        final BytesRef ref = new BytesRef();
+        for (int pos = 0; pos < length; pos += ref.length) {
+            bytes.get(offset + pos, chunkLength(pos), ref);
+            os.write(ref.bytes, ref.offset, ref.length);
+        }
+    }
+
+    @Override
+    public byte[] toBytes() {
+        return copyBytesRef().bytes;
+    }
+
+    @Override
+    public BytesArray toBytesArray() {
+        return new BytesArray(toBytesRef());
+    }
+
+    @Override
+    public BytesArray copyBytesArray() {
+        return new BytesArray(toBytes());
+    }
+
+    @Override
+    public ChannelBuffer toChannelBuffer() {
+        return toChannelBuffer(null);
+    }
+
+    /**
+     * Same as {@link #toChannelBuffer()}, and adds the number of bytes that had to be copied in order to wrap them
+     * into channel buffers to <code>copiedBytes</code> if it is not null. Slices of on-heap pages are wrapped as they
+     * are while slices of off-heap pages are copied.
+     */
+    public ChannelBuffer toChannelBuffer(@Nullable Counter copiedBytes) {
+        if (length == 0) {
+            return ChannelBuffers.EMPTY_BUFFER;
+        }
+        final List<ChannelBuffer> buffers = new ArrayList<ChannelBuffer>(length / PAGE_SIZE + 2);
+        for (int pos = 0; pos < length; ) {
+            final BytesRef ref = new BytesRef();
+            if (bytes.get(offset + pos, chunkLength(pos), ref) && copiedBytes != null) {
+                copiedBytes.addAndGet(ref.length);
+            }
+            buffers.add(ChannelBuffers.wrappedBuffer(ref.bytes, ref.offset, ref.length));
+            pos += ref.length;
+        }
+        if (buffers.size() == 1) {
+            return buffers.get(0);
+        }
+        // false on gathering, cause gathering causes the NIO layer to combine the buffers into a single direct buffer....
+        return new CompositeChannelBuffer(ByteOrder.BIG_ENDIAN, buffers, false);
+    }
+
+    @Override
+    public boolean hasArray() {
+        return chunkLength(0) == length;
+    }
+
+    @Override
+    public byte[] array() {
+        return toBytesRef().bytes;
+    }
+
+    @Override
+    public int arrayOffset() {
+        return toBytesRef().offset;
+    }
+
+    @Override
+    public String toUtf8() {
+        if (length == 0) {
+            return "";
+        }
+        final BytesRef ref = toBytesRef();
+        return new String(ref.bytes, ref.offset, ref.length, Charsets.UTF_8);
+    }
+
+    @Override
+    public BytesRef toBytesRef() {
+        final BytesRef ref = new BytesRef();
+        bytes.get(offset, length, ref);
+        return ref;
+    }
+
+    @Override
+    public BytesRef copyBytesRef() {
+        final BytesRef ref = new BytesRef();
+        if (bytes.get(offset, length, ref)) {
+            // already a fresh copy
+            return ref;
+        }
+        return BytesRef.deepCopyOf(ref);
+    }
+
+    @Override
+    public int hashCode() {
+        return Helper.bytesHashCode(this);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        return Helper.bytesEqual(this, (BytesReference) obj);
+    }
+
+    /**
+     * The number of bytes that can be read starting at <tt>pos</tt> without crossing a page boundary.
+     */
+    private int chunkLength(int pos) {
+        final long index = offset + pos;
+        final long pageEnd = (index / PAGE_SIZE + 1) * PAGE_SIZE;
+        return (int) Math.min(length - pos, pageEnd - index);
+    }
+
+    private class PagedBytesStreamInput extends StreamInput {
+
+        private final BytesRef ref = new BytesRef();
+        private int pos;
+        private int mark;
+
+        @Override
+        public byte readByte() throws IOException {
+            if (pos >= length) {
+                throw new EOFException();
+            }
+            return bytes.get(offset + pos++);
+        }
+
+        @Override
+        public void readBytes(byte[] b, int off, int len) throws IOException {
+            if (len > length - pos) {
+                throw new EOFException();
+            }
+            while (len > 0) {
+                bytes.get(offset + pos, Math.min(len, chunkLength(pos)), ref);
+                System.arraycopy(ref.bytes, ref.offset, b, off, ref.length);
+                pos += ref.length;
+                off += ref.length;
+                len -= ref.length;
+            }
+        }
+
+        @Override
+        public int read() throws IOException {
+            return pos < length ? bytes.get(offset + pos++) & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (pos >= length) {
+                return -1;
+            }
+            len = Math.min(len, length - pos);
+            readBytes(b, off, len);
+            return len;
+        }
+
+        @Override
+        public BytesReference readBytesReference(int length) throws IOException {
+            if (length > PagedBytesReference.this.length - pos) {
+                throw new EOFException();
+            }
+            final BytesReference slice = slice(pos, length);
+            pos += length;
+            return slice;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            final int skipped = (int) Math.min(n, length - pos);
+            pos += skipped;
+            return skipped;
+        }
+
+        @Override
+        public int available() throws IOException {
+            return length - pos;
+        }
+
+        @Override
+        public void reset() throws IOException {
+            pos = mark;
+        }
+
+        @Override
+        public boolean markSupported() {
+            return true;
+        }
+
+        @Override
+        public void mark(int readlimit) {
+            mark = pos;
+        }
+
+        @Override
+        public void close() throws IOException {
+        }
+    }
+}
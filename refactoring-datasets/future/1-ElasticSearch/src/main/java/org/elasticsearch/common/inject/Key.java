@@ -55,6 +55,9 @@ public class Key<T> {
 
     private final TypeLiteral<T> typeLiteral;
     private final int hashCode;
+    // ES_GUICE: cache the string representation, keys are converted to strings for every binding blacklisted on
+    // the parent injectors
+    private String toString;
 
     /**
      * Constructs a new key. Derives the type from this class's type parameter.
@@ -202,10 +205,15 @@ public class Key<T> {
 
     @Override
     public final String toString() {
-        return new ToStringBuilder(Key.class)
-                .add("type", typeLiteral)
-                .add("annotation", annotationStrategy)
-                .toString();
+        String toString = this.toString;
+        if (toString == null) {
+            toString = new ToStringBuilder(Key.class)
+                    .add("type", typeLiteral)
+                    .add("annotation", annotationStrategy)
+                    .toString();
+            this.toString = toString;
+        }
+        return toString;
     }
 
     /**
@@ -41,6 +41,23 @@ import static org.elasticsearch.common.inject.internal.MoreTypes.getRawType;
  */
 public final class InjectionPoint {
 
+    // ES_GUICE: the injection points of plain classes are cached, as they are resolved again for every index and
+    // shard injector. The cached injection points hold the members of their class, so a cached class is never
+    // unloaded. The injected classes come from the node's class loader, which lives as long as the JVM anyway.
+    private static final ClassValue<InjectionPoint> CONSTRUCTORS = new ClassValue<InjectionPoint>() {
+        @Override
+        protected InjectionPoint computeValue(Class<?> type) {
+            return resolveConstructorOf(TypeLiteral.get(type));
+        }
+    };
+
+    private static final ClassValue<Set<InjectionPoint>> INSTANCE_METHODS_AND_FIELDS = new ClassValue<Set<InjectionPoint>>() {
+        @Override
+        protected Set<InjectionPoint> computeValue(Class<?> type) {
+            return resolveInstanceMethodsAndFields(TypeLiteral.get(type));
+        }
+    };
+
     private final boolean optional;
     private final Member member;
     private final ImmutableList<Dependency<?>> dependencies;
@@ -170,6 +187,13 @@ public final class InjectionPoint {
      *                                parameter with multiple binding annotations.
      */
     public static InjectionPoint forConstructorOf(TypeLiteral<?> type) {
+        if (type.getType() instanceof Class) {
+            return CONSTRUCTORS.get((Class<?>) type.getType());
+        }
+        return resolveConstructorOf(type);
+    }
+
+    private static InjectionPoint resolveConstructorOf(TypeLiteral<?> type) {
         Class<?> rawType = getRawType(type.getType());
         Errors errors = new Errors(rawType);
 
@@ -280,6 +304,13 @@ public final class InjectionPoint {
      *                                of the valid injection points.
      */
     public static Set<InjectionPoint> forInstanceMethodsAndFields(TypeLiteral<?> type) {
+        if (type.getType() instanceof Class) {
+            return INSTANCE_METHODS_AND_FIELDS.get((Class<?>) type.getType());
+        }
+        return resolveInstanceMethodsAndFields(type);
+    }
+
+    private static Set<InjectionPoint> resolveInstanceMethodsAndFields(TypeLiteral<?> type) {
         List<InjectionPoint> sink = Lists.newArrayList();
         Errors errors = new Errors();
 
@@ -37,17 +37,17 @@ public class BytesStreamOutput extends StreamOutput implements BytesStream {
     /**
      * Factory/manager for our ByteArray
      */
-    private final BigArrays bigarrays;
+    protected final BigArrays bigarrays;
 
     /**
      * The internal list of pages.
      */
-    private ByteArray bytes;
+    protected ByteArray bytes;
 
     /**
      * The number of valid bytes in the buffer.
      */
-    private int count;
+    protected int count;
 
     /**
      * Create a nonrecycling {@link BytesStreamOutput} with 1 initial page acquired.
@@ -63,8 +63,12 @@ public class BytesStreamOutput extends StreamOutput implements BytesStream {
      * @param expectedSize the expected maximum size of the stream in bytes.
      */
     public BytesStreamOutput(int expectedSize) {
-        bigarrays = BigArrays.NON_RECYCLING_INSTANCE;
-        bytes = bigarrays.newByteArray(expectedSize);
+        this(expectedSize, BigArrays.NON_RECYCLING_INSTANCE);
+    }
+
+    protected BytesStreamOutput(int expectedSize, BigArrays bigarrays) {
+        this.bigarrays = bigarrays;
+        this.bytes = bigarrays.newByteArray(expectedSize);
     }
 
     @Override
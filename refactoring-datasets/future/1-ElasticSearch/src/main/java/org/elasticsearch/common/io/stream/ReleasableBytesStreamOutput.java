@@ -0,0 +1,53 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.common.io.stream;
+
+import org.elasticsearch.ElasticsearchException;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.bytes.PagedBytesReference;
+import org.elasticsearch.common.lease.Releasable;
+import org.elasticsearch.common.util.BigArrays;
+
+/**
+ * A {@link BytesStreamOutput} that acquires its pages from a (recycling) {@link BigArrays} instance, and that
+ * shares its pages in {@link #bytes()}. The pages are given back when the stream is released, so the bytes must not
+ * be used after that.
+ */
+public class ReleasableBytesStreamOutput extends BytesStreamOutput implements Releasable {
+
+    public ReleasableBytesStreamOutput(BigArrays bigarrays) {
+        super(BigArrays.PAGE_SIZE_IN_BYTES, bigarrays);
+    }
+
+    public ReleasableBytesStreamOutput(int expectedSize, BigArrays bigarrays) {
+        super(expectedSize, bigarrays);
+    }
+
+    @Override
+    public BytesReference bytes() {
+        return new PagedBytesReference(bytes, count);
+    }
+
+    @Override
+    public boolean release() throws ElasticsearchException {
+        bytes.release();
+        return true;
+    }
+}
@@ -25,6 +25,7 @@ import org.apache.lucene.search.DocIdSetIterator;
 import org.apache.lucene.util.Bits;
 import org.apache.lucene.util.FixedBitSet;
 import org.apache.lucene.util.OpenBitSetIterator;
+import org.apache.lucene.util.WAH8DocIdSet;
 import org.elasticsearch.common.Nullable;
 
 import java.io.IOException;
@@ -37,6 +38,9 @@ public class DocIdSets {
         if (docIdSet instanceof FixedBitSet) {
             return ((FixedBitSet) docIdSet).getBits().length * 8 + 16;
         }
+        if (docIdSet instanceof WAH8DocIdSet) {
+            return ((WAH8DocIdSet) docIdSet).ramBytesUsed();
+        }
         // only for empty ones and unknowns...
         return 1;
     }
@@ -96,6 +100,24 @@ public class DocIdSets {
         return fixedBitSet;
     }
     
+    /**
+     * Like {@link #toCacheable(org.apache.lucene.index.AtomicReader, org.apache.lucene.search.DocIdSet)}, but
+     * compresses sparse sets (less than one doc in 32 matching) into a {@link WAH8DocIdSet}, which takes a fraction
+     * of the memory of a {@link FixedBitSet} but provides no random access. A {@link FixedBitSet} returned by the
+     * filter itself is always kept as is, since block join parent filters rely on getting one back.
+     */
+    public static DocIdSet toCompactCacheable(AtomicReader reader, @Nullable DocIdSet set) throws IOException {
+        DocIdSet cacheable = toCacheable(reader, set);
+        if (cacheable == set || !(cacheable instanceof FixedBitSet)) {
+            return cacheable;
+        }
+        FixedBitSet bitSet = (FixedBitSet) cacheable;
+        if (bitSet.cardinality() >= (reader.maxDoc() >>> 5)) {
+            return bitSet;
+        }
+        return new WAH8DocIdSet.Builder().add(bitSet.iterator()).build();
+    }
+
     /** An empty {@code DocIdSet} instance */
     protected static final DocIdSet EMPTY_DOCIDSET = new DocIdSet() {
       
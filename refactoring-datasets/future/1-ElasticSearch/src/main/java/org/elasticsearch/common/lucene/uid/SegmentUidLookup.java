@@ -0,0 +1,117 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.common.lucene.uid;
+
+import org.apache.lucene.index.*;
+import org.apache.lucene.util.Bits;
+import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.common.Nullable;
+import org.elasticsearch.common.Numbers;
+import org.elasticsearch.common.util.BloomFilter;
+import org.elasticsearch.index.codec.postingsformat.BloomFilterPostingsFormat;
+import org.elasticsearch.index.mapper.internal.UidFieldMapper;
+import org.elasticsearch.index.mapper.internal.VersionFieldMapper;
+
+import java.io.IOException;
+
+/**
+ * Resolves uids against a single segment. Instances hold on to the <tt>_uid</tt> terms enum and the
+ * postings enums so that they can be reused across lookups, and are thus not thread-safe.
+ */
+final class SegmentUidLookup {
+
+    private final TermsEnum termsEnum;
+    private final boolean hasPayloads;
+    @Nullable
+    private final BloomFilter bloomFilter;
+
+    private DocsEnum docsEnum;
+    private DocsAndPositionsEnum docsAndPositionsEnum;
+
+    SegmentUidLookup(AtomicReader reader) throws IOException {
+        final Terms terms = reader.terms(UidFieldMapper.NAME);
+        assert terms != null : "All segments must have a _uid field, but " + reader + " doesn't";
+        if (terms == null) {
+            termsEnum = null;
+            hasPayloads = false;
+            bloomFilter = null;
+        } else {
+            termsEnum = terms.iterator(null);
+            hasPayloads = terms.hasPayloads();
+            // the default postings format records a bloom filter for _uid, check it before touching the terms dictionary
+            bloomFilter = terms instanceof BloomFilterPostingsFormat.BloomFilteredTerms ? ((BloomFilterPostingsFormat.BloomFilteredTerms) terms).getFilter() : null;
+        }
+    }
+
+    /** Returns <tt>false</tt> if the uid is known not to be in this segment without having to seek the terms dictionary. */
+    boolean mightContain(BytesRef uid) {
+        return termsEnum != null && (bloomFilter == null || bloomFilter.mightContain(uid));
+    }
+
+    /** See {@link Versions#loadDocIdAndVersion(AtomicReaderContext, org.apache.lucene.index.Term)}. */
+    Versions.DocIdAndVersion lookup(AtomicReaderContext readerContext, BytesRef uid) throws IOException {
+        if (termsEnum == null || !termsEnum.seekExact(uid)) {
+            return null;
+        }
+        final AtomicReader reader = readerContext.reader();
+        final Bits liveDocs = reader.getLiveDocs();
+
+        // Versions are stored as doc values...
+        final NumericDocValues versions = reader.getNumericDocValues(VersionFieldMapper.NAME);
+        if (versions != null || !hasPayloads) {
+            // only the last doc that matches the _uid is interesting here: if it is deleted, then there is
+            // no match otherwise previous docs are necessarily either deleted or nested docs
+            final DocsEnum docs = docsEnum = termsEnum.docs(null, docsEnum, DocsEnum.FLAG_NONE);
+            int docID = DocsEnum.NO_MORE_DOCS;
+            for (int d = docs.nextDoc(); d != DocsEnum.NO_MORE_DOCS; d = docs.nextDoc()) {
+                docID = d;
+            }
+            assert docID != DocsEnum.NO_MORE_DOCS; // would mean that the term exists but has no match at all
+            if (liveDocs != null && !liveDocs.get(docID)) {
+                return null;
+            } else if (versions != null) {
+                return new Versions.DocIdAndVersion(docID, versions.get(docID), readerContext);
+            } else {
+                // _uid found, but no doc values and no payloads
+                return new Versions.DocIdAndVersion(docID, Versions.NOT_SET, readerContext);
+            }
+        }
+
+        // ... but used to be stored as payloads
+        final DocsAndPositionsEnum dpe = docsAndPositionsEnum = termsEnum.docsAndPositions(liveDocs, docsAndPositionsEnum, DocsAndPositionsEnum.FLAG_PAYLOADS);
+        assert dpe != null; // terms has payloads
+        int docID = DocsEnum.NO_MORE_DOCS;
+        for (int d = dpe.nextDoc(); d != DocsEnum.NO_MORE_DOCS; d = dpe.nextDoc()) {
+            docID = d;
+            dpe.nextPosition();
+            final BytesRef payload = dpe.getPayload();
+            if (payload != null && payload.length == 8) {
+                return new Versions.DocIdAndVersion(d, Numbers.bytesToLong(payload), readerContext);
+            }
+        }
+
+        if (docID == DocsEnum.NO_MORE_DOCS) {
+            return null;
+        } else {
+            return new Versions.DocIdAndVersion(docID, Versions.NOT_SET, readerContext);
+        }
+    }
+
+}
@@ -19,15 +19,20 @@
 
 package org.elasticsearch.common.lucene.uid;
 
-import org.apache.lucene.index.*;
-import org.apache.lucene.util.Bits;
-import org.apache.lucene.util.BytesRef;
-import org.elasticsearch.common.Numbers;
+import org.apache.lucene.index.AtomicReader;
+import org.apache.lucene.index.AtomicReaderContext;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.SegmentReader;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.util.CloseableThreadLocal;
+import org.elasticsearch.common.Nullable;
+import org.elasticsearch.common.lucene.SegmentReaderUtils;
+import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
 import org.elasticsearch.index.mapper.internal.UidFieldMapper;
-import org.elasticsearch.index.mapper.internal.VersionFieldMapper;
 
 import java.io.IOException;
 import java.util.List;
+import java.util.concurrent.ConcurrentMap;
 
 /** Utility class to resolve the Lucene doc ID and version for a given uid. */
 public class Versions {
@@ -36,6 +41,19 @@ public class Versions {
     public static final long NOT_FOUND = -1L;
     public static final long NOT_SET = -2L;
 
+    /** Per-thread lookup state, keyed by segment core cache key and removed when the segment core is closed. */
+    private static final ConcurrentMap<Object, CloseableThreadLocal<SegmentUidLookup>> lookupStates = ConcurrentCollections.newConcurrentMapWithAggressiveConcurrency();
+
+    private static final SegmentReader.CoreClosedListener removeLookupState = new SegmentReader.CoreClosedListener() {
+        @Override
+        public void onClose(Object coreCacheKey) {
+            final CloseableThreadLocal<SegmentUidLookup> states = lookupStates.remove(coreCacheKey);
+            if (states != null) {
+                states.close();
+            }
+        }
+    };
+
     private Versions() {}
 
     /** Wraps an {@link AtomicReaderContext}, a doc ID <b>relative to the context doc base</b> and a version. */
@@ -51,6 +69,16 @@ public class Versions {
         }
     }
 
+    /** Gets notified of every segment that is visited in order to resolve a uid. */
+    public static interface LookupListener {
+
+        /**
+         * @param reusedState whether the lookup could reuse the state that a previous lookup on the same thread cached for this segment
+         * @param skipped     whether the segment was skipped because its bloom filter proved the uid is not there
+         */
+        void onSegmentLookup(boolean reusedState, boolean skipped);
+    }
+
     /**
      * Load the internal doc ID and version for the uid from the reader, returning<ul>
      * <li>null if the uid wasn't found,
@@ -58,11 +86,16 @@ public class Versions {
      * </ul>
      */
     public static DocIdAndVersion loadDocIdAndVersion(IndexReader reader, Term term) throws IOException {
+        return loadDocIdAndVersion(reader, term, null);
+    }
+
+    /** Same as {@link #loadDocIdAndVersion(IndexReader, Term)} but notifies the provided listener of every visited segment. */
+    public static DocIdAndVersion loadDocIdAndVersion(IndexReader reader, Term term, @Nullable LookupListener listener) throws IOException {
         // iterate backwards to optimize for the frequently updated documents
         // which are likely to be in the last segments
         final List<AtomicReaderContext> leaves = reader.leaves();
         for (int i = leaves.size() - 1; i >= 0; --i) {
-            final DocIdAndVersion docIdAndVersion = loadDocIdAndVersion(leaves.get(i), term);
+            final DocIdAndVersion docIdAndVersion = loadDocIdAndVersion(leaves.get(i), term, listener);
             if (docIdAndVersion != null) {
                 assert docIdAndVersion.version != NOT_FOUND;
                 return docIdAndVersion;
@@ -79,61 +112,49 @@ public class Versions {
      * </ul>
      */
     public static long loadVersion(IndexReader reader, Term term) throws IOException {
-        final DocIdAndVersion docIdAndVersion = loadDocIdAndVersion(reader, term);
+        return loadVersion(reader, term, null);
+    }
+
+    /** Same as {@link #loadVersion(IndexReader, Term)} but notifies the provided listener of every visited segment. */
+    public static long loadVersion(IndexReader reader, Term term, @Nullable LookupListener listener) throws IOException {
+        final DocIdAndVersion docIdAndVersion = loadDocIdAndVersion(reader, term, listener);
         return docIdAndVersion == null ? NOT_FOUND : docIdAndVersion.version;
     }
 
     /** Same as {@link #loadDocIdAndVersion(IndexReader, Term)} but operates directly on a reader context. */
     public static DocIdAndVersion loadDocIdAndVersion(AtomicReaderContext readerContext, Term term) throws IOException {
+        return loadDocIdAndVersion(readerContext, term, null);
+    }
+
+    private static DocIdAndVersion loadDocIdAndVersion(AtomicReaderContext readerContext, Term term, @Nullable LookupListener listener) throws IOException {
         assert term.field().equals(UidFieldMapper.NAME);
         final AtomicReader reader = readerContext.reader();
-        final Bits liveDocs = reader.getLiveDocs();
-        final Terms terms = reader.terms(UidFieldMapper.NAME);
-        assert terms != null : "All segments must have a _uid field, but " + reader + " doesn't";
-        final TermsEnum termsEnum = terms.iterator(null);
-        if (!termsEnum.seekExact(term.bytes())) {
-            return null;
-        }
-
-        // Versions are stored as doc values...
-        final NumericDocValues versions = reader.getNumericDocValues(VersionFieldMapper.NAME);
-        if (versions != null || !terms.hasPayloads()) {
-            // only the last doc that matches the _uid is interesting here: if it is deleted, then there is
-            // no match otherwise previous docs are necessarily either deleted or nested docs
-            final DocsEnum docs = termsEnum.docs(null, null);
-            int docID = DocsEnum.NO_MORE_DOCS;
-            for (int d = docs.nextDoc(); d != DocsEnum.NO_MORE_DOCS; d = docs.nextDoc()) {
-                docID = d;
-            }
-            assert docID != DocsEnum.NO_MORE_DOCS; // would mean that the term exists but has no match at all
-            if (liveDocs != null && !liveDocs.get(docID)) {
-                return null;
-            } else if (versions != null) {
-                return new DocIdAndVersion(docID, versions.get(docID), readerContext);
-            } else {
-                // _uid found, but no doc values and no payloads
-                return new DocIdAndVersion(docID, NOT_SET, readerContext);
+        final Object coreCacheKey = reader.getCoreCacheKey();
+        CloseableThreadLocal<SegmentUidLookup> states = lookupStates.get(coreCacheKey);
+        if (states == null && SegmentReaderUtils.registerCoreListener(reader, removeLookupState)) {
+            states = new CloseableThreadLocal<SegmentUidLookup>();
+            final CloseableThreadLocal<SegmentUidLookup> existing = lookupStates.putIfAbsent(coreCacheKey, states);
+            if (existing != null) {
+                states.close();
+                states = existing;
             }
         }
 
-        // ... but used to be stored as payloads
-        final DocsAndPositionsEnum dpe = termsEnum.docsAndPositions(liveDocs, null, DocsAndPositionsEnum.FLAG_PAYLOADS);
-        assert dpe != null; // terms has payloads
-        int docID = DocsEnum.NO_MORE_DOCS;
-        for (int d = dpe.nextDoc(); d != DocsEnum.NO_MORE_DOCS; d = dpe.nextDoc()) {
-            docID = d;
-            dpe.nextPosition();
-            final BytesRef payload = dpe.getPayload();
-            if (payload != null && payload.length == 8) {
-                return new DocIdAndVersion(d, Numbers.bytesToLong(payload), readerContext);
+        SegmentUidLookup lookup = states == null ? null : states.get();
+        final boolean reusedState = lookup != null;
+        if (lookup == null) {
+            // if this is not a segment reader, we have no way to know when to release the state so we don't cache it
+            lookup = new SegmentUidLookup(reader);
+            if (states != null) {
+                states.set(lookup);
             }
         }
 
-        if (docID == DocsEnum.NO_MORE_DOCS) {
-            return null;
-        } else {
-            return new DocIdAndVersion(docID, NOT_SET, readerContext);
+        final boolean skipped = !lookup.mightContain(term.bytes());
+        if (listener != null) {
+            listener.onSegmentLookup(reusedState, skipped);
         }
+        return skipped ? null : lookup.lookup(readerContext, term.bytes());
     }
 
 }
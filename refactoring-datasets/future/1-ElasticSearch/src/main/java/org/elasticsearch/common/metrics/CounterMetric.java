@@ -46,4 +46,8 @@ public class CounterMetric implements Metric {
     public long count() {
         return counter.sum();
     }
+
+    public void clear() {
+        counter.reset();
+    }
 }
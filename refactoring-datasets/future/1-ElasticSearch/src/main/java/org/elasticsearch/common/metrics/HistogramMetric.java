@@ -0,0 +1,142 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.common.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A low overhead, log-linear (HDR style) histogram of non negative values. Values below 16 are recorded exactly,
+ * larger values are bucketed with 8 linear sub-buckets per power of two, which bounds the relative error to 12.5%.
+ * <p/>
+ * Counts are striped across a few {@link AtomicLongArray}s picked by the recording thread, so that concurrent
+ * writers rarely contend on the same cache line. Reads sum the stripes, see {@link #snapshot()}.
+ */
+public class HistogramMetric implements Metric {
+
+    private static final int EXACT_BITS = 4;
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int EXACT = 1 << EXACT_BITS;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int MAX_BITS = 40;
+    private static final long MAX_VALUE = (1L << MAX_BITS) - 1;
+    static final int BUCKETS = EXACT + (MAX_BITS - EXACT_BITS) * SUB_BUCKETS;
+
+    private final AtomicLongArray[] stripes;
+    private final int mask;
+
+    public HistogramMetric() {
+        int count = Integer.highestOneBit(Math.max(1, Math.min(Runtime.getRuntime().availableProcessors(), 8)) * 2 - 1);
+        stripes = new AtomicLongArray[count];
+        for (int i = 0; i < count; i++) {
+            stripes[i] = new AtomicLongArray(BUCKETS);
+        }
+        mask = count - 1;
+    }
+
+    /**
+     * Records a value, negative values are recorded as <tt>0</tt> and values above 2^40 are clamped.
+     */
+    public void inc(long value) {
+        stripes[(int) Thread.currentThread().getId() & mask].incrementAndGet(bucket(value));
+    }
+
+    public void clear() {
+        for (AtomicLongArray stripe : stripes) {
+            for (int i = 0; i < BUCKETS; i++) {
+                stripe.set(i, 0);
+            }
+        }
+    }
+
+    public Snapshot snapshot() {
+        long[] counts = new long[BUCKETS];
+        long total = 0;
+        for (AtomicLongArray stripe : stripes) {
+            for (int i = 0; i < BUCKETS; i++) {
+                long c = stripe.get(i);
+                counts[i] += c;
+                total += c;
+            }
+        }
+        return new Snapshot(counts, total);
+    }
+
+    static int bucket(long value) {
+        if (value < EXACT) {
+            return value < 0 ? 0 : (int) value;
+        }
+        if (value > MAX_VALUE) {
+            value = MAX_VALUE;
+        }
+        int msb = 63 - Long.numberOfLeadingZeros(value);
+        int shift = msb - SUB_BUCKET_BITS;
+        return EXACT + (msb - EXACT_BITS) * SUB_BUCKETS + (int) ((value >>> shift) - SUB_BUCKETS);
+    }
+
+    /**
+     * The highest value that maps to the given bucket.
+     */
+    static long highestEquivalentValue(int bucket) {
+        if (bucket < EXACT) {
+            return bucket;
+        }
+        int msb = (bucket - EXACT) / SUB_BUCKETS + EXACT_BITS;
+        int sub = (bucket - EXACT) % SUB_BUCKETS;
+        int shift = msb - SUB_BUCKET_BITS;
+        return ((long) (SUB_BUCKETS + sub + 1) << shift) - 1;
+    }
+
+    /**
+     * A point in time copy of the histogram counts.
+     */
+    public static class Snapshot {
+
+        private final long[] counts;
+        private final long count;
+
+        Snapshot(long[] counts, long count) {
+            this.counts = counts;
+            this.count = count;
+        }
+
+        public long count() {
+            return count;
+        }
+
+        /**
+         * The value at the given percentile (between <tt>0</tt> and <tt>100</tt>), reported as the upper bound of
+         * the bucket it falls into, or <tt>0</tt> if nothing was recorded.
+         */
+        public long percentile(double percentile) {
+            if (count == 0) {
+                return 0;
+            }
+            long rank = Math.max(1, (long) Math.ceil(Math.min(100, Math.max(0, percentile)) / 100 * count));
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return highestEquivalentValue(i);
+                }
+            }
+            return highestEquivalentValue(counts.length - 1);
+        }
+    }
+}
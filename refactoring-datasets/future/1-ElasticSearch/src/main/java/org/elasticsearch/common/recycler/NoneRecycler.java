@@ -31,7 +31,7 @@ public class NoneRecycler<T> extends AbstractRecycler<T> {
 
     @Override
     public V<T> obtain(int sizing) {
-        return new NV<T>(c.newInstance(sizing));
+        return new NV<T>(c, c.newInstance(sizing));
     }
 
     @Override
@@ -41,9 +41,11 @@ public class NoneRecycler<T> extends AbstractRecycler<T> {
 
     public static class NV<T> implements Recycler.V<T> {
 
+        final C<T> c;
         T value;
 
-        NV(T value) {
+        NV(C<T> c, T value) {
+            this.c = c;
             this.value = value;
         }
 
@@ -62,6 +64,7 @@ public class NoneRecycler<T> extends AbstractRecycler<T> {
             if (value == null) {
                 throw new ElasticsearchIllegalStateException("recycler entry already released...");
             }
+            c.destroy(value);
             value = null;
             return true;
         }
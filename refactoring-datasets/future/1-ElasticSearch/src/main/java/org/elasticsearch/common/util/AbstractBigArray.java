@@ -23,16 +23,19 @@ import com.google.common.base.Preconditions;
 import org.apache.lucene.util.ArrayUtil;
 import org.apache.lucene.util.RamUsageEstimator;
 import org.elasticsearch.cache.recycler.PageCacheRecycler;
+import org.elasticsearch.common.breaker.MemoryCircuitBreaker;
 import org.elasticsearch.common.lease.Releasables;
 import org.elasticsearch.common.recycler.Recycler;
 
 import java.lang.reflect.Array;
+import java.nio.ByteBuffer;
 import java.util.Arrays;
 
 /** Common implementation for array lists that slice data into fixed-size blocks. */
 abstract class AbstractBigArray extends AbstractArray {
 
     private final PageCacheRecycler recycler;
+    private final MemoryCircuitBreaker breaker;
     private Recycler.V<?>[] cache;
 
     private final int pageShift;
@@ -40,8 +43,16 @@ abstract class AbstractBigArray extends AbstractArray {
     protected long size;
 
     protected AbstractBigArray(int pageSize, PageCacheRecycler recycler, boolean clearOnResize) {
+        this(pageSize, recycler, null, clearOnResize);
+    }
+
+    /**
+     * @param breaker if not null, every page held by this array is accounted on this breaker until it is released
+     */
+    protected AbstractBigArray(int pageSize, PageCacheRecycler recycler, MemoryCircuitBreaker breaker, boolean clearOnResize) {
         super(clearOnResize);
         this.recycler = recycler;
+        this.breaker = breaker;
         Preconditions.checkArgument(pageSize >= 128, "pageSize must be >= 128");
         Preconditions.checkArgument((pageSize & (pageSize - 1)) == 0, "pageSize must be a power of two");
         this.pageShift = Integer.numberOfTrailingZeros(pageSize);
@@ -153,10 +164,27 @@ abstract class AbstractBigArray extends AbstractArray {
         }
     }
 
+    /** Obtain an off-heap page of {@link BigArrays#PAGE_SIZE_IN_BYTES} bytes, this requires a recycler. */
+    protected final ByteBuffer newDirectPage(int page) {
+        Preconditions.checkState(recycler != null, "off-heap pages require a page cache recycler");
+        if (breaker != null) {
+            breaker.addEstimateBytesAndMaybeBreak(BigArrays.PAGE_SIZE_IN_BYTES);
+        }
+        final Recycler.V<ByteBuffer> v = recycler.directPage(clearOnResize);
+        cache = grow(cache, page + 1);
+        assert cache[page] == null;
+        cache[page] = v;
+        assert v.v().capacity() == BigArrays.PAGE_SIZE_IN_BYTES;
+        return v.v();
+    }
+
     protected final void releasePage(int page) {
         if (recycler != null) {
             cache[page].release();
             cache[page] = null;
+            if (breaker != null) {
+                breaker.addWithoutBreaking(-BigArrays.PAGE_SIZE_IN_BYTES);
+            }
         }
     }
 
@@ -164,6 +192,15 @@ abstract class AbstractBigArray extends AbstractArray {
     public final boolean release() {
         super.release();
         if (recycler != null) {
+            if (breaker != null) {
+                long numPages = 0;
+                for (Recycler.V<?> v : cache) {
+                    if (v != null) {
+                        ++numPages;
+                    }
+                }
+                breaker.addWithoutBreaking(-numPages * BigArrays.PAGE_SIZE_IN_BYTES);
+            }
             Releasables.release(cache);
             cache = null;
         }
@@ -24,6 +24,7 @@ import org.apache.lucene.util.ArrayUtil;
 import org.apache.lucene.util.BytesRef;
 import org.apache.lucene.util.RamUsageEstimator;
 import org.elasticsearch.cache.recycler.PageCacheRecycler;
+import org.elasticsearch.common.breaker.MemoryCircuitBreaker;
 import org.elasticsearch.common.component.AbstractComponent;
 import org.elasticsearch.common.inject.Inject;
 import org.elasticsearch.common.lease.Releasable;
@@ -31,6 +32,8 @@ import org.elasticsearch.common.lease.Releasables;
 import org.elasticsearch.common.recycler.Recycler;
 import org.elasticsearch.common.settings.ImmutableSettings;
 import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.monitor.jvm.JvmInfo;
 
 import java.util.Arrays;
 
@@ -39,6 +42,11 @@ public class BigArrays extends AbstractComponent {
 
     public static final BigArrays NON_RECYCLING_INSTANCE = new BigArrays(ImmutableSettings.EMPTY, null);
 
+    /** Whether byte, int, long and double arrays should store their pages off-heap, requires a page cache recycler. */
+    public static final String OFF_HEAP_ENABLED = "big_arrays.off_heap.enabled";
+    /** Maximum amount of off-heap memory that arrays may hold at the same time, defaults to 80% of the max direct memory. */
+    public static final String OFF_HEAP_LIMIT = "big_arrays.off_heap.limit";
+
     /** Page size in bytes: 16KB */
     public static final int PAGE_SIZE_IN_BYTES = 1 << 14;
     public static final int BYTE_PAGE_SIZE = BigArrays.PAGE_SIZE_IN_BYTES / RamUsageEstimator.NUM_BYTES_BYTE;
@@ -127,11 +135,12 @@ public class BigArrays extends AbstractComponent {
         }
 
         @Override
-        public void get(long index, int len, BytesRef ref) {
+        public boolean get(long index, int len, BytesRef ref) {
             assert indexIsInt(index);
             ref.bytes = array;
             ref.offset = (int) index;
             ref.length = len;
+            return false;
         }
 
         @Override
@@ -321,11 +330,34 @@ public class BigArrays extends AbstractComponent {
     }
 
     final PageCacheRecycler recycler;
+    final MemoryCircuitBreaker offHeapBreaker;
 
     @Inject
     public BigArrays(Settings settings, PageCacheRecycler recycler) {
-        super(settings);
+        super(settings, BigArrays.class);
         this.recycler = recycler;
+        if (recycler != null && componentSettings.getAsBoolean(OFF_HEAP_ENABLED, false)) {
+            final long directMemoryMax = JvmInfo.jvmInfo().mem().directMemoryMax().bytes();
+            final ByteSizeValue defaultLimit = new ByteSizeValue(directMemoryMax > 0 ? (long) (0.8 * directMemoryMax) : -1);
+            final ByteSizeValue limit = componentSettings.getAsBytesSize(OFF_HEAP_LIMIT, defaultLimit);
+            logger.debug("using off-heap pages, limit [{}]", limit);
+            offHeapBreaker = new MemoryCircuitBreaker(limit, 1.0, logger);
+        } else {
+            offHeapBreaker = null;
+        }
+    }
+
+    /** Whether this instance stores large byte, int, long and double arrays off-heap. */
+    public boolean offHeap() {
+        return offHeapBreaker != null;
+    }
+
+    /**
+     * Returns the breaker that accounts for the off-heap pages that are currently held by arrays, or <code>null</code> if
+     * arrays are stored on the heap.
+     */
+    public MemoryCircuitBreaker offHeapBreaker() {
+        return offHeapBreaker;
     }
 
     /**
@@ -334,7 +366,9 @@ public class BigArrays extends AbstractComponent {
      * @param clearOnResize whether values should be set to 0 on initialization and resize
      */
     public ByteArray newByteArray(long size, boolean clearOnResize) {
-        if (size > BYTE_PAGE_SIZE) {
+        if (offHeapBreaker != null && size >= BYTE_PAGE_SIZE / 2) {
+            return new DirectBigByteArray(size, recycler, offHeapBreaker, clearOnResize);
+        } else if (size > BYTE_PAGE_SIZE) {
             return new BigByteArray(size, recycler, clearOnResize);
         } else if (size >= BYTE_PAGE_SIZE / 2 && recycler != null) {
             final Recycler.V<byte[]> page = recycler.bytePage(clearOnResize);
@@ -357,6 +391,9 @@ public class BigArrays extends AbstractComponent {
         if (array instanceof BigByteArray) {
             ((BigByteArray) array).resize(size);
             return array;
+        } else if (array instanceof DirectBigByteArray) {
+            ((DirectBigByteArray) array).resize(size);
+            return array;
         } else {
             AbstractArray arr = (AbstractArray) array;
             final ByteArray newArray = newByteArray(size, arr.clearOnResize);
@@ -382,7 +419,9 @@ public class BigArrays extends AbstractComponent {
      * @param clearOnResize whether values should be set to 0 on initialization and resize
      */
     public IntArray newIntArray(long size, boolean clearOnResize) {
-        if (size > INT_PAGE_SIZE) {
+        if (offHeapBreaker != null && size >= INT_PAGE_SIZE / 2) {
+            return new DirectBigIntArray(size, recycler, offHeapBreaker, clearOnResize);
+        } else if (size > INT_PAGE_SIZE) {
             return new BigIntArray(size, recycler, clearOnResize);
         } else if (size >= INT_PAGE_SIZE / 2 && recycler != null) {
             final Recycler.V<int[]> page = recycler.intPage(clearOnResize);
@@ -405,6 +444,9 @@ public class BigArrays extends AbstractComponent {
         if (array instanceof BigIntArray) {
             ((BigIntArray) array).resize(size);
             return array;
+        } else if (array instanceof DirectBigIntArray) {
+            ((DirectBigIntArray) array).resize(size);
+            return array;
         } else {
             AbstractArray arr = (AbstractArray) array;
             final IntArray newArray = newIntArray(size, arr.clearOnResize);
@@ -431,7 +473,9 @@ public class BigArrays extends AbstractComponent {
      * @param clearOnResize whether values should be set to 0 on initialization and resize
      */
     public LongArray newLongArray(long size, boolean clearOnResize) {
-        if (size > LONG_PAGE_SIZE) {
+        if (offHeapBreaker != null && size >= LONG_PAGE_SIZE / 2) {
+            return new DirectBigLongArray(size, recycler, offHeapBreaker, clearOnResize);
+        } else if (size > LONG_PAGE_SIZE) {
             return new BigLongArray(size, recycler, clearOnResize);
         } else if (size >= LONG_PAGE_SIZE / 2 && recycler != null) {
             final Recycler.V<long[]> page = recycler.longPage(clearOnResize);
@@ -454,6 +498,9 @@ public class BigArrays extends AbstractComponent {
         if (array instanceof BigLongArray) {
             ((BigLongArray) array).resize(size);
             return array;
+        } else if (array instanceof DirectBigLongArray) {
+            ((DirectBigLongArray) array).resize(size);
+            return array;
         } else {
             AbstractArray arr = (AbstractArray) array;
             final LongArray newArray = newLongArray(size, arr.clearOnResize);
@@ -480,7 +527,9 @@ public class BigArrays extends AbstractComponent {
      * @param clearOnResize whether values should be set to 0 on initialization and resize
      */
     public DoubleArray newDoubleArray(long size, boolean clearOnResize) {
-        if (size > DOUBLE_PAGE_SIZE) {
+        if (offHeapBreaker != null && size >= DOUBLE_PAGE_SIZE / 2) {
+            return new DirectBigDoubleArray(size, recycler, offHeapBreaker, clearOnResize);
+        } else if (size > DOUBLE_PAGE_SIZE) {
             return new BigDoubleArray(size, recycler, clearOnResize);
         } else if (size >= DOUBLE_PAGE_SIZE / 2 && recycler != null) {
             final Recycler.V<double[]> page = recycler.doublePage(clearOnResize);
@@ -500,6 +549,9 @@ public class BigArrays extends AbstractComponent {
         if (array instanceof BigDoubleArray) {
             ((BigDoubleArray) array).resize(size);
             return array;
+        } else if (array instanceof DirectBigDoubleArray) {
+            ((DirectBigDoubleArray) array).resize(size);
+            return array;
         } else {
             AbstractArray arr = (AbstractArray) array;
             final DoubleArray newArray = newDoubleArray(size, arr.clearOnResize);
@@ -64,7 +64,7 @@ final class BigByteArray extends AbstractBigArray implements ByteArray {
     }
 
     @Override
-    public void get(long index, int len, BytesRef ref) {
+    public boolean get(long index, int len, BytesRef ref) {
         assert index + len <= size();
         int pageIndex = pageIndex(index);
         final int indexInPage = indexInPage(index);
@@ -72,6 +72,7 @@ final class BigByteArray extends AbstractBigArray implements ByteArray {
             ref.bytes = pages[pageIndex];
             ref.offset = indexInPage;
             ref.length = len;
+            return false;
         } else {
             ref.bytes = new byte[len];
             ref.offset = 0;
@@ -83,6 +84,7 @@ final class BigByteArray extends AbstractBigArray implements ByteArray {
                 System.arraycopy(pages[pageIndex], 0, ref.bytes, ref.length, copyLength);
                 ref.length += copyLength;
             } while (ref.length < len);
+            return true;
         }
     }
 
@@ -37,9 +37,11 @@ public interface ByteArray extends BigArray {
     public abstract byte set(long index, byte value);
 
     /**
-     * Get a reference to a slice.
+     * Get a reference to a slice. Returns <tt>true</tt> if the bytes had to be copied into a fresh array, which
+     * happens when the slice spans several pages. Off-heap arrays always copy. They reuse the array <code>ref</code>
+     * points to if they allocated it for a previous call with the same ref, and never write to any other array.
      */
-    public abstract void get(long index, int len, BytesRef ref);
+    public abstract boolean get(long index, int len, BytesRef ref);
 
     /**
      * Bulk set.
@@ -0,0 +1,141 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.common.util;
+
+import org.apache.lucene.util.ArrayUtil;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.RamUsageEstimator;
+import org.elasticsearch.cache.recycler.PageCacheRecycler;
+import org.elasticsearch.common.breaker.MemoryCircuitBreaker;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import static org.elasticsearch.common.util.BigArrays.BYTE_PAGE_SIZE;
+
+/**
+ * Byte array abstraction able to support more than 2B values. This implementation slices data into fixed-sized blocks
+ * that are stored off-heap in direct {@link ByteBuffer}s obtained from the {@link PageCacheRecycler}.
+ */
+final class DirectBigByteArray extends AbstractBigArray implements ByteArray {
+
+    private ByteBuffer[] pages;
+    // the last array that slices were copied into, it is only reused if the ref passed to get still points to it
+    private byte[] scratch;
+
+    /** Constructor. */
+    public DirectBigByteArray(long size, PageCacheRecycler recycler, MemoryCircuitBreaker breaker, boolean clearOnResize) {
+        super(BYTE_PAGE_SIZE, recycler, breaker, clearOnResize);
+        this.size = size;
+        pages = new ByteBuffer[numPages(size)];
+        boolean success = false;
+        try {
+            for (int i = 0; i < pages.length; ++i) {
+                pages[i] = newDirectPage(i);
+            }
+            success = true;
+        } finally {
+            if (!success) {
+                release();
+            }
+        }
+    }
+
+    @Override
+    public byte get(long index) {
+        final int pageIndex = pageIndex(index);
+        final int indexInPage = indexInPage(index);
+        return pages[pageIndex].get(indexInPage);
+    }
+
+    @Override
+    public byte set(long index, byte value) {
+        final int pageIndex = pageIndex(index);
+        final int offset = indexInPage(index);
+        final ByteBuffer page = pages[pageIndex];
+        final byte ret = page.get(offset);
+        page.put(offset, value);
+        return ret;
+    }
+
+    @Override
+    public boolean get(long index, int len, BytesRef ref) {
+        assert index + len <= size();
+        // there is no byte[] to share a reference to, so always copy. The array of the ref is only written to if
+        // this array allocated it, any other array might be borrowed from someone else.
+        if (scratch == null || ref.bytes != scratch || scratch.length < len) {
+            scratch = new byte[ArrayUtil.oversize(len, RamUsageEstimator.NUM_BYTES_BYTE)];
+            ref.bytes = scratch;
+        }
+        ref.offset = 0;
+        ref.length = 0;
+        int pageIndex = pageIndex(index);
+        int indexInPage = indexInPage(index);
+        while (ref.length < len) {
+            final int copyLength = Math.min(pageSize() - indexInPage, len - ref.length);
+            final ByteBuffer page = pages[pageIndex].duplicate();
+            page.position(indexInPage);
+            page.get(ref.bytes, ref.length, copyLength);
+            ref.length += copyLength;
+            ++pageIndex;
+            indexInPage = 0;
+        }
+        return true;
+    }
+
+    @Override
+    public void set(long index, byte[] buf, int offset, int len) {
+        assert index + len <= size();
+        int pageIndex = pageIndex(index);
+        int indexInPage = indexInPage(index);
+        while (len > 0) {
+            final int copyLength = Math.min(pageSize() - indexInPage, len);
+            final ByteBuffer page = pages[pageIndex].duplicate();
+            page.position(indexInPage);
+            page.put(buf, offset, copyLength);
+            offset += copyLength;
+            len -= copyLength;
+            ++pageIndex;
+            indexInPage = 0;
+        }
+    }
+
+    @Override
+    protected int numBytesPerElement() {
+        return RamUsageEstimator.NUM_BYTES_BYTE;
+    }
+
+    /** Change the size of this array. Content between indexes <code>0</code> and <code>min(size(), newSize)</code> will be preserved. */
+    public void resize(long newSize) {
+        final int numPages = numPages(newSize);
+        if (numPages > pages.length) {
+            pages = Arrays.copyOf(pages, ArrayUtil.oversize(numPages, RamUsageEstimator.NUM_BYTES_OBJECT_REF));
+        }
+        for (int i = numPages - 1; i >= 0 && pages[i] == null; --i) {
+            pages[i] = newDirectPage(i);
+        }
+        for (int i = numPages; i < pages.length && pages[i] != null; ++i) {
+            pages[i] = null;
+            releasePage(i);
+        }
+        this.size = newSize;
+    }
+
+}
@@ -0,0 +1,119 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.common.util;
+
+import com.google.common.base.Preconditions;
+import org.apache.lucene.util.ArrayUtil;
+import org.apache.lucene.util.RamUsageEstimator;
+import org.elasticsearch.cache.recycler.PageCacheRecycler;
+import org.elasticsearch.common.breaker.MemoryCircuitBreaker;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import static org.elasticsearch.common.util.BigArrays.LONG_PAGE_SIZE;
+
+/**
+ * Long array abstraction able to support more than 2B values. This implementation slices data into fixed-sized blocks
+ * that are stored off-heap in direct {@link ByteBuffer}s obtained from the {@link PageCacheRecycler}.
+ */
+final class DirectBigLongArray extends AbstractBigArray implements LongArray {
+
+    private ByteBuffer[] pages;
+
+    /** Constructor. */
+    public DirectBigLongArray(long size, PageCacheRecycler recycler, MemoryCircuitBreaker breaker, boolean clearOnResize) {
+        super(LONG_PAGE_SIZE, recycler, breaker, clearOnResize);
+        this.size = size;
+        pages = new ByteBuffer[numPages(size)];
+        boolean success = false;
+        try {
+            for (int i = 0; i < pages.length; ++i) {
+                pages[i] = newDirectPage(i);
+            }
+            success = true;
+        } finally {
+            if (!success) {
+                release();
+            }
+        }
+    }
+
+    @Override
+    public long get(long index) {
+        final int pageIndex = pageIndex(index);
+        final int indexInPage = indexInPage(index);
+        return pages[pageIndex].getLong(indexInPage << 3);
+    }
+
+    @Override
+    public long set(long index, long value) {
+        final int pageIndex = pageIndex(index);
+        final int offset = indexInPage(index) << 3;
+        final ByteBuffer page = pages[pageIndex];
+        final long ret = page.getLong(offset);
+        page.putLong(offset, value);
+        return ret;
+    }
+
+    @Override
+    public long increment(long index, long inc) {
+        final int pageIndex = pageIndex(index);
+        final int offset = indexInPage(index) << 3;
+        final ByteBuffer page = pages[pageIndex];
+        final long value = page.getLong(offset) + inc;
+        page.putLong(offset, value);
+        return value;
+    }
+
+    @Override
+    public void fill(long fromIndex, long toIndex, long value) {
+        Preconditions.checkArgument(fromIndex <= toIndex);
+        for (long i = fromIndex; i < toIndex; ) {
+            final ByteBuffer page = pages[pageIndex(i)];
+            final int end = (int) Math.min(pageSize(), indexInPage(i) + toIndex - i);
+            for (int j = indexInPage(i); j < end; ++j, ++i) {
+                page.putLong(j << 3, value);
+            }
+        }
+    }
+
+    @Override
+    protected int numBytesPerElement() {
+        return RamUsageEstimator.NUM_BYTES_LONG;
+    }
+
+    /** Change the size of this array. Content between indexes <code>0</code> and <code>min(size(), newSize)</code> will be preserved. */
+    public void resize(long newSize) {
+        final int numPages = numPages(newSize);
+        if (numPages > pages.length) {
+            pages = Arrays.copyOf(pages, ArrayUtil.oversize(numPages, RamUsageEstimator.NUM_BYTES_OBJECT_REF));
+        }
+        for (int i = numPages - 1; i >= 0 && pages[i] == null; --i) {
+            pages[i] = newDirectPage(i);
+        }
+        for (int i = numPages; i < pages.length && pages[i] != null; ++i) {
+            pages[i] = null;
+            releasePage(i);
+        }
+        this.size = newSize;
+    }
+
+}
@@ -20,6 +20,8 @@
 package org.elasticsearch.common.util.concurrent;
 
 import org.elasticsearch.ElasticsearchIllegalStateException;
+import org.elasticsearch.common.metrics.EWMA;
+import org.elasticsearch.common.metrics.HistogramMetric;
 
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ThreadFactory;
@@ -27,7 +29,8 @@ import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 
 /**
- * An extension to thread pool executor, allowing (in the future) to add specific additional stats to it.
+ * An extension to thread pool executor, keeping track of how long tasks wait in the queue and how long they take
+ * to execute (in micros), as well as of the rate at which tasks are submitted.
  */
 public class EsThreadPoolExecutor extends ThreadPoolExecutor {
 
@@ -35,6 +38,10 @@ public class EsThreadPoolExecutor extends ThreadPoolExecutor {
 
     private final Object monitor = new Object();
 
+    private final HistogramMetric queueTime = new HistogramMetric();
+    private final HistogramMetric executionTime = new HistogramMetric();
+    private final EWMA arrivalRate = EWMA.oneMinuteEWMA();
+
     EsThreadPoolExecutor(int corePoolSize, int maximumPoolSize, long keepAliveTime, TimeUnit unit, BlockingQueue<Runnable> workQueue, ThreadFactory threadFactory) {
         this(corePoolSize, maximumPoolSize, keepAliveTime, unit, workQueue, threadFactory, new EsAbortPolicy());
     }
@@ -43,6 +50,62 @@ public class EsThreadPoolExecutor extends ThreadPoolExecutor {
         super(corePoolSize, maximumPoolSize, keepAliveTime, unit, workQueue, threadFactory, handler);
     }
 
+    @Override
+    public void execute(Runnable command) {
+        arrivalRate.update(1);
+        super.execute(wrap(command));
+    }
+
+    /**
+     * Wraps a submitted task so that its queue and execution time get recorded. Executors that need to inspect
+     * their queue (like the prioritized one) time their own task wrappers instead, using {@link #onTaskStart(long)}
+     * and {@link #onTaskEnd(long)}.
+     */
+    protected Runnable wrap(Runnable command) {
+        return new TimedRunnable(this, command);
+    }
+
+    /**
+     * Records the time the task spent in the queue and returns the time it started executing.
+     */
+    final long onTaskStart(long submitNanos) {
+        long startNanos = System.nanoTime();
+        queueTime.inc(TimeUnit.NANOSECONDS.toMicros(startNanos - submitNanos));
+        return startNanos;
+    }
+
+    final void onTaskEnd(long startNanos) {
+        executionTime.inc(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startNanos));
+    }
+
+    /**
+     * The time tasks waited in the queue before being executed, in micros.
+     */
+    public HistogramMetric.Snapshot queueTime() {
+        return queueTime.snapshot();
+    }
+
+    /**
+     * The time tasks took to execute, in micros.
+     */
+    public HistogramMetric.Snapshot executionTime() {
+        return executionTime.snapshot();
+    }
+
+    /**
+     * The one minute moving average of submitted tasks per second.
+     */
+    public double arrivalRate() {
+        return arrivalRate.rate(TimeUnit.SECONDS);
+    }
+
+    /**
+     * Updates the arrival rate average, expected to be called every 5 seconds.
+     */
+    public void tickArrivalRate() {
+        arrivalRate.tick();
+    }
+
     public void shutdown(ShutdownListener listener) {
         synchronized (monitor) {
             if (this.listener != null) {
@@ -75,4 +138,37 @@ public class EsThreadPoolExecutor extends ThreadPoolExecutor {
         public void onTerminated();
     }
 
+    static final class TimedRunnable extends AbstractRunnable {
+
+        private final EsThreadPoolExecutor executor;
+        private final Runnable command;
+        private final long submitNanos;
+
+        TimedRunnable(EsThreadPoolExecutor executor, Runnable command) {
+            this.executor = executor;
+            this.command = command;
+            this.submitNanos = System.nanoTime();
+        }
+
+        @Override
+        public void run() {
+            long startNanos = executor.onTaskStart(submitNanos);
+            try {
+                command.run();
+            } finally {
+                executor.onTaskEnd(startNanos);
+            }
+        }
+
+        @Override
+        public boolean isForceExecution() {
+            return command instanceof AbstractRunnable && ((AbstractRunnable) command).isForceExecution();
+        }
+
+        @Override
+        public String toString() {
+            return command.toString();
+        }
+    }
+
 }
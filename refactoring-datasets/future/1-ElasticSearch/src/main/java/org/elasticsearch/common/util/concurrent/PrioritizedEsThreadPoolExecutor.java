@@ -18,9 +18,12 @@
  */
 package org.elasticsearch.common.util.concurrent;
 
+import com.google.common.base.Predicate;
 import org.elasticsearch.common.Priority;
 import org.elasticsearch.common.unit.TimeValue;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicLong;
 
@@ -55,11 +58,37 @@ public class PrioritizedEsThreadPoolExecutor extends EsThreadPoolExecutor {
         return infos;
     }
 
+    /**
+     * Removes the tasks at the head of the queue, in execution order, for as long as the given predicate accepts them
+     * and at most <tt>max</tt> of them. Only tasks handed to {@link #execute(Runnable)} are considered, they are returned
+     * unwrapped and are expected to be run by the calling thread, as part of the task it is currently executing.
+     */
+    public List<Runnable> drainHead(Predicate<Runnable> predicate, int max) {
+        List<Runnable> drained = new ArrayList<Runnable>();
+        BlockingQueue<Runnable> queue = getQueue();
+        while (drained.size() < max) {
+            Runnable head = queue.peek();
+            if (!(head instanceof TieBreakingPrioritizedRunnable)) {
+                break;
+            }
+            TieBreakingPrioritizedRunnable t = (TieBreakingPrioritizedRunnable) head;
+            if (!predicate.apply(t.runnable)) {
+                break;
+            }
+            // the task might have timed out in the meantime, in which case the timeout callback owns it
+            if (queue.remove(t)) {
+                onTaskStart(t.submitNanos);
+                drained.add(t.runnable);
+            }
+        }
+        return drained;
+    }
+
     public void execute(Runnable command, final ScheduledExecutorService timer, final TimeValue timeout, final Runnable timeoutCallback) {
         if (command instanceof PrioritizedRunnable) {
-            command = new TieBreakingPrioritizedRunnable((PrioritizedRunnable) command, insertionOrder.incrementAndGet());
+            command = new TieBreakingPrioritizedRunnable(this, (PrioritizedRunnable) command, insertionOrder.incrementAndGet());
         } else if (!(command instanceof PrioritizedFutureTask)) { // it might be a callable wrapper...
-            command = new TieBreakingPrioritizedRunnable(command, Priority.NORMAL, insertionOrder.incrementAndGet());
+            command = new TieBreakingPrioritizedRunnable(this, command, Priority.NORMAL, insertionOrder.incrementAndGet());
         }
         super.execute(command);
         if (timeout.nanos() >= 0) {
@@ -79,19 +108,25 @@ public class PrioritizedEsThreadPoolExecutor extends EsThreadPoolExecutor {
     @Override
     public void execute(Runnable command) {
         if (command instanceof PrioritizedRunnable) {
-            command = new TieBreakingPrioritizedRunnable((PrioritizedRunnable) command, insertionOrder.incrementAndGet());
+            command = new TieBreakingPrioritizedRunnable(this, (PrioritizedRunnable) command, insertionOrder.incrementAndGet());
         } else if (!(command instanceof PrioritizedFutureTask)) { // it might be a callable wrapper...
-            command = new TieBreakingPrioritizedRunnable(command, Priority.NORMAL, insertionOrder.incrementAndGet());
+            command = new TieBreakingPrioritizedRunnable(this, command, Priority.NORMAL, insertionOrder.incrementAndGet());
         }
         super.execute(command);
     }
 
+    @Override
+    protected Runnable wrap(Runnable command) {
+        // the queue must keep holding the prioritized tasks, they time themselves
+        return command;
+    }
+
     @Override
     protected <T> RunnableFuture<T> newTaskFor(Runnable runnable, T value) {
         if (!(runnable instanceof PrioritizedRunnable)) {
             runnable = PrioritizedRunnable.wrap(runnable, Priority.NORMAL);
         }
-        return new PrioritizedFutureTask<T>((PrioritizedRunnable) runnable, value, insertionOrder.incrementAndGet());
+        return new PrioritizedFutureTask<T>(this, (PrioritizedRunnable) runnable, value, insertionOrder.incrementAndGet());
     }
 
     @Override
@@ -99,7 +134,7 @@ public class PrioritizedEsThreadPoolExecutor extends EsThreadPoolExecutor {
         if (!(callable instanceof PrioritizedCallable)) {
             callable = PrioritizedCallable.wrap(callable, Priority.NORMAL);
         }
-        return new PrioritizedFutureTask<T>((PrioritizedCallable<T>) callable, insertionOrder.incrementAndGet());
+        return new PrioritizedFutureTask<T>(this, (PrioritizedCallable<T>) callable, insertionOrder.incrementAndGet());
     }
 
     public static class Pending {
@@ -116,22 +151,30 @@ public class PrioritizedEsThreadPoolExecutor extends EsThreadPoolExecutor {
 
     static class TieBreakingPrioritizedRunnable extends PrioritizedRunnable {
 
+        final EsThreadPoolExecutor executor;
         final Runnable runnable;
         final long insertionOrder;
+        final long submitNanos = System.nanoTime();
 
-        TieBreakingPrioritizedRunnable(PrioritizedRunnable runnable, long insertionOrder) {
-            this(runnable, runnable.priority(), insertionOrder);
+        TieBreakingPrioritizedRunnable(EsThreadPoolExecutor executor, PrioritizedRunnable runnable, long insertionOrder) {
+            this(executor, runnable, runnable.priority(), insertionOrder);
         }
 
-        TieBreakingPrioritizedRunnable(Runnable runnable, Priority priority, long insertionOrder) {
+        TieBreakingPrioritizedRunnable(EsThreadPoolExecutor executor, Runnable runnable, Priority priority, long insertionOrder) {
             super(priority);
+            this.executor = executor;
             this.runnable = runnable;
             this.insertionOrder = insertionOrder;
         }
 
         @Override
         public void run() {
-            runnable.run();
+            long startNanos = executor.onTaskStart(submitNanos);
+            try {
+                runnable.run();
+            } finally {
+                executor.onTaskEnd(startNanos);
+            }
         }
 
         @Override
@@ -146,24 +189,38 @@ public class PrioritizedEsThreadPoolExecutor extends EsThreadPoolExecutor {
 
     static class PrioritizedFutureTask<T> extends FutureTask<T> implements Comparable<PrioritizedFutureTask> {
 
+        final EsThreadPoolExecutor executor;
         final Object task;
         final Priority priority;
         final long insertionOrder;
+        final long submitNanos = System.nanoTime();
 
-        public PrioritizedFutureTask(PrioritizedRunnable runnable, T value, long insertionOrder) {
+        public PrioritizedFutureTask(EsThreadPoolExecutor executor, PrioritizedRunnable runnable, T value, long insertionOrder) {
             super(runnable, value);
+            this.executor = executor;
             this.task = runnable;
             this.priority = runnable.priority();
             this.insertionOrder = insertionOrder;
         }
 
-        public PrioritizedFutureTask(PrioritizedCallable<T> callable, long insertionOrder) {
+        public PrioritizedFutureTask(EsThreadPoolExecutor executor, PrioritizedCallable<T> callable, long insertionOrder) {
             super(callable);
+            this.executor = executor;
             this.task = callable;
             this.priority = callable.priority();
             this.insertionOrder = insertionOrder;
         }
 
+        @Override
+        public void run() {
+            long startNanos = executor.onTaskStart(submitNanos);
+            try {
+                super.run();
+            } finally {
+                executor.onTaskEnd(startNanos);
+            }
+        }
+
         @Override
         public int compareTo(PrioritizedFutureTask pft) {
             int res = priority.compareTo(pft.priority);
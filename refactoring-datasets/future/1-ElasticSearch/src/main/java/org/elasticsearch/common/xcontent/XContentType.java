@@ -90,21 +90,51 @@ public enum XContentType {
         if (contentType == null) {
             return null;
         }
-        if ("application/json".equals(contentType) || "json".equalsIgnoreCase(contentType)) {
+        // ignore media type parameters, such as "application/json; charset=UTF-8"
+        int paramsIndex = contentType.indexOf(';');
+        if (paramsIndex >= 0) {
+            contentType = contentType.substring(0, paramsIndex);
+        }
+        contentType = contentType.trim();
+        if ("application/json".equalsIgnoreCase(contentType) || "json".equalsIgnoreCase(contentType)) {
             return JSON;
         }
 
-        if ("application/smile".equals(contentType) || "smile".equalsIgnoreCase(contentType)) {
+        if ("application/smile".equalsIgnoreCase(contentType) || "smile".equalsIgnoreCase(contentType)) {
             return SMILE;
         }
 
-        if ("application/yaml".equals(contentType) || "yaml".equalsIgnoreCase(contentType)) {
+        if ("application/yaml".equalsIgnoreCase(contentType) || "yaml".equalsIgnoreCase(contentType)) {
             return YAML;
         }
 
         return null;
     }
 
+    /**
+     * Returns the first content type listed in an HTTP <tt>Accept</tt> header that we can produce, or
+     * <tt>null</tt> if none of them (for example <tt>*&#47;*</tt>) is recognized. Quality values are ignored,
+     * clients are expected to list their preferred type first.
+     */
+    public static XContentType fromAcceptHeader(String accept) {
+        if (accept == null) {
+            return null;
+        }
+        int start = 0;
+        while (start < accept.length()) {
+            int end = accept.indexOf(',', start);
+            if (end < 0) {
+                end = accept.length();
+            }
+            XContentType type = fromRestContentType(accept.substring(start, end));
+            if (type != null) {
+                return type;
+            }
+            start = end + 1;
+        }
+        return null;
+    }
+
     private int index;
 
     XContentType(int index) {
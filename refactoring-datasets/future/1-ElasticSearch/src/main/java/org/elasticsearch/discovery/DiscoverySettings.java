@@ -32,14 +32,21 @@ public class DiscoverySettings extends AbstractComponent {
 
     public static final String PUBLISH_TIMEOUT = "discovery.zen.publish_timeout";
 
+    public static final String PUBLISH_DIFF_ENABLE = "discovery.zen.publish_diff.enable";
+
     public static final TimeValue DEFAULT_PUBLISH_TIMEOUT = TimeValue.timeValueSeconds(30);
 
+    public static final boolean DEFAULT_PUBLISH_DIFF_ENABLE = true;
+
     private volatile TimeValue publishTimeout = DEFAULT_PUBLISH_TIMEOUT;
 
+    private volatile boolean publishDiff;
+
     @Inject
     public DiscoverySettings(Settings settings, NodeSettingsService nodeSettingsService) {
         super(settings);
         nodeSettingsService.addListener(new ApplySettings());
+        this.publishDiff = settings.getAsBoolean(PUBLISH_DIFF_ENABLE, DEFAULT_PUBLISH_DIFF_ENABLE);
     }
 
     /**
@@ -49,6 +56,13 @@ public class DiscoverySettings extends AbstractComponent {
         return publishTimeout;
     }
 
+    /**
+     * Returns whether the master should publish cluster state diffs to nodes that received the previous cluster state
+     */
+    public boolean getPublishDiff() {
+        return publishDiff;
+    }
+
     private class ApplySettings implements NodeSettingsService.Listener {
         @Override
         public void onRefreshSettings(Settings settings) {
@@ -59,6 +73,11 @@ public class DiscoverySettings extends AbstractComponent {
                     publishTimeout = newPublishTimeout;
                 }
             }
+            boolean newPublishDiff = settings.getAsBoolean(PUBLISH_DIFF_ENABLE, publishDiff);
+            if (newPublishDiff != publishDiff) {
+                logger.info("updating [{}] from [{}] to [{}]", PUBLISH_DIFF_ENABLE, publishDiff, newPublishDiff);
+                publishDiff = newPublishDiff;
+            }
         }
     }
 }
@@ -22,6 +22,7 @@ package org.elasticsearch.discovery.zen.publish;
 import com.google.common.collect.Maps;
 import org.elasticsearch.Version;
 import org.elasticsearch.cluster.ClusterState;
+import org.elasticsearch.cluster.IncompatibleClusterStateVersionException;
 import org.elasticsearch.cluster.node.DiscoveryNode;
 import org.elasticsearch.common.bytes.BytesReference;
 import org.elasticsearch.common.component.AbstractComponent;
@@ -38,6 +39,7 @@ import org.elasticsearch.discovery.zen.DiscoveryNodesProvider;
 import org.elasticsearch.threadpool.ThreadPool;
 import org.elasticsearch.transport.*;
 
+import java.io.IOException;
 import java.util.Map;
 
 /**
@@ -62,6 +64,13 @@ public class PublishClusterStateAction extends AbstractComponent {
     private final NewClusterStateListener listener;
     private final DiscoverySettings discoverySettings;
 
+    // the last cluster state this node published as master, diffs are computed against it
+    private volatile ClusterState lastPublishedClusterState;
+
+    private final Object lastSeenClusterStateMutex = new Object();
+    // the last cluster state this node received from the master, diffs are applied on top of it
+    private ClusterState lastSeenClusterState;
+
     public PublishClusterStateAction(Settings settings, TransportService transportService, DiscoveryNodesProvider nodesProvider,
                                      NewClusterStateListener listener, DiscoverySettings discoverySettings) {
         super(settings);
@@ -84,55 +93,43 @@ public class PublishClusterStateAction extends AbstractComponent {
 
         DiscoveryNode localNode = nodesProvider.nodes().localNode();
 
+        ClusterState previousClusterState = lastPublishedClusterState;
+        lastPublishedClusterState = clusterState;
+        boolean publishDiff = discoverySettings.getPublishDiff() && previousClusterState != null;
+
         Map<Version, BytesReference> serializedStates = Maps.newHashMap();
+        Map<Version, BytesReference> serializedDiffs = Maps.newHashMap();
 
         for (final DiscoveryNode node : clusterState.nodes()) {
             if (node.equals(localNode)) {
                 continue;
             }
+            // nodes that were part of the previously published cluster state should hold it, send them just the changes.
+            // if they don't, they will reject the diff and we fall back to sending the full cluster state
+            boolean sendDiff = publishDiff && node.version().onOrAfter(Version.V_2_0_0) && previousClusterState.nodes().nodeExists(node.id());
             // try and serialize the cluster state once (or per version), so we don't serialize it
             // per node when we send it over the wire, compress it while we are at it...
-            BytesReference bytes = serializedStates.get(node.version());
-            if (bytes == null) {
-                try {
-                    BytesStreamOutput bStream = new BytesStreamOutput();
-                    StreamOutput stream = new HandlesStreamOutput(CompressorFactory.defaultCompressor().streamOutput(bStream));
-                    stream.setVersion(node.version());
-                    ClusterState.Builder.writeTo(clusterState, stream);
-                    stream.close();
-                    bytes = bStream.bytes();
-                    serializedStates.put(node.version(), bytes);
-                } catch (Throwable e) {
-                    logger.warn("failed to serialize cluster_state before publishing it to node {}", e, node);
-                    publishResponseHandler.onFailure(node, e);
-                    continue;
-                }
-            }
+            BytesReference bytes;
             try {
-                TransportRequestOptions options = TransportRequestOptions.options().withType(TransportRequestOptions.Type.STATE).withCompress(false);
-                // no need to put a timeout on the options here, because we want the response to eventually be received
-                // and not log an error if it arrives after the timeout
-                transportService.sendRequest(node, PublishClusterStateRequestHandler.ACTION,
-                        new BytesTransportRequest(bytes, node.version()),
-                        options, // no need to compress, we already compressed the bytes
-
-                        new EmptyTransportResponseHandler(ThreadPool.Names.SAME) {
-
-                            @Override
-                            public void handleResponse(TransportResponse.Empty response) {
-                                publishResponseHandler.onResponse(node);
-                            }
-
-                            @Override
-                            public void handleException(TransportException exp) {
-                                logger.debug("failed to send cluster state to [{}]", exp, node);
-                                publishResponseHandler.onFailure(node, exp);
-                            }
-                        });
-            } catch (Throwable t) {
-                logger.debug("error sending cluster state to [{}]", t, node);
-                publishResponseHandler.onFailure(node, t);
+                if (sendDiff) {
+                    bytes = serializedDiffs.get(node.version());
+                    if (bytes == null) {
+                        bytes = serializeClusterStateDiff(previousClusterState, clusterState, node.version());
+                        serializedDiffs.put(node.version(), bytes);
+                    }
+                } else {
+                    bytes = serializedStates.get(node.version());
+                    if (bytes == null) {
+                        bytes = serializeFullClusterState(clusterState, node.version());
+                        serializedStates.put(node.version(), bytes);
+                    }
+                }
+            } catch (Throwable e) {
+                logger.warn("failed to serialize cluster_state before publishing it to node {}", e, node);
+                publishResponseHandler.onFailure(node, e);
+                continue;
             }
+            sendClusterState(clusterState, node, bytes, sendDiff, publishResponseHandler);
         }
 
         TimeValue publishTimeout = discoverySettings.getPublishTimeout();
@@ -150,6 +147,70 @@ public class PublishClusterStateAction extends AbstractComponent {
         }
     }
 
+    private void sendClusterState(final ClusterState clusterState, final DiscoveryNode node, BytesReference bytes, final boolean diff,
+                                  final ClusterStatePublishResponseHandler publishResponseHandler) {
+        try {
+            TransportRequestOptions options = TransportRequestOptions.options().withType(TransportRequestOptions.Type.STATE).withCompress(false);
+            // no need to put a timeout on the options here, because we want the response to eventually be received
+            // and not log an error if it arrives after the timeout
+            transportService.sendRequest(node, PublishClusterStateRequestHandler.ACTION,
+                    new BytesTransportRequest(bytes, node.version()),
+                    options, // no need to compress, we already compressed the bytes
+
+                    new EmptyTransportResponseHandler(ThreadPool.Names.SAME) {
+
+                        @Override
+                        public void handleResponse(TransportResponse.Empty response) {
+                            publishResponseHandler.onResponse(node);
+                        }
+
+                        @Override
+                        public void handleException(TransportException exp) {
+                            if (diff && exp.unwrapCause() instanceof IncompatibleClusterStateVersionException) {
+                                logger.debug("node [{}] can't apply the diff for cluster state version {}, resending full cluster state", node, clusterState.version());
+                                BytesReference fullBytes;
+                                try {
+                                    fullBytes = serializeFullClusterState(clusterState, node.version());
+                                } catch (Throwable e) {
+                                    logger.warn("failed to serialize cluster_state before publishing it to node {}", e, node);
+                                    publishResponseHandler.onFailure(node, e);
+                                    return;
+                                }
+                                sendClusterState(clusterState, node, fullBytes, false, publishResponseHandler);
+                                return;
+                            }
+                            logger.debug("failed to send cluster state to [{}]", exp, node);
+                            publishResponseHandler.onFailure(node, exp);
+                        }
+                    });
+        } catch (Throwable t) {
+            logger.debug("error sending cluster state to [{}]", t, node);
+            publishResponseHandler.onFailure(node, t);
+        }
+    }
+
+    private BytesReference serializeFullClusterState(ClusterState clusterState, Version nodeVersion) throws IOException {
+        BytesStreamOutput bStream = new BytesStreamOutput();
+        StreamOutput stream = new HandlesStreamOutput(CompressorFactory.defaultCompressor().streamOutput(bStream));
+        stream.setVersion(nodeVersion);
+        if (nodeVersion.onOrAfter(Version.V_2_0_0)) {
+            stream.writeBoolean(false);
+        }
+        ClusterState.Builder.writeTo(clusterState, stream);
+        stream.close();
+        return bStream.bytes();
+    }
+
+    private BytesReference serializeClusterStateDiff(ClusterState previousClusterState, ClusterState clusterState, Version nodeVersion) throws IOException {
+        BytesStreamOutput bStream = new BytesStreamOutput();
+        StreamOutput stream = new HandlesStreamOutput(CompressorFactory.defaultCompressor().streamOutput(bStream));
+        stream.setVersion(nodeVersion);
+        stream.writeBoolean(true);
+        ClusterState.Builder.writeDiffTo(previousClusterState, clusterState, stream);
+        stream.close();
+        return bStream.bytes();
+    }
+
     private class PublishClusterStateRequestHandler extends BaseTransportRequestHandler<BytesTransportRequest> {
 
         static final String ACTION = "discovery/zen/publish";
@@ -169,8 +230,27 @@ public class PublishClusterStateAction extends AbstractComponent {
                 in = CachedStreamInput.cachedHandles(request.bytes().streamInput());
             }
             in.setVersion(request.version());
-            ClusterState clusterState = ClusterState.Builder.readFrom(in, nodesProvider.nodes().localNode());
-            logger.debug("received cluster state version {}", clusterState.version());
+            boolean diff = false;
+            if (in.getVersion().onOrAfter(Version.V_2_0_0)) {
+                diff = in.readBoolean();
+            }
+            ClusterState clusterState;
+            synchronized (lastSeenClusterStateMutex) {
+                if (diff) {
+                    try {
+                        clusterState = ClusterState.Builder.readDiffFrom(in, lastSeenClusterState, nodesProvider.nodes().localNode());
+                    } catch (IncompatibleClusterStateVersionException e) {
+                        logger.debug("failed to apply cluster state diff, requesting full cluster state: {}", e.getMessage());
+                        channel.sendResponse(e);
+                        return;
+                    }
+                    logger.debug("received cluster state diff version {}", clusterState.version());
+                } else {
+                    clusterState = ClusterState.Builder.readFrom(in, nodesProvider.nodes().localNode());
+                    logger.debug("received cluster state version {}", clusterState.version());
+                }
+                lastSeenClusterState = clusterState;
+            }
             listener.onNewClusterState(clusterState, new NewClusterStateListener.NewStateProcessed() {
                 @Override
                 public void onNewClusterStateProcessed() {
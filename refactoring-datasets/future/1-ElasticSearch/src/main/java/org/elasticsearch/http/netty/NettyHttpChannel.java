@@ -19,9 +19,12 @@
 
 package org.elasticsearch.http.netty;
 
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.common.bytes.BytesReference;
 import org.elasticsearch.common.xcontent.XContentBuilder;
 import org.elasticsearch.http.HttpChannel;
 import org.elasticsearch.http.HttpException;
+import org.elasticsearch.rest.ChunkedRestChannel;
 import org.elasticsearch.rest.RestResponse;
 import org.elasticsearch.rest.RestStatus;
 import org.elasticsearch.rest.XContentRestResponse;
@@ -41,54 +44,25 @@ import java.util.Set;
 /**
  *
  */
-public class NettyHttpChannel implements HttpChannel {
+public class NettyHttpChannel implements HttpChannel, ChunkedRestChannel {
     private final NettyHttpServerTransport transport;
     private final Channel channel;
+    private final NettyHttpRequest restRequest;
     private final org.jboss.netty.handler.codec.http.HttpRequest request;
+    private volatile boolean closeAfterChunks;
 
-    public NettyHttpChannel(NettyHttpServerTransport transport, Channel channel, org.jboss.netty.handler.codec.http.HttpRequest request) {
+    public NettyHttpChannel(NettyHttpServerTransport transport, Channel channel, NettyHttpRequest restRequest, org.jboss.netty.handler.codec.http.HttpRequest request) {
         this.transport = transport;
         this.channel = channel;
+        this.restRequest = restRequest;
         this.request = request;
     }
 
     @Override
     public void sendResponse(RestResponse response) {
-
         // Decide whether to close the connection or not.
-        boolean http10 = request.getProtocolVersion().equals(HttpVersion.HTTP_1_0);
-        boolean close =
-                HttpHeaders.Values.CLOSE.equalsIgnoreCase(request.headers().get(HttpHeaders.Names.CONNECTION)) ||
-                        (http10 && !HttpHeaders.Values.KEEP_ALIVE.equalsIgnoreCase(request.headers().get(HttpHeaders.Names.CONNECTION)));
-
-        // Build the response object.
-        HttpResponseStatus status = getStatus(response.status());
-        org.jboss.netty.handler.codec.http.HttpResponse resp;
-        if (http10) {
-            resp = new DefaultHttpResponse(HttpVersion.HTTP_1_0, status);
-            if (!close) {
-                resp.headers().add(HttpHeaders.Names.CONNECTION, "Keep-Alive");
-            }
-        } else {
-            resp = new DefaultHttpResponse(HttpVersion.HTTP_1_1, status);
-        }
-        if (RestUtils.isBrowser(request.headers().get(HttpHeaders.Names.USER_AGENT))) {
-            if (transport.settings().getAsBoolean("http.cors.enabled", true)) {
-                // Add support for cross-origin Ajax requests (CORS)
-                resp.headers().add("Access-Control-Allow-Origin", transport.settings().get("http.cors.allow-origin", "*"));
-                if (request.getMethod() == HttpMethod.OPTIONS) {
-                    // Allow Ajax requests based on the CORS "preflight" request
-                    resp.headers().add("Access-Control-Max-Age", transport.settings().getAsInt("http.cors.max-age", 1728000));
-                    resp.headers().add("Access-Control-Allow-Methods", transport.settings().get("http.cors.allow-methods", "OPTIONS, HEAD, GET, POST, PUT, DELETE"));
-                    resp.headers().add("Access-Control-Allow-Headers", transport.settings().get("http.cors.allow-headers", "X-Requested-With, Content-Type, Content-Length"));
-                }
-            }
-        }
-
-        String opaque = request.headers().get("X-Opaque-Id");
-        if (opaque != null) {
-            resp.headers().add("X-Opaque-Id", opaque);
-        }
+        boolean close = isCloseConnection();
+        org.jboss.netty.handler.codec.http.HttpResponse resp = newResponse(response.status(), close);
 
         // Add all custom headers
         Map<String, List<String>> customHeaders = response.getHeaders();
@@ -104,8 +78,8 @@ public class NettyHttpChannel implements HttpChannel {
         ChannelBuffer buf;
         try {
             if (response instanceof XContentRestResponse) {
-                // if its a builder based response, and it was created with a CachedStreamOutput, we can release it
-                // after we write the response, and no need to do an extra copy because its not thread safe
+                // if its a builder based response, and it was created with a recycled response output, its pages are
+                // released after we write the response, so there is no need to do an extra copy
                 XContentBuilder builder = ((XContentRestResponse) response).builder();
                 if (response.contentThreadSafe()) {
                     buf = builder.bytes().toChannelBuffer();
@@ -120,6 +94,7 @@ public class NettyHttpChannel implements HttpChannel {
                 }
             }
         } catch (IOException e) {
+            restRequest.releaseResponseOutputs();
             throw new HttpException("Failed to convert response to bytes", e);
         }
         if (response.prefixContent() != null || response.suffixContent() != null) {
@@ -138,6 +113,102 @@ public class NettyHttpChannel implements HttpChannel {
 
         resp.headers().add(HttpHeaders.Names.CONTENT_LENGTH, String.valueOf(buf.readableBytes()));
 
+        resetCookies(resp);
+
+        // Write the response.
+        ChannelFuture future = channel.write(resp);
+        future.addListener(releaseResponseOutputs);
+        // Close the connection after the write operation is done if necessary.
+        if (close) {
+            future.addListener(ChannelFutureListener.CLOSE);
+        }
+    }
+
+    @Override
+    public void startChunkedResponse(RestStatus status, String contentType) {
+        boolean close = isCloseConnection();
+        org.jboss.netty.handler.codec.http.HttpResponse resp = newResponse(status, close);
+        resp.setChunked(true);
+        if (resp.getProtocolVersion().equals(HttpVersion.HTTP_1_1)) {
+            resp.headers().add(HttpHeaders.Names.TRANSFER_ENCODING, HttpHeaders.Values.CHUNKED);
+        }
+        // HTTP 1.0 clients don't know about chunks, the end of the content is marked by closing the connection
+        closeAfterChunks = close || resp.getProtocolVersion().equals(HttpVersion.HTTP_1_0);
+        resp.headers().add(HttpHeaders.Names.CONTENT_TYPE, contentType);
+        resetCookies(resp);
+        channel.write(resp);
+    }
+
+    @Override
+    public void sendChunk(BytesReference content, final ActionListener<Void> listener) {
+        ChannelFuture future = channel.write(new DefaultHttpChunk(content.toChannelBuffer()));
+        future.addListener(new ChannelFutureListener() {
+            @Override
+            public void operationComplete(ChannelFuture future) throws Exception {
+                if (future.isSuccess()) {
+                    listener.onResponse(null);
+                } else {
+                    listener.onFailure(future.getCause());
+                }
+            }
+        });
+    }
+
+    @Override
+    public void endChunkedResponse() {
+        ChannelFuture future = channel.write(HttpChunk.LAST_CHUNK);
+        future.addListener(releaseResponseOutputs);
+        if (closeAfterChunks) {
+            future.addListener(ChannelFutureListener.CLOSE);
+        }
+    }
+
+    private final ChannelFutureListener releaseResponseOutputs = new ChannelFutureListener() {
+        @Override
+        public void operationComplete(ChannelFuture future) throws Exception {
+            restRequest.releaseResponseOutputs();
+        }
+    };
+
+    private boolean isCloseConnection() {
+        boolean http10 = request.getProtocolVersion().equals(HttpVersion.HTTP_1_0);
+        return HttpHeaders.Values.CLOSE.equalsIgnoreCase(request.headers().get(HttpHeaders.Names.CONNECTION)) ||
+                (http10 && !HttpHeaders.Values.KEEP_ALIVE.equalsIgnoreCase(request.headers().get(HttpHeaders.Names.CONNECTION)));
+    }
+
+    private org.jboss.netty.handler.codec.http.HttpResponse newResponse(RestStatus restStatus, boolean close) {
+        // Build the response object.
+        HttpResponseStatus status = getStatus(restStatus);
+        org.jboss.netty.handler.codec.http.HttpResponse resp;
+        if (request.getProtocolVersion().equals(HttpVersion.HTTP_1_0)) {
+            resp = new DefaultHttpResponse(HttpVersion.HTTP_1_0, status);
+            if (!close) {
+                resp.headers().add(HttpHeaders.Names.CONNECTION, "Keep-Alive");
+            }
+        } else {
+            resp = new DefaultHttpResponse(HttpVersion.HTTP_1_1, status);
+        }
+        if (RestUtils.isBrowser(request.headers().get(HttpHeaders.Names.USER_AGENT))) {
+            if (transport.settings().getAsBoolean("http.cors.enabled", true)) {
+                // Add support for cross-origin Ajax requests (CORS)
+                resp.headers().add("Access-Control-Allow-Origin", transport.settings().get("http.cors.allow-origin", "*"));
+                if (request.getMethod() == HttpMethod.OPTIONS) {
+                    // Allow Ajax requests based on the CORS "preflight" request
+                    resp.headers().add("Access-Control-Max-Age", transport.settings().getAsInt("http.cors.max-age", 1728000));
+                    resp.headers().add("Access-Control-Allow-Methods", transport.settings().get("http.cors.allow-methods", "OPTIONS, HEAD, GET, POST, PUT, DELETE"));
+                    resp.headers().add("Access-Control-Allow-Headers", transport.settings().get("http.cors.allow-headers", "X-Requested-With, Content-Type, Content-Length"));
+                }
+            }
+        }
+
+        String opaque = request.headers().get("X-Opaque-Id");
+        if (opaque != null) {
+            resp.headers().add("X-Opaque-Id", opaque);
+        }
+        return resp;
+    }
+
+    private void resetCookies(org.jboss.netty.handler.codec.http.HttpResponse resp) {
         if (transport.resetCookies) {
             String cookieString = request.headers().get(HttpHeaders.Names.COOKIE);
             if (cookieString != null) {
@@ -153,13 +224,6 @@ public class NettyHttpChannel implements HttpChannel {
                 }
             }
         }
-
-        // Write the response.
-        ChannelFuture future = channel.write(resp);
-        // Close the connection after the write operation is done if necessary.
-        if (close) {
-            future.addListener(ChannelFutureListener.CLOSE);
-        }
     }
 
     private HttpResponseStatus getStatus(RestStatus status) {
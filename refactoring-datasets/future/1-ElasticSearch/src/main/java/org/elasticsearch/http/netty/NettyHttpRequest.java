@@ -22,13 +22,19 @@ package org.elasticsearch.http.netty;
 import org.elasticsearch.common.bytes.BytesArray;
 import org.elasticsearch.common.bytes.BytesReference;
 import org.elasticsearch.common.bytes.ChannelBufferBytesReference;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.elasticsearch.common.io.stream.ReleasableBytesStreamOutput;
+import org.elasticsearch.common.lease.Releasables;
+import org.elasticsearch.common.util.BigArrays;
 import org.elasticsearch.http.HttpRequest;
 import org.elasticsearch.rest.support.RestUtils;
 import org.jboss.netty.channel.Channel;
 import org.jboss.netty.handler.codec.http.HttpMethod;
 
 import java.net.SocketAddress;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -41,10 +47,19 @@ public class NettyHttpRequest extends HttpRequest {
     private final Map<String, String> params;
     private final String rawPath;
     private final BytesReference content;
+    private final BigArrays bigArrays;
+    // the recycled response outputs handed out for this request, given back once the response is written
+    private final List<ReleasableBytesStreamOutput> responseOutputs = new ArrayList<ReleasableBytesStreamOutput>(1);
+    private boolean released;
 
     public NettyHttpRequest(org.jboss.netty.handler.codec.http.HttpRequest request, Channel channel) {
+        this(request, channel, BigArrays.NON_RECYCLING_INSTANCE);
+    }
+
+    public NettyHttpRequest(org.jboss.netty.handler.codec.http.HttpRequest request, Channel channel, BigArrays bigArrays) {
         this.request = request;
         this.channel = channel;
+        this.bigArrays = bigArrays;
         this.params = new HashMap<String, String>();
         if (request.getContent().readable()) {
             this.content = new ChannelBufferBytesReference(request.getContent());
@@ -62,6 +77,34 @@ public class NettyHttpRequest extends HttpRequest {
         }
     }
 
+    @Override
+    public BytesStreamOutput newResponseOutput() {
+        synchronized (responseOutputs) {
+            if (released) {
+                // the response has already been sent, don't hand out pages nobody would give back
+                return new BytesStreamOutput();
+            }
+            ReleasableBytesStreamOutput output = new ReleasableBytesStreamOutput(bigArrays);
+            responseOutputs.add(output);
+            return output;
+        }
+    }
+
+    /**
+     * Gives back the pages of all the response outputs created for this request. Must only be called once the
+     * response bytes have been written to the channel.
+     */
+    public void releaseResponseOutputs() {
+        synchronized (responseOutputs) {
+            if (released) {
+                return;
+            }
+            released = true;
+            Releasables.release(responseOutputs);
+            responseOutputs.clear();
+        }
+    }
+
     @Override
     public Method method() {
         HttpMethod httpMethod = request.getMethod();
@@ -37,6 +37,8 @@ public class ShardFilterCache extends AbstractIndexShardComponent implements Rem
 
     final CounterMetric evictionsMetric = new CounterMetric();
     final CounterMetric totalMetric = new CounterMetric();
+    final CounterMetric admissionsMetric = new CounterMetric();
+    final CounterMetric rejectionsMetric = new CounterMetric();
 
     @Inject
     public ShardFilterCache(ShardId shardId, @IndexSettings Settings indexSettings) {
@@ -44,11 +46,26 @@ public class ShardFilterCache extends AbstractIndexShardComponent implements Rem
     }
 
     public FilterCacheStats stats() {
-        return new FilterCacheStats(totalMetric.count(), evictionsMetric.count());
+        return new FilterCacheStats(totalMetric.count(), evictionsMetric.count(), admissionsMetric.count(), rejectionsMetric.count());
     }
 
     public void onCached(long sizeInBytes) {
         totalMetric.inc(sizeInBytes);
+        admissionsMetric.inc();
+    }
+
+    /**
+     * Called when a filter cache with an admission policy decided not to cache a filter.
+     */
+    public void onRejected() {
+        rejectionsMetric.inc();
+    }
+
+    public void onRemoved(long sizeInBytes, boolean evicted) {
+        if (evicted) {
+            evictionsMetric.inc();
+        }
+        totalMetric.dec(sizeInBytes);
     }
 
     @Override
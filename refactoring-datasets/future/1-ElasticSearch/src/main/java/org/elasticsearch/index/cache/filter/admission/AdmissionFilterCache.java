@@ -0,0 +1,208 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.cache.filter.admission;
+
+import org.apache.lucene.index.AtomicReaderContext;
+import org.apache.lucene.index.SegmentReader;
+import org.apache.lucene.queries.TermFilter;
+import org.apache.lucene.search.DocIdSet;
+import org.apache.lucene.search.Filter;
+import org.apache.lucene.util.Bits;
+import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.ElasticsearchException;
+import org.elasticsearch.common.Strings;
+import org.elasticsearch.common.inject.Inject;
+import org.elasticsearch.common.lucene.docset.DocIdSets;
+import org.elasticsearch.common.lucene.search.CachedFilter;
+import org.elasticsearch.common.lucene.search.NoCacheFilter;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
+import org.elasticsearch.index.AbstractIndexComponent;
+import org.elasticsearch.index.Index;
+import org.elasticsearch.index.cache.filter.FilterCache;
+import org.elasticsearch.index.cache.filter.ShardFilterCache;
+import org.elasticsearch.index.cache.filter.support.CacheKeyFilter;
+import org.elasticsearch.index.mapper.internal.TypeFieldMapper;
+import org.elasticsearch.index.service.IndexService;
+import org.elasticsearch.index.settings.IndexSettings;
+import org.elasticsearch.index.shard.ShardId;
+import org.elasticsearch.index.shard.ShardUtils;
+import org.elasticsearch.index.shard.service.IndexShard;
+import org.elasticsearch.indices.cache.filter.IndicesAdmissionFilterCache;
+
+import java.io.IOException;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A filter cache that only caches the filters that repeat, see {@link IndicesAdmissionFilterCache}. Sparse results
+ * are stored compressed, see {@link DocIdSets#toCompactCacheable(org.apache.lucene.index.AtomicReader, org.apache.lucene.search.DocIdSet)}.
+ */
+public class AdmissionFilterCache extends AbstractIndexComponent implements FilterCache, SegmentReader.CoreClosedListener {
+
+    final IndicesAdmissionFilterCache indicesFilterCache;
+    IndexService indexService;
+
+    final ConcurrentMap<Object, Boolean> seenReaders = ConcurrentCollections.newConcurrentMap();
+
+    @Inject
+    public AdmissionFilterCache(Index index, @IndexSettings Settings indexSettings, IndicesAdmissionFilterCache indicesFilterCache) {
+        super(index, indexSettings);
+        this.indicesFilterCache = indicesFilterCache;
+    }
+
+    @Override
+    public void setIndexService(IndexService indexService) {
+        this.indexService = indexService;
+    }
+
+    @Override
+    public String type() {
+        return "admission";
+    }
+
+    @Override
+    public void close() throws ElasticsearchException {
+        clear("close");
+    }
+
+    @Override
+    public void clear(String reason) {
+        logger.debug("full cache clear, reason [{}]", reason);
+        for (Object readerKey : seenReaders.keySet()) {
+            clear(readerKey);
+        }
+    }
+
+    @Override
+    public void clear(String reason, String[] keys) {
+        logger.debug("clear keys [], reason [{}]", reason, keys);
+        final BytesRef spare = new BytesRef();
+        for (String key : keys) {
+            final byte[] keyBytes = Strings.toUTF8Bytes(key, spare);
+            for (Object readerKey : seenReaders.keySet()) {
+                indicesFilterCache.remove(readerKey, new CacheKeyFilter.Key(keyBytes));
+            }
+        }
+    }
+
+    @Override
+    public void onClose(Object coreKey) {
+        clear(coreKey);
+    }
+
+    @Override
+    public void clear(Object coreCacheKey) {
+        // we add the seen reader before we add the first cache entry for this reader
+        // so, if we don't see it here, its won't be in the cache
+        Boolean removed = seenReaders.remove(coreCacheKey);
+        if (removed == null) {
+            return;
+        }
+        indicesFilterCache.clear(coreCacheKey);
+    }
+
+    @Override
+    public Filter cache(Filter filterToCache) {
+        if (filterToCache == null) {
+            return null;
+        }
+        if (filterToCache instanceof NoCacheFilter) {
+            return filterToCache;
+        }
+        if (CachedFilter.isCached(filterToCache)) {
+            return filterToCache;
+        }
+        return new AdmissionFilterWrapper(filterToCache, this);
+    }
+
+    static class AdmissionFilterWrapper extends CachedFilter {
+
+        private final Filter filter;
+
+        private final AdmissionFilterCache cache;
+
+        // type filters are used as block join parent filters, which need a FixedBitSet
+        private final boolean compact;
+
+        AdmissionFilterWrapper(Filter filter, AdmissionFilterCache cache) {
+            this.filter = filter;
+            this.cache = cache;
+            this.compact = !(filter instanceof TermFilter && TypeFieldMapper.NAME.equals(((TermFilter) filter).getTerm().field()));
+        }
+
+        @Override
+        public DocIdSet getDocIdSet(AtomicReaderContext context, Bits acceptDocs) throws IOException {
+            Object filterKey = filter;
+            if (filter instanceof CacheKeyFilter) {
+                filterKey = ((CacheKeyFilter) filter).cacheKey();
+            }
+            Object readerKey = context.reader().getCoreCacheKey();
+            DocIdSet cacheValue = cache.indicesFilterCache.get(readerKey, filterKey);
+            if (cacheValue == null) {
+                // we can't pass down acceptedDocs provided, because we are caching the result, and acceptedDocs
+                // might be specific to a query. We don't pass the live docs either because a cache built for a specific
+                // generation of a segment might be reused by an older generation which has fewer deleted documents
+                DocIdSet docIdSet = filter.getDocIdSet(context, null);
+                ShardFilterCache shardFilterCache = null;
+                ShardId shardId = ShardUtils.extractShardId(context.reader());
+                if (shardId != null && cache.indexService != null) {
+                    IndexShard shard = cache.indexService.shard(shardId.id());
+                    if (shard != null) {
+                        shardFilterCache = shard.filterCache();
+                    }
+                }
+                if (compact && !cache.indicesFilterCache.mayAdmit(readerKey, filterKey, shardFilterCache)) {
+                    // not seen often enough to be cached, don't pay for a cacheable copy of the doc id set (type filters
+                    // still need their FixedBitSet)
+                    return DocIdSets.isEmpty(docIdSet) ? null : docIdSet;
+                }
+                cacheValue = compact ? DocIdSets.toCompactCacheable(context.reader(), docIdSet) : DocIdSets.toCacheable(context.reader(), docIdSet);
+                if (!cache.seenReaders.containsKey(readerKey)) {
+                    Boolean previous = cache.seenReaders.putIfAbsent(readerKey, Boolean.TRUE);
+                    if (previous == null) {
+                        // we add a core closed listener only, for non core IndexReaders we rely on clear being called (percolator for example)
+                        if (context.reader() instanceof SegmentReader) {
+                            ((SegmentReader) context.reader()).addCoreClosedListener(cache);
+                        }
+                    }
+                }
+                cache.indicesFilterCache.put(readerKey, filterKey, cacheValue, shardFilterCache);
+            }
+
+            // note, we don't wrap the return value with a BitsFilteredDocIdSet.wrap(docIdSet, acceptDocs) because
+            // we rely on our custom XFilteredQuery to do the wrapping if needed, so we don't have the wrap each
+            // filter on its own
+            return DocIdSets.isEmpty(cacheValue) ? null : cacheValue;
+        }
+
+        public String toString() {
+            return "cache(" + filter + ")";
+        }
+
+        public boolean equals(Object o) {
+            if (!(o instanceof AdmissionFilterWrapper)) return false;
+            return this.filter.equals(((AdmissionFilterWrapper) o).filter);
+        }
+
+        public int hashCode() {
+            return filter.hashCode() ^ 0x2A7F1C3D;
+        }
+    }
+}
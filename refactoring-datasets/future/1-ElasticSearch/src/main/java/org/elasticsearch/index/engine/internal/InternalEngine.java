@@ -405,7 +405,7 @@ public class InternalEngine extends AbstractIndexShardComponent implements Engin
             final long currentVersion;
             VersionValue versionValue = versionMap.get(versionKey);
             if (versionValue == null) {
-                currentVersion = loadCurrentVersionFromIndex(create.uid());
+                currentVersion = loadCurrentVersionFromIndex(create.uid(), create.type());
             } else {
                 if (enableGcDeletes && versionValue.delete() && (threadPool.estimatedTimeInMillis() - versionValue.time()) > gcDeletesInMillis) {
                     currentVersion = Versions.NOT_FOUND; // deleted, and GC
@@ -502,7 +502,7 @@ public class InternalEngine extends AbstractIndexShardComponent implements Engin
             final long currentVersion;
             VersionValue versionValue = versionMap.get(versionKey);
             if (versionValue == null) {
-                currentVersion = loadCurrentVersionFromIndex(index.uid());
+                currentVersion = loadCurrentVersionFromIndex(index.uid(), index.type());
             } else {
                 if (enableGcDeletes && versionValue.delete() && (threadPool.estimatedTimeInMillis() - versionValue.time()) > gcDeletesInMillis) {
                     currentVersion = Versions.NOT_FOUND; // deleted, and GC
@@ -593,7 +593,7 @@ public class InternalEngine extends AbstractIndexShardComponent implements Engin
             HashedBytesRef versionKey = versionKey(delete.uid());
             VersionValue versionValue = versionMap.get(versionKey);
             if (versionValue == null) {
-                currentVersion = loadCurrentVersionFromIndex(delete.uid());
+                currentVersion = loadCurrentVersionFromIndex(delete.uid(), delete.type());
             } else {
                 if (enableGcDeletes && versionValue.delete() && (threadPool.estimatedTimeInMillis() - versionValue.time()) > gcDeletesInMillis) {
                     currentVersion = Versions.NOT_FOUND; // deleted, and GC
@@ -1316,10 +1316,10 @@ public class InternalEngine extends AbstractIndexShardComponent implements Engin
         return dirtyLock(uid.bytes());
     }
 
-    private long loadCurrentVersionFromIndex(Term uid) throws IOException {
+    private long loadCurrentVersionFromIndex(Term uid, String type) throws IOException {
         Searcher searcher = acquireSearcher("load_version");
         try {
-            return Versions.loadVersion(searcher.reader(), uid);
+            return Versions.loadVersion(searcher.reader(), uid, indexingService.versionLookupListener(type));
         } finally {
             searcher.release();
         }
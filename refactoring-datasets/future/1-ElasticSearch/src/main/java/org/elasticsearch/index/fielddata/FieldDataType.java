@@ -19,6 +19,7 @@
 
 package org.elasticsearch.index.fielddata;
 
+import com.google.common.collect.ImmutableSet;
 import org.elasticsearch.common.settings.ImmutableSettings;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.index.mapper.FieldMapper.Loading;
@@ -32,6 +33,14 @@ public class FieldDataType {
     public static final String FORMAT_KEY = "format";
     public static final String DOC_VALUES_FORMAT_VALUE = "doc_values";
 
+    /**
+     * Index setting to serve numeric and geo point field data from doc values: such fields get doc values unless
+     * a field data format is configured, and their doc values are warmed when new segments are refreshed.
+     */
+    public static final String DOC_VALUES_FIRST = "index.fielddata.doc_values_first";
+
+    private static final ImmutableSet<String> DOC_VALUES_FIRST_TYPES = ImmutableSet.of("byte", "short", "int", "long", "float", "double", "geo_point");
+
     private final String type;
     private final String typeFormat;
     private final Loading loading;
@@ -73,6 +82,14 @@ public class FieldDataType {
         return format;
     }
 
+    /**
+     * Whether the {@link #DOC_VALUES_FIRST} mode applies to fields of this type.
+     */
+    public boolean docValuesFirst(Settings indexSettings) {
+        return indexSettings != null && indexSettings.getAsBoolean(DOC_VALUES_FIRST, false)
+                && DOC_VALUES_FIRST_TYPES.contains(type) && getFormat(indexSettings) == null;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -187,6 +187,17 @@ public interface IndexFieldData<FD extends AtomicFieldData> extends IndexCompone
          * Loads directly the atomic field data for the reader, ignoring any caching involved.
          */
         FD loadDirect(AtomicReaderContext context) throws Exception;
+
+        /**
+         * Loads the field data of the top level reader whose ordinals are global, ie. the same term has the same ordinal in all
+         * segments of the reader, possibly cached. The returned field data must only be used with the leaves of this reader.
+         */
+        WithOrdinals<?> loadGlobal(IndexReader indexReader);
+
+        /**
+         * Builds directly the global ordinals field data for the top level reader, ignoring any caching involved.
+         */
+        WithOrdinals<?> loadGlobalDirect(IndexReader indexReader) throws Exception;
     }
 
 }
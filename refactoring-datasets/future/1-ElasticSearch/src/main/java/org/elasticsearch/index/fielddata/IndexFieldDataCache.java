@@ -24,9 +24,12 @@ import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.RemovalListener;
 import com.google.common.cache.RemovalNotification;
 import org.apache.lucene.index.AtomicReaderContext;
+import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.index.SegmentReader;
 import org.elasticsearch.common.Nullable;
+import org.elasticsearch.common.breaker.MemoryCircuitBreaker;
 import org.elasticsearch.common.lucene.SegmentReaderUtils;
+import org.elasticsearch.index.fielddata.ordinals.GlobalOrdinalsIndexFieldData;
 import org.elasticsearch.index.mapper.FieldMapper;
 import org.elasticsearch.index.service.IndexService;
 import org.elasticsearch.index.shard.ShardId;
@@ -42,6 +45,12 @@ public interface IndexFieldDataCache {
 
     <FD extends AtomicFieldData, IFD extends IndexFieldData<FD>> FD load(AtomicReaderContext context, IFD indexFieldData) throws Exception;
 
+    /**
+     * Loads the global ordinals field data of the top level reader. The entry is removed once the reader is closed, eg. after
+     * a refresh opened a new reader.
+     */
+    IndexFieldData.WithOrdinals<?> load(IndexReader indexReader, IndexFieldData.WithOrdinals<?> indexFieldData) throws Exception;
+
     /**
      * Clears all the field data stored cached in on this index.
      */
@@ -56,20 +65,20 @@ public interface IndexFieldDataCache {
 
     interface Listener {
 
-        void onLoad(FieldMapper.Names fieldNames, FieldDataType fieldDataType, AtomicFieldData fieldData);
+        void onLoad(FieldMapper.Names fieldNames, FieldDataType fieldDataType, RamUsage fieldData);
 
-        void onUnload(FieldMapper.Names fieldNames, FieldDataType fieldDataType, boolean wasEvicted, long sizeInBytes, @Nullable AtomicFieldData fieldData);
+        void onUnload(FieldMapper.Names fieldNames, FieldDataType fieldDataType, boolean wasEvicted, long sizeInBytes, @Nullable RamUsage fieldData);
     }
 
     /**
      * The resident field data cache is a *per field* cache that keeps all the values in memory.
      */
-    static abstract class FieldBased implements IndexFieldDataCache, SegmentReader.CoreClosedListener, RemovalListener<FieldBased.Key, AtomicFieldData> {
+    static abstract class FieldBased implements IndexFieldDataCache, SegmentReader.CoreClosedListener, IndexReader.ReaderClosedListener, RemovalListener<FieldBased.Key, RamUsage> {
         @Nullable
         private final IndexService indexService;
         private final FieldMapper.Names fieldNames;
         private final FieldDataType fieldDataType;
-        private final Cache<Key, AtomicFieldData> cache;
+        private final Cache<Key, RamUsage> cache;
 
         protected FieldBased(@Nullable IndexService indexService, FieldMapper.Names fieldNames, FieldDataType fieldDataType, CacheBuilder cache) {
             this.indexService = indexService;
@@ -81,26 +90,31 @@ public interface IndexFieldDataCache {
         }
 
         @Override
-        public void onRemoval(RemovalNotification<Key, AtomicFieldData> notification) {
+        public void onRemoval(RemovalNotification<Key, RamUsage> notification) {
             Key key = notification.getKey();
-            if (key == null || key.listener == null) {
+            if (key == null) {
                 return; // we can't do anything here...
             }
-            AtomicFieldData value = notification.getValue();
+            RamUsage value = notification.getValue();
             long sizeInBytes = key.sizeInBytes;
             if (sizeInBytes == -1 && value != null) {
                 sizeInBytes = value.getMemorySizeInBytes();
             }
-            key.listener.onUnload(fieldNames, fieldDataType, notification.wasEvicted(), sizeInBytes, value);
+            if (key.listener != null) {
+                key.listener.onUnload(fieldNames, fieldDataType, notification.wasEvicted(), sizeInBytes, value);
+            } else if (key.breaker != null && sizeInBytes != -1) {
+                // the listener would give the memory back to the breaker otherwise
+                key.breaker.addWithoutBreaking(-sizeInBytes);
+            }
         }
 
         @Override
         public <FD extends AtomicFieldData, IFD extends IndexFieldData<FD>> FD load(final AtomicReaderContext context, final IFD indexFieldData) throws Exception {
             final Key key = new Key(context.reader().getCoreCacheKey());
             //noinspection unchecked
-            return (FD) cache.get(key, new Callable<AtomicFieldData>() {
+            return (FD) cache.get(key, new Callable<RamUsage>() {
                 @Override
-                public AtomicFieldData call() throws Exception {
+                public RamUsage call() throws Exception {
                     SegmentReaderUtils.registerCoreListener(context.reader(), FieldBased.this);
                     AtomicFieldData fieldData = indexFieldData.loadDirect(context);
                     key.sizeInBytes = fieldData.getMemorySizeInBytes();
@@ -124,6 +138,38 @@ public interface IndexFieldDataCache {
             });
         }
 
+        @Override
+        public IndexFieldData.WithOrdinals<?> load(final IndexReader indexReader, final IndexFieldData.WithOrdinals<?> indexFieldData) throws Exception {
+            final Key key = new Key(indexReader.getCoreCacheKey());
+            //noinspection unchecked
+            return (IndexFieldData.WithOrdinals<?>) cache.get(key, new Callable<RamUsage>() {
+                @Override
+                public RamUsage call() throws Exception {
+                    indexReader.addReaderClosedListener(FieldBased.this);
+                    GlobalOrdinalsIndexFieldData globalFieldData = (GlobalOrdinalsIndexFieldData) indexFieldData.loadGlobalDirect(indexReader);
+                    RamUsage ramUsage = globalFieldData;
+                    key.sizeInBytes = ramUsage.getMemorySizeInBytes();
+                    key.breaker = globalFieldData.breaker();
+
+                    if (indexService != null) {
+                        ShardId shardId = ShardUtils.extractShardId(indexReader);
+                        if (shardId != null) {
+                            IndexShard shard = indexService.shard(shardId.id());
+                            if (shard != null) {
+                                key.listener = shard.fieldData();
+                            }
+                        }
+                    }
+
+                    if (key.listener != null) {
+                        key.listener.onLoad(fieldNames, fieldDataType, ramUsage);
+                    }
+
+                    return ramUsage;
+                }
+            });
+        }
+
         @Override
         public void clear() {
             cache.invalidateAll();
@@ -144,11 +190,18 @@ public interface IndexFieldDataCache {
             cache.invalidate(new Key(coreCacheKey));
         }
 
+        @Override
+        public void onClose(IndexReader reader) {
+            cache.invalidate(new Key(reader.getCoreCacheKey()));
+        }
+
         static class Key {
             final Object readerKey;
             @Nullable
             Listener listener; // optional stats listener
             long sizeInBytes = -1; // optional size in bytes (we keep it here in case the values are soft references)
+            @Nullable
+            MemoryCircuitBreaker breaker; // the breaker global ordinals are accounted on
 
             Key(Object readerKey) {
                 this.readerKey = readerKey;
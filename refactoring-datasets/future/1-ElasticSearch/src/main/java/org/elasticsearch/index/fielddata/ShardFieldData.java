@@ -76,7 +76,7 @@ public class ShardFieldData extends AbstractIndexShardComponent implements Index
     }
 
     @Override
-    public void onLoad(FieldMapper.Names fieldNames, FieldDataType fieldDataType, AtomicFieldData fieldData) {
+    public void onLoad(FieldMapper.Names fieldNames, FieldDataType fieldDataType, RamUsage fieldData) {
         long sizeInBytes = fieldData.getMemorySizeInBytes();
 
         totalMetric.inc(sizeInBytes);
@@ -96,7 +96,7 @@ public class ShardFieldData extends AbstractIndexShardComponent implements Index
     }
 
     @Override
-    public void onUnload(FieldMapper.Names fieldNames, FieldDataType fieldDataType, boolean wasEvicted, long sizeInBytes, @Nullable AtomicFieldData fieldData) {
+    public void onUnload(FieldMapper.Names fieldNames, FieldDataType fieldDataType, boolean wasEvicted, long sizeInBytes, @Nullable RamUsage fieldData) {
         if (wasEvicted) {
             evictionsMetric.inc();
         }
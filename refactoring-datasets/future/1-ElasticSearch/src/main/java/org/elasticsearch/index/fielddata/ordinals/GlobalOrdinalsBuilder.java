@@ -0,0 +1,176 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.fielddata.ordinals;
+
+import org.apache.lucene.index.*;
+import org.apache.lucene.index.MultiDocValues.OrdinalMap;
+import org.apache.lucene.util.Bits;
+import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.common.breaker.MemoryCircuitBreaker;
+import org.elasticsearch.common.logging.ESLogger;
+import org.elasticsearch.common.logging.Loggers;
+import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.index.fielddata.AtomicFieldData;
+import org.elasticsearch.index.fielddata.BytesValues;
+import org.elasticsearch.index.fielddata.IndexFieldData;
+import org.elasticsearch.indices.fielddata.breaker.CircuitBreakerService;
+
+import java.io.IOException;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Builds the mapping from segment ordinals to global ordinals of a top level reader by merging the (sorted) terms of the
+ * field data of all its segments.
+ */
+public class GlobalOrdinalsBuilder {
+
+    private static final ESLogger logger = Loggers.getLogger(GlobalOrdinalsBuilder.class);
+
+    private GlobalOrdinalsBuilder() {
+    }
+
+    /**
+     * Loads the field data of every segment of the reader and builds the global ordinals on top of it. The memory used by
+     * the mapping is added to the field data circuit breaker, it is released when the global ordinals are removed from the cache.
+     */
+    public static GlobalOrdinalsIndexFieldData build(IndexReader indexReader, IndexFieldData.WithOrdinals<?> indexFieldData,
+                                                     CircuitBreakerService breakerService) throws IOException {
+        assert indexFieldData.valuesOrdered() : "global ordinals can only be built on ordered values";
+        final long startTime = System.currentTimeMillis();
+        final List<AtomicReaderContext> leaves = indexReader.leaves();
+        final AtomicFieldData.WithOrdinals<?>[] atomicFieldData = new AtomicFieldData.WithOrdinals[leaves.size()];
+        final TermsEnum[] subs = new TermsEnum[leaves.size()];
+        for (int i = 0; i < leaves.size(); i++) {
+            atomicFieldData[i] = indexFieldData.load(leaves.get(i));
+            subs[i] = new OrdinalsTermsEnum(atomicFieldData[i].getBytesValues(false));
+        }
+        final OrdinalMap ordinalMap = new OrdinalMap(indexReader.getCoreCacheKey(), subs);
+        final long memorySizeInBytes = ordinalMap.ramBytesUsed();
+        final MemoryCircuitBreaker breaker = breakerService.getBreaker();
+        breaker.addWithoutBreaking(memorySizeInBytes);
+        if (logger.isDebugEnabled()) {
+            logger.debug("global ordinals for field [{}] with [{}] unique terms over [{}] segments built in [{}] ms, using [{}]",
+                    indexFieldData.getFieldNames().fullName(), ordinalMap.getValueCount(), leaves.size(),
+                    System.currentTimeMillis() - startTime, new ByteSizeValue(memorySizeInBytes));
+        }
+        return new GlobalOrdinalsIndexFieldData(indexFieldData.index(), indexFieldData.getFieldNames(), atomicFieldData, ordinalMap, memorySizeInBytes, breaker);
+    }
+
+    /**
+     * Exposes the terms of the field data of a segment, in ordinal order, as a {@link TermsEnum} whose ordinals are
+     * zero-based like Lucene's.
+     */
+    static final class OrdinalsTermsEnum extends TermsEnum {
+
+        private final BytesValues.WithOrdinals values;
+        private final long maxOrd;
+        private long ord = Ordinals.MISSING_ORDINAL;
+        private BytesRef term;
+
+        OrdinalsTermsEnum(BytesValues.WithOrdinals values) {
+            this.values = values;
+            this.maxOrd = values.ordinals().getMaxOrd();
+        }
+
+        @Override
+        public BytesRef next() throws IOException {
+            if (++ord >= maxOrd) {
+                return term = null;
+            }
+            return term = values.getValueByOrd(ord);
+        }
+
+        @Override
+        public BytesRef term() throws IOException {
+            return term;
+        }
+
+        @Override
+        public long ord() throws IOException {
+            return ord - Ordinals.MIN_ORDINAL;
+        }
+
+        @Override
+        public Comparator<BytesRef> getComparator() {
+            return BytesRef.getUTF8SortedAsUnicodeComparator();
+        }
+
+        @Override
+        public SeekStatus seekCeil(BytesRef text) throws IOException {
+            final Comparator<BytesRef> comparator = getComparator();
+            long low = Ordinals.MIN_ORDINAL;
+            long high = maxOrd - 1;
+            while (low <= high) {
+                final long mid = (low + high) >>> 1;
+                final int cmp = comparator.compare(values.getValueByOrd(mid), text);
+                if (cmp < 0) {
+                    low = mid + 1;
+                } else if (cmp > 0) {
+                    high = mid - 1;
+                } else {
+                    ord = mid;
+                    term = values.getValueByOrd(mid);
+                    return SeekStatus.FOUND;
+                }
+            }
+            if (low >= maxOrd) {
+                ord = maxOrd;
+                term = null;
+                return SeekStatus.END;
+            }
+            ord = low;
+            term = values.getValueByOrd(low);
+            return SeekStatus.NOT_FOUND;
+        }
+
+        @Override
+        public void seekExact(long ord) throws IOException {
+            assert ord >= 0 && ord + Ordinals.MIN_ORDINAL < maxOrd : "ord [" + ord + "] out of range";
+            this.ord = ord + Ordinals.MIN_ORDINAL;
+            term = values.getValueByOrd(this.ord);
+        }
+
+        @Override
+        public long totalTermFreq() throws IOException {
+            return -1; // field data doesn't keep term frequencies
+        }
+
+        // OrdinalMap only iterates the terms and their ordinals, it never asks for frequencies or postings
+
+        @Override
+        public int docFreq() throws IOException {
+            assert false : "docFreq is not supported on field data terms";
+            throw new UnsupportedOperationException("docFreq is not supported on field data terms");
+        }
+
+        @Override
+        public DocsEnum docs(Bits liveDocs, DocsEnum reuse, int flags) throws IOException {
+            assert false : "docs is not supported on field data terms";
+            throw new UnsupportedOperationException("docs is not supported on field data terms");
+        }
+
+        @Override
+        public DocsAndPositionsEnum docsAndPositions(Bits liveDocs, DocsAndPositionsEnum reuse, int flags) throws IOException {
+            assert false : "docsAndPositions is not supported on field data terms";
+            throw new UnsupportedOperationException("docsAndPositions is not supported on field data terms");
+        }
+    }
+}
@@ -0,0 +1,347 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.fielddata.ordinals;
+
+import org.apache.lucene.index.AtomicReaderContext;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.MultiDocValues.OrdinalMap;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.LongsRef;
+import org.elasticsearch.common.Nullable;
+import org.elasticsearch.common.breaker.MemoryCircuitBreaker;
+import org.elasticsearch.index.Index;
+import org.elasticsearch.index.fielddata.*;
+import org.elasticsearch.index.fielddata.fieldcomparator.SortMode;
+import org.elasticsearch.index.mapper.FieldMapper;
+
+/**
+ * {@link IndexFieldData} of a top level reader whose ordinals are global: the ordinals of the {@link BytesValues.WithOrdinals}
+ * of every segment are translated into shard wide ordinals and any global ordinal can be resolved into its term from any
+ * segment. Instances are built by {@link GlobalOrdinalsBuilder} and are only valid for the leaves of the reader they have
+ * been built for.
+ */
+public final class GlobalOrdinalsIndexFieldData implements IndexFieldData.WithOrdinals<AtomicFieldData.WithOrdinals<ScriptDocValues>>, RamUsage {
+
+    private final Index index;
+    private final FieldMapper.Names fieldNames;
+    private final AtomicFieldData.WithOrdinals<?>[] segmentFieldData;
+    private final OrdinalMap ordinalMap;
+    private final long memorySizeInBytes;
+    private final MemoryCircuitBreaker breaker;
+    private final Atomic[] atomicFieldData;
+
+    GlobalOrdinalsIndexFieldData(Index index, FieldMapper.Names fieldNames, AtomicFieldData.WithOrdinals<?>[] segmentFieldData,
+                                 OrdinalMap ordinalMap, long memorySizeInBytes, MemoryCircuitBreaker breaker) {
+        this.index = index;
+        this.fieldNames = fieldNames;
+        this.segmentFieldData = segmentFieldData;
+        this.ordinalMap = ordinalMap;
+        this.memorySizeInBytes = memorySizeInBytes;
+        this.breaker = breaker;
+        this.atomicFieldData = new Atomic[segmentFieldData.length];
+        for (int i = 0; i < segmentFieldData.length; i++) {
+            atomicFieldData[i] = new Atomic(i);
+        }
+    }
+
+    /**
+     * The number of unique terms over all segments.
+     */
+    public long getNumOrds() {
+        return ordinalMap.getValueCount();
+    }
+
+    @Override
+    public long getMemorySizeInBytes() {
+        return memorySizeInBytes;
+    }
+
+    /**
+     * The breaker that {@link #getMemorySizeInBytes()} has been added to, it needs to be released when these global
+     * ordinals are removed from the cache.
+     */
+    public MemoryCircuitBreaker breaker() {
+        return breaker;
+    }
+
+    @Override
+    public Index index() {
+        return index;
+    }
+
+    @Override
+    public FieldMapper.Names getFieldNames() {
+        return fieldNames;
+    }
+
+    @Override
+    public boolean valuesOrdered() {
+        return true;
+    }
+
+    @Override
+    public AtomicFieldData.WithOrdinals<ScriptDocValues> load(AtomicReaderContext context) {
+        assert context.ord < atomicFieldData.length : "global ordinals have been built for another reader";
+        return atomicFieldData[context.ord];
+    }
+
+    @Override
+    public AtomicFieldData.WithOrdinals<ScriptDocValues> loadDirect(AtomicReaderContext context) throws Exception {
+        return load(context);
+    }
+
+    @Override
+    public IndexFieldData.WithOrdinals<?> loadGlobal(IndexReader indexReader) {
+        return this;
+    }
+
+    @Override
+    public IndexFieldData.WithOrdinals<?> loadGlobalDirect(IndexReader indexReader) throws Exception {
+        return this;
+    }
+
+    @Override
+    public XFieldComparatorSource comparatorSource(@Nullable Object missingValue, SortMode sortMode) {
+        throw new UnsupportedOperationException("global ordinals can't be used for sorting");
+    }
+
+    @Override
+    public void clear() {
+        // the cache that holds this instance takes care of it
+    }
+
+    @Override
+    public void clear(IndexReader reader) {
+        // the cache that holds this instance takes care of it
+    }
+
+    private final class Atomic implements AtomicFieldData.WithOrdinals<ScriptDocValues> {
+
+        private final int segmentIndex;
+
+        Atomic(int segmentIndex) {
+            this.segmentIndex = segmentIndex;
+        }
+
+        @Override
+        public boolean isMultiValued() {
+            return segmentFieldData[segmentIndex].isMultiValued();
+        }
+
+        @Override
+        public boolean isValuesOrdered() {
+            return true;
+        }
+
+        @Override
+        public int getNumDocs() {
+            return segmentFieldData[segmentIndex].getNumDocs();
+        }
+
+        @Override
+        public long getNumberUniqueValues() {
+            return ordinalMap.getValueCount();
+        }
+
+        @Override
+        public long getMemorySizeInBytes() {
+            return segmentFieldData[segmentIndex].getMemorySizeInBytes();
+        }
+
+        @Override
+        public BytesValues.WithOrdinals getBytesValues(boolean needsHashes) {
+            final BytesValues.WithOrdinals values = segmentFieldData[segmentIndex].getBytesValues(needsHashes);
+            final Ordinals.Docs segmentOrdinals = values.ordinals();
+            final GlobalOrdinals ordinals = new GlobalOrdinals(segmentOrdinals.ordinals(), segmentIndex);
+            return new GlobalBytesValues(new GlobalOrdinalsDocs(segmentOrdinals, ordinals), needsHashes);
+        }
+
+        @Override
+        public ScriptDocValues getScriptValues() {
+            return segmentFieldData[segmentIndex].getScriptValues();
+        }
+
+        @Override
+        public void close() {
+            // the segment field data is owned by its own cache entry
+        }
+    }
+
+    /**
+     * Values of a segment whose ordinals are global. Terms are resolved from the first segment that contains them.
+     */
+    private final class GlobalBytesValues extends BytesValues.WithOrdinals {
+
+        private final boolean needsHashes;
+        private final BytesValues.WithOrdinals[] segmentValues;
+        private int currentSegment = -1;
+
+        GlobalBytesValues(GlobalOrdinalsDocs ordinals, boolean needsHashes) {
+            super(ordinals);
+            this.needsHashes = needsHashes;
+            this.segmentValues = new BytesValues.WithOrdinals[segmentFieldData.length];
+        }
+
+        @Override
+        public BytesRef getValueByOrd(long ord) {
+            if (ord == Ordinals.MISSING_ORDINAL) {
+                return null;
+            }
+            final long luceneOrd = ord - Ordinals.MIN_ORDINAL;
+            currentSegment = ordinalMap.getFirstSegmentNumber(luceneOrd);
+            if (segmentValues[currentSegment] == null) {
+                segmentValues[currentSegment] = segmentFieldData[currentSegment].getBytesValues(needsHashes);
+            }
+            final BytesRef term = segmentValues[currentSegment].getValueByOrd(ordinalMap.getFirstSegmentOrd(luceneOrd) + Ordinals.MIN_ORDINAL);
+            scratch.bytes = term.bytes;
+            scratch.offset = term.offset;
+            scratch.length = term.length;
+            return scratch;
+        }
+
+        @Override
+        public int currentValueHash() {
+            return segmentValues[currentSegment].currentValueHash();
+        }
+    }
+
+    /**
+     * Ordinals of a segment translated into global ordinals.
+     */
+    private final class GlobalOrdinals implements Ordinals {
+
+        private final Ordinals segmentOrdinals;
+        private final int segmentIndex;
+
+        GlobalOrdinals(Ordinals segmentOrdinals, int segmentIndex) {
+            this.segmentOrdinals = segmentOrdinals;
+            this.segmentIndex = segmentIndex;
+        }
+
+        long globalOrd(long segmentOrd) {
+            if (segmentOrd == Ordinals.MISSING_ORDINAL) {
+                return Ordinals.MISSING_ORDINAL;
+            }
+            return ordinalMap.getGlobalOrd(segmentIndex, segmentOrd - Ordinals.MIN_ORDINAL) + Ordinals.MIN_ORDINAL;
+        }
+
+        @Override
+        public long getMemorySizeInBytes() {
+            return segmentOrdinals.getMemorySizeInBytes();
+        }
+
+        @Override
+        public boolean isMultiValued() {
+            return segmentOrdinals.isMultiValued();
+        }
+
+        @Override
+        public int getNumDocs() {
+            return segmentOrdinals.getNumDocs();
+        }
+
+        @Override
+        public long getNumOrds() {
+            return ordinalMap.getValueCount();
+        }
+
+        @Override
+        public long getMaxOrd() {
+            return ordinalMap.getValueCount() + Ordinals.MIN_ORDINAL;
+        }
+
+        @Override
+        public Docs ordinals() {
+            return new GlobalOrdinalsDocs(segmentOrdinals.ordinals(), this);
+        }
+    }
+
+    private static final class GlobalOrdinalsDocs implements Ordinals.Docs {
+
+        private final Ordinals.Docs segmentOrdinals;
+        private final GlobalOrdinals ordinals;
+        private final LongsRef longsScratch = new LongsRef(new long[1], 0, 0);
+        private long currentOrd;
+
+        GlobalOrdinalsDocs(Ordinals.Docs segmentOrdinals, GlobalOrdinals ordinals) {
+            this.segmentOrdinals = segmentOrdinals;
+            this.ordinals = ordinals;
+        }
+
+        @Override
+        public Ordinals ordinals() {
+            return ordinals;
+        }
+
+        @Override
+        public int getNumDocs() {
+            return segmentOrdinals.getNumDocs();
+        }
+
+        @Override
+        public long getNumOrds() {
+            return ordinals.getNumOrds();
+        }
+
+        @Override
+        public long getMaxOrd() {
+            return ordinals.getMaxOrd();
+        }
+
+        @Override
+        public boolean isMultiValued() {
+            return segmentOrdinals.isMultiValued();
+        }
+
+        @Override
+        public long getOrd(int docId) {
+            return currentOrd = ordinals.globalOrd(segmentOrdinals.getOrd(docId));
+        }
+
+        @Override
+        public LongsRef getOrds(int docId) {
+            final LongsRef segmentOrds = segmentOrdinals.getOrds(docId);
+            if (longsScratch.longs.length < segmentOrds.length) {
+                longsScratch.longs = new long[segmentOrds.length];
+            }
+            for (int i = 0; i < segmentOrds.length; i++) {
+                longsScratch.longs[i] = ordinals.globalOrd(segmentOrds.longs[segmentOrds.offset + i]);
+            }
+            longsScratch.offset = 0;
+            longsScratch.length = segmentOrds.length;
+            return longsScratch;
+        }
+
+        @Override
+        public long nextOrd() {
+            return currentOrd = ordinals.globalOrd(segmentOrdinals.nextOrd());
+        }
+
+        @Override
+        public int setDocument(int docId) {
+            return segmentOrdinals.setDocument(docId);
+        }
+
+        @Override
+        public long currentOrd() {
+            return currentOrd;
+        }
+    }
+}
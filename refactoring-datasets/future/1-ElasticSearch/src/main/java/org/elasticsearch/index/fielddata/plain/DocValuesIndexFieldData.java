@@ -81,7 +81,7 @@ public abstract class DocValuesIndexFieldData {
         @Override
         public IndexFieldData<?> build(Index index, Settings indexSettings, FieldMapper<?> mapper, IndexFieldDataCache cache,
                                        CircuitBreakerService breakerService, MapperService mapperService) {
-            // Ignore Circuit Breaker
+            // Ignore Circuit Breaker, except for global ordinals
             final FieldMapper.Names fieldNames = mapper.names();
             final Settings fdSettings = mapper.fieldDataType().getSettings();
             final Map<String, Settings> filter = fdSettings.getGroups("filter");
@@ -98,7 +98,7 @@ public abstract class DocValuesIndexFieldData {
             } else if (numericType != null) {
                 return new BinaryDVNumericIndexFieldData(index, fieldNames, numericType);
             } else {
-                return new SortedSetDVBytesIndexFieldData(index, fieldNames);
+                return new SortedSetDVBytesIndexFieldData(index, fieldNames, cache, breakerService);
             }
         }
 
@@ -41,8 +41,6 @@ import org.elasticsearch.indices.fielddata.breaker.CircuitBreakerService;
  */
 public class FSTBytesIndexFieldData extends AbstractBytesIndexFieldData<FSTBytesAtomicFieldData> {
 
-    private final CircuitBreakerService breakerService;
-
     public static class Builder implements IndexFieldData.Builder {
 
         @Override
@@ -54,8 +52,7 @@ public class FSTBytesIndexFieldData extends AbstractBytesIndexFieldData<FSTBytes
 
     FSTBytesIndexFieldData(Index index, @IndexSettings Settings indexSettings, FieldMapper.Names fieldNames, FieldDataType fieldDataType,
                            IndexFieldDataCache cache, CircuitBreakerService breakerService) {
-        super(index, indexSettings, fieldNames, fieldDataType, cache);
-        this.breakerService = breakerService;
+        super(index, indexSettings, fieldNames, fieldDataType, cache, breakerService);
     }
 
     @Override
@@ -41,8 +41,6 @@ import java.io.IOException;
  */
 public class PagedBytesIndexFieldData extends AbstractBytesIndexFieldData<PagedBytesAtomicFieldData> {
 
-    private final CircuitBreakerService breakerService;
-
     public static class Builder implements IndexFieldData.Builder {
 
         @Override
@@ -54,8 +52,7 @@ public class PagedBytesIndexFieldData extends AbstractBytesIndexFieldData<PagedB
 
     public PagedBytesIndexFieldData(Index index, @IndexSettings Settings indexSettings, FieldMapper.Names fieldNames,
                                     FieldDataType fieldDataType, IndexFieldDataCache cache, CircuitBreakerService breakerService) {
-        super(index, indexSettings, fieldNames, fieldDataType, cache);
-        this.breakerService = breakerService;
+        super(index, indexSettings, fieldNames, fieldDataType, cache, breakerService);
     }
 
     @Override
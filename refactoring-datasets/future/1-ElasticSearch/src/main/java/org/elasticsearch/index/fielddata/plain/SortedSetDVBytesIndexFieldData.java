@@ -20,16 +20,26 @@
 package org.elasticsearch.index.fielddata.plain;
 
 import org.apache.lucene.index.AtomicReaderContext;
+import org.apache.lucene.index.IndexReader;
+import org.elasticsearch.ElasticsearchException;
 import org.elasticsearch.index.Index;
 import org.elasticsearch.index.fielddata.IndexFieldData;
+import org.elasticsearch.index.fielddata.IndexFieldDataCache;
 import org.elasticsearch.index.fielddata.fieldcomparator.BytesRefFieldComparatorSource;
 import org.elasticsearch.index.fielddata.fieldcomparator.SortMode;
+import org.elasticsearch.index.fielddata.ordinals.GlobalOrdinalsBuilder;
 import org.elasticsearch.index.mapper.FieldMapper.Names;
+import org.elasticsearch.indices.fielddata.breaker.CircuitBreakerService;
 
 public class SortedSetDVBytesIndexFieldData extends DocValuesIndexFieldData implements IndexFieldData.WithOrdinals<SortedSetDVBytesAtomicFieldData> {
 
-    public SortedSetDVBytesIndexFieldData(Index index, Names fieldNames) {
+    private final IndexFieldDataCache cache;
+    private final CircuitBreakerService breakerService;
+
+    public SortedSetDVBytesIndexFieldData(Index index, Names fieldNames, IndexFieldDataCache cache, CircuitBreakerService breakerService) {
         super(index, fieldNames);
+        this.cache = cache;
+        this.breakerService = breakerService;
     }
 
     @Override
@@ -50,4 +60,27 @@ public class SortedSetDVBytesIndexFieldData extends DocValuesIndexFieldData impl
     public SortedSetDVBytesAtomicFieldData loadDirect(AtomicReaderContext context) throws Exception {
         return load(context);
     }
+
+    @Override
+    public IndexFieldData.WithOrdinals<?> loadGlobal(IndexReader indexReader) {
+        if (indexReader.leaves().size() <= 1) {
+            // ordinals of a single segment are already global
+            return this;
+        }
+        try {
+            // doc values are cached by Lucene, but the global ordinals are not
+            return cache.load(indexReader, this);
+        } catch (Throwable e) {
+            if (e instanceof ElasticsearchException) {
+                throw (ElasticsearchException) e;
+            } else {
+                throw new ElasticsearchException(e.getMessage(), e);
+            }
+        }
+    }
+
+    @Override
+    public IndexFieldData.WithOrdinals<?> loadGlobalDirect(IndexReader indexReader) throws Exception {
+        return GlobalOrdinalsBuilder.build(indexReader, this, breakerService);
+    }
 }
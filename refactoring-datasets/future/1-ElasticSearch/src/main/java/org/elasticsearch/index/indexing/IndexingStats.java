@@ -19,6 +19,7 @@
 
 package org.elasticsearch.index.indexing;
 
+import org.elasticsearch.Version;
 import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
@@ -46,17 +47,29 @@ public class IndexingStats implements Streamable, ToXContent {
         private long deleteTimeInMillis;
         private long deleteCurrent;
 
+        private long versionLookupCount;
+        private long versionLookupReusedCount;
+        private long versionLookupSkippedCount;
+
         Stats() {
 
         }
 
         public Stats(long indexCount, long indexTimeInMillis, long indexCurrent, long deleteCount, long deleteTimeInMillis, long deleteCurrent) {
+            this(indexCount, indexTimeInMillis, indexCurrent, deleteCount, deleteTimeInMillis, deleteCurrent, 0, 0, 0);
+        }
+
+        public Stats(long indexCount, long indexTimeInMillis, long indexCurrent, long deleteCount, long deleteTimeInMillis, long deleteCurrent,
+                     long versionLookupCount, long versionLookupReusedCount, long versionLookupSkippedCount) {
             this.indexCount = indexCount;
             this.indexTimeInMillis = indexTimeInMillis;
             this.indexCurrent = indexCurrent;
             this.deleteCount = deleteCount;
             this.deleteTimeInMillis = deleteTimeInMillis;
             this.deleteCurrent = deleteCurrent;
+            this.versionLookupCount = versionLookupCount;
+            this.versionLookupReusedCount = versionLookupReusedCount;
+            this.versionLookupSkippedCount = versionLookupSkippedCount;
         }
 
         public void add(Stats stats) {
@@ -67,6 +80,10 @@ public class IndexingStats implements Streamable, ToXContent {
             deleteCount += stats.deleteCount;
             deleteTimeInMillis += stats.deleteTimeInMillis;
             deleteCurrent += stats.deleteCurrent;
+
+            versionLookupCount += stats.versionLookupCount;
+            versionLookupReusedCount += stats.versionLookupReusedCount;
+            versionLookupSkippedCount += stats.versionLookupSkippedCount;
         }
 
         public long getIndexCount() {
@@ -101,6 +118,28 @@ public class IndexingStats implements Streamable, ToXContent {
             return deleteCurrent;
         }
 
+        /**
+         * The number of segments that have been visited in order to look up the current version of a document.
+         */
+        public long getVersionLookupCount() {
+            return versionLookupCount;
+        }
+
+        /**
+         * The number of segment visits that could reuse the lookup state that was cached for the segment.
+         */
+        public long getVersionLookupReusedCount() {
+            return versionLookupReusedCount;
+        }
+
+        /**
+         * The number of segment visits that were skipped because the bloom filter of the segment proved the
+         * document is not there.
+         */
+        public long getVersionLookupSkippedCount() {
+            return versionLookupSkippedCount;
+        }
+
         public static Stats readStats(StreamInput in) throws IOException {
             Stats stats = new Stats();
             stats.readFrom(in);
@@ -116,6 +155,12 @@ public class IndexingStats implements Streamable, ToXContent {
             deleteCount = in.readVLong();
             deleteTimeInMillis = in.readVLong();
             deleteCurrent = in.readVLong();
+
+            if (in.getVersion().onOrAfter(Version.V_2_0_0)) {
+                versionLookupCount = in.readVLong();
+                versionLookupReusedCount = in.readVLong();
+                versionLookupSkippedCount = in.readVLong();
+            }
         }
 
         @Override
@@ -127,6 +172,12 @@ public class IndexingStats implements Streamable, ToXContent {
             out.writeVLong(deleteCount);
             out.writeVLong(deleteTimeInMillis);
             out.writeVLong(deleteCurrent);
+
+            if (out.getVersion().onOrAfter(Version.V_2_0_0)) {
+                out.writeVLong(versionLookupCount);
+                out.writeVLong(versionLookupReusedCount);
+                out.writeVLong(versionLookupSkippedCount);
+            }
         }
 
         @Override
@@ -139,6 +190,10 @@ public class IndexingStats implements Streamable, ToXContent {
             builder.timeValueField(Fields.DELETE_TIME_IN_MILLIS, Fields.DELETE_TIME, deleteTimeInMillis);
             builder.field(Fields.DELETE_CURRENT, deleteCurrent);
 
+            builder.field(Fields.VERSION_LOOKUP_TOTAL, versionLookupCount);
+            builder.field(Fields.VERSION_LOOKUP_REUSED, versionLookupReusedCount);
+            builder.field(Fields.VERSION_LOOKUP_SKIPPED, versionLookupSkippedCount);
+
             return builder;
         }
     }
@@ -218,6 +273,9 @@ public class IndexingStats implements Streamable, ToXContent {
         static final XContentBuilderString DELETE_TIME = new XContentBuilderString("delete_time");
         static final XContentBuilderString DELETE_TIME_IN_MILLIS = new XContentBuilderString("delete_time_in_millis");
         static final XContentBuilderString DELETE_CURRENT = new XContentBuilderString("delete_current");
+        static final XContentBuilderString VERSION_LOOKUP_TOTAL = new XContentBuilderString("version_lookup_total");
+        static final XContentBuilderString VERSION_LOOKUP_REUSED = new XContentBuilderString("version_lookup_reused");
+        static final XContentBuilderString VERSION_LOOKUP_SKIPPED = new XContentBuilderString("version_lookup_skipped");
     }
 
     public static IndexingStats readIndexingStats(StreamInput in) throws IOException {
@@ -22,6 +22,7 @@ package org.elasticsearch.index.indexing;
 import com.google.common.collect.ImmutableMap;
 import org.elasticsearch.common.collect.MapBuilder;
 import org.elasticsearch.common.inject.Inject;
+import org.elasticsearch.common.lucene.uid.Versions;
 import org.elasticsearch.common.metrics.CounterMetric;
 import org.elasticsearch.common.metrics.MeanMetric;
 import org.elasticsearch.common.settings.Settings;
@@ -206,6 +207,20 @@ public class ShardIndexingService extends AbstractIndexShardComponent {
         typeStats(delete.type()).deleteCurrent.dec();
     }
 
+    /**
+     * Returns a listener that records the segment visits of a version lookup performed on behalf of an operation on the given type.
+     */
+    public Versions.LookupListener versionLookupListener(String type) {
+        final StatsHolder typeStats = typeStats(type);
+        return new Versions.LookupListener() {
+            @Override
+            public void onSegmentLookup(boolean reusedState, boolean skipped) {
+                totalStats.onVersionLookup(reusedState, skipped);
+                typeStats.onVersionLookup(reusedState, skipped);
+            }
+        };
+    }
+
     public Engine.DeleteByQuery preDeleteByQuery(Engine.DeleteByQuery deleteByQuery) {
         for (IndexingOperationListener listener : listeners) {
             deleteByQuery = listener.preDeleteByQuery(deleteByQuery);
@@ -254,11 +269,25 @@ public class ShardIndexingService extends AbstractIndexShardComponent {
         public final MeanMetric deleteMetric = new MeanMetric();
         public final CounterMetric indexCurrent = new CounterMetric();
         public final CounterMetric deleteCurrent = new CounterMetric();
+        public final CounterMetric versionLookup = new CounterMetric();
+        public final CounterMetric versionLookupReused = new CounterMetric();
+        public final CounterMetric versionLookupSkipped = new CounterMetric();
 
         public IndexingStats.Stats stats() {
             return new IndexingStats.Stats(
                     indexMetric.count(), TimeUnit.NANOSECONDS.toMillis(indexMetric.sum()), indexCurrent.count(),
-                    deleteMetric.count(), TimeUnit.NANOSECONDS.toMillis(deleteMetric.sum()), deleteCurrent.count());
+                    deleteMetric.count(), TimeUnit.NANOSECONDS.toMillis(deleteMetric.sum()), deleteCurrent.count(),
+                    versionLookup.count(), versionLookupReused.count(), versionLookupSkipped.count());
+        }
+
+        void onVersionLookup(boolean reusedState, boolean skipped) {
+            versionLookup.inc();
+            if (reusedState) {
+                versionLookupReused.inc();
+            }
+            if (skipped) {
+                versionLookupSkipped.inc();
+            }
         }
 
         public long totalCurrent() {
@@ -268,6 +297,9 @@ public class ShardIndexingService extends AbstractIndexShardComponent {
         public void clear() {
             indexMetric.clear();
             deleteMetric.clear();
+            versionLookup.clear();
+            versionLookupReused.clear();
+            versionLookupSkipped.clear();
         }
     }
 }
@@ -330,7 +330,8 @@ public abstract class AbstractFieldMapper<T> implements FieldMapper<T> {
         } else if (fieldDataType == null) {
             this.docValues = false;
         } else {
-            this.docValues = FieldDataType.DOC_VALUES_FORMAT_VALUE.equals(fieldDataType.getFormat(indexSettings));
+            this.docValues = FieldDataType.DOC_VALUES_FORMAT_VALUE.equals(fieldDataType.getFormat(indexSettings))
+                    || fieldDataType.docValuesFirst(indexSettings);
         }
         this.multiFields = multiFields;
         this.copyTo = copyTo;
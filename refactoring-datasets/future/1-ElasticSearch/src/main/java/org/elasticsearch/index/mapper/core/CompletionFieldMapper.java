@@ -70,6 +70,7 @@ public class CompletionFieldMapper extends AbstractFieldMapper<String> {
         public static final boolean DEFAULT_POSITION_INCREMENTS = true;
         public static final boolean DEFAULT_HAS_PAYLOADS = false;
         public static final int DEFAULT_MAX_INPUT_LENGTH = 50;
+        public static final Loading DEFAULT_FST_LOADING = Loading.EAGER;
     }
 
     public static class Fields {
@@ -82,6 +83,7 @@ public class CompletionFieldMapper extends AbstractFieldMapper<String> {
         public static final String PAYLOADS = "payloads";
         public static final String TYPE = "type";
         public static final ParseField MAX_INPUT_LENGTH = new ParseField("max_input_length", "max_input_len");
+        public static final ParseField FST_LOADING = new ParseField("fst_loading");
         // Content field names
         public static final String CONTENT_FIELD_NAME_INPUT = "input";
         public static final String CONTENT_FIELD_NAME_OUTPUT = "output";
@@ -98,6 +100,7 @@ public class CompletionFieldMapper extends AbstractFieldMapper<String> {
         private boolean payloads = Defaults.DEFAULT_HAS_PAYLOADS;
         private boolean preservePositionIncrements = Defaults.DEFAULT_POSITION_INCREMENTS;
         private int maxInputLength = Defaults.DEFAULT_MAX_INPUT_LENGTH;
+        private Loading fstLoading = Defaults.DEFAULT_FST_LOADING;
 
         public Builder(String name) {
             super(name, new FieldType(Defaults.FIELD_TYPE));
@@ -127,10 +130,15 @@ public class CompletionFieldMapper extends AbstractFieldMapper<String> {
             return this;
         }
 
+        public Builder fstLoading(Loading fstLoading) {
+            this.fstLoading = fstLoading;
+            return this;
+        }
+
         @Override
         public CompletionFieldMapper build(Mapper.BuilderContext context) {
             return new CompletionFieldMapper(buildNames(context), indexAnalyzer, searchAnalyzer, postingsProvider, similarity, payloads,
-                    preserveSeparators, preservePositionIncrements, maxInputLength, multiFieldsBuilder.build(this, context), copyTo);
+                    preserveSeparators, preservePositionIncrements, maxInputLength, fstLoading, multiFieldsBuilder.build(this, context), copyTo);
         }
     }
 
@@ -161,6 +169,8 @@ public class CompletionFieldMapper extends AbstractFieldMapper<String> {
                     builder.preservePositionIncrements(Boolean.parseBoolean(fieldNode.toString()));
                 } else if (Fields.MAX_INPUT_LENGTH.match(fieldName)) {
                     builder.maxInputLength(Integer.parseInt(fieldNode.toString()));
+                } else if (Fields.FST_LOADING.match(fieldName)) {
+                    builder.fstLoading(Loading.parse(fieldNode.toString(), Defaults.DEFAULT_FST_LOADING));
                 } else if ("fields".equals(fieldName) || "path".equals(fieldName)) {
                     parseMultiField(builder, name, node, parserContext, fieldName, fieldNode);
                 } else {
@@ -197,16 +207,24 @@ public class CompletionFieldMapper extends AbstractFieldMapper<String> {
     private final boolean preservePositionIncrements;
     private final boolean preserveSeparators;
     private int maxInputLength;
+    private Loading fstLoading;
 
     public CompletionFieldMapper(Names names, NamedAnalyzer indexAnalyzer, NamedAnalyzer searchAnalyzer, PostingsFormatProvider postingsProvider, SimilarityProvider similarity, boolean payloads,
                                  boolean preserveSeparators, boolean preservePositionIncrements, int maxInputLength, MultiFields multiFields, CopyTo copyTo) {
+        this(names, indexAnalyzer, searchAnalyzer, postingsProvider, similarity, payloads, preserveSeparators, preservePositionIncrements, maxInputLength,
+                Defaults.DEFAULT_FST_LOADING, multiFields, copyTo);
+    }
+
+    public CompletionFieldMapper(Names names, NamedAnalyzer indexAnalyzer, NamedAnalyzer searchAnalyzer, PostingsFormatProvider postingsProvider, SimilarityProvider similarity, boolean payloads,
+                                 boolean preserveSeparators, boolean preservePositionIncrements, int maxInputLength, Loading fstLoading, MultiFields multiFields, CopyTo copyTo) {
         super(names, 1.0f, Defaults.FIELD_TYPE, null, indexAnalyzer, searchAnalyzer, postingsProvider, null, similarity, null, null, null, multiFields, copyTo);
-        analyzingSuggestLookupProvider = new AnalyzingCompletionLookupProvider(preserveSeparators, false, preservePositionIncrements, payloads);
+        analyzingSuggestLookupProvider = new AnalyzingCompletionLookupProvider(preserveSeparators, false, preservePositionIncrements, payloads, fstLoading == Loading.LAZY);
         this.completionPostingsFormatProvider = new CompletionPostingsFormatProvider("completion", postingsProvider, analyzingSuggestLookupProvider);
         this.preserveSeparators = preserveSeparators;
         this.payloads = payloads;
         this.preservePositionIncrements = preservePositionIncrements;
         this.maxInputLength = maxInputLength;
+        this.fstLoading = fstLoading;
     }
 
 
@@ -359,6 +377,9 @@ public class CompletionFieldMapper extends AbstractFieldMapper<String> {
         builder.field(Fields.PRESERVE_SEPARATORS.getPreferredName(), this.preserveSeparators);
         builder.field(Fields.PRESERVE_POSITION_INCREMENTS.getPreferredName(), this.preservePositionIncrements);
         builder.field(Fields.MAX_INPUT_LENGTH.getPreferredName(), this.maxInputLength);
+        if (fstLoading != Defaults.DEFAULT_FST_LOADING) {
+            builder.field(Fields.FST_LOADING.getPreferredName(), fstLoading);
+        }
         multiFields.toXContent(builder, params);
         return builder.endObject();
     }
@@ -405,6 +426,13 @@ public class CompletionFieldMapper extends AbstractFieldMapper<String> {
         return payloads;
     }
 
+    /**
+     * Whether the FSTs of new segments are loaded when the segment is opened or on first use.
+     */
+    public Loading fstLoading() {
+        return fstLoading;
+    }
+
     @Override
     public void merge(Mapper mergeWith, MergeContext mergeContext) throws MergeMappingException {
         super.merge(mergeWith, mergeContext);
@@ -420,6 +448,9 @@ public class CompletionFieldMapper extends AbstractFieldMapper<String> {
         }
         if (!mergeContext.mergeFlags().simulate()) {
             this.maxInputLength = fieldMergeWith.maxInputLength;
+            // only applies to segments written from now on
+            this.fstLoading = fieldMergeWith.fstLoading;
+            this.analyzingSuggestLookupProvider.loadLazily(fstLoading == Loading.LAZY);
         }
     }
 
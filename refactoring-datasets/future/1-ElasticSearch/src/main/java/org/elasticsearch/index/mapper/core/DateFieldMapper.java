@@ -301,15 +301,25 @@ public class DateFieldMapper extends NumberFieldMapper<Long> {
     }
 
     public long parseToMilliseconds(Object value, @Nullable QueryParseContext context, boolean includeUpper) {
-        long now = context == null ? System.currentTimeMillis() : context.nowInMillis();
-        return includeUpper && roundCeil ? dateMathParser.parseRoundCeil(convertToString(value), now) : dateMathParser.parse(convertToString(value), now);
+        return parseToMilliseconds(convertToString(value), context, includeUpper);
     }
 
     public long parseToMilliseconds(String value, @Nullable QueryParseContext context, boolean includeUpper) {
-        long now = context == null ? System.currentTimeMillis() : context.nowInMillis();
+        long now = now(value, context);
         return includeUpper && roundCeil ? dateMathParser.parseRoundCeil(value, now) : dateMathParser.parse(value, now);
     }
 
+    /**
+     * The current time is only resolved when the value is relative to it, so that the search context only
+     * records a dependency on the time of the request when there is one.
+     */
+    private static long now(String value, @Nullable QueryParseContext context) {
+        if (!value.startsWith("now")) {
+            return 0;
+        }
+        return context == null ? System.currentTimeMillis() : context.nowInMillis();
+    }
+
     @Override
     public Filter termFilter(Object value, @Nullable QueryParseContext context) {
         final long lValue = parseToMilliseconds(value, context);
@@ -19,6 +19,7 @@
 
 package org.elasticsearch.index.merge;
 
+import org.elasticsearch.Version;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.common.io.stream.Streamable;
@@ -42,12 +43,18 @@ public class MergeStats implements Streamable, ToXContent {
     private long current;
     private long currentNumDocs;
     private long currentSizeInBytes;
+    private long totalThrottledTimeInMillis;
 
     public MergeStats() {
 
     }
 
     public void add(long totalMerges, long totalMergeTime, long totalNumDocs, long totalSizeInBytes, long currentMerges, long currentNumDocs, long currentSizeInBytes) {
+        add(totalMerges, totalMergeTime, totalNumDocs, totalSizeInBytes, currentMerges, currentNumDocs, currentSizeInBytes, 0);
+    }
+
+    public void add(long totalMerges, long totalMergeTime, long totalNumDocs, long totalSizeInBytes, long currentMerges, long currentNumDocs, long currentSizeInBytes,
+                    long totalThrottledTime) {
         this.total += totalMerges;
         this.totalTimeInMillis += totalMergeTime;
         this.totalNumDocs += totalNumDocs;
@@ -55,6 +62,7 @@ public class MergeStats implements Streamable, ToXContent {
         this.current += currentMerges;
         this.currentNumDocs += currentNumDocs;
         this.currentSizeInBytes += currentSizeInBytes;
+        this.totalThrottledTimeInMillis += totalThrottledTime;
     }
 
     public void add(MergeStats mergeStats) {
@@ -68,6 +76,7 @@ public class MergeStats implements Streamable, ToXContent {
         this.current += mergeStats.current;
         this.currentNumDocs += mergeStats.currentNumDocs;
         this.currentSizeInBytes += mergeStats.currentSizeInBytes;
+        this.totalThrottledTimeInMillis += mergeStats.totalThrottledTimeInMillis;
     }
 
     /**
@@ -91,6 +100,22 @@ public class MergeStats implements Streamable, ToXContent {
         return new TimeValue(totalTimeInMillis);
     }
 
+    /**
+     * The total time merges spent waiting for a merge thread or paused in favour of smaller
+     * merges (in milliseconds).
+     */
+    public long getTotalThrottledTimeInMillis() {
+        return this.totalThrottledTimeInMillis;
+    }
+
+    /**
+     * The total time merges spent waiting for a merge thread or paused in favour of smaller
+     * merges.
+     */
+    public TimeValue getTotalThrottledTime() {
+        return new TimeValue(totalThrottledTimeInMillis);
+    }
+
     public long getTotalNumDocs() {
         return this.totalNumDocs;
     }
@@ -138,6 +163,7 @@ public class MergeStats implements Streamable, ToXContent {
         builder.timeValueField(Fields.TOTAL_TIME_IN_MILLIS, Fields.TOTAL_TIME, totalTimeInMillis);
         builder.field(Fields.TOTAL_DOCS, totalNumDocs);
         builder.byteSizeField(Fields.TOTAL_SIZE_IN_BYTES, Fields.TOTAL_SIZE, totalSizeInBytes);
+        builder.timeValueField(Fields.TOTAL_THROTTLED_TIME_IN_MILLIS, Fields.TOTAL_THROTTLED_TIME, totalThrottledTimeInMillis);
         builder.endObject();
         return builder;
     }
@@ -154,6 +180,8 @@ public class MergeStats implements Streamable, ToXContent {
         static final XContentBuilderString TOTAL_DOCS = new XContentBuilderString("total_docs");
         static final XContentBuilderString TOTAL_SIZE = new XContentBuilderString("total_size");
         static final XContentBuilderString TOTAL_SIZE_IN_BYTES = new XContentBuilderString("total_size_in_bytes");
+        static final XContentBuilderString TOTAL_THROTTLED_TIME = new XContentBuilderString("total_throttled_time");
+        static final XContentBuilderString TOTAL_THROTTLED_TIME_IN_MILLIS = new XContentBuilderString("total_throttled_time_in_millis");
     }
 
     @Override
@@ -165,6 +193,9 @@ public class MergeStats implements Streamable, ToXContent {
         current = in.readVLong();
         currentNumDocs = in.readVLong();
         currentSizeInBytes = in.readVLong();
+        if (in.getVersion().onOrAfter(Version.V_2_0_0)) {
+            totalThrottledTimeInMillis = in.readVLong();
+        }
     }
 
     @Override
@@ -176,5 +207,8 @@ public class MergeStats implements Streamable, ToXContent {
         out.writeVLong(current);
         out.writeVLong(currentNumDocs);
         out.writeVLong(currentSizeInBytes);
+        if (out.getVersion().onOrAfter(Version.V_2_0_0)) {
+            out.writeVLong(totalThrottledTimeInMillis);
+        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,179 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.merge.scheduler;
+
+import com.google.common.collect.ImmutableSet;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.MergePolicy;
+import org.apache.lucene.index.MergeScheduler;
+import org.apache.lucene.index.SegmentCommitInfo;
+import org.elasticsearch.common.inject.Inject;
+import org.elasticsearch.common.logging.ESLogger;
+import org.elasticsearch.common.metrics.CounterMetric;
+import org.elasticsearch.common.metrics.MeanMetric;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
+import org.elasticsearch.index.merge.MergeStats;
+import org.elasticsearch.index.merge.OnGoingMerge;
+import org.elasticsearch.index.settings.IndexSettings;
+import org.elasticsearch.index.shard.ShardId;
+import org.elasticsearch.indices.merge.IndicesMergeScheduler;
+import org.elasticsearch.threadpool.ThreadPool;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArraySet;
+
+/**
+ * A merge scheduler provider running the shard merges on the node level {@link IndicesMergeScheduler},
+ * sharing its merge threads with all other shards using the <tt>shared</tt> merge scheduler.
+ */
+public class SharedMergeSchedulerProvider extends MergeSchedulerProvider {
+
+    private final IndicesMergeScheduler indicesMergeScheduler;
+
+    private Set<CustomSharedMergeScheduler> schedulers = new CopyOnWriteArraySet<CustomSharedMergeScheduler>();
+
+    @Inject
+    public SharedMergeSchedulerProvider(ShardId shardId, @IndexSettings Settings indexSettings, ThreadPool threadPool, IndicesMergeScheduler indicesMergeScheduler) {
+        super(shardId, indexSettings, threadPool);
+        this.indicesMergeScheduler = indicesMergeScheduler;
+        logger.trace("using [shared] merge scheduler");
+    }
+
+    @Override
+    public MergeScheduler buildMergeScheduler() {
+        CustomSharedMergeScheduler scheduler = new CustomSharedMergeScheduler(logger, this);
+        schedulers.add(scheduler);
+        return scheduler;
+    }
+
+    @Override
+    public MergeStats stats() {
+        MergeStats mergeStats = new MergeStats();
+        for (CustomSharedMergeScheduler scheduler : schedulers) {
+            mergeStats.add(scheduler.totalMerges.count(), scheduler.totalMerges.sum(), scheduler.totalMergesNumDocs.count(), scheduler.totalMergesSizeInBytes.count(),
+                    scheduler.currentMerges.count(), scheduler.currentMergesNumDocs.count(), scheduler.currentMergesSizeInBytes.count(),
+                    scheduler.totalThrottledTime.count());
+        }
+        return mergeStats;
+    }
+
+    @Override
+    public Set<OnGoingMerge> onGoingMerges() {
+        for (CustomSharedMergeScheduler scheduler : schedulers) {
+            return scheduler.readOnlyOnGoingMerges;
+        }
+        return ImmutableSet.of();
+    }
+
+    public static class CustomSharedMergeScheduler extends MergeScheduler implements IndicesMergeScheduler.MergeSource {
+
+        private final ESLogger logger;
+
+        private final SharedMergeSchedulerProvider provider;
+
+        private final MeanMetric totalMerges = new MeanMetric();
+        private final CounterMetric totalMergesNumDocs = new CounterMetric();
+        private final CounterMetric totalMergesSizeInBytes = new CounterMetric();
+        private final CounterMetric currentMerges = new CounterMetric();
+        private final CounterMetric currentMergesNumDocs = new CounterMetric();
+        private final CounterMetric currentMergesSizeInBytes = new CounterMetric();
+        private final CounterMetric totalThrottledTime = new CounterMetric();
+
+        private final Set<OnGoingMerge> onGoingMerges = ConcurrentCollections.newConcurrentSet();
+        private final Set<OnGoingMerge> readOnlyOnGoingMerges = Collections.unmodifiableSet(onGoingMerges);
+
+        private CustomSharedMergeScheduler(ESLogger logger, SharedMergeSchedulerProvider provider) {
+            this.logger = logger;
+            this.provider = provider;
+        }
+
+        @Override
+        public void merge(IndexWriter writer) {
+            provider.indicesMergeScheduler.merge(writer, this);
+        }
+
+        @Override
+        public void doMerge(IndexWriter writer, MergePolicy.OneMerge merge) {
+            int totalNumDocs = 0;
+            for (SegmentCommitInfo info : merge.segments) {
+                totalNumDocs += info.info.getDocCount();
+            }
+            // don't used #totalBytesSize() since need to be executed under IW lock, might be fixed in future Lucene version
+            long totalSizeInBytes = merge.estimatedMergeBytes;
+            long time = System.currentTimeMillis();
+            currentMerges.inc();
+            currentMergesNumDocs.inc(totalNumDocs);
+            currentMergesSizeInBytes.inc(totalSizeInBytes);
+
+            OnGoingMerge onGoingMerge = new OnGoingMerge(merge);
+            onGoingMerges.add(onGoingMerge);
+
+            if (logger.isTraceEnabled()) {
+                logger.trace("merge starting..., merging [{}] segments, [{}] docs, [{}] estimated_size", merge.segments.size(), totalNumDocs, new ByteSizeValue(totalSizeInBytes));
+            }
+            try {
+                provider.beforeMerge(onGoingMerge);
+                writer.merge(merge);
+            } catch (Throwable e) {
+                logger.warn("failed to merge", e);
+                provider.failedMerge(new MergePolicy.MergeException(e, writer.getDirectory()));
+            } finally {
+                long took = System.currentTimeMillis() - time;
+
+                onGoingMerges.remove(onGoingMerge);
+                provider.afterMerge(onGoingMerge);
+
+                currentMerges.dec();
+                currentMergesNumDocs.dec(totalNumDocs);
+                currentMergesSizeInBytes.dec(totalSizeInBytes);
+
+                totalMergesNumDocs.inc(totalNumDocs);
+                totalMergesSizeInBytes.inc(totalSizeInBytes);
+                totalMerges.inc(took);
+                if (took > 20000) { // if more than 20 seconds, DEBUG log it
+                    logger.debug("merge [{}] done, took [{}]", merge.segString(writer.getDirectory()), TimeValue.timeValueMillis(took));
+                } else if (logger.isTraceEnabled()) {
+                    logger.trace("merge [{}] done, took [{}]", merge.segString(writer.getDirectory()), TimeValue.timeValueMillis(took));
+                }
+            }
+        }
+
+        @Override
+        public void onThrottled(long throttledTimeInMillis) {
+            totalThrottledTime.inc(throttledTimeInMillis);
+        }
+
+        @Override
+        public void close() {
+            provider.schedulers.remove(this);
+        }
+
+        @Override
+        public MergeScheduler clone() {
+            // Lucene IW makes a clone internally but since we hold on to this instance
+            // the clone will just be the identity.
+            return this;
+        }
+    }
+}
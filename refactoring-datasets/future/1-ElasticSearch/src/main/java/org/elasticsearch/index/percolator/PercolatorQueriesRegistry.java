@@ -77,6 +77,8 @@ public class PercolatorQueriesRegistry extends AbstractIndexShardComponent {
     private final ShardPercolateService shardPercolateService;
 
     private final ConcurrentMap<HashedBytesRef, Query> percolateQueries = ConcurrentCollections.newConcurrentMapWithAggressiveConcurrency();
+    // the terms that a document needs to contain one of in order to match a percolate query, absent if unknown
+    private final ConcurrentMap<HashedBytesRef, Term[]> percolateQueriesRequiredTerms = ConcurrentCollections.newConcurrentMapWithAggressiveConcurrency();
     private final ShardLifecycleListener shardLifecycleListener = new ShardLifecycleListener();
     private final RealTimePercolatorOperationListener realTimePercolatorOperationListener = new RealTimePercolatorOperationListener();
     private final PercolateTypeListener percolateTypeListener = new PercolateTypeListener();
@@ -103,6 +105,14 @@ public class PercolatorQueriesRegistry extends AbstractIndexShardComponent {
         return percolateQueries;
     }
 
+    /**
+     * Returns, for every percolate query whose terms could be extracted, the terms that a document needs to contain
+     * at least one of in order to match it.
+     */
+    public ConcurrentMap<HashedBytesRef, Term[]> percolateQueriesRequiredTerms() {
+        return percolateQueriesRequiredTerms;
+    }
+
     public void close() {
         mapperService.removeTypeListener(percolateTypeListener);
         indicesLifecycle.removeListener(shardLifecycleListener);
@@ -112,6 +122,7 @@ public class PercolatorQueriesRegistry extends AbstractIndexShardComponent {
 
     public void clear() {
         percolateQueries.clear();
+        percolateQueriesRequiredTerms.clear();
     }
 
     void enableRealTimePercolator() {
@@ -129,6 +140,13 @@ public class PercolatorQueriesRegistry extends AbstractIndexShardComponent {
     public void addPercolateQuery(String idAsString, BytesReference source) {
         Query newquery = parsePercolatorDocument(idAsString, source);
         HashedBytesRef id = new HashedBytesRef(new BytesRef(idAsString));
+        // a percolate request that runs concurrently with this update may see either version of the query anyway
+        Term[] requiredTerms = RequiredTermsExtractor.extract(newquery);
+        if (requiredTerms == null) {
+            percolateQueriesRequiredTerms.remove(id);
+        } else {
+            percolateQueriesRequiredTerms.put(id, requiredTerms);
+        }
         Query previousQuery = percolateQueries.put(id, newquery);
         shardPercolateService.addedQuery(id, previousQuery, newquery);
     }
@@ -136,6 +154,7 @@ public class PercolatorQueriesRegistry extends AbstractIndexShardComponent {
     public void removePercolateQuery(String idAsString) {
         HashedBytesRef id = new HashedBytesRef(idAsString);
         Query query = percolateQueries.remove(id);
+        percolateQueriesRequiredTerms.remove(id);
         if (query != null) {
             shardPercolateService.removedQuery(id, query);
         }
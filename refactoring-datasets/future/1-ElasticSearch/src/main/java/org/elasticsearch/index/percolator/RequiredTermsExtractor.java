@@ -0,0 +1,153 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.percolator;
+
+import org.apache.lucene.index.Term;
+import org.apache.lucene.queries.FilterClause;
+import org.apache.lucene.queries.TermFilter;
+import org.apache.lucene.search.*;
+import org.elasticsearch.common.Nullable;
+import org.elasticsearch.common.lucene.search.XBooleanFilter;
+import org.elasticsearch.common.lucene.search.XFilteredQuery;
+
+/**
+ * Extracts from a percolate query a set of terms so that the query can only match a document that contains at least
+ * one of them. This allows to skip the execution of percolate queries that can't match a document based on a cheap
+ * lookup of the document terms.
+ */
+final class RequiredTermsExtractor {
+
+    private RequiredTermsExtractor() {
+    }
+
+    /**
+     * Returns the terms that a document needs to contain at least one of in order to match the given query, or
+     * <tt>null</tt> if no such set could be extracted, in which case the query should always be executed.
+     */
+    @Nullable
+    static Term[] extract(Query query) {
+        if (query instanceof TermQuery) {
+            return new Term[]{((TermQuery) query).getTerm()};
+        } else if (query instanceof PhraseQuery) {
+            final Term[] terms = ((PhraseQuery) query).getTerms();
+            return terms.length == 0 ? null : new Term[]{longest(terms)};
+        } else if (query instanceof BooleanQuery) {
+            return extract((BooleanQuery) query);
+        } else if (query instanceof XFilteredQuery) {
+            final XFilteredQuery filteredQuery = (XFilteredQuery) query;
+            return shortest(extract(filteredQuery.getQuery()), extract(filteredQuery.getFilter()));
+        } else if (query instanceof FilteredQuery) {
+            final FilteredQuery filteredQuery = (FilteredQuery) query;
+            return shortest(extract(filteredQuery.getQuery()), extract(filteredQuery.getFilter()));
+        } else if (query instanceof ConstantScoreQuery) {
+            final ConstantScoreQuery constantScoreQuery = (ConstantScoreQuery) query;
+            if (constantScoreQuery.getQuery() != null) {
+                return extract(constantScoreQuery.getQuery());
+            }
+            return extract(constantScoreQuery.getFilter());
+        }
+        return null;
+    }
+
+    @Nullable
+    private static Term[] extract(BooleanQuery query) {
+        final BooleanClause[] clauses = query.getClauses();
+        boolean hasRequiredClauses = false;
+        Term[] required = null;
+        for (BooleanClause clause : clauses) {
+            if (clause.isRequired()) {
+                hasRequiredClauses = true;
+                // any required clause is selective enough, pick the one that requires the fewest terms
+                required = shortest(required, extract(clause.getQuery()));
+            }
+        }
+        if (hasRequiredClauses) {
+            return required;
+        }
+        return union(clauses);
+    }
+
+    @Nullable
+    private static Term[] extract(Filter filter) {
+        if (filter instanceof TermFilter) {
+            return new Term[]{((TermFilter) filter).getTerm()};
+        } else if (filter instanceof QueryWrapperFilter) {
+            return extract(((QueryWrapperFilter) filter).getQuery());
+        } else if (filter instanceof XBooleanFilter) {
+            Term[] required = null;
+            boolean hasRequiredClauses = false;
+            for (FilterClause clause : (XBooleanFilter) filter) {
+                if (clause.getOccur() == BooleanClause.Occur.MUST) {
+                    hasRequiredClauses = true;
+                    required = shortest(required, extract(clause.getFilter()));
+                }
+            }
+            return hasRequiredClauses ? required : null;
+        }
+        return null;
+    }
+
+    /** At least one of the optional clauses of a boolean query needs to match if there are no required clauses. */
+    @Nullable
+    private static Term[] union(BooleanClause[] clauses) {
+        Term[] union = null;
+        for (BooleanClause clause : clauses) {
+            if (clause.isProhibited() || clause.isRequired()) {
+                continue;
+            }
+            final Term[] terms = extract(clause.getQuery());
+            if (terms == null) {
+                // this clause might match without any of the extracted terms
+                return null;
+            }
+            if (union == null) {
+                union = terms;
+            } else {
+                final Term[] newUnion = new Term[union.length + terms.length];
+                System.arraycopy(union, 0, newUnion, 0, union.length);
+                System.arraycopy(terms, 0, newUnion, union.length, terms.length);
+                union = newUnion;
+            }
+        }
+        return union;
+    }
+
+    @Nullable
+    private static Term[] shortest(@Nullable Term[] terms1, @Nullable Term[] terms2) {
+        if (terms1 == null) {
+            return terms2;
+        } else if (terms2 == null) {
+            return terms1;
+        }
+        return terms2.length < terms1.length ? terms2 : terms1;
+    }
+
+    /** Longer terms tend to be rarer, and thus more selective. */
+    private static Term longest(Term[] terms) {
+        Term longest = terms[0];
+        for (int i = 1; i < terms.length; ++i) {
+            if (terms[i].bytes().length > longest.bytes().length) {
+                longest = terms[i];
+            }
+        }
+        return longest;
+    }
+
+}
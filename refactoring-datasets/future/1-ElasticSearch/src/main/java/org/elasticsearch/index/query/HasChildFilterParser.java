@@ -150,6 +150,7 @@ public class HasChildFilterParser implements FilterParser {
             parseContext.addNamedFilter(filterName, new CustomQueryWrappingFilter(childrenConstantScoreQuery));
         }
 
+        parseContext.disableConcurrentSearch();
         boolean deleteByQuery = "delete_by_query".equals(SearchContext.current().source());
         if (deleteByQuery) {
             return new DeleteByQueryWrappingFilter(childrenConstantScoreQuery);
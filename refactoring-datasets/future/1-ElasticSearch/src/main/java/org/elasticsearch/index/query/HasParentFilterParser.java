@@ -169,6 +169,7 @@ public class HasParentFilterParser implements FilterParser {
             parseContext.addNamedFilter(filterName, new CustomQueryWrappingFilter(parentConstantScoreQuery));
         }
 
+        parseContext.disableConcurrentSearch();
         boolean deleteByQuery = "delete_by_query".equals(SearchContext.current().source());
         if (deleteByQuery) {
             return new DeleteByQueryWrappingFilter(parentConstantScoreQuery);
@@ -164,6 +164,7 @@ public class HasParentQueryParser implements QueryParser {
         }
         Filter childrenFilter = parseContext.cacheFilter(new NotFilter(parentFilter), null);
 
+        parseContext.disableConcurrentSearch();
         boolean deleteByQuery = "delete_by_query".equals(SearchContext.current().source());
         Query query;
         if (!deleteByQuery && score) {
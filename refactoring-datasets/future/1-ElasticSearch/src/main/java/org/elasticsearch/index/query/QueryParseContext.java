@@ -335,6 +335,8 @@ public class QueryParseContext {
     public SearchLookup lookup() {
         SearchContext current = SearchContext.current();
         if (current != null) {
+            // the lookup is positioned on one segment at a time, it can't be shared by concurrent slices
+            disableConcurrentSearch();
             return current.lookup();
         }
         if (lookup == null) {
@@ -343,6 +345,18 @@ public class QueryParseContext {
         return lookup;
     }
 
+    /**
+     * Marks the query being parsed as holding state that is shared by all the segments it is executed on, like
+     * scripts, score functions or parent/child filters. The main query of the current search is then never
+     * executed concurrently over slices of the segments.
+     */
+    public void disableConcurrentSearch() {
+        SearchContext current = SearchContext.current();
+        if (current != null && current.searcher() != null) {
+            current.searcher().disableConcurrentSearch();
+        }
+    }
+
     public long nowInMillis() {
         SearchContext current = SearchContext.current();
         if (current != null) {
@@ -116,6 +116,7 @@ public class TopChildrenQueryParser implements QueryParser {
             return null;
         }
 
+        parseContext.disableConcurrentSearch();
         if ("delete_by_query".equals(SearchContext.current().source())) {
             throw new QueryParsingException(parseContext.index(), "[top_children] unsupported in delete_by_query api");
         }
@@ -114,6 +114,8 @@ public class FunctionScoreQueryParser implements QueryParser {
         if (filterFunctions.isEmpty()) {
             return query;
         }
+        // score functions are positioned on one segment at a time
+        parseContext.disableConcurrentSearch();
         // handle cases where only one score function and no filter was
         // provided. In this case we create a FunctionScoreQuery.
         if (filterFunctions.size() == 1 && filterFunctions.get(0).filter == null) {
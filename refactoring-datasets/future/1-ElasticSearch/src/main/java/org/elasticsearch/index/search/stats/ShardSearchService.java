@@ -27,6 +27,7 @@ import org.elasticsearch.common.metrics.MeanMetric;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.index.search.slowlog.ShardSlowLogSearchService;
 import org.elasticsearch.index.settings.IndexSettings;
+import org.elasticsearch.index.settings.IndexSettingsService;
 import org.elasticsearch.index.shard.AbstractIndexShardComponent;
 import org.elasticsearch.index.shard.ShardId;
 import org.elasticsearch.search.internal.SearchContext;
@@ -39,17 +40,57 @@ import java.util.concurrent.TimeUnit;
  */
 public class ShardSearchService extends AbstractIndexShardComponent {
 
+    public static final String INDEX_SEARCH_CONCURRENT_SLICES = "index.search.concurrent.slices";
+    public static final String INDEX_SEARCH_CONCURRENT_MIN_DOCS_PER_SLICE = "index.search.concurrent.min_docs_per_slice";
+
+    class ApplySettings implements IndexSettingsService.Listener {
+        @Override
+        public void onRefreshSettings(Settings settings) {
+            int concurrentSlices = settings.getAsInt(INDEX_SEARCH_CONCURRENT_SLICES, ShardSearchService.this.concurrentSlices);
+            if (concurrentSlices != ShardSearchService.this.concurrentSlices) {
+                logger.info("updating [{}] from [{}] to [{}]", INDEX_SEARCH_CONCURRENT_SLICES, ShardSearchService.this.concurrentSlices, concurrentSlices);
+                ShardSearchService.this.concurrentSlices = concurrentSlices;
+            }
+            int concurrentMinDocsPerSlice = settings.getAsInt(INDEX_SEARCH_CONCURRENT_MIN_DOCS_PER_SLICE, ShardSearchService.this.concurrentMinDocsPerSlice);
+            if (concurrentMinDocsPerSlice != ShardSearchService.this.concurrentMinDocsPerSlice) {
+                logger.info("updating [{}] from [{}] to [{}]", INDEX_SEARCH_CONCURRENT_MIN_DOCS_PER_SLICE, ShardSearchService.this.concurrentMinDocsPerSlice, concurrentMinDocsPerSlice);
+                ShardSearchService.this.concurrentMinDocsPerSlice = concurrentMinDocsPerSlice;
+            }
+        }
+    }
+
     private final ShardSlowLogSearchService slowLogSearchService;
 
+    private volatile int concurrentSlices;
+    private volatile int concurrentMinDocsPerSlice;
+
     private final StatsHolder totalStats = new StatsHolder();
     private final CounterMetric openContexts = new CounterMetric();
 
     private volatile Map<String, StatsHolder> groupsStats = ImmutableMap.of();
 
     @Inject
-    public ShardSearchService(ShardId shardId, @IndexSettings Settings indexSettings, ShardSlowLogSearchService slowLogSearchService) {
+    public ShardSearchService(ShardId shardId, @IndexSettings Settings indexSettings, IndexSettingsService indexSettingsService, ShardSlowLogSearchService slowLogSearchService) {
         super(shardId, indexSettings);
         this.slowLogSearchService = slowLogSearchService;
+        this.concurrentSlices = indexSettings.getAsInt(INDEX_SEARCH_CONCURRENT_SLICES, 1);
+        this.concurrentMinDocsPerSlice = indexSettings.getAsInt(INDEX_SEARCH_CONCURRENT_MIN_DOCS_PER_SLICE, 50000);
+        indexSettingsService.addListener(new ApplySettings());
+    }
+
+    /**
+     * The maximum number of slices the segments of this shard are split into to execute the main query
+     * concurrently, <tt>1</tt> (the default) means the query is executed by the searching thread only.
+     */
+    public int concurrentSlices() {
+        return concurrentSlices;
+    }
+
+    /**
+     * The minimum number of documents a slice must hold, shards that are too small are searched using fewer slices.
+     */
+    public int concurrentMinDocsPerSlice() {
+        return concurrentMinDocsPerSlice;
     }
 
     /**
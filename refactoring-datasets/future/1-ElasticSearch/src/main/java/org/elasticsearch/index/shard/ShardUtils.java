@@ -20,6 +20,7 @@
 package org.elasticsearch.index.shard;
 
 import org.apache.lucene.index.AtomicReader;
+import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.index.SegmentReader;
 import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.lucene.SegmentReaderUtils;
@@ -41,6 +42,17 @@ public class ShardUtils {
         return extractShardId(SegmentReaderUtils.segmentReaderOrNull(reader));
     }
 
+    /**
+     * Tries to extract the shard id from the first leaf of a top level reader, see {@link #extractShardId(AtomicReader)}.
+     */
+    @Nullable
+    public static ShardId extractShardId(IndexReader reader) {
+        if (reader.leaves().isEmpty()) {
+            return null;
+        }
+        return extractShardId(reader.leaves().get(0).reader());
+    }
+
     @Nullable
     private static ShardId extractShardId(SegmentReader reader) {
         if (reader != null) {
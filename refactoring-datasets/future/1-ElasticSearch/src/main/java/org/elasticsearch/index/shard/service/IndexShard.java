@@ -25,6 +25,7 @@ import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.bytes.BytesReference;
 import org.elasticsearch.index.cache.filter.FilterCacheStats;
 import org.elasticsearch.index.cache.filter.ShardFilterCache;
+import org.elasticsearch.index.cache.query.ShardQueryCache;
 import org.elasticsearch.index.cache.id.IdCacheStats;
 import org.elasticsearch.index.deletionpolicy.SnapshotIndexCommit;
 import org.elasticsearch.index.engine.Engine;
@@ -74,6 +75,8 @@ public interface IndexShard extends IndexShardComponent {
 
     ShardFilterCache filterCache();
 
+    ShardQueryCache queryCache();
+
     ShardFieldData fieldData();
 
     ShardRouting routingEntry();
@@ -19,6 +19,9 @@
 
 package org.elasticsearch.index.snapshots;
 
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
 /**
  * Represent shard snapshot status
  */
@@ -62,6 +65,10 @@ public class IndexShardSnapshotStatus {
 
     private long indexVersion;
 
+    private final AtomicInteger processedFiles = new AtomicInteger();
+
+    private final AtomicLong processedSize = new AtomicLong();
+
     private boolean aborted;
 
     /**
@@ -180,4 +187,51 @@ public class IndexShardSnapshotStatus {
     public long indexVersion() {
         return indexVersion;
     }
+
+    /**
+     * Increments the number of files that were completely copied
+     */
+    public void addProcessedFile() {
+        processedFiles.incrementAndGet();
+    }
+
+    /**
+     * Number of files that were completely copied so far
+     *
+     * @return number of processed files
+     */
+    public int processedFiles() {
+        return processedFiles.get();
+    }
+
+    /**
+     * Adds the size of a copied file part
+     *
+     * @param size number of bytes copied
+     */
+    public void addProcessedSize(long size) {
+        processedSize.addAndGet(size);
+    }
+
+    /**
+     * Number of bytes that were copied so far
+     *
+     * @return number of processed bytes
+     */
+    public long processedSize() {
+        return processedSize.get();
+    }
+
+    /**
+     * Average copy throughput, in bytes per second, since the snapshot started
+     *
+     * @return throughput in bytes per second
+     */
+    public long throughput() {
+        long elapsed = time > 0 ? time : System.currentTimeMillis() - startTime;
+        if (startTime == 0 || elapsed <= 0) {
+            return 0;
+        }
+        return processedSize.get() * 1000 / elapsed;
+    }
 }
@@ -21,11 +21,15 @@ package org.elasticsearch.index.snapshots.blobstore;
 
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Lists;
+import org.apache.lucene.index.CorruptIndexException;
+import org.apache.lucene.index.SegmentCommitInfo;
+import org.apache.lucene.index.SegmentInfos;
 import org.apache.lucene.store.IOContext;
 import org.apache.lucene.store.IndexInput;
 import org.apache.lucene.store.IndexOutput;
 import org.apache.lucene.store.RateLimiter;
 import org.apache.lucene.util.IOUtils;
+import org.apache.lucene.util.StringHelper;
 import org.elasticsearch.cluster.metadata.SnapshotId;
 import org.elasticsearch.common.blobstore.*;
 import org.elasticsearch.common.component.AbstractComponent;
@@ -36,6 +40,7 @@ import org.elasticsearch.common.lucene.store.InputStreamIndexInput;
 import org.elasticsearch.common.lucene.store.ThreadSafeInputStreamIndexInput;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
 import org.elasticsearch.common.xcontent.*;
 import org.elasticsearch.index.deletionpolicy.SnapshotIndexCommit;
 import org.elasticsearch.index.gateway.RecoveryStatus;
@@ -50,11 +55,19 @@ import org.elasticsearch.repositories.RepositoryName;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.Adler32;
+import java.util.zip.CheckedInputStream;
 
 import static com.google.common.collect.Lists.newArrayList;
 
@@ -81,6 +94,10 @@ public class BlobStoreIndexShardRepository extends AbstractComponent implements
 
     private RateLimitingInputStream.Listener snapshotThrottleListener;
 
+    private Semaphore snapshotStreamPermits;
+
+    private Semaphore restoreStreamPermits;
+
     private static final String SNAPSHOT_PREFIX = "snapshot-";
 
     @Inject
@@ -96,13 +113,16 @@ public class BlobStoreIndexShardRepository extends AbstractComponent implements
      * @param blobStore blob store
      * @param basePath  base path to blob store
      * @param chunkSize chunk size
+     * @param maxConcurrentParts maximum number of file parts that this node uploads or restores concurrently
      */
-    public void initialize(BlobStore blobStore, BlobPath basePath, ByteSizeValue chunkSize,
+    public void initialize(BlobStore blobStore, BlobPath basePath, ByteSizeValue chunkSize, int maxConcurrentParts,
                            RateLimiter snapshotRateLimiter, RateLimiter restoreRateLimiter,
                            final RateLimiterListener rateLimiterListener) {
         this.blobStore = blobStore;
         this.basePath = basePath;
         this.chunkSize = chunkSize;
+        this.snapshotStreamPermits = new Semaphore(maxConcurrentParts);
+        this.restoreStreamPermits = new Semaphore(maxConcurrentParts);
         this.snapshotRateLimiter = snapshotRateLimiter;
         this.restoreRateLimiter = restoreRateLimiter;
         this.rateLimiterListener = rateLimiterListener;
@@ -386,6 +406,15 @@ public class BlobStoreIndexShardRepository extends AbstractComponent implements
 
             snapshotStatus.updateStage(IndexShardSnapshotStatus.Stage.STARTED);
 
+            final Set<String> filesWithoutContentChecksum;
+            try {
+                SegmentInfos segmentInfos = new SegmentInfos();
+                segmentInfos.read(store.directory(), snapshotIndexCommit.getSegmentsFileName());
+                filesWithoutContentChecksum = filesWithoutContentChecksum(segmentInfos);
+            } catch (IOException e) {
+                throw new IndexShardSnapshotFailedException(shardId, "Failed to read segment infos", e);
+            }
+
             final CountDownLatch indexLatch = new CountDownLatch(snapshotIndexCommit.getFiles().length);
             final CopyOnWriteArrayList<Throwable> failures = new CopyOnWriteArrayList<Throwable>();
             final List<BlobStoreIndexShardSnapshot.FileInfo> indexCommitPointFiles = newArrayList();
@@ -425,7 +454,11 @@ public class BlobStoreIndexShardRepository extends AbstractComponent implements
                     try {
                         BlobStoreIndexShardSnapshot.FileInfo snapshotFileInfo = new BlobStoreIndexShardSnapshot.FileInfo(fileNameFromGeneration(++generation), fileName, md.length(), chunkSize, md.checksum());
                         indexCommitPointFiles.add(snapshotFileInfo);
-                        snapshotFile(snapshotFileInfo, indexLatch, failures);
+                        boolean verifyChecksum = !filesWithoutContentChecksum.contains(fileName);
+                        if (!verifyChecksum && snapshotFileInfo.checksum() != null) {
+                            logger.trace("[{}] [{}] not verifying the checksum of [{}], it belongs to a Lucene 3.x segment", shardId, snapshotId, fileName);
+                        }
+                        snapshotFile(snapshotFileInfo, verifyChecksum, indexLatch, failures);
                     } catch (IOException e) {
                         failures.add(e);
                     }
@@ -477,34 +510,75 @@ public class BlobStoreIndexShardRepository extends AbstractComponent implements
          * <p/>
          * This is asynchronous method. Upon completion of the operation latch is getting counted down and any failures are
          * added to the {@code failures} list
+         * <p/>
+         * Parts are uploaded concurrently, but the number of parts in flight on this node is bounded by
+         * {@code max_concurrent_parts}, so the method blocks until a part can be started. The input for a part is only
+         * opened once the part is started. If the checksum of the file is verified, the checksum of every part is
+         * computed while the part is uploaded, and the combined checksum is compared with the checksum of the file
+         * once all parts are uploaded. A mismatch fails the file with a {@link CorruptIndexException}.
          *
-         * @param fileInfo file to be snapshotted
-         * @param latch    latch that should be counted down once file is snapshoted
-         * @param failures thread-safe list of failures
+         * @param fileInfo       file to be snapshotted
+         * @param verifyChecksum whether the checksum of the file is the checksum of its content and can be verified
+         * @param latch          latch that should be counted down once file is snapshoted
+         * @param failures       thread-safe list of failures
          * @throws IOException
          */
-        private void snapshotFile(final BlobStoreIndexShardSnapshot.FileInfo fileInfo, final CountDownLatch latch, final List<Throwable> failures) throws IOException {
-            final AtomicLong counter = new AtomicLong(fileInfo.numberOfParts());
-            for (long i = 0; i < fileInfo.numberOfParts(); i++) {
+        private void snapshotFile(final BlobStoreIndexShardSnapshot.FileInfo fileInfo, boolean verifyChecksum, final CountDownLatch latch, final List<Throwable> failures) throws IOException {
+            final int numberOfParts = (int) fileInfo.numberOfParts();
+            final AtomicInteger counter = new AtomicInteger(numberOfParts);
+            final long[] partChecksums = verifyChecksum && fileInfo.checksum() != null ? new long[numberOfParts] : null;
+            final AtomicBoolean failed = new AtomicBoolean();
+            for (int i = 0; i < numberOfParts; i++) {
+                if (snapshotStatus.aborted()) {
+                    failures.add(new IndexShardSnapshotFailedException(shardId, "Aborted"));
+                    countDownParts(counter, numberOfParts - i, latch);
+                    return;
+                }
+                try {
+                    snapshotStreamPermits.acquire();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    failures.add(e);
+                    countDownParts(counter, numberOfParts - i, latch);
+                    return;
+                }
+                final int part = i;
                 IndexInput indexInput = null;
                 try {
                     indexInput = store.openInputRaw(fileInfo.physicalName(), IOContext.READONCE);
-                    indexInput.seek(i * fileInfo.partBytes());
+                    indexInput.seek(part * fileInfo.partBytes());
                     InputStreamIndexInput inputStreamIndexInput = new ThreadSafeInputStreamIndexInput(indexInput, fileInfo.partBytes());
 
                     final IndexInput fIndexInput = indexInput;
-                    long size = inputStreamIndexInput.actualSizeToRead();
-                    InputStream inputStream;
-                    if (snapshotRateLimiter != null) {
-                        inputStream = new RateLimitingInputStream(inputStreamIndexInput, snapshotRateLimiter, snapshotThrottleListener);
+                    final long size = inputStreamIndexInput.actualSizeToRead();
+                    InputStream inputStream = inputStreamIndexInput;
+                    final Adler32 digest;
+                    if (partChecksums != null) {
+                        digest = new Adler32();
+                        inputStream = new CheckedInputStream(inputStream, digest);
                     } else {
-                        inputStream = inputStreamIndexInput;
+                        digest = null;
+                    }
+                    if (snapshotRateLimiter != null) {
+                        inputStream = new RateLimitingInputStream(inputStream, snapshotRateLimiter, snapshotThrottleListener);
                     }
-                    blobContainer.writeBlob(fileInfo.partName(i), inputStream, size, new ImmutableBlobContainer.WriterListener() {
+                    blobContainer.writeBlob(fileInfo.partName(part), inputStream, size, new ImmutableBlobContainer.WriterListener() {
                         @Override
                         public void onCompleted() {
                             IOUtils.closeWhileHandlingException(fIndexInput);
+                            snapshotStreamPermits.release();
+                            snapshotStatus.addProcessedSize(size);
+                            if (digest != null) {
+                                partChecksums[part] = digest.getValue();
+                            }
                             if (counter.decrementAndGet() == 0) {
+                                if (partChecksums != null && !failed.get()) {
+                                    long checksum = combinePartChecksums(fileInfo, partChecksums);
+                                    if (!checksumMatches(fileInfo.checksum(), checksum)) {
+                                        failures.add(checksumMismatch(fileInfo, checksum));
+                                    }
+                                }
+                                snapshotStatus.addProcessedFile();
                                 latch.countDown();
                             }
                         }
@@ -512,6 +586,8 @@ public class BlobStoreIndexShardRepository extends AbstractComponent implements
                         @Override
                         public void onFailure(Throwable t) {
                             IOUtils.closeWhileHandlingException(fIndexInput);
+                            snapshotStreamPermits.release();
+                            failed.set(true);
                             failures.add(t);
                             if (counter.decrementAndGet() == 0) {
                                 latch.countDown();
@@ -520,12 +596,36 @@ public class BlobStoreIndexShardRepository extends AbstractComponent implements
                     });
                 } catch (Throwable e) {
                     IOUtils.closeWhileHandlingException(indexInput);
+                    snapshotStreamPermits.release();
+                    failed.set(true);
                     failures.add(e);
-                    latch.countDown();
+                    countDownParts(counter, numberOfParts - i, latch);
+                    return;
                 }
             }
         }
 
+        /**
+         * Accounts for parts that will never be started and counts the latch down if no other part of the file is in flight
+         */
+        private void countDownParts(AtomicInteger counter, int parts, CountDownLatch latch) {
+            if (counter.addAndGet(-parts) == 0) {
+                latch.countDown();
+            }
+        }
+
+        /**
+         * Combines the checksums of all parts of the file into the checksum of the file
+         */
+        private long combinePartChecksums(BlobStoreIndexShardSnapshot.FileInfo fileInfo, long[] partChecksums) {
+            long checksum = partChecksums[0];
+            for (int i = 1; i < partChecksums.length; i++) {
+                long partLength = Math.min(fileInfo.partBytes(), fileInfo.length() - i * fileInfo.partBytes());
+                checksum = combineAdler32(checksum, partChecksums[i], partLength);
+            }
+            return checksum;
+        }
+
         /**
          * Checks if snapshot file already exists in the list of blobs
          *
@@ -639,10 +739,11 @@ public class BlobStoreIndexShardRepository extends AbstractComponent implements
 
             final CountDownLatch latch = new CountDownLatch(filesToRecover.size());
             final CopyOnWriteArrayList<Throwable> failures = new CopyOnWriteArrayList<Throwable>();
+            final ConcurrentMap<FileInfo, Long> checksumMismatches = ConcurrentCollections.newConcurrentMap();
 
             for (final FileInfo fileToRecover : filesToRecover) {
                 logger.trace("[{}] [{}] restoring file [{}]", shardId, snapshotId, fileToRecover.name());
-                restoreFile(fileToRecover, latch, failures);
+                restoreFile(fileToRecover, latch, failures, checksumMismatches);
             }
 
             try {
@@ -656,15 +757,32 @@ public class BlobStoreIndexShardRepository extends AbstractComponent implements
             }
 
             // read the snapshot data persisted
-            long version = -1;
+            SegmentInfos segmentInfos = null;
             try {
                 if (Lucene.indexExists(store.directory())) {
-                    version = Lucene.readSegmentInfos(store.directory()).getVersion();
+                    segmentInfos = Lucene.readSegmentInfos(store.directory());
                 }
             } catch (IOException e) {
                 throw new IndexShardRestoreFailedException(shardId, "Failed to fetch index version after copying it over", e);
             }
-            recoveryStatus.index().updateVersion(version);
+            recoveryStatus.index().updateVersion(segmentInfos == null ? -1 : segmentInfos.getVersion());
+
+            if (!checksumMismatches.isEmpty()) {
+                // only the files of Lucene 3.x segments are expected to differ from the checksum the store recorded
+                try {
+                    Set<String> filesWithoutContentChecksum = segmentInfos == null ? Collections.<String>emptySet() : filesWithoutContentChecksum(segmentInfos);
+                    for (Map.Entry<FileInfo, Long> entry : checksumMismatches.entrySet()) {
+                        FileInfo fileInfo = entry.getKey();
+                        if (!filesWithoutContentChecksum.contains(fileInfo.physicalName())) {
+                            throw new IndexShardRestoreFailedException(shardId, "Failed to recover index", checksumMismatch(fileInfo, entry.getValue()));
+                        }
+                        logger.trace("[{}] [{}] not verifying the checksum of [{}], it belongs to a Lucene 3.x segment", shardId, snapshotId, fileInfo.physicalName());
+                        store.writeChecksum(fileInfo.physicalName(), fileInfo.checksum());
+                    }
+                } catch (IOException e) {
+                    throw new IndexShardRestoreFailedException(shardId, "Failed to verify checksums", e);
+                }
+            }
 
             /// now, go over and clean files that are in the store, but were not in the snapshot
             try {
@@ -686,18 +804,35 @@ public class BlobStoreIndexShardRepository extends AbstractComponent implements
          * Restores a file
          * This is asynchronous method. Upon completion of the operation latch is getting counted down and any failures are
          * added to the {@code failures} list
+         * <p/>
+         * Parts of a file are restored sequentially, while files are restored concurrently. The number of files that
+         * are restored concurrently on this node is bounded by {@code max_concurrent_parts}, so the method blocks until
+         * the file can be started. If the file has a checksum, the checksum of its content is computed while the data
+         * is copied. The checksum is only recorded in the store if it matches, otherwise the file is added to
+         * {@code checksumMismatches}, since whether the file is corrupted is only known once it is known which
+         * segment it belongs to.
          *
-         * @param fileInfo file to be restored
-         * @param latch    latch that should be counted down once file is snapshoted
-         * @param failures thread-safe list of failures
+         * @param fileInfo           file to be restored
+         * @param latch              latch that should be counted down once file is snapshoted
+         * @param failures           thread-safe list of failures
+         * @param checksumMismatches thread-safe map of the files whose content doesn't match their checksum
          */
-        private void restoreFile(final FileInfo fileInfo, final CountDownLatch latch, final List<Throwable> failures) {
+        private void restoreFile(final FileInfo fileInfo, final CountDownLatch latch, final List<Throwable> failures, final Map<FileInfo, Long> checksumMismatches) {
+            try {
+                restoreStreamPermits.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                failures.add(e);
+                latch.countDown();
+                return;
+            }
             final IndexOutput indexOutput;
             try {
                 // we create an output with no checksum, this is because the pure binary data of the file is not
                 // the checksum (because of seek). We will create the checksum file once copying is done
                 indexOutput = store.createOutputRaw(fileInfo.physicalName());
             } catch (IOException e) {
+                restoreStreamPermits.release();
                 failures.add(e);
                 latch.countDown();
                 return;
@@ -705,12 +840,16 @@ public class BlobStoreIndexShardRepository extends AbstractComponent implements
 
             String firstFileToRecover = fileInfo.partName(0);
             final AtomicInteger partIndex = new AtomicInteger();
+            final Adler32 digest = fileInfo.checksum() != null ? new Adler32() : null;
 
             blobContainer.readBlob(firstFileToRecover, new BlobContainer.ReadBlobListener() {
                 @Override
                 public synchronized void onPartial(byte[] data, int offset, int size) throws IOException {
                     recoveryStatus.index().addCurrentFilesSize(size);
                     indexOutput.writeBytes(data, offset, size);
+                    if (digest != null) {
+                        digest.update(data, offset, size);
+                    }
                     if (restoreRateLimiter != null) {
                         rateLimiterListener.onRestorePause(restoreRateLimiter.pause(size));
                     }
@@ -728,8 +867,10 @@ public class BlobStoreIndexShardRepository extends AbstractComponent implements
                         // we are done...
                         try {
                             indexOutput.close();
-                            // write the checksum
-                            if (fileInfo.checksum() != null) {
+                            if (digest != null && !checksumMatches(fileInfo.checksum(), digest.getValue())) {
+                                checksumMismatches.put(fileInfo, digest.getValue());
+                            } else if (fileInfo.checksum() != null) {
+                                // write the checksum
                                 store.writeChecksum(fileInfo.physicalName(), fileInfo.checksum());
                             }
                             store.directory().sync(Collections.singleton(fileInfo.physicalName()));
@@ -738,11 +879,14 @@ public class BlobStoreIndexShardRepository extends AbstractComponent implements
                             return;
                         }
                     }
+                    restoreStreamPermits.release();
                     latch.countDown();
                 }
 
                 @Override
                 public void onFailure(Throwable t) {
+                    IOUtils.closeWhileHandlingException(indexOutput);
+                    restoreStreamPermits.release();
                     failures.add(t);
                     latch.countDown();
                 }
@@ -751,6 +895,65 @@ public class BlobStoreIndexShardRepository extends AbstractComponent implements
 
     }
 
+    /**
+     * Returns the files of the segments written by Lucene 3.x. The store computes its checksum over the bytes in the
+     * order they were written, and Lucene 3.x wrote some files using seek, so for these files the checksum the store
+     * recorded is not the checksum of their content and can't be used to verify them. Lucene 4 never seeks.
+     */
+    static Set<String> filesWithoutContentChecksum(SegmentInfos segmentInfos) throws IOException {
+        Set<String> files = new HashSet<String>();
+        for (SegmentCommitInfo info : segmentInfos) {
+            String version = info.info.getVersion();
+            if (version == null || StringHelper.getVersionComparator().compare(version, "4.0") < 0) {
+                files.addAll(info.files());
+            }
+        }
+        return files;
+    }
+
+    /**
+     * Compares the checksum the store recorded for a file with the checksum of its content
+     */
+    static boolean checksumMatches(String expected, long actual) {
+        return Long.toString(actual, Character.MAX_RADIX).equals(expected);
+    }
+
+    static CorruptIndexException checksumMismatch(FileInfo fileInfo, long actual) {
+        return new CorruptIndexException("checksum mismatch for [" + fileInfo.physicalName() + "], expected ["
+                + fileInfo.checksum() + "], got [" + Long.toString(actual, Character.MAX_RADIX) + "]");
+    }
+
+    /**
+     * Computes the Adler-32 checksum of two concatenated blocks of data from the checksums of the blocks
+     * (same as {@code adler32_combine} in zlib)
+     *
+     * @param adler1 checksum of the first block
+     * @param adler2 checksum of the second block
+     * @param len2   length of the second block
+     * @return checksum of the concatenated blocks
+     */
+    static long combineAdler32(long adler1, long adler2, long len2) {
+        final long base = 65521;
+        long rem = len2 % base;
+        long sum1 = adler1 & 0xffff;
+        long sum2 = (rem * sum1) % base;
+        sum1 += (adler2 & 0xffff) + base - 1;
+        sum2 += ((adler1 >> 16) & 0xffff) + ((adler2 >> 16) & 0xffff) + base - rem;
+        if (sum1 >= base) {
+            sum1 -= base;
+        }
+        if (sum1 >= base) {
+            sum1 -= base;
+        }
+        if (sum2 >= (base << 1)) {
+            sum2 -= (base << 1);
+        }
+        if (sum2 >= base) {
+            sum2 -= base;
+        }
+        return sum1 | (sum2 << 16);
+    }
+
     public interface RateLimiterListener {
         void onRestorePause(long nanos);
 
@@ -175,6 +175,19 @@ public interface Translog extends IndexShardComponent, CloseableIndexComponent {
 
         void seekForward(long length);
 
+        /**
+         * Returns <tt>true</tt> if the operations of this snapshot can be read in their raw, framed form
+         * using {@link #rawOperations(long, long)}.
+         */
+        boolean supportsRawOperations();
+
+        /**
+         * Returns the raw bytes between two positions of this snapshot without copying or deserializing them.
+         * Each operation is framed by its size as an int, followed by the operation as written by
+         * {@link TranslogStreams#writeTranslogOperation(org.elasticsearch.common.io.stream.StreamOutput, Operation)}.
+         */
+        BytesReference rawOperations(long from, long to);
+
         /**
          * Returns a stream of this snapshot.
          */
@@ -20,6 +20,9 @@
 package org.elasticsearch.index.translog.fs;
 
 import org.elasticsearch.ElasticsearchException;
+import org.elasticsearch.ElasticsearchIllegalArgumentException;
+import org.elasticsearch.common.bytes.ByteBufferBytesReference;
+import org.elasticsearch.common.bytes.BytesReference;
 import org.elasticsearch.common.io.FileChannelInputStream;
 import org.elasticsearch.common.io.stream.BytesStreamInput;
 import org.elasticsearch.index.translog.Translog;
@@ -29,6 +32,7 @@ import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
 import java.nio.channels.FileChannel;
 
 /**
@@ -52,6 +56,12 @@ public class FsChannelSnapshot implements Translog.Snapshot {
 
     private ByteBuffer cacheBuffer;
 
+    private MappedByteBuffer mappedBuffer;
+
+    private int lastOperationOffset = -1;
+
+    private int lastOperationSize;
+
     public FsChannelSnapshot(long id, RafReference raf, long length, int totalOperations) throws FileNotFoundException {
         this.id = id;
         this.raf = raf;
@@ -80,6 +90,42 @@ public class FsChannelSnapshot implements Translog.Snapshot {
         return this.totalOperations;
     }
 
+    /**
+     * Memory maps the snapshot, operations are then read directly from the mapped file and are only
+     * deserialized when {@link #next()} is called. Returns <tt>false</tt> if the snapshot could not be mapped,
+     * in which case it keeps reading through the channel.
+     */
+    public boolean mmap() {
+        if (mappedBuffer != null) {
+            return true;
+        }
+        if (length > Integer.MAX_VALUE) {
+            return false;
+        }
+        try {
+            mappedBuffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, length);
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    @Override
+    public boolean supportsRawOperations() {
+        return mappedBuffer != null;
+    }
+
+    @Override
+    public BytesReference rawOperations(long from, long to) {
+        if (mappedBuffer == null) {
+            throw new ElasticsearchIllegalArgumentException("snapshot of translog [" + id + "] is not memory mapped");
+        }
+        if (from < 0 || to > length || from > to) {
+            throw new ElasticsearchIllegalArgumentException("range [" + from + ", " + to + "] is out of the bounds of translog snapshot [" + id + "] with length [" + length + "]");
+        }
+        return new ByteBufferBytesReference(mappedBuffer).slice((int) from, (int) (to - from));
+    }
+
     @Override
     public InputStream stream() throws IOException {
         return new FileChannelInputStream(channel, position, lengthInBytes());
@@ -92,6 +138,9 @@ public class FsChannelSnapshot implements Translog.Snapshot {
 
     @Override
     public boolean hasNext() {
+        if (mappedBuffer != null) {
+            return hasNextMapped();
+        }
         try {
             if (position > length) {
                 return false;
@@ -127,8 +176,32 @@ public class FsChannelSnapshot implements Translog.Snapshot {
         }
     }
 
+    private boolean hasNextMapped() {
+        lastOperationRead = null;
+        lastOperationOffset = -1;
+        if (position + 4 > length) {
+            return false;
+        }
+        int opSize = mappedBuffer.getInt(position);
+        if (opSize < 0 || (position + 4 + opSize) > length) {
+            return false;
+        }
+        lastOperationOffset = position + 4;
+        lastOperationSize = opSize;
+        position += 4 + opSize;
+        return true;
+    }
+
     @Override
     public Translog.Operation next() {
+        if (lastOperationRead == null && lastOperationOffset >= 0) {
+            // operations of a mapped snapshot are only deserialized once they are asked for
+            try {
+                lastOperationRead = TranslogStreams.readTranslogOperation(rawOperations(lastOperationOffset, lastOperationOffset + lastOperationSize).streamInput());
+            } catch (IOException e) {
+                throw new ElasticsearchException("failed to read translog operation at position [" + lastOperationOffset + "] of translog [" + id + "]", e);
+            }
+        }
         return this.lastOperationRead;
     }
 
@@ -139,6 +212,7 @@ public class FsChannelSnapshot implements Translog.Snapshot {
 
     @Override
     public boolean release() throws ElasticsearchException {
+        mappedBuffer = null;
         raf.decreaseRefCount(true);
         return true;
     }
@@ -20,6 +20,7 @@
 package org.elasticsearch.index.translog.fs;
 
 import jsr166y.ThreadLocalRandom;
+import org.apache.lucene.util.Constants;
 import org.elasticsearch.ElasticsearchException;
 import org.elasticsearch.common.bytes.BytesReference;
 import org.elasticsearch.common.inject.Inject;
@@ -36,6 +37,7 @@ import org.elasticsearch.index.translog.Translog;
 import org.elasticsearch.index.translog.TranslogException;
 import org.elasticsearch.index.translog.TranslogStats;
 import org.elasticsearch.index.translog.TranslogStreams;
+import org.elasticsearch.threadpool.ThreadPool;
 
 import java.io.File;
 import java.io.IOException;
@@ -63,6 +65,8 @@ public class FsTranslog extends AbstractIndexShardComponent implements Translog
 
     private final IndexSettingsService indexSettingsService;
 
+    private final ThreadPool threadPool;
+
     private final ReadWriteLock rwl = new ReentrantReadWriteLock();
     private final File[] locations;
 
@@ -73,15 +77,18 @@ public class FsTranslog extends AbstractIndexShardComponent implements Translog
 
     private boolean syncOnEachOperation = false;
 
+    private final boolean mmapSnapshots;
+
     private volatile int bufferSize;
     private volatile int transientBufferSize;
 
     private final ApplySettings applySettings = new ApplySettings();
 
     @Inject
-    public FsTranslog(ShardId shardId, @IndexSettings Settings indexSettings, IndexSettingsService indexSettingsService, NodeEnvironment nodeEnv) {
+    public FsTranslog(ShardId shardId, @IndexSettings Settings indexSettings, IndexSettingsService indexSettingsService, NodeEnvironment nodeEnv, ThreadPool threadPool) {
         super(shardId, indexSettings);
         this.indexSettingsService = indexSettingsService;
+        this.threadPool = threadPool;
         File[] shardLocations = nodeEnv.shardLocations(shardId);
         this.locations = new File[shardLocations.length];
         for (int i = 0; i < shardLocations.length; i++) {
@@ -92,17 +99,25 @@ public class FsTranslog extends AbstractIndexShardComponent implements Translog
         this.type = FsTranslogFile.Type.fromString(componentSettings.get("type", FsTranslogFile.Type.BUFFERED.name()));
         this.bufferSize = (int) componentSettings.getAsBytesSize("buffer_size", ByteSizeValue.parseBytesSizeValue("64k")).bytes(); // Not really interesting, updated by IndexingMemoryController...
         this.transientBufferSize = (int) componentSettings.getAsBytesSize("transient_buffer_size", ByteSizeValue.parseBytesSizeValue("8k")).bytes();
+        // on windows a mapped file can't be deleted until the mapping is garbage collected
+        this.mmapSnapshots = componentSettings.getAsBoolean("mmap_snapshots", !Constants.WINDOWS);
 
         indexSettingsService.addListener(applySettings);
     }
 
     public FsTranslog(ShardId shardId, @IndexSettings Settings indexSettings, File location) {
+        this(shardId, indexSettings, location, null);
+    }
+
+    public FsTranslog(ShardId shardId, @IndexSettings Settings indexSettings, File location, ThreadPool threadPool) {
         super(shardId, indexSettings);
         this.indexSettingsService = null;
+        this.threadPool = threadPool;
         this.locations = new File[]{location};
         FileSystemUtils.mkdirs(location);
 
         this.type = FsTranslogFile.Type.fromString(componentSettings.get("type", FsTranslogFile.Type.BUFFERED.name()));
+        this.mmapSnapshots = componentSettings.getAsBoolean("mmap_snapshots", !Constants.WINDOWS);
     }
 
     @Override
@@ -232,7 +247,7 @@ public class FsTranslog extends AbstractIndexShardComponent implements Translog
                 }
             }
             try {
-                newFile = type.create(shardId, id, new RafReference(new File(location, "translog-" + id)), bufferSize);
+                newFile = type.create(shardId, id, new RafReference(new File(location, "translog-" + id)), bufferSize, componentSettings, threadPool);
             } catch (IOException e) {
                 throw new TranslogException(shardId, "failed to create new translog file", e);
             }
@@ -267,7 +282,7 @@ public class FsTranslog extends AbstractIndexShardComponent implements Translog
                     location = file;
                 }
             }
-            this.trans = type.create(shardId, id, new RafReference(new File(location, "translog-" + id)), transientBufferSize);
+            this.trans = type.create(shardId, id, new RafReference(new File(location, "translog-" + id)), transientBufferSize, componentSettings, threadPool);
         } catch (IOException e) {
             throw new TranslogException(shardId, "failed to create new translog file", e);
         } finally {
@@ -377,6 +392,9 @@ public class FsTranslog extends AbstractIndexShardComponent implements Translog
         while (true) {
             FsChannelSnapshot snapshot = current.snapshot();
             if (snapshot != null) {
+                if (mmapSnapshots) {
+                    snapshot.mmap();
+                }
                 return snapshot;
             }
             Thread.yield();
@@ -410,6 +428,10 @@ public class FsTranslog extends AbstractIndexShardComponent implements Translog
     @Override
     public void syncOnEachOperation(boolean syncOnEachOperation) {
         this.syncOnEachOperation = syncOnEachOperation;
+        if (type == FsTranslogFile.Type.GROUP_COMMIT) {
+            // operations wait for their group to be committed instead of syncing one by one
+            return;
+        }
         if (syncOnEachOperation) {
             type = FsTranslogFile.Type.SIMPLE;
         } else {
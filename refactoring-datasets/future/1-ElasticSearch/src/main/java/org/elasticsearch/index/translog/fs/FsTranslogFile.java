@@ -20,9 +20,11 @@
 package org.elasticsearch.index.translog.fs;
 
 import org.elasticsearch.ElasticsearchIllegalArgumentException;
+import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.index.shard.ShardId;
 import org.elasticsearch.index.translog.Translog;
 import org.elasticsearch.index.translog.TranslogException;
+import org.elasticsearch.threadpool.ThreadPool;
 
 import java.io.IOException;
 
@@ -32,24 +34,36 @@ public interface FsTranslogFile {
 
         SIMPLE() {
             @Override
-            public FsTranslogFile create(ShardId shardId, long id, RafReference raf, int bufferSize) throws IOException {
+            public FsTranslogFile create(ShardId shardId, long id, RafReference raf, int bufferSize, Settings settings, ThreadPool threadPool) throws IOException {
                 return new SimpleFsTranslogFile(shardId, id, raf);
             }
         },
         BUFFERED() {
             @Override
-            public FsTranslogFile create(ShardId shardId, long id, RafReference raf, int bufferSize) throws IOException {
+            public FsTranslogFile create(ShardId shardId, long id, RafReference raf, int bufferSize, Settings settings, ThreadPool threadPool) throws IOException {
                 return new BufferingFsTranslogFile(shardId, id, raf, bufferSize);
             }
+        },
+        GROUP_COMMIT() {
+            @Override
+            public FsTranslogFile create(ShardId shardId, long id, RafReference raf, int bufferSize, Settings settings, ThreadPool threadPool) throws IOException {
+                return new GroupCommitFsTranslogFile(shardId, id, raf, bufferSize, settings, threadPool);
+            }
         };
 
-        public abstract FsTranslogFile create(ShardId shardId, long id, RafReference raf, int bufferSize) throws IOException;
+        /**
+         * Creates a new translog file, <tt>settings</tt> are the settings of the translog component. The thread pool
+         * is only required by translog files that commit in the background.
+         */
+        public abstract FsTranslogFile create(ShardId shardId, long id, RafReference raf, int bufferSize, Settings settings, ThreadPool threadPool) throws IOException;
 
         public static Type fromString(String type) throws ElasticsearchIllegalArgumentException {
             if (SIMPLE.name().equalsIgnoreCase(type)) {
                 return SIMPLE;
             } else if (BUFFERED.name().equalsIgnoreCase(type)) {
                 return BUFFERED;
+            } else if (GROUP_COMMIT.name().equalsIgnoreCase(type)) {
+                return GROUP_COMMIT;
             }
             throw new ElasticsearchIllegalArgumentException("No translog fs type [" + type + "]");
         }
@@ -0,0 +1,421 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.translog.fs;
+
+import org.elasticsearch.ElasticsearchIllegalArgumentException;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.ByteSizeUnit;
+import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.common.util.concurrent.BaseFuture;
+import org.elasticsearch.common.util.concurrent.EsRejectedExecutionException;
+import org.elasticsearch.index.shard.ShardId;
+import org.elasticsearch.index.translog.Translog;
+import org.elasticsearch.index.translog.TranslogException;
+import org.elasticsearch.threadpool.ThreadPool;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A translog file that groups writes and fsyncs of concurrent writers.
+ * <p/>
+ * Writers reserve their position in the file and append their operation to a lock-free queue without any
+ * blocking. Commits run on the {@link ThreadPool.Names#GENERIC generic} thread pool, one at a time per file: a
+ * commit drains the queue, writes the operations in one positional write per contiguous run of bytes and fsyncs
+ * the file. A commit is triggered when a writer waits for its operations to be durable (see {@link #sync()}),
+ * when <tt>group_commit.max_bytes</tt> bytes are pending, or every <tt>group_commit.interval</tt> by a task
+ * scheduled on the thread pool. Writers that wait for durability all wait on the same commit group, so
+ * concurrent writers share a single fsync.
+ * <p/>
+ * The bytes passed to {@link #add(byte[], int, int)} are referenced until they are written, so they must not
+ * be modified by the caller.
+ */
+public class GroupCommitFsTranslogFile implements FsTranslogFile {
+
+    public static final String GROUP_COMMIT_INTERVAL = "group_commit.interval";
+    public static final String GROUP_COMMIT_MAX_BYTES = "group_commit.max_bytes";
+
+    private static final TimeValue DEFAULT_INTERVAL = TimeValue.timeValueMillis(50);
+    private static final ByteSizeValue DEFAULT_MAX_BYTES = new ByteSizeValue(1, ByteSizeUnit.MB);
+
+    private final long id;
+    private final ShardId shardId;
+    private final RafReference raf;
+    private final ThreadPool threadPool;
+    private final TimeValue interval;
+    private final long maxBytes;
+
+    private final AtomicInteger operationCounter = new AtomicInteger();
+
+    // position reserved by writers, written to the file and fsynced, in that order
+    private final AtomicLong lastPosition = new AtomicLong(0);
+    private volatile long lastWrittenPosition = 0;
+    private volatile long lastSyncPosition = 0;
+
+    // the highest position that a waiting writer needs to be synced
+    private final AtomicLong requestedSyncPosition = new AtomicLong(0);
+
+    private final ConcurrentLinkedQueue<Entry> queue = new ConcurrentLinkedQueue<Entry>();
+    private volatile CommitGroup commitGroup = new CommitGroup();
+
+    // only accessed by the thread holding the lock on this file
+    private final PriorityQueue<Entry> pending = new PriorityQueue<Entry>();
+    private ByteBuffer batch;
+
+    private final AtomicBoolean committing = new AtomicBoolean();
+    private final Committer committer = new Committer();
+    private volatile ScheduledFuture<?> scheduledCommit;
+    private volatile int bufferSize;
+    private volatile boolean closed;
+    private volatile Throwable failure;
+
+    public GroupCommitFsTranslogFile(ShardId shardId, long id, RafReference raf, int bufferSize, Settings settings, ThreadPool threadPool) throws IOException {
+        if (threadPool == null) {
+            throw new ElasticsearchIllegalArgumentException("the group commit translog requires a thread pool");
+        }
+        this.shardId = shardId;
+        this.id = id;
+        this.raf = raf;
+        this.threadPool = threadPool;
+        this.bufferSize = bufferSize;
+        this.interval = settings.getAsTime(GROUP_COMMIT_INTERVAL, DEFAULT_INTERVAL);
+        this.maxBytes = settings.getAsBytesSize(GROUP_COMMIT_MAX_BYTES, DEFAULT_MAX_BYTES).bytes();
+        this.batch = ByteBuffer.allocate(Math.max(bufferSize, 1024));
+        raf.raf().setLength(0);
+        this.scheduledCommit = threadPool.schedule(interval, ThreadPool.Names.SAME, new ScheduledCommit());
+    }
+
+    public long id() {
+        return this.id;
+    }
+
+    public int estimatedNumberOfOperations() {
+        return operationCounter.get();
+    }
+
+    public long translogSizeInBytes() {
+        return lastWrittenPosition;
+    }
+
+    @Override
+    public Translog.Location add(byte[] data, int from, int size) throws IOException {
+        if (closed) {
+            throw new ClosedChannelException();
+        }
+        ensureNotFailed();
+        final long position = lastPosition.getAndAdd(size);
+        queue.add(new Entry(position, data, from, size));
+        operationCounter.incrementAndGet();
+        if (position + size - lastWrittenPosition >= maxBytes) {
+            triggerCommit();
+        }
+        return new Translog.Location(id, position, size);
+    }
+
+    @Override
+    public byte[] read(Translog.Location location) throws IOException {
+        final long end = location.translogLocation + location.size;
+        if (end > lastWrittenPosition) {
+            // the operation might still be waiting to be written
+            for (Entry entry : queue) {
+                if (entry.position == location.translogLocation) {
+                    final byte[] data = new byte[location.size];
+                    System.arraycopy(entry.data, entry.offset, data, 0, location.size);
+                    return data;
+                }
+            }
+            awaitSync(end);
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(location.size);
+        raf.channel().read(buffer, location.translogLocation);
+        return buffer.array();
+    }
+
+    @Override
+    public void close(boolean delete) {
+        this.closed = true;
+        final ScheduledFuture<?> scheduledCommit = this.scheduledCommit;
+        if (scheduledCommit != null) {
+            scheduledCommit.cancel(false);
+        }
+        // commits that are already running or queued hold the lock or skip once they see the file is closed
+        synchronized (this) {
+            try {
+                if (!delete && failure == null) {
+                    while (commit()) {
+                        // write until no more operations are contiguous with the written ones
+                    }
+                }
+            } catch (Throwable t) {
+                failure = t;
+            } finally {
+                final Throwable failure = this.failure;
+                commitGroup.fail(failure == null ? new TranslogException(shardId, "translog [" + id + "] is closed") : failure);
+            }
+        }
+        raf.decreaseRefCount(delete);
+    }
+
+    @Override
+    public FsChannelSnapshot snapshot() throws TranslogException {
+        try {
+            awaitSync(lastPosition.get());
+            if (!raf.increaseRefCount()) {
+                return null;
+            }
+            return new FsChannelSnapshot(this.id, raf, lastWrittenPosition, operationCounter.get());
+        } catch (TranslogException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new TranslogException(shardId, "Failed to snapshot", e);
+        }
+    }
+
+    @Override
+    public boolean syncNeeded() {
+        return lastPosition.get() != lastSyncPosition;
+    }
+
+    /**
+     * Waits until all the operations that have been added so far have been written and fsynced, possibly
+     * along with the operations of other writers.
+     */
+    @Override
+    public void sync() {
+        awaitSync(lastPosition.get());
+    }
+
+    private void awaitSync(long position) {
+        while (lastSyncPosition < position) {
+            ensureNotFailed();
+            final CommitGroup group = commitGroup;
+            if (lastSyncPosition >= position) {
+                break;
+            }
+            if (closed) {
+                throw new TranslogException(shardId, "translog [" + id + "] is closed");
+            }
+            long requested = requestedSyncPosition.get();
+            while (requested < position && !requestedSyncPosition.compareAndSet(requested, position)) {
+                requested = requestedSyncPosition.get();
+            }
+            triggerCommit();
+            try {
+                group.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new TranslogException(shardId, "interrupted while waiting for translog sync", e);
+            } catch (ExecutionException e) {
+                throw new TranslogException(shardId, "failed to sync translog", e.getCause());
+            }
+        }
+    }
+
+    private void ensureNotFailed() {
+        final Throwable failure = this.failure;
+        if (failure != null) {
+            throw new TranslogException(shardId, "translog [" + id + "] failed to write", failure);
+        }
+    }
+
+    @Override
+    public void reuse(FsTranslogFile other) {
+        // nothing to do there
+    }
+
+    @Override
+    public void updateBufferSize(int bufferSize) throws TranslogException {
+        this.bufferSize = bufferSize;
+    }
+
+    /**
+     * Makes sure a commit runs soon, unless one is already running, in which case it will check whether
+     * another commit is needed before it completes.
+     */
+    private void triggerCommit() {
+        if (committing.compareAndSet(false, true)) {
+            try {
+                threadPool.executor(ThreadPool.Names.GENERIC).execute(committer);
+            } catch (EsRejectedExecutionException e) {
+                // the thread pool is shutting down, commit on the current thread
+                committer.run();
+            }
+        }
+    }
+
+    /**
+     * Writes and fsyncs everything that can be written and completes the current commit group. Returns whether
+     * any bytes have been written.
+     */
+    private synchronized boolean commit() throws IOException {
+        final long written = lastWrittenPosition;
+        if (batch.capacity() < bufferSize) {
+            batch = ByteBuffer.allocate(bufferSize);
+        }
+        write();
+        if (lastWrittenPosition != lastSyncPosition) {
+            raf.channel().force(false);
+        }
+        // publish the sync position before swapping the group so that writers which see the
+        // new group also see the new sync position
+        lastSyncPosition = lastWrittenPosition;
+        final CommitGroup group = commitGroup;
+        commitGroup = new CommitGroup();
+        group.complete(lastSyncPosition);
+        return written != lastWrittenPosition;
+    }
+
+    private class Committer implements Runnable {
+
+        @Override
+        public void run() {
+            while (true) {
+                synchronized (GroupCommitFsTranslogFile.this) {
+                    if (!closed && failure == null) {
+                        try {
+                            if (!commit() && commitRequested()) {
+                                // an operation that a writer waits for is not contiguous with written operations yet
+                                Thread.yield();
+                            }
+                        } catch (Throwable t) {
+                            failure = t;
+                            commitGroup.fail(t);
+                        }
+                    }
+                }
+                committing.set(false);
+                // a writer might have requested a commit after we drained the queue but before the flag was
+                // reset, in which case it relies on us to commit again
+                if (closed || failure != null || !commitRequested() || !committing.compareAndSet(false, true)) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private class ScheduledCommit implements Runnable {
+
+        @Override
+        public void run() {
+            if (closed) {
+                return;
+            }
+            if (lastWrittenPosition != lastPosition.get()) {
+                triggerCommit();
+            }
+            scheduledCommit = threadPool.schedule(interval, ThreadPool.Names.SAME, this);
+        }
+    }
+
+    private boolean commitRequested() {
+        final long last = lastPosition.get();
+        return requestedSyncPosition.get() > lastSyncPosition || last - lastWrittenPosition >= maxBytes;
+    }
+
+    /**
+     * Writes the longest run of queued operations that is contiguous with the written part of the file.
+     */
+    private void write() throws IOException {
+        for (Entry entry = queue.poll(); entry != null; entry = queue.poll()) {
+            pending.add(entry);
+        }
+        final FileChannel channel = raf.channel();
+        long position = lastWrittenPosition;
+        batch.clear();
+        while (!pending.isEmpty() && pending.peek().position == position + batch.position()) {
+            final Entry entry = pending.poll();
+            if (entry.size > batch.remaining()) {
+                position = flush(channel, batch, position);
+            }
+            if (entry.size > batch.remaining()) {
+                // bigger than the batch buffer, write directly
+                writeFully(channel, ByteBuffer.wrap(entry.data, entry.offset, entry.size), position);
+                position += entry.size;
+            } else {
+                batch.put(entry.data, entry.offset, entry.size);
+            }
+        }
+        flush(channel, batch, position);
+    }
+
+    private long flush(FileChannel channel, ByteBuffer batch, long position) throws IOException {
+        batch.flip();
+        final int size = batch.remaining();
+        writeFully(channel, batch, position);
+        batch.clear();
+        lastWrittenPosition = position + size;
+        return position + size;
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+
+    private static final class Entry implements Comparable<Entry> {
+
+        final long position;
+        final byte[] data;
+        final int offset;
+        final int size;
+
+        Entry(long position, byte[] data, int offset, int size) {
+            this.position = position;
+            this.data = data;
+            this.offset = offset;
+            this.size = size;
+        }
+
+        @Override
+        public int compareTo(Entry o) {
+            return position < o.position ? -1 : (position == o.position ? 0 : 1);
+        }
+    }
+
+    /**
+     * A future that is shared by all writers that wait for the same commit.
+     */
+    private static final class CommitGroup extends BaseFuture<Long> {
+
+        void complete(long syncPosition) {
+            set(syncPosition);
+        }
+
+        void fail(Throwable t) {
+            setException(t);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "group_commit[" + shardId + "][" + id + "]";
+    }
+}
@@ -34,6 +34,7 @@ import org.elasticsearch.common.xcontent.XContentBuilderString;
 import org.elasticsearch.index.Index;
 import org.elasticsearch.index.cache.filter.FilterCacheStats;
 import org.elasticsearch.index.cache.id.IdCacheStats;
+import org.elasticsearch.index.cache.query.QueryCacheStats;
 import org.elasticsearch.index.engine.SegmentsStats;
 import org.elasticsearch.index.fielddata.FieldDataStats;
 import org.elasticsearch.index.flush.FlushStats;
@@ -145,6 +146,11 @@ public class NodeIndicesStats implements Streamable, Serializable, ToXContent {
         return stats.getCompletion();
     }
 
+    @Nullable
+    public QueryCacheStats getQueryCache() {
+        return stats.getQueryCache();
+    }
+
     @Nullable
     public SegmentsStats getSegments() {
         return stats.getSegments();
@@ -0,0 +1,110 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.indices.cache.filter;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A count-min sketch of 4 bit counters estimating how often a key was seen recently, used as a TinyLFU style
+ * admission filter. Each key maps to four counters packed sixteen to a long, its frequency is the minimum of them.
+ * Once a number of increments proportional to the sketch size have been recorded, all counters are halved so that
+ * the sketch ages out keys that used to be popular.
+ * <p/>
+ * Counters are updated using CAS, concurrent increments may be lost which only makes the estimate a bit lower.
+ */
+final class FrequencySketch {
+
+    static final int MAX_FREQUENCY = 15;
+
+    private static final int[] SEEDS = new int[]{0x97cb3127, 0x9e3779b9, 0xc2b2ae35, 0x27d4eb2f};
+    private static final long RESET_MASK = 0x7777777777777777L;
+
+    private final AtomicLongArray table;
+    private final int tableMask;
+    private final int sampleSize;
+    private final AtomicInteger additions = new AtomicInteger();
+
+    /**
+     * @param size the expected number of distinct keys worth tracking, rounded up to a power of two, the sketch
+     *             uses 16 counters (8 bytes) per key and ages after <tt>10 * size</tt> increments
+     */
+    FrequencySketch(int size) {
+        int longs = Integer.highestOneBit(Math.max(1, size) * 2 - 1);
+        this.table = new AtomicLongArray(longs);
+        this.tableMask = longs - 1;
+        this.sampleSize = longs * 10;
+    }
+
+    /**
+     * The estimated number of times the key was seen, between <tt>0</tt> and {@link #MAX_FREQUENCY}.
+     */
+    int frequency(int hashCode) {
+        int frequency = MAX_FREQUENCY;
+        for (int i = 0; i < SEEDS.length; i++) {
+            int hash = hash(hashCode, i);
+            frequency = Math.min(frequency, (int) ((table.get(hash >>> 4 & tableMask) >>> ((hash & 15) << 2)) & 15));
+        }
+        return frequency;
+    }
+
+    void increment(int hashCode) {
+        boolean added = false;
+        for (int i = 0; i < SEEDS.length; i++) {
+            int hash = hash(hashCode, i);
+            added |= incrementAt(hash >>> 4 & tableMask, (hash & 15) << 2);
+        }
+        if (added && additions.incrementAndGet() == sampleSize) {
+            reset();
+        }
+    }
+
+    private boolean incrementAt(int index, int shift) {
+        while (true) {
+            long value = table.get(index);
+            if (((value >>> shift) & 15) == MAX_FREQUENCY) {
+                return false;
+            }
+            if (table.compareAndSet(index, value, value + (1L << shift))) {
+                return true;
+            }
+        }
+    }
+
+    private void reset() {
+        for (int i = 0; i < table.length(); i++) {
+            while (true) {
+                long value = table.get(i);
+                if (table.compareAndSet(i, value, (value >>> 1) & RESET_MASK)) {
+                    break;
+                }
+            }
+        }
+        additions.addAndGet(-sampleSize / 2);
+    }
+
+    private static int hash(int hashCode, int i) {
+        int hash = (hashCode + SEEDS[i]) * SEEDS[i];
+        hash ^= hash >>> 16;
+        hash *= 0x85ebca6b;
+        hash ^= hash >>> 13;
+        return hash;
+    }
+}
@@ -0,0 +1,290 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.indices.cache.filter;
+
+import org.apache.lucene.search.DocIdSet;
+import org.elasticsearch.common.Nullable;
+import org.elasticsearch.common.component.AbstractComponent;
+import org.elasticsearch.common.inject.Inject;
+import org.elasticsearch.common.lucene.docset.DocIdSets;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.common.unit.MemorySizeValue;
+import org.elasticsearch.index.cache.filter.ShardFilterCache;
+import org.elasticsearch.node.settings.NodeSettingsService;
+
+import java.util.*;
+
+/**
+ * The node level storage of the <tt>admission</tt> filter cache. Unlike {@link IndicesFilterCache}, which caches
+ * every filter on first use, an entry is only admitted if its key was seen at least <tt>min_frequency</tt> times,
+ * and, once the cache is full, only if it was seen more often than the entries it would evict. Frequencies are
+ * estimated by a {@link FrequencySketch} that records every lookup.
+ * <p/>
+ * Entries are spread over stripes, each holding a share of the memory budget and its own LRU order, so lookups only
+ * contend with the lookups hitting the same stripe. Each stripe indexes its entries by segment core key so that the
+ * entries of a closed segment can be dropped right away.
+ */
+public class IndicesAdmissionFilterCache extends AbstractComponent {
+
+    private final Stripe[] stripes;
+    private final FrequencySketch sketch;
+    private final int minFrequency;
+
+    private volatile String size;
+    private volatile long stripeSizeInBytes;
+
+    class ApplySettings implements NodeSettingsService.Listener {
+        @Override
+        public void onRefreshSettings(Settings settings) {
+            String size = settings.get(IndicesFilterCache.INDICES_CACHE_FILTER_SIZE, IndicesAdmissionFilterCache.this.size);
+            if (!size.equals(IndicesAdmissionFilterCache.this.size)) {
+                logger.info("updating [{}] from [{}] to [{}]", IndicesFilterCache.INDICES_CACHE_FILTER_SIZE, IndicesAdmissionFilterCache.this.size, size);
+                IndicesAdmissionFilterCache.this.size = size;
+                // stripes shrink lazily, on their next admission
+                computeSizeInBytes();
+            }
+        }
+    }
+
+    @Inject
+    public IndicesAdmissionFilterCache(Settings settings, NodeSettingsService nodeSettingsService) {
+        super(settings);
+        this.size = componentSettings.get("size", "20%");
+        int stripes = componentSettings.getAsInt("admission.stripes", 16);
+        stripes = Integer.highestOneBit(Math.max(1, stripes) * 2 - 1);
+        this.stripes = new Stripe[stripes];
+        for (int i = 0; i < stripes; i++) {
+            this.stripes[i] = new Stripe();
+        }
+        this.sketch = new FrequencySketch(componentSettings.getAsInt("admission.sketch_size", 1 << 14));
+        this.minFrequency = Math.min(FrequencySketch.MAX_FREQUENCY, componentSettings.getAsInt("admission.min_frequency", 2));
+        computeSizeInBytes();
+        logger.debug("using [node] admission filter cache with size [{}], actual_size [{}], stripes [{}], min_frequency [{}]",
+                size, new ByteSizeValue(stripeSizeInBytes * stripes), stripes, minFrequency);
+
+        nodeSettingsService.addListener(new ApplySettings());
+    }
+
+    private void computeSizeInBytes() {
+        this.stripeSizeInBytes = MemorySizeValue.parseBytesSizeValueOrHeapRatio(size).bytes() / stripes.length;
+    }
+
+    /**
+     * Returns the cached doc id set, or <tt>null</tt> if there is none. Every lookup counts towards the frequency
+     * of the key.
+     */
+    @Nullable
+    public DocIdSet get(Object readerKey, Object filterKey) {
+        Key key = new Key(readerKey, filterKey);
+        sketch.increment(key.hashCode());
+        return stripe(key).get(key);
+    }
+
+    /**
+     * Returns <tt>false</tt> if a doc id set for the key would not be admitted because the key hasn't been seen often
+     * enough, so that callers can skip building a cacheable doc id set. A rejection is recorded on the listener.
+     */
+    public boolean mayAdmit(Object readerKey, Object filterKey, @Nullable ShardFilterCache listener) {
+        Key key = new Key(readerKey, filterKey);
+        if (sketch.frequency(key.hashCode()) >= minFrequency) {
+            return true;
+        }
+        if (listener != null) {
+            listener.onRejected();
+        }
+        return false;
+    }
+
+    /**
+     * Tries to cache the doc id set, returns <tt>true</tt> if it was admitted.
+     */
+    public boolean put(Object readerKey, Object filterKey, DocIdSet docIdSet, @Nullable ShardFilterCache listener) {
+        Key key = new Key(readerKey, filterKey);
+        boolean admitted = stripe(key).put(key, new Entry(docIdSet, listener));
+        if (!admitted && listener != null) {
+            listener.onRejected();
+        }
+        return admitted;
+    }
+
+    public void remove(Object readerKey, Object filterKey) {
+        Key key = new Key(readerKey, filterKey);
+        stripe(key).remove(key);
+    }
+
+    /**
+     * Removes all the entries of the given segment.
+     */
+    public void clear(Object readerKey) {
+        for (Stripe stripe : stripes) {
+            stripe.clear(readerKey);
+        }
+    }
+
+    public void close() {
+        for (Stripe stripe : stripes) {
+            stripe.clear();
+        }
+    }
+
+    long sizeInBytes() {
+        long sizeInBytes = 0;
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                sizeInBytes += stripe.sizeInBytes;
+            }
+        }
+        return sizeInBytes;
+    }
+
+    private Stripe stripe(Key key) {
+        int hash = key.hashCode();
+        return stripes[(hash ^ (hash >>> 16)) & (stripes.length - 1)];
+    }
+
+    final class Stripe {
+
+        // access ordered, the first entry is the least recently used one
+        private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<Key, Entry>(16, 0.75f, true);
+        private final Map<Object, Set<Key>> keysByReader = new HashMap<Object, Set<Key>>();
+        private long sizeInBytes;
+
+        synchronized DocIdSet get(Key key) {
+            Entry entry = entries.get(key);
+            return entry == null ? null : entry.docIdSet;
+        }
+
+        synchronized boolean put(Key key, Entry entry) {
+            if (entries.containsKey(key)) {
+                return true;
+            }
+            int frequency = sketch.frequency(key.hashCode());
+            if (frequency < minFrequency || entry.sizeInBytes > stripeSizeInBytes) {
+                return false;
+            }
+            // the candidate has to be more popular than every entry it would evict
+            List<Key> victims = null;
+            long freed = 0;
+            Iterator<Map.Entry<Key, Entry>> it = entries.entrySet().iterator();
+            while (sizeInBytes - freed + entry.sizeInBytes > stripeSizeInBytes && it.hasNext()) {
+                Map.Entry<Key, Entry> victim = it.next();
+                if (sketch.frequency(victim.getKey().hashCode()) >= frequency) {
+                    return false;
+                }
+                if (victims == null) {
+                    victims = new ArrayList<Key>();
+                }
+                victims.add(victim.getKey());
+                freed += victim.getValue().sizeInBytes;
+            }
+            if (victims != null) {
+                for (Key victim : victims) {
+                    remove(victim, true);
+                }
+            }
+            entries.put(key, entry);
+            Set<Key> keys = keysByReader.get(key.readerKey);
+            if (keys == null) {
+                keys = new HashSet<Key>();
+                keysByReader.put(key.readerKey, keys);
+            }
+            keys.add(key);
+            sizeInBytes += entry.sizeInBytes;
+            if (entry.listener != null) {
+                entry.listener.onCached(entry.sizeInBytes);
+            }
+            return true;
+        }
+
+        synchronized void remove(Key key) {
+            remove(key, false);
+        }
+
+        synchronized void clear(Object readerKey) {
+            Set<Key> keys = keysByReader.get(readerKey);
+            if (keys == null) {
+                return;
+            }
+            for (Key key : keys.toArray(new Key[keys.size()])) {
+                remove(key, false);
+            }
+        }
+
+        synchronized void clear() {
+            for (Key key : entries.keySet().toArray(new Key[entries.size()])) {
+                remove(key, false);
+            }
+        }
+
+        private void remove(Key key, boolean evicted) {
+            Entry entry = entries.remove(key);
+            if (entry == null) {
+                return;
+            }
+            Set<Key> keys = keysByReader.get(key.readerKey);
+            if (keys != null && keys.remove(key) && keys.isEmpty()) {
+                keysByReader.remove(key.readerKey);
+            }
+            sizeInBytes -= entry.sizeInBytes;
+            if (entry.listener != null) {
+                entry.listener.onRemoved(entry.sizeInBytes, evicted);
+            }
+        }
+    }
+
+    static final class Entry {
+
+        final DocIdSet docIdSet;
+        final long sizeInBytes;
+        @Nullable
+        final ShardFilterCache listener;
+
+        Entry(DocIdSet docIdSet, @Nullable ShardFilterCache listener) {
+            this.docIdSet = docIdSet;
+            this.sizeInBytes = DocIdSets.sizeInBytes(docIdSet);
+            this.listener = listener;
+        }
+    }
+
+    static final class Key {
+
+        final Object readerKey;
+        final Object filterKey;
+
+        Key(Object readerKey, Object filterKey) {
+            this.readerKey = readerKey;
+            this.filterKey = filterKey;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            Key that = (Key) o;
+            return readerKey.equals(that.readerKey) && filterKey.equals(that.filterKey);
+        }
+
+        @Override
+        public int hashCode() {
+            return readerKey.hashCode() + 31 * filterKey.hashCode();
+        }
+    }
+}
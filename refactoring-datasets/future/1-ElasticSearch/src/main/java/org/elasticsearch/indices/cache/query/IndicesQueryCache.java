@@ -0,0 +1,345 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.indices.cache.query;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalListener;
+import com.google.common.cache.RemovalNotification;
+import com.google.common.cache.Weigher;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.util.RamUsageEstimator;
+import org.elasticsearch.action.search.SearchType;
+import org.elasticsearch.common.Nullable;
+import org.elasticsearch.common.breaker.CircuitBreakingException;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.component.AbstractComponent;
+import org.elasticsearch.common.inject.Inject;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.elasticsearch.common.lease.Releasables;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.common.unit.MemorySizeValue;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
+import org.elasticsearch.common.util.concurrent.EsRejectedExecutionException;
+import org.elasticsearch.index.shard.ShardId;
+import org.elasticsearch.index.shard.service.IndexShard;
+import org.elasticsearch.indices.IndicesLifecycle;
+import org.elasticsearch.indices.fielddata.breaker.CircuitBreakerService;
+import org.elasticsearch.search.internal.SearchContext;
+import org.elasticsearch.search.internal.ShardSearchRequest;
+import org.elasticsearch.search.query.QueryPhase;
+import org.elasticsearch.search.query.QuerySearchResult;
+import org.elasticsearch.threadpool.ThreadPool;
+
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A node level cache of the shard level query phase results of searches that do not return any hits, such as
+ * the aggregation and facet only searches that dashboards issue over and over again.
+ * <p/>
+ * Results are keyed by the shard, the version of its reader and the request, and are stored in their serialized
+ * form. Entries of a reader are cleaned periodically once the reader is closed after a refresh, and entries of a
+ * shard as soon as the shard is closed. The memory of the cache is accounted for in the field data circuit breaker; results that
+ * would trip the breaker are not cached.
+ * <p/>
+ * The cache is disabled by default and can be enabled per index using {@link #INDEX_CACHE_QUERY_ENABLED}. Since
+ * the time the request was issued at is not part of the key, searches relying on <tt>now</tt> are not cached.
+ */
+public class IndicesQueryCache extends AbstractComponent implements RemovalListener<IndicesQueryCache.Key, BytesReference> {
+
+    public static final String INDEX_CACHE_QUERY_ENABLED = "index.cache.query.enable";
+
+    private final ThreadPool threadPool;
+    private final CircuitBreakerService breakerService;
+
+    private final Cache<Key, BytesReference> cache;
+
+    private final String size;
+    private final TimeValue expire;
+    private final TimeValue cleanInterval;
+
+    private final Set<CleanupKey> keysToClean = ConcurrentCollections.newConcurrentSet();
+
+    private volatile boolean closed;
+
+    @Inject
+    public IndicesQueryCache(Settings settings, ThreadPool threadPool, CircuitBreakerService breakerService, IndicesLifecycle indicesLifecycle) {
+        super(settings);
+        this.threadPool = threadPool;
+        this.breakerService = breakerService;
+        this.size = componentSettings.get("size", "1%");
+        this.expire = componentSettings.getAsTime("expire", null);
+        this.cleanInterval = componentSettings.getAsTime("clean_interval", TimeValue.timeValueSeconds(60));
+
+        long sizeInBytes = MemorySizeValue.parseBytesSizeValueOrHeapRatio(size).bytes();
+        CacheBuilder<Key, BytesReference> cacheBuilder = CacheBuilder.newBuilder()
+                .maximumWeight(sizeInBytes).weigher(new QueryCacheWeigher()).removalListener(this);
+        cacheBuilder.concurrencyLevel(16);
+        if (expire != null) {
+            cacheBuilder.expireAfterAccess(expire.millis(), TimeUnit.MILLISECONDS);
+        }
+        this.cache = cacheBuilder.build();
+        logger.debug("using [node] query cache with size [{}], actual_size [{}], expire [{}], clean_interval [{}]",
+                size, new ByteSizeValue(sizeInBytes), expire, cleanInterval);
+
+        indicesLifecycle.addListener(new IndicesLifecycle.Listener() {
+            @Override
+            public void beforeIndexShardClosed(ShardId shardId, @Nullable IndexShard indexShard) {
+                if (indexShard != null) {
+                    // clean right away to release the memory of the shard, closing a shard is rare enough
+                    keysToClean.add(new CleanupKey(indexShard, -1));
+                    clean();
+                }
+            }
+        });
+        threadPool.schedule(cleanInterval, ThreadPool.Names.SAME, new Reaper());
+    }
+
+    public void close() {
+        closed = true;
+        cache.invalidateAll();
+    }
+
+    /**
+     * Can the query phase result of the request be taken from, and stored in, the cache?
+     */
+    public boolean canCache(ShardSearchRequest request, SearchContext context) {
+        if (!context.indexShard().indexService().settingsService().getSettings().getAsBoolean(INDEX_CACHE_QUERY_ENABLED, Boolean.FALSE)) {
+            return false;
+        }
+        // scrolls need the context to stay around, and only results without hits are worth caching
+        if (request.scroll() != null) {
+            return false;
+        }
+        if (request.searchType() != SearchType.COUNT && (request.searchType() != SearchType.QUERY_THEN_FETCH || context.size() != 0)) {
+            return false;
+        }
+        // facets keep their collectors around from the time the request was parsed
+        if (context.facets() != null) {
+            return false;
+        }
+        // the time the request was issued at is not part of the key, results relative to now (e.g. a range
+        // over now-15m) would be handed out stale. The request has been parsed at this point.
+        if (context.nowInMillisUsed()) {
+            return false;
+        }
+        return context.searcher().getIndexReader() instanceof DirectoryReader;
+    }
+
+    /**
+     * Loads the query phase result of the request into the context, either from the cache or by executing the
+     * query phase and caching its result.
+     */
+    public void loadIntoContext(ShardSearchRequest request, SearchContext context, QueryPhase queryPhase) throws Exception {
+        final IndexShard indexShard = context.indexShard();
+        final DirectoryReader reader = (DirectoryReader) context.searcher().getIndexReader();
+        final Key key = new Key(indexShard, reader.getVersion(), request.cacheKey());
+
+        BytesReference value = cache.getIfPresent(key);
+        if (value != null) {
+            indexShard.queryCache().onHit();
+            if (context.aggregations() != null) {
+                // the aggregators are created when the request is parsed, they won't collect anything
+                Releasables.release(context.aggregations().aggregators());
+            }
+            context.queryResult().readFromWithId(context.id(), value.streamInput());
+            return;
+        }
+
+        indexShard.queryCache().onMiss();
+        queryPhase.execute(context);
+        final QuerySearchResult result = context.queryResult();
+        if (result.searchTimedOut()) {
+            // partial results should not be handed out again
+            return;
+        }
+        BytesStreamOutput out = new BytesStreamOutput();
+        result.writeToNoId(out);
+        value = out.bytes().copyBytesArray();
+
+        try {
+            breakerService.getBreaker().addEstimateBytesAndMaybeBreak(key.ramBytesUsed() + value.length());
+        } catch (CircuitBreakingException e) {
+            logger.debug("{} not caching query result of [{}] bytes", e, indexShard.shardId(), value.length());
+            return;
+        }
+        indexShard.queryCache().onCached(key, value);
+        // entries replaced by a concurrent miss on the same key are released by the removal listener
+        cache.put(key, value);
+        // the listeners are kept in a set, registering the same reader more than once is a no-op
+        reader.addReaderClosedListener(new CleanupKey(indexShard, reader.getVersion()));
+    }
+
+    @Override
+    public void onRemoval(RemovalNotification<Key, BytesReference> notification) {
+        Key key = notification.getKey();
+        if (key == null) {
+            return;
+        }
+        long weight = key.ramBytesUsed();
+        if (notification.getValue() != null) {
+            weight += notification.getValue().length();
+        }
+        breakerService.getBreaker().addWithoutBreaking(-weight);
+        key.shard.queryCache().onRemoval(notification);
+    }
+
+    private void clean() {
+        if (keysToClean.isEmpty()) {
+            return;
+        }
+        Set<CleanupKey> currentKeysToClean = new HashSet<CleanupKey>();
+        for (Iterator<CleanupKey> it = keysToClean.iterator(); it.hasNext(); ) {
+            currentKeysToClean.add(it.next());
+            it.remove();
+        }
+        cache.cleanUp();
+        for (Iterator<Key> it = cache.asMap().keySet().iterator(); it.hasNext(); ) {
+            Key key = it.next();
+            if (currentKeysToClean.contains(new CleanupKey(key.shard, -1)) || currentKeysToClean.contains(new CleanupKey(key.shard, key.readerVersion))) {
+                // same as invalidate
+                it.remove();
+            }
+        }
+    }
+
+    public static class Key {
+
+        public final IndexShard shard; // use as identity equality
+        public final long readerVersion; // use the reader version to not keep a reference to a "short" lived reader until its reaped
+        public final BytesReference value;
+
+        Key(IndexShard shard, long readerVersion, BytesReference value) {
+            this.shard = shard;
+            this.readerVersion = readerVersion;
+            this.value = value;
+        }
+
+        public long ramBytesUsed() {
+            return RamUsageEstimator.NUM_BYTES_OBJECT_REF + RamUsageEstimator.NUM_BYTES_LONG + value.length();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            Key key = (Key) o;
+            if (readerVersion != key.readerVersion) return false;
+            if (shard != key.shard) return false;
+            if (!value.equals(key.value)) return false;
+            return true;
+        }
+
+        @Override
+        public int hashCode() {
+            int result = System.identityHashCode(shard);
+            result = 31 * result + (int) (readerVersion ^ (readerVersion >>> 32));
+            result = 31 * result + value.hashCode();
+            return result;
+        }
+    }
+
+    private class CleanupKey implements IndexReader.ReaderClosedListener {
+
+        final IndexShard shard;
+        final long readerVersion; // use the reader version to not keep a reference to a "short" lived reader until its reaped
+
+        private CleanupKey(IndexShard shard, long readerVersion) {
+            this.shard = shard;
+            this.readerVersion = readerVersion;
+        }
+
+        @Override
+        public void onClose(IndexReader reader) {
+            keysToClean.add(this);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            CleanupKey that = (CleanupKey) o;
+            if (readerVersion != that.readerVersion) return false;
+            if (shard != that.shard) return false;
+            return true;
+        }
+
+        @Override
+        public int hashCode() {
+            int result = System.identityHashCode(shard);
+            result = 31 * result + (int) (readerVersion ^ (readerVersion >>> 32));
+            return result;
+        }
+    }
+
+    static class QueryCacheWeigher implements Weigher<Key, BytesReference> {
+
+        @Override
+        public int weigh(Key key, BytesReference value) {
+            return (int) (key.ramBytesUsed() + value.length());
+        }
+    }
+
+    /**
+     * Entries are removed in bulk on a regular interval rather than every time a reader closes, since that
+     * requires iterating over the whole cache, see also the filter cache.
+     */
+    class Reaper implements Runnable {
+
+        @Override
+        public void run() {
+            if (closed) {
+                return;
+            }
+            if (keysToClean.isEmpty()) {
+                schedule();
+                return;
+            }
+            try {
+                threadPool.executor(ThreadPool.Names.GENERIC).execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            clean();
+                        } finally {
+                            schedule();
+                        }
+                    }
+                });
+            } catch (EsRejectedExecutionException ex) {
+                logger.debug("Can not run Reaper - execution rejected", ex);
+            }
+        }
+
+        private void schedule() {
+            try {
+                threadPool.schedule(cleanInterval, ThreadPool.Names.SAME, this);
+            } catch (EsRejectedExecutionException ex) {
+                logger.debug("Can not schedule Reaper - execution rejected", ex);
+            }
+        }
+    }
+}
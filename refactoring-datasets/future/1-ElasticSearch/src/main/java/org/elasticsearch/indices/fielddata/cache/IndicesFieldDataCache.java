@@ -21,8 +21,10 @@ package org.elasticsearch.indices.fielddata.cache;
 
 import com.google.common.cache.*;
 import org.apache.lucene.index.AtomicReaderContext;
+import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.index.SegmentReader;
 import org.elasticsearch.common.Nullable;
+import org.elasticsearch.common.breaker.MemoryCircuitBreaker;
 import org.elasticsearch.common.component.AbstractComponent;
 import org.elasticsearch.common.inject.Inject;
 import org.elasticsearch.common.lucene.SegmentReaderUtils;
@@ -34,6 +36,8 @@ import org.elasticsearch.index.fielddata.AtomicFieldData;
 import org.elasticsearch.index.fielddata.FieldDataType;
 import org.elasticsearch.index.fielddata.IndexFieldData;
 import org.elasticsearch.index.fielddata.IndexFieldDataCache;
+import org.elasticsearch.index.fielddata.RamUsage;
+import org.elasticsearch.index.fielddata.ordinals.GlobalOrdinalsIndexFieldData;
 import org.elasticsearch.index.mapper.FieldMapper;
 import org.elasticsearch.index.service.IndexService;
 import org.elasticsearch.index.shard.ShardId;
@@ -45,9 +49,9 @@ import java.util.concurrent.TimeUnit;
 
 /**
  */
-public class IndicesFieldDataCache extends AbstractComponent implements RemovalListener<IndicesFieldDataCache.Key, AtomicFieldData> {
+public class IndicesFieldDataCache extends AbstractComponent implements RemovalListener<IndicesFieldDataCache.Key, RamUsage> {
 
-    Cache<Key, AtomicFieldData> cache;
+    Cache<Key, RamUsage> cache;
 
     private volatile String size;
     private volatile long sizeInBytes;
@@ -64,7 +68,7 @@ public class IndicesFieldDataCache extends AbstractComponent implements RemovalL
     }
 
     private void buildCache() {
-        CacheBuilder<Key, AtomicFieldData> cacheBuilder = CacheBuilder.newBuilder()
+        CacheBuilder<Key, RamUsage> cacheBuilder = CacheBuilder.newBuilder()
                 .removalListener(this);
         if (sizeInBytes > 0) {
             cacheBuilder.maximumWeight(sizeInBytes).weigher(new FieldDataWeigher());
@@ -87,24 +91,29 @@ public class IndicesFieldDataCache extends AbstractComponent implements RemovalL
     }
 
     @Override
-    public void onRemoval(RemovalNotification<Key, AtomicFieldData> notification) {
+    public void onRemoval(RemovalNotification<Key, RamUsage> notification) {
         Key key = notification.getKey();
-        if (key == null || key.listener == null) {
+        if (key == null) {
             return; // nothing to do here really...
         }
         IndexFieldCache indexCache = key.indexCache;
         long sizeInBytes = key.sizeInBytes;
-        AtomicFieldData value = notification.getValue();
+        RamUsage value = notification.getValue();
         if (sizeInBytes == -1 && value != null) {
             sizeInBytes = value.getMemorySizeInBytes();
         }
-        key.listener.onUnload(indexCache.fieldNames, indexCache.fieldDataType, notification.wasEvicted(), sizeInBytes, value);
+        if (key.listener != null) {
+            key.listener.onUnload(indexCache.fieldNames, indexCache.fieldDataType, notification.wasEvicted(), sizeInBytes, value);
+        } else if (key.breaker != null && sizeInBytes != -1) {
+            // the listener would give the memory back to the breaker otherwise
+            key.breaker.addWithoutBreaking(-sizeInBytes);
+        }
     }
 
-    public static class FieldDataWeigher implements Weigher<Key, AtomicFieldData> {
+    public static class FieldDataWeigher implements Weigher<Key, RamUsage> {
 
         @Override
-        public int weigh(Key key, AtomicFieldData fieldData) {
+        public int weigh(Key key, RamUsage fieldData) {
             int weight = (int) Math.min(fieldData.getMemorySizeInBytes(), Integer.MAX_VALUE);
             return weight == 0 ? 1 : weight;
         }
@@ -113,7 +122,7 @@ public class IndicesFieldDataCache extends AbstractComponent implements RemovalL
     /**
      * A specific cache instance for the relevant parameters of it (index, fieldNames, fieldType).
      */
-    class IndexFieldCache implements IndexFieldDataCache, SegmentReader.CoreClosedListener {
+    class IndexFieldCache implements IndexFieldDataCache, SegmentReader.CoreClosedListener, IndexReader.ReaderClosedListener {
 
         @Nullable
         private final IndexService indexService;
@@ -132,9 +141,9 @@ public class IndicesFieldDataCache extends AbstractComponent implements RemovalL
         public <FD extends AtomicFieldData, IFD extends IndexFieldData<FD>> FD load(final AtomicReaderContext context, final IFD indexFieldData) throws Exception {
             final Key key = new Key(this, context.reader().getCoreCacheKey());
             //noinspection unchecked
-            return (FD) cache.get(key, new Callable<AtomicFieldData>() {
+            return (FD) cache.get(key, new Callable<RamUsage>() {
                 @Override
-                public AtomicFieldData call() throws Exception {
+                public RamUsage call() throws Exception {
                     SegmentReaderUtils.registerCoreListener(context.reader(), IndexFieldCache.this);
                     AtomicFieldData fieldData = indexFieldData.loadDirect(context);
 
@@ -157,11 +166,47 @@ public class IndicesFieldDataCache extends AbstractComponent implements RemovalL
             });
         }
 
+        @Override
+        public IndexFieldData.WithOrdinals<?> load(final IndexReader indexReader, final IndexFieldData.WithOrdinals<?> indexFieldData) throws Exception {
+            final Key key = new Key(this, indexReader.getCoreCacheKey());
+            //noinspection unchecked
+            return (IndexFieldData.WithOrdinals<?>) cache.get(key, new Callable<RamUsage>() {
+                @Override
+                public RamUsage call() throws Exception {
+                    indexReader.addReaderClosedListener(IndexFieldCache.this);
+                    GlobalOrdinalsIndexFieldData globalFieldData = (GlobalOrdinalsIndexFieldData) indexFieldData.loadGlobalDirect(indexReader);
+                    key.sizeInBytes = globalFieldData.getMemorySizeInBytes();
+                    key.breaker = globalFieldData.breaker();
+
+                    if (indexService != null) {
+                        ShardId shardId = ShardUtils.extractShardId(indexReader);
+                        if (shardId != null) {
+                            IndexShard shard = indexService.shard(shardId.id());
+                            if (shard != null) {
+                                key.listener = shard.fieldData();
+                            }
+                        }
+                    }
+
+                    if (key.listener != null) {
+                        key.listener.onLoad(fieldNames, fieldDataType, globalFieldData);
+                    }
+
+                    return globalFieldData;
+                }
+            });
+        }
+
         @Override
         public void onClose(Object coreKey) {
             cache.invalidate(new Key(this, coreKey));
         }
 
+        @Override
+        public void onClose(IndexReader reader) {
+            cache.invalidate(new Key(this, reader.getCoreCacheKey()));
+        }
+
         @Override
         public void clear() {
             for (Key key : cache.asMap().keySet()) {
@@ -195,7 +240,8 @@ public class IndicesFieldDataCache extends AbstractComponent implements RemovalL
         @Nullable
         public IndexFieldDataCache.Listener listener; // optional stats listener
         long sizeInBytes = -1; // optional size in bytes (we keep it here in case the values are soft references)
-
+        @Nullable
+        MemoryCircuitBreaker breaker; // the breaker global ordinals are accounted on
 
         Key(IndexFieldCache indexCache, Object readerKey) {
             this.indexCache = indexCache;
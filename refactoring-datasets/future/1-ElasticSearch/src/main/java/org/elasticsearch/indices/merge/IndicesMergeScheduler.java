@@ -0,0 +1,248 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.indices.merge;
+
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.MergePolicy;
+import org.apache.lucene.util.CollectionUtil;
+import org.elasticsearch.ElasticsearchIllegalArgumentException;
+import org.elasticsearch.common.component.AbstractComponent;
+import org.elasticsearch.common.inject.Inject;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
+import org.elasticsearch.common.util.concurrent.EsExecutors;
+import org.elasticsearch.common.util.concurrent.EsRejectedExecutionException;
+import org.elasticsearch.common.util.concurrent.EsThreadPoolExecutor;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A node level merge scheduler, running the merges of all shards that use the <tt>shared</tt>
+ * merge scheduler on a single pool of merge threads.
+ * <p/>
+ * Index writers with pending merges are queued in the order they asked for merges, so the shard
+ * that has been waiting the longest gets the next free merge thread. A merge is only pulled from
+ * its writer once a thread is available to execute it, so closing a shard never waits on merges
+ * queued behind other shards. Of the merges running at once, only the smallest
+ * <tt>max_thread_count</tt> ones make progress, bigger merges are paused until smaller ones are
+ * done, so that when merging falls behind indexing the small merges that keep the segment count
+ * down are not held up by a few big ones.
+ * <p/>
+ * The time a merge spends waiting for a thread or paused is reported back as throttled time.
+ */
+public class IndicesMergeScheduler extends AbstractComponent {
+
+    /**
+     * The shard level side of the scheduler, executing and accounting for the merges of a single
+     * index writer. Called on the shared merge threads.
+     */
+    public static interface MergeSource {
+
+        /**
+         * Executes the merge, any failure is expected to be handled by the source.
+         */
+        void doMerge(IndexWriter writer, MergePolicy.OneMerge merge);
+
+        /**
+         * Called once a merge is done with the time it spent waiting for a thread or paused.
+         */
+        void onThrottled(long throttledTimeInMillis);
+    }
+
+    private final int maxThreadCount;
+
+    private final int maxMergeCount;
+
+    private final EsThreadPoolExecutor executor;
+
+    private final Set<IndexWriter> queuedWriters = ConcurrentCollections.newConcurrentSet();
+
+    // guarded by itself, kept in the order merges started
+    private final List<RunningMerge> runningMerges = new ArrayList<RunningMerge>();
+
+    @Inject
+    public IndicesMergeScheduler(Settings settings) {
+        super(settings);
+        this.maxThreadCount = componentSettings.getAsInt("max_thread_count", Math.max(1, Math.min(4, EsExecutors.boundedNumberOfProcessors(settings) / 2)));
+        this.maxMergeCount = componentSettings.getAsInt("max_merge_count", maxThreadCount * 2);
+        if (maxThreadCount < 1) {
+            throw new ElasticsearchIllegalArgumentException("[indices.merge.max_thread_count] must be at least 1, got [" + maxThreadCount + "]");
+        }
+        if (maxMergeCount < maxThreadCount) {
+            throw new ElasticsearchIllegalArgumentException("[indices.merge.max_merge_count] [" + maxMergeCount + "] must be at least [indices.merge.max_thread_count] [" + maxThreadCount + "]");
+        }
+        this.executor = EsExecutors.newFixed(maxMergeCount, -1, EsExecutors.daemonThreadFactory(settings, "[merge]"));
+        logger.debug("using max_thread_count [{}], max_merge_count [{}]", maxThreadCount, maxMergeCount);
+    }
+
+    public int maxThreadCount() {
+        return maxThreadCount;
+    }
+
+    public int maxMergeCount() {
+        return maxMergeCount;
+    }
+
+    /**
+     * The number of index writers waiting for a merge thread.
+     */
+    public int queuedWriters() {
+        return queuedWriters.size();
+    }
+
+    /**
+     * The number of merges currently executing, including paused ones.
+     */
+    public int runningMerges() {
+        synchronized (runningMerges) {
+            return runningMerges.size();
+        }
+    }
+
+    /**
+     * The number of merges currently paused in favour of smaller ones.
+     */
+    public int pausedMerges() {
+        synchronized (runningMerges) {
+            int count = 0;
+            for (RunningMerge runningMerge : runningMerges) {
+                if (runningMerge.pausedSince != -1) {
+                    count++;
+                }
+            }
+            return count;
+        }
+    }
+
+    /**
+     * Queues the writer for merging if it has pending merges and is not queued already.
+     */
+    public void merge(IndexWriter writer, MergeSource source) {
+        if (!writer.hasPendingMerges() || !queuedWriters.add(writer)) {
+            return;
+        }
+        try {
+            executor.execute(new MergeTask(writer, source));
+        } catch (EsRejectedExecutionException e) {
+            // we are shutting down
+            queuedWriters.remove(writer);
+            logger.debug("failed to schedule merges for [{}], scheduler is closed", writer.getDirectory());
+        }
+    }
+
+    public void close() {
+        executor.shutdownNow();
+        try {
+            executor.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void updateMergeThreads() {
+        synchronized (runningMerges) {
+            // the sort is stable, so among merges of the same size the older ones go first
+            List<RunningMerge> bySize = new ArrayList<RunningMerge>(runningMerges);
+            CollectionUtil.timSort(bySize, SIZE_COMPARATOR);
+            for (int i = 0; i < bySize.size(); i++) {
+                bySize.get(i).pause(i >= maxThreadCount);
+            }
+        }
+    }
+
+    private static final Comparator<RunningMerge> SIZE_COMPARATOR = new Comparator<RunningMerge>() {
+        @Override
+        public int compare(RunningMerge o1, RunningMerge o2) {
+            long size1 = o1.merge.estimatedMergeBytes;
+            long size2 = o2.merge.estimatedMergeBytes;
+            return size1 < size2 ? -1 : (size1 == size2 ? 0 : 1);
+        }
+    };
+
+    private class MergeTask implements Runnable {
+
+        private final IndexWriter writer;
+        private final MergeSource source;
+        private final long queuedTime = System.nanoTime();
+
+        MergeTask(IndexWriter writer, MergeSource source) {
+            this.writer = writer;
+            this.source = source;
+        }
+
+        @Override
+        public void run() {
+            queuedWriters.remove(writer);
+            MergePolicy.OneMerge merge = writer.getNextMerge();
+            if (merge == null) {
+                return;
+            }
+            // queue the writer again right away so its other pending merges can use other free threads
+            merge(writer, source);
+
+            RunningMerge runningMerge = new RunningMerge(merge, System.nanoTime() - queuedTime);
+            synchronized (runningMerges) {
+                runningMerges.add(runningMerge);
+                updateMergeThreads();
+            }
+            try {
+                source.doMerge(writer, merge);
+            } finally {
+                synchronized (runningMerges) {
+                    runningMerge.pause(false);
+                    runningMerges.remove(runningMerge);
+                    updateMergeThreads();
+                }
+                source.onThrottled(TimeUnit.NANOSECONDS.toMillis(runningMerge.throttledTime));
+            }
+            // the merge might have registered cascading merges
+            merge(writer, source);
+        }
+    }
+
+    private static class RunningMerge {
+
+        final MergePolicy.OneMerge merge;
+
+        // both guarded by the running merges lock
+        long throttledTime;
+        long pausedSince = -1;
+
+        RunningMerge(MergePolicy.OneMerge merge, long queuedTime) {
+            this.merge = merge;
+            this.throttledTime = queuedTime;
+        }
+
+        void pause(boolean pause) {
+            if (pause && pausedSince == -1) {
+                pausedSince = System.nanoTime();
+                merge.setPause(true);
+            } else if (!pause && pausedSince != -1) {
+                throttledTime += System.nanoTime() - pausedSince;
+                pausedSince = -1;
+                merge.setPause(false);
+            }
+        }
+    }
+}
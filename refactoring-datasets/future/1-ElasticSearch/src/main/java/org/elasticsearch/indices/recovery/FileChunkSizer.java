@@ -0,0 +1,86 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.indices.recovery;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Adapts the size of the file chunks sent during recovery to the observed round trip time of the chunk requests.
+ * <p/>
+ * When chunks are acknowledged quickly, the transfer is bound by the per request latency rather than by the
+ * bandwidth, and the chunk size is doubled (up to {@code maxChunkSize}). When chunks take long to be acknowledged,
+ * the target is falling behind, and the chunk size is halved (down to {@code minChunkSize}). Not thread safe, an
+ * instance is used by the single thread sending a file.
+ */
+class FileChunkSizer {
+
+    static final long GROW_BELOW_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+
+    static final long SHRINK_ABOVE_NANOS = TimeUnit.MILLISECONDS.toNanos(500);
+
+    private final int minChunkSize;
+
+    private final int maxChunkSize;
+
+    private int chunkSize;
+
+    private long totalBytes;
+
+    private long totalNanos;
+
+    FileChunkSizer(int minChunkSize, int maxChunkSize) {
+        this.minChunkSize = minChunkSize;
+        this.maxChunkSize = Math.max(minChunkSize, maxChunkSize);
+        this.chunkSize = minChunkSize;
+    }
+
+    /**
+     * The size of the next chunk to send
+     */
+    int chunkSize() {
+        return chunkSize;
+    }
+
+    /**
+     * Records an acknowledged chunk
+     *
+     * @param bytes          size of the chunk
+     * @param roundTripNanos time between sending the chunk and receiving the acknowledgement
+     */
+    void onChunkAcknowledged(int bytes, long roundTripNanos) {
+        totalBytes += bytes;
+        totalNanos += roundTripNanos;
+        if (roundTripNanos < GROW_BELOW_NANOS && bytes >= chunkSize) {
+            chunkSize = (int) Math.min(maxChunkSize, (long) chunkSize << 1);
+        } else if (roundTripNanos > SHRINK_ABOVE_NANOS) {
+            chunkSize = Math.max(minChunkSize, chunkSize >>> 1);
+        }
+    }
+
+    /**
+     * Average throughput of a single chunk request, in bytes per second
+     */
+    long throughput() {
+        if (totalNanos == 0) {
+            return 0;
+        }
+        return (long) (totalBytes * (double) TimeUnit.SECONDS.toNanos(1) / totalNanos);
+    }
+}
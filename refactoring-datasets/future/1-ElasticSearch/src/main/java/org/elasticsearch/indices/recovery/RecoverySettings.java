@@ -38,6 +38,8 @@ import java.util.concurrent.TimeUnit;
 public class RecoverySettings extends AbstractComponent {
 
     public static final String INDICES_RECOVERY_FILE_CHUNK_SIZE = "indices.recovery.file_chunk_size";
+    public static final String INDICES_RECOVERY_MAX_FILE_CHUNK_SIZE = "indices.recovery.max_file_chunk_size";
+    public static final String INDICES_RECOVERY_CONCURRENT_FILE_CHUNKS = "indices.recovery.concurrent_file_chunks";
     public static final String INDICES_RECOVERY_TRANSLOG_OPS = "indices.recovery.translog_ops";
     public static final String INDICES_RECOVERY_TRANSLOG_SIZE = "indices.recovery.translog_size";
     public static final String INDICES_RECOVERY_COMPRESS = "indices.recovery.compress";
@@ -54,6 +56,8 @@ public class RecoverySettings extends AbstractComponent {
     public static final String INDICES_RECOVERY_MAX_SIZE_PER_SEC = "indices.recovery.max_size_per_sec";
 
     private volatile ByteSizeValue fileChunkSize;
+    private volatile ByteSizeValue maxFileChunkSize;
+    private volatile int concurrentFileChunks;
 
     private volatile boolean compress;
     private volatile int translogOps;
@@ -72,6 +76,8 @@ public class RecoverySettings extends AbstractComponent {
         super(settings);
 
         this.fileChunkSize = componentSettings.getAsBytesSize("file_chunk_size", settings.getAsBytesSize("index.shard.recovery.file_chunk_size", new ByteSizeValue(512, ByteSizeUnit.KB)));
+        this.maxFileChunkSize = componentSettings.getAsBytesSize("max_file_chunk_size", new ByteSizeValue(4, ByteSizeUnit.MB));
+        this.concurrentFileChunks = componentSettings.getAsInt("concurrent_file_chunks", 2);
         this.translogOps = componentSettings.getAsInt("translog_ops", settings.getAsInt("index.shard.recovery.translog_ops", 1000));
         this.translogSize = componentSettings.getAsBytesSize("translog_size", settings.getAsBytesSize("index.shard.recovery.translog_size", new ByteSizeValue(512, ByteSizeUnit.KB)));
         this.compress = componentSettings.getAsBoolean("compress", true);
@@ -88,8 +94,8 @@ public class RecoverySettings extends AbstractComponent {
             rateLimiter = new SimpleRateLimiter(maxBytesPerSec.mbFrac());
         }
 
-        logger.debug("using max_bytes_per_sec[{}], concurrent_streams [{}], file_chunk_size [{}], translog_size [{}], translog_ops [{}], and compress [{}]",
-                maxBytesPerSec, concurrentStreams, fileChunkSize, translogSize, translogOps, compress);
+        logger.debug("using max_bytes_per_sec[{}], concurrent_streams [{}], file_chunk_size [{}], max_file_chunk_size [{}], concurrent_file_chunks [{}], translog_size [{}], translog_ops [{}], and compress [{}]",
+                maxBytesPerSec, concurrentStreams, fileChunkSize, maxFileChunkSize, concurrentFileChunks, translogSize, translogOps, compress);
 
         nodeSettingsService.addListener(new ApplySettings());
     }
@@ -108,6 +114,20 @@ public class RecoverySettings extends AbstractComponent {
         return fileChunkSize;
     }
 
+    /**
+     * The upper bound the file chunk size can grow to when chunks are acknowledged quickly, see {@link FileChunkSizer}
+     */
+    public ByteSizeValue maxFileChunkSize() {
+        return maxFileChunkSize;
+    }
+
+    /**
+     * The number of chunks of a single file that can be in flight at the same time
+     */
+    public int concurrentFileChunks() {
+        return concurrentFileChunks;
+    }
+
     public boolean compress() {
         return compress;
     }
@@ -158,6 +178,18 @@ public class RecoverySettings extends AbstractComponent {
                 RecoverySettings.this.fileChunkSize = fileChunkSize;
             }
 
+            ByteSizeValue maxFileChunkSize = settings.getAsBytesSize(INDICES_RECOVERY_MAX_FILE_CHUNK_SIZE, RecoverySettings.this.maxFileChunkSize);
+            if (!maxFileChunkSize.equals(RecoverySettings.this.maxFileChunkSize)) {
+                logger.info("updating [indices.recovery.max_file_chunk_size] from [{}] to [{}]", RecoverySettings.this.maxFileChunkSize, maxFileChunkSize);
+                RecoverySettings.this.maxFileChunkSize = maxFileChunkSize;
+            }
+
+            int concurrentFileChunks = settings.getAsInt(INDICES_RECOVERY_CONCURRENT_FILE_CHUNKS, RecoverySettings.this.concurrentFileChunks);
+            if (concurrentFileChunks != RecoverySettings.this.concurrentFileChunks) {
+                logger.info("updating [indices.recovery.concurrent_file_chunks] from [{}] to [{}]", RecoverySettings.this.concurrentFileChunks, concurrentFileChunks);
+                RecoverySettings.this.concurrentFileChunks = concurrentFileChunks;
+            }
+
             int translogOps = settings.getAsInt(INDICES_RECOVERY_TRANSLOG_OPS, RecoverySettings.this.translogOps);
             if (translogOps != RecoverySettings.this.translogOps) {
                 logger.info("updating [indices.recovery.translog_ops] from [{}] to [{}]", RecoverySettings.this.translogOps, translogOps);
@@ -25,6 +25,7 @@ import org.apache.lucene.store.IOContext;
 import org.apache.lucene.store.IndexInput;
 import org.apache.lucene.util.IOUtils;
 import org.elasticsearch.ElasticsearchException;
+import org.elasticsearch.Version;
 import org.elasticsearch.cluster.ClusterService;
 import org.elasticsearch.cluster.routing.RoutingNode;
 import org.elasticsearch.cluster.routing.ShardRouting;
@@ -48,6 +49,8 @@ import org.elasticsearch.indices.IndicesService;
 import org.elasticsearch.threadpool.ThreadPool;
 import org.elasticsearch.transport.*;
 
+import java.util.ArrayDeque;
+import java.util.Deque;
 import java.util.List;
 import java.util.Set;
 import java.util.concurrent.CountDownLatch;
@@ -157,6 +160,8 @@ public class RecoverySource extends AbstractComponent {
                             response.phase1ExistingFileNames, response.phase1ExistingFileSizes, response.phase1TotalSize, response.phase1ExistingTotalSize);
                     transportService.submitRequest(request.targetNode(), RecoveryTarget.Actions.FILES_INFO, recoveryInfoFilesRequest, TransportRequestOptions.options().withTimeout(internalActionTimeout), EmptyTransportResponseHandler.INSTANCE_SAME).txGet();
 
+                    // older targets expect the chunks of a file to arrive in order
+                    final boolean pipelineChunks = request.targetNode().version().onOrAfter(Version.V_2_0_0);
                     final CountDownLatch latch = new CountDownLatch(response.phase1FileNames.size());
                     final AtomicReference<Throwable> lastException = new AtomicReference<Throwable>();
                     int fileIndex = 0;
@@ -174,8 +179,18 @@ public class RecoverySource extends AbstractComponent {
                             public void run() {
                                 IndexInput indexInput = null;
                                 try {
-                                    final int BUFFER_SIZE = (int) recoverySettings.fileChunkSize().bytes();
-                                    byte[] buf = new byte[BUFFER_SIZE];
+                                    final int minChunkSize = (int) recoverySettings.fileChunkSize().bytes();
+                                    final int maxInFlight;
+                                    final FileChunkSizer chunkSizer;
+                                    if (pipelineChunks) {
+                                        maxInFlight = recoverySettings.concurrentFileChunks();
+                                        chunkSizer = new FileChunkSizer(minChunkSize, (int) recoverySettings.maxFileChunkSize().bytes());
+                                    } else {
+                                        maxInFlight = 1;
+                                        chunkSizer = new FileChunkSizer(minChunkSize, minChunkSize);
+                                    }
+                                    final Deque<FileChunk> inFlight = new ArrayDeque<FileChunk>();
+                                    final Deque<byte[]> freeBuffers = new ArrayDeque<byte[]>();
                                     StoreFileMetaData md = shard.store().metaData(name);
                                     // TODO: maybe use IOContext.READONCE?
                                     indexInput = shard.store().openInputRaw(name, IOContext.READ);
@@ -190,19 +205,39 @@ public class RecoverySource extends AbstractComponent {
                                         if (shard.state() == IndexShardState.CLOSED) { // check if the shard got closed on us
                                             throw new IndexShardClosedException(shard.shardId());
                                         }
-                                        int toRead = readCount + BUFFER_SIZE > len ? (int) (len - readCount) : BUFFER_SIZE;
+                                        while (inFlight.size() >= maxInFlight) {
+                                            freeBuffers.add(inFlight.poll().await(chunkSizer));
+                                        }
+                                        int chunkSize = chunkSizer.chunkSize();
+                                        int toRead = readCount + chunkSize > len ? (int) (len - readCount) : chunkSize;
                                         long position = indexInput.getFilePointer();
 
                                         if (recoverySettings.rateLimiter() != null) {
                                             recoverySettings.rateLimiter().pause(toRead);
                                         }
 
+                                        byte[] buf = freeBuffers.poll();
+                                        if (buf == null || buf.length < toRead) {
+                                            buf = new byte[chunkSize];
+                                        }
                                         indexInput.readBytes(buf, 0, toRead, false);
                                         BytesArray content = new BytesArray(buf, 0, toRead);
-                                        transportService.submitRequest(request.targetNode(), RecoveryTarget.Actions.FILE_CHUNK, new RecoveryFileChunkRequest(request.recoveryId(), request.shardId(), name, position, len, md.checksum(), content),
-                                                TransportRequestOptions.options().withCompress(shouldCompressRequest).withType(TransportRequestOptions.Type.RECOVERY).withTimeout(internalActionTimeout), EmptyTransportResponseHandler.INSTANCE_SAME).txGet();
+                                        FileChunk chunk = new FileChunk(buf, toRead);
+                                        chunk.future = transportService.submitRequest(request.targetNode(), RecoveryTarget.Actions.FILE_CHUNK, new RecoveryFileChunkRequest(request.recoveryId(), request.shardId(), name, position, len, md.checksum(), content),
+                                                TransportRequestOptions.options().withCompress(shouldCompressRequest).withType(TransportRequestOptions.Type.RECOVERY).withTimeout(internalActionTimeout), chunk);
+                                        inFlight.add(chunk);
+                                        if (position == 0) {
+                                            // the first chunk creates the file on the target, wait for it before sending more
+                                            freeBuffers.add(inFlight.poll().await(chunkSizer));
+                                        }
                                         readCount += toRead;
                                     }
+                                    while (!inFlight.isEmpty()) {
+                                        inFlight.poll().await(chunkSizer);
+                                    }
+                                    if (logger.isTraceEnabled()) {
+                                        logger.trace("[{}][{}] recovery [phase1] to {}: sent [{}] with chunk size [{}], throughput per chunk [{}/s]", request.shardId().index().name(), request.shardId().id(), request.targetNode(), name, new ByteSizeValue(chunkSizer.chunkSize()), new ByteSizeValue(chunkSizer.throughput()));
+                                    }
                                 } catch (Throwable e) {
                                     lastException.set(e);
                                 } finally {
@@ -282,15 +317,23 @@ public class RecoverySource extends AbstractComponent {
                 int ops = 0;
                 long size = 0;
                 int totalOperations = 0;
+                // when the snapshot exposes its raw operations, batches are sent as slices of the translog
+                // without deserializing them, the target deserializes them while replaying
+                final boolean raw = snapshot.supportsRawOperations();
+                long batchStart = snapshot.position();
                 List<Translog.Operation> operations = Lists.newArrayList();
                 while (snapshot.hasNext()) {
                     if (shard.state() == IndexShardState.CLOSED) {
                         throw new IndexShardClosedException(request.shardId());
                     }
-                    Translog.Operation operation = snapshot.next();
-                    operations.add(operation);
+                    if (raw) {
+                        size = snapshot.position() - batchStart;
+                    } else {
+                        Translog.Operation operation = snapshot.next();
+                        operations.add(operation);
+                        size += operation.estimateSize();
+                    }
                     ops += 1;
-                    size += operation.estimateSize();
                     totalOperations++;
                     if (ops >= recoverySettings.translogOps() || size >= recoverySettings.translogSize().bytes()) {
 
@@ -302,20 +345,29 @@ public class RecoverySource extends AbstractComponent {
 //                            recoverySettings.rateLimiter().pause(size);
 //                        }
 
-                        RecoveryTranslogOperationsRequest translogOperationsRequest = new RecoveryTranslogOperationsRequest(request.recoveryId(), request.shardId(), operations);
-                        transportService.submitRequest(request.targetNode(), RecoveryTarget.Actions.TRANSLOG_OPS, translogOperationsRequest, TransportRequestOptions.options().withCompress(recoverySettings.compress()).withType(TransportRequestOptions.Type.RECOVERY).withTimeout(internalActionLongTimeout), EmptyTransportResponseHandler.INSTANCE_SAME).txGet();
+                        sendOperations(snapshot, raw, batchStart, ops, operations);
+                        batchStart = snapshot.position();
                         ops = 0;
                         size = 0;
                         operations.clear();
                     }
                 }
                 // send the leftover
-                if (!operations.isEmpty()) {
-                    RecoveryTranslogOperationsRequest translogOperationsRequest = new RecoveryTranslogOperationsRequest(request.recoveryId(), request.shardId(), operations);
-                    transportService.submitRequest(request.targetNode(), RecoveryTarget.Actions.TRANSLOG_OPS, translogOperationsRequest, TransportRequestOptions.options().withCompress(recoverySettings.compress()).withType(TransportRequestOptions.Type.RECOVERY).withTimeout(internalActionLongTimeout), EmptyTransportResponseHandler.INSTANCE_SAME).txGet();
+                if (ops > 0) {
+                    sendOperations(snapshot, raw, batchStart, ops, operations);
                 }
                 return totalOperations;
             }
+
+            private void sendOperations(Translog.Snapshot snapshot, boolean raw, long batchStart, int ops, List<Translog.Operation> operations) {
+                RecoveryTranslogOperationsRequest translogOperationsRequest;
+                if (raw) {
+                    translogOperationsRequest = new RecoveryTranslogOperationsRequest(request.recoveryId(), request.shardId(), ops, snapshot.rawOperations(batchStart, snapshot.position()));
+                } else {
+                    translogOperationsRequest = new RecoveryTranslogOperationsRequest(request.recoveryId(), request.shardId(), operations);
+                }
+                transportService.submitRequest(request.targetNode(), RecoveryTarget.Actions.TRANSLOG_OPS, translogOperationsRequest, TransportRequestOptions.options().withCompress(recoverySettings.compress()).withType(TransportRequestOptions.Type.RECOVERY).withTimeout(internalActionLongTimeout), EmptyTransportResponseHandler.INSTANCE_SAME).txGet();
+            }
         });
         return response;
     }
@@ -338,5 +390,36 @@ public class RecoverySource extends AbstractComponent {
             channel.sendResponse(response);
         }
     }
-}
 
+    /**
+     * A file chunk sent to the recovery target, records when the target acknowledged it
+     */
+    static class FileChunk extends EmptyTransportResponseHandler {
+
+        final byte[] buffer;
+        final int length;
+        final long sentNanos = System.nanoTime();
+        volatile long acknowledgedNanos;
+        TransportFuture<TransportResponse.Empty> future;
+
+        FileChunk(byte[] buffer, int length) {
+            super(ThreadPool.Names.SAME);
+            this.buffer = buffer;
+            this.length = length;
+        }
+
+        @Override
+        public void handleResponse(TransportResponse.Empty response) {
+            acknowledgedNanos = System.nanoTime();
+        }
+
+        /**
+         * Waits for the target to acknowledge the chunk and returns the chunk's buffer for reuse
+         */
+        byte[] await(FileChunkSizer chunkSizer) {
+            future.txGet();
+            chunkSizer.onChunkAcknowledged(length, acknowledgedNanos - sentNanos);
+            return buffer;
+        }
+    }
+}
@@ -53,6 +53,7 @@ import java.util.Iterator;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.TreeMap;
 
 import static org.elasticsearch.common.unit.TimeValue.timeValueMillis;
 
@@ -449,6 +450,7 @@ public class RecoveryTarget extends AbstractComponent {
             }
 
             InternalIndexShard shard = (InternalIndexShard) indicesService.indexServiceSafe(request.shardId().index().name()).shardSafe(request.shardId().id());
+            // raw operations are deserialized one at a time while replaying them
             for (Translog.Operation operation : request.operations()) {
                 if (onGoingRecovery.isCanceled()) {
                     onGoingRecovery.sentCanceledToSource = true;
@@ -595,6 +597,7 @@ public class RecoveryTarget extends AbstractComponent {
             if (request.position() == 0) {
                 // first request
                 onGoingRecovery.checksums.remove(request.name());
+                onGoingRecovery.pendingFileChunks.remove(request.name());
                 indexOutput = onGoingRecovery.removeOpenIndexOutputs(request.name());
                 IOUtils.closeWhileHandlingException(indexOutput);
                 // we create an output with no checksum, this is because the pure binary data of the file is not
@@ -624,11 +627,26 @@ public class RecoveryTarget extends AbstractComponent {
                         recoverySettings.rateLimiter().pause(request.content().length());
                     }
                     BytesReference content = request.content();
-                    if (!content.hasArray()) {
-                        content = content.toBytesArray();
+                    if (request.position() != indexOutput.getFilePointer()) {
+                        // the source sends several chunks of a file concurrently, park this one until the
+                        // chunks before it are written
+                        TreeMap<Long, BytesReference> pending = onGoingRecovery.pendingFileChunks.get(request.name());
+                        if (pending == null) {
+                            pending = new TreeMap<Long, BytesReference>();
+                            onGoingRecovery.pendingFileChunks.put(request.name(), pending);
+                        }
+                        pending.put(request.position(), content.toBytesArray());
+                        content = null;
+                    }
+                    while (content != null) {
+                        if (!content.hasArray()) {
+                            content = content.toBytesArray();
+                        }
+                        indexOutput.writeBytes(content.array(), content.arrayOffset(), content.length());
+                        onGoingRecovery.currentFilesSize.addAndGet(content.length());
+                        TreeMap<Long, BytesReference> pending = onGoingRecovery.pendingFileChunks.get(request.name());
+                        content = pending == null ? null : pending.remove(indexOutput.getFilePointer());
                     }
-                    indexOutput.writeBytes(content.array(), content.arrayOffset(), content.length());
-                    onGoingRecovery.currentFilesSize.addAndGet(request.length());
                     if (indexOutput.getFilePointer() == request.length()) {
                         // we are done
                         indexOutput.close();
@@ -637,6 +655,7 @@ public class RecoveryTarget extends AbstractComponent {
                             onGoingRecovery.checksums.put(request.name(), request.checksum());
                         }
                         store.directory().sync(Collections.singleton(request.name()));
+                        onGoingRecovery.pendingFileChunks.remove(request.name());
                         IndexOutput remove = onGoingRecovery.removeOpenIndexOutputs(request.name());
                         assert remove == indexOutput;
 
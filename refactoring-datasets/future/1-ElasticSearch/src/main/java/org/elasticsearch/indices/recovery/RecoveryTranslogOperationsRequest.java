@@ -19,25 +19,34 @@
 
 package org.elasticsearch.indices.recovery;
 
+import com.google.common.collect.AbstractIterator;
 import com.google.common.collect.Lists;
+import org.elasticsearch.Version;
+import org.elasticsearch.common.bytes.BytesReference;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.index.shard.ShardId;
 import org.elasticsearch.index.translog.Translog;
+import org.elasticsearch.index.translog.TranslogException;
 import org.elasticsearch.index.translog.TranslogStreams;
 import org.elasticsearch.transport.TransportRequest;
 
 import java.io.IOException;
+import java.util.Iterator;
 import java.util.List;
 
 /**
- *
+ * A batch of translog operations sent to the recovery target. The operations are either held deserialized, or as
+ * the raw, size framed bytes of the translog they were read from, in which case they are sent as is and only
+ * deserialized by the target while they get replayed.
  */
 class RecoveryTranslogOperationsRequest extends TransportRequest {
 
     private long recoveryId;
     private ShardId shardId;
     private List<Translog.Operation> operations;
+    private int numberOfRawOperations;
+    private BytesReference rawOperations;
 
     RecoveryTranslogOperationsRequest() {
     }
@@ -48,6 +57,13 @@ class RecoveryTranslogOperationsRequest extends TransportRequest {
         this.operations = operations;
     }
 
+    RecoveryTranslogOperationsRequest(long recoveryId, ShardId shardId, int numberOfRawOperations, BytesReference rawOperations) {
+        this.recoveryId = recoveryId;
+        this.shardId = shardId;
+        this.numberOfRawOperations = numberOfRawOperations;
+        this.rawOperations = rawOperations;
+    }
+
     public long recoveryId() {
         return this.recoveryId;
     }
@@ -56,8 +72,41 @@ class RecoveryTranslogOperationsRequest extends TransportRequest {
         return shardId;
     }
 
-    public List<Translog.Operation> operations() {
-        return operations;
+    public int numberOfOperations() {
+        return rawOperations != null ? numberOfRawOperations : operations.size();
+    }
+
+    /**
+     * The operations of this request, raw operations are deserialized one by one while iterating.
+     */
+    public Iterable<Translog.Operation> operations() {
+        if (rawOperations == null) {
+            return operations;
+        }
+        return new Iterable<Translog.Operation>() {
+            @Override
+            public Iterator<Translog.Operation> iterator() {
+                final StreamInput in = rawOperations.streamInput();
+                return new AbstractIterator<Translog.Operation>() {
+                    int read = 0;
+
+                    @Override
+                    protected Translog.Operation computeNext() {
+                        if (read == numberOfRawOperations) {
+                            return endOfData();
+                        }
+                        try {
+                            in.readInt(); // the size of the operation
+                            Translog.Operation operation = TranslogStreams.readTranslogOperation(in);
+                            read++;
+                            return operation;
+                        } catch (IOException e) {
+                            throw new TranslogException(shardId, "failed to read recovered translog operation [" + read + "]", e);
+                        }
+                    }
+                };
+            }
+        };
     }
 
     @Override
@@ -65,6 +114,11 @@ class RecoveryTranslogOperationsRequest extends TransportRequest {
         super.readFrom(in);
         recoveryId = in.readLong();
         shardId = ShardId.readShardId(in);
+        if (in.getVersion().onOrAfter(Version.V_2_0_0) && in.readBoolean()) {
+            numberOfRawOperations = in.readVInt();
+            rawOperations = in.readBytesReference();
+            return;
+        }
         int size = in.readVInt();
         operations = Lists.newArrayListWithExpectedSize(size);
         for (int i = 0; i < size; i++) {
@@ -77,8 +131,16 @@ class RecoveryTranslogOperationsRequest extends TransportRequest {
         super.writeTo(out);
         out.writeLong(recoveryId);
         shardId.writeTo(out);
-        out.writeVInt(operations.size());
-        for (Translog.Operation operation : operations) {
+        if (out.getVersion().onOrAfter(Version.V_2_0_0)) {
+            out.writeBoolean(rawOperations != null);
+            if (rawOperations != null) {
+                out.writeVInt(numberOfRawOperations);
+                out.writeBytesReference(rawOperations);
+                return;
+            }
+        }
+        out.writeVInt(numberOfOperations());
+        for (Translog.Operation operation : operations()) {
             TranslogStreams.writeTranslogOperation(out, operation);
         }
     }
@@ -19,13 +19,12 @@
 package org.elasticsearch.percolator;
 
 import com.google.common.collect.ImmutableList;
-import org.apache.lucene.index.AtomicReaderContext;
-import org.apache.lucene.index.IndexReader;
-import org.apache.lucene.index.IndexableField;
+import org.apache.lucene.index.*;
 import org.apache.lucene.search.Filter;
 import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.search.Query;
 import org.apache.lucene.search.Sort;
+import org.apache.lucene.util.BytesRef;
 import org.elasticsearch.ElasticsearchException;
 import org.elasticsearch.action.percolate.PercolateShardRequest;
 import org.elasticsearch.action.search.SearchType;
@@ -72,9 +71,12 @@ import org.elasticsearch.search.rescore.RescoreSearchContext;
 import org.elasticsearch.search.scan.ScanContext;
 import org.elasticsearch.search.suggest.SuggestionSearchContext;
 
+import java.io.IOException;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentMap;
 
 /**
@@ -97,6 +99,8 @@ public class PercolateContext extends SearchContext {
     private final BigArrays bigArrays;
     private final ScriptService scriptService;
     private final ConcurrentMap<HashedBytesRef, Query> percolateQueries;
+    private final ConcurrentMap<HashedBytesRef, Term[]> percolateQueriesRequiredTerms;
+    private Set<Term> docTerms;
     private String[] types;
 
     private Engine.Searcher docSearcher;
@@ -124,6 +128,7 @@ public class PercolateContext extends SearchContext {
         this.fieldDataService = indexService.fieldData();
         this.searchShardTarget = searchShardTarget;
         this.percolateQueries = indexShard.percolateRegistry().percolateQueries();
+        this.percolateQueriesRequiredTerms = indexShard.percolateRegistry().percolateQueriesRequiredTerms();
         this.types = new String[]{request.documentType()};
         this.cacheRecycler = cacheRecycler;
         this.pageCacheRecycler = pageCacheRecycler;
@@ -142,6 +147,13 @@ public class PercolateContext extends SearchContext {
         this.docSearcher = docSearcher;
 
         IndexReader indexReader = docSearcher.reader();
+        // reading all terms upfront also makes sure in-memory indices have sorted their terms before they
+        // get searched, possibly concurrently
+        try {
+            this.docTerms = collectTerms(indexReader);
+        } catch (IOException e) {
+            throw new ElasticsearchException("failed to read the terms of the document to percolate", e);
+        }
         AtomicReaderContext atomicReaderContext = indexReader.leaves().get(0);
         lookup().setNextReader(atomicReaderContext);
         lookup().setNextDocId(0);
@@ -169,6 +181,44 @@ public class PercolateContext extends SearchContext {
         return percolateQueries;
     }
 
+    /**
+     * Returns <tt>false</tt> if the percolate query with the provided id is known not to match the document because
+     * the document contains none of the terms that the query requires, and <tt>true</tt> otherwise.
+     */
+    public boolean mayMatch(HashedBytesRef queryId) {
+        final Term[] requiredTerms = percolateQueriesRequiredTerms.get(queryId);
+        if (requiredTerms == null) {
+            return true;
+        }
+        for (Term term : requiredTerms) {
+            if (docTerms.contains(term)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static Set<Term> collectTerms(IndexReader reader) throws IOException {
+        final Set<Term> terms = new HashSet<Term>();
+        for (AtomicReaderContext leaf : reader.leaves()) {
+            final Fields fields = leaf.reader().fields();
+            if (fields == null) {
+                continue;
+            }
+            for (String field : fields) {
+                final Terms fieldTerms = fields.terms(field);
+                if (fieldTerms == null) {
+                    continue;
+                }
+                final TermsEnum termsEnum = fieldTerms.iterator(null);
+                for (BytesRef term = termsEnum.next(); term != null; term = termsEnum.next()) {
+                    terms.add(new Term(field, BytesRef.deepCopyOf(term)));
+                }
+            }
+        }
+        return terms;
+    }
+
     public Query percolateQuery() {
         return percolateQuery;
     }
@@ -361,7 +411,7 @@ public class PercolateContext extends SearchContext {
     }
 
     @Override
-    public long nowInMillis() {
+    protected long nowInMillisImpl() {
         throw new UnsupportedOperationException();
     }
 
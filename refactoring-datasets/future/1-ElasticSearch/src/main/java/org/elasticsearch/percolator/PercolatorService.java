@@ -21,6 +21,9 @@ package org.elasticsearch.percolator;
 import com.carrotsearch.hppc.ByteObjectOpenHashMap;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Lists;
+import jsr166e.ForkJoinPool;
+import jsr166e.ForkJoinTask;
+import jsr166e.ForkJoinWorkerThread;
 import org.apache.lucene.index.AtomicReaderContext;
 import org.apache.lucene.index.ReaderUtil;
 import org.apache.lucene.search.*;
@@ -28,6 +31,7 @@ import org.apache.lucene.util.BytesRef;
 import org.elasticsearch.ElasticsearchException;
 import org.elasticsearch.ElasticsearchIllegalArgumentException;
 import org.elasticsearch.ElasticsearchParseException;
+import org.elasticsearch.ExceptionsHelper;
 import org.elasticsearch.action.percolate.PercolateResponse;
 import org.elasticsearch.action.percolate.PercolateShardRequest;
 import org.elasticsearch.action.percolate.PercolateShardResponse;
@@ -48,6 +52,7 @@ import org.elasticsearch.common.text.BytesText;
 import org.elasticsearch.common.text.StringText;
 import org.elasticsearch.common.text.Text;
 import org.elasticsearch.common.util.BigArrays;
+import org.elasticsearch.common.util.concurrent.EsExecutors;
 import org.elasticsearch.common.xcontent.XContentBuilder;
 import org.elasticsearch.common.xcontent.XContentFactory;
 import org.elasticsearch.common.xcontent.XContentParser;
@@ -87,6 +92,9 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
 
 import static org.elasticsearch.index.mapper.SourceToParse.source;
 import static org.elasticsearch.percolator.QueryCollector.*;
@@ -114,6 +122,9 @@ public class PercolatorService extends AbstractComponent {
     private final SortParseElement sortParseElement;
     private final ScriptService scriptService;
 
+    private final ForkJoinPool concurrentPool;
+    private final int concurrentChunkSize;
+
     @Inject
     public PercolatorService(Settings settings, IndicesService indicesService, CacheRecycler cacheRecycler,
                              PageCacheRecycler pageCacheRecycler, BigArrays bigArrays,
@@ -141,6 +152,24 @@ public class PercolatorService extends AbstractComponent {
         percolatorTypes.put(queryPercolator.id(), queryPercolator);
         percolatorTypes.put(scoringPercolator.id(), scoringPercolator);
         percolatorTypes.put(topMatchingPercolator.id(), topMatchingPercolator);
+
+        // when enabled, the registered queries of a shard are evaluated in chunks on a dedicated pool
+        if (componentSettings.getAsBoolean("concurrent.enabled", false)) {
+            this.concurrentChunkSize = componentSettings.getAsInt("concurrent.chunk_size", 1000);
+            final String concurrentThreadName = EsExecutors.threadName(settings, "percolate_concurrent");
+            this.concurrentPool = new ForkJoinPool(componentSettings.getAsInt("concurrent.pool_size", EsExecutors.boundedNumberOfProcessors(settings)),
+                    new ForkJoinPool.ForkJoinWorkerThreadFactory() {
+                        @Override
+                        public ForkJoinWorkerThread newThread(ForkJoinPool pool) {
+                            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+                            thread.setName(concurrentThreadName + "[T#" + thread.getPoolIndex() + "]");
+                            return thread;
+                        }
+                    }, null, false);
+        } else {
+            this.concurrentChunkSize = 0;
+            this.concurrentPool = null;
+        }
     }
 
 
@@ -388,6 +417,128 @@ public class PercolatorService extends AbstractComponent {
     public void close() {
         single.clean();
         multi.clean();
+        if (concurrentPool != null) {
+            concurrentPool.shutdown();
+            try {
+                concurrentPool.awaitTermination(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Executes all registered queries against the document and returns the number of matching queries. The ids of the
+     * first <code>maxMatches</code> matching queries, in iteration order of the registered queries, are added to
+     * <code>matches</code> if it is not null. Queries are executed in chunks on the concurrent pool if it is enabled
+     * and there is more than one chunk of queries, the percolating thread executes the first chunk itself.
+     */
+    private long percolateQueries(final PercolateContext context, List<BytesRef> matches, int maxMatches) {
+        @SuppressWarnings("unchecked")
+        final Map.Entry<HashedBytesRef, Query>[] queries = context.percolateQueries().entrySet().toArray(new Map.Entry[0]);
+        final int numChunks = concurrentPool == null ? 1 : Math.max(1, (queries.length + concurrentChunkSize - 1) / concurrentChunkSize);
+        if (numChunks == 1) {
+            final QueryChunk chunk = new QueryChunk(context, queries, 0, queries.length, matches == null ? 0 : maxMatches);
+            chunk.call();
+            if (matches != null) {
+                matches.addAll(chunk.matches);
+            }
+            return chunk.count;
+        }
+
+        final QueryChunk[] chunks = new QueryChunk[numChunks];
+        for (int i = 0; i < numChunks; i++) {
+            final int from = (int) ((long) queries.length * i / numChunks);
+            final int to = (int) ((long) queries.length * (i + 1) / numChunks);
+            chunks[i] = new QueryChunk(context, queries, from, to, matches == null ? 0 : maxMatches);
+        }
+        final List<ForkJoinTask<Void>> tasks = new ArrayList<ForkJoinTask<Void>>(numChunks - 1);
+        for (int i = 1; i < numChunks; i++) {
+            tasks.add(concurrentPool.submit(chunks[i]));
+        }
+        Throwable failure = null;
+        try {
+            chunks[0].call();
+        } catch (Throwable t) {
+            failure = t;
+        }
+        for (ForkJoinTask<Void> task : tasks) {
+            try {
+                task.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                failure = failure == null ? e : failure;
+            } catch (ExecutionException e) {
+                failure = failure == null ? e.getCause() : failure;
+            }
+        }
+        if (failure != null) {
+            throw ExceptionsHelper.convertToRuntime(failure);
+        }
+
+        // merge the chunks in order, so that the matches are the same as if the queries were executed sequentially
+        long count = 0;
+        for (QueryChunk chunk : chunks) {
+            count += chunk.count;
+            if (matches != null) {
+                for (BytesRef match : chunk.matches) {
+                    if (matches.size() == maxMatches) {
+                        break;
+                    }
+                    matches.add(match);
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Executes a contiguous range of the registered queries against the document, queries that require terms that
+     * the document doesn't have are skipped.
+     */
+    private final class QueryChunk implements Callable<Void> {
+
+        private final PercolateContext context;
+        private final Map.Entry<HashedBytesRef, Query>[] queries;
+        private final int from;
+        private final int to;
+        private final int maxMatches;
+
+        final List<BytesRef> matches = new ArrayList<BytesRef>();
+        long count;
+
+        QueryChunk(PercolateContext context, Map.Entry<HashedBytesRef, Query>[] queries, int from, int to, int maxMatches) {
+            this.context = context;
+            this.queries = queries;
+            this.from = from;
+            this.to = to;
+            this.maxMatches = maxMatches;
+        }
+
+        @Override
+        public Void call() {
+            Lucene.ExistsCollector collector = new Lucene.ExistsCollector();
+            for (int i = from; i < to; i++) {
+                final Map.Entry<HashedBytesRef, Query> entry = queries[i];
+                if (!context.mayMatch(entry.getKey())) {
+                    continue;
+                }
+                collector.reset();
+                try {
+                    context.docSearcher().search(entry.getValue(), collector);
+                } catch (Throwable e) {
+                    logger.warn("[" + entry.getKey() + "] failed to execute query", e);
+                }
+
+                if (collector.exists()) {
+                    if (matches.size() < maxMatches) {
+                        matches.add(entry.getKey().bytes);
+                    }
+                    count++;
+                }
+            }
+            return null;
+        }
     }
 
     interface PercolatorType {
@@ -423,20 +574,7 @@ public class PercolatorService extends AbstractComponent {
 
         @Override
         public PercolateShardResponse doPercolate(PercolateShardRequest request, PercolateContext context) {
-            long count = 0;
-            Lucene.ExistsCollector collector = new Lucene.ExistsCollector();
-            for (Map.Entry<HashedBytesRef, Query> entry : context.percolateQueries().entrySet()) {
-                collector.reset();
-                try {
-                    context.docSearcher().search(entry.getValue(), collector);
-                } catch (IOException e) {
-                    logger.warn("[" + entry.getKey() + "] failed to execute query", e);
-                }
-
-                if (collector.exists()) {
-                    count++;
-                }
-            }
+            long count = percolateQueries(context, null, 0);
             return new PercolateShardResponse(count, context, request.index(), request.shardId());
         }
 
@@ -513,17 +651,24 @@ public class PercolatorService extends AbstractComponent {
 
         @Override
         public PercolateShardResponse doPercolate(PercolateShardRequest request, PercolateContext context) {
-            long count = 0;
             List<BytesRef> matches = new ArrayList<BytesRef>();
             List<Map<String, HighlightField>> hls = new ArrayList<Map<String, HighlightField>>();
-            Lucene.ExistsCollector collector = new Lucene.ExistsCollector();
+            if (context.highlight() == null) {
+                long count = percolateQueries(context, matches, context.limit ? context.size : Integer.MAX_VALUE);
+                BytesRef[] finalMatches = matches.toArray(new BytesRef[matches.size()]);
+                return new PercolateShardResponse(finalMatches, hls, count, context, request.index(), request.shardId());
+            }
 
+            // highlighting relies on the state of the context, so queries need to be executed sequentially
+            long count = 0;
+            Lucene.ExistsCollector collector = new Lucene.ExistsCollector();
             for (Map.Entry<HashedBytesRef, Query> entry : context.percolateQueries().entrySet()) {
-                collector.reset();
-                if (context.highlight() != null) {
-                    context.parsedQuery(new ParsedQuery(entry.getValue(), ImmutableMap.<String, Filter>of()));
-                    context.hitContext().cache().clear();
+                if (!context.mayMatch(entry.getKey())) {
+                    continue;
                 }
+                collector.reset();
+                context.parsedQuery(new ParsedQuery(entry.getValue(), ImmutableMap.<String, Filter>of()));
+                context.hitContext().cache().clear();
                 try {
                     context.docSearcher().search(entry.getValue(), collector);
                 } catch (Throwable e) {
@@ -533,10 +678,8 @@ public class PercolatorService extends AbstractComponent {
                 if (collector.exists()) {
                     if (!context.limit || count < context.size) {
                         matches.add(entry.getKey().bytes);
-                        if (context.highlight() != null) {
-                            highlightPhase.hitExecute(context, context.hitContext());
-                            hls.add(context.hitContext().hit().getHighlightFields());
-                        }
+                        highlightPhase.hitExecute(context, context.hitContext());
+                        hls.add(context.hitContext().hit().getHighlightFields());
                     }
                     count++;
                 }
@@ -52,6 +52,7 @@ import java.util.concurrent.ConcurrentMap;
 abstract class QueryCollector extends Collector {
 
     final IndexFieldData<?> idFieldData;
+    final PercolateContext context;
     final IndexSearcher searcher;
     final ConcurrentMap<HashedBytesRef, Query> queries;
     final ESLogger logger;
@@ -66,6 +67,7 @@ abstract class QueryCollector extends Collector {
 
     QueryCollector(ESLogger logger, PercolateContext context) {
         this.logger = logger;
+        this.context = context;
         this.queries = context.percolateQueries();
         this.searcher = context.docSearcher();
         final FieldMapper<?> idMapper = context.mapperService().smartNameFieldMapper(IdFieldMapper.NAME);
@@ -165,6 +167,10 @@ abstract class QueryCollector extends Collector {
         }
         assert numValues == 1;
         spare.reset(values.nextValue(), values.currentValueHash());
+        if (!context.mayMatch(spare)) {
+            // the document has none of the terms that the query requires
+            return null;
+        }
         return queries.get(spare);
     }
 
@@ -172,7 +178,6 @@ abstract class QueryCollector extends Collector {
 
     final static class Match extends QueryCollector {
 
-        final PercolateContext context;
         final HighlightPhase highlightPhase;
 
         final List<BytesRef> matches = new ArrayList<BytesRef>();
@@ -185,7 +190,6 @@ abstract class QueryCollector extends Collector {
             super(logger, context);
             this.limit = context.limit;
             this.size = context.size;
-            this.context = context;
             this.highlightPhase = highlightPhase;
         }
 
@@ -287,7 +291,6 @@ abstract class QueryCollector extends Collector {
 
     final static class MatchAndScore extends QueryCollector {
 
-        final PercolateContext context;
         final HighlightPhase highlightPhase;
 
         final List<BytesRef> matches = new ArrayList<BytesRef>();
@@ -304,7 +307,6 @@ abstract class QueryCollector extends Collector {
             super(logger, context);
             this.limit = context.limit;
             this.size = context.size;
-            this.context = context;
             this.highlightPhase = highlightPhase;
         }
 
@@ -120,6 +120,8 @@ public abstract class BlobStoreRepository extends AbstractLifecycleComponent<Rep
 
     private final RateLimiter restoreRateLimiter;
 
+    private final int maxConcurrentParts;
+
     private final CounterMetric snapshotRateLimitingTimeInNanos = new CounterMetric();
 
     private final CounterMetric restoreRateLimitingTimeInNanos = new CounterMetric();
@@ -141,6 +143,7 @@ public abstract class BlobStoreRepository extends AbstractLifecycleComponent<Rep
         globalOnlyFormatParams = new ToXContent.MapParams(globalOnlyParams);
         snapshotRateLimiter = getRateLimiter(repositorySettings, "max_snapshot_bytes_per_sec", new ByteSizeValue(20, ByteSizeUnit.MB));
         restoreRateLimiter = getRateLimiter(repositorySettings, "max_restore_bytes_per_sec", new ByteSizeValue(20, ByteSizeUnit.MB));
+        maxConcurrentParts = repositorySettings.settings().getAsInt("max_concurrent_parts", componentSettings.getAsInt("max_concurrent_parts", 5));
     }
 
     /**
@@ -149,7 +152,7 @@ public abstract class BlobStoreRepository extends AbstractLifecycleComponent<Rep
     @Override
     protected void doStart() throws ElasticsearchException {
         this.snapshotsBlobContainer = blobStore().immutableBlobContainer(basePath());
-        indexShardRepository.initialize(blobStore(), basePath(), chunkSize(), snapshotRateLimiter, restoreRateLimiter, this);
+        indexShardRepository.initialize(blobStore(), basePath(), chunkSize(), maxConcurrentParts, snapshotRateLimiter, restoreRateLimiter, this);
     }
 
     /**
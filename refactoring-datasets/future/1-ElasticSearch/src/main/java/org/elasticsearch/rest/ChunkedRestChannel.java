@@ -0,0 +1,47 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.rest;
+
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.common.bytes.BytesReference;
+
+/**
+ * A {@link RestChannel} that can stream a response of unknown length, one chunk at a time, instead of sending
+ * it as a whole with {@link #sendResponse(RestResponse)}.
+ */
+public interface ChunkedRestChannel extends RestChannel {
+
+    /**
+     * Sends the status line and headers of the response, its content is then sent using {@link #sendChunk}.
+     */
+    void startChunkedResponse(RestStatus status, String contentType);
+
+    /**
+     * Sends a chunk of the response content. The listener is notified once the chunk was written to the
+     * connection, producers should wait for it before sending more chunks so that a slow client slows them down
+     * instead of having chunks pile up in memory.
+     */
+    void sendChunk(BytesReference content, ActionListener<Void> listener);
+
+    /**
+     * Ends the response started with {@link #startChunkedResponse(RestStatus, String)}.
+     */
+    void endChunkedResponse();
+}
@@ -24,6 +24,7 @@ import org.elasticsearch.common.Booleans;
 import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.Strings;
 import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
 import org.elasticsearch.common.unit.ByteSizeValue;
 import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.common.xcontent.ToXContent;
@@ -86,6 +87,14 @@ public abstract class RestRequest implements ToXContent.Params {
         return null;
     }
 
+    /**
+     * A new stream to build a response to this request into. Implementations may hand out streams backed by
+     * recycled pages, those are only valid until the response has been sent.
+     */
+    public BytesStreamOutput newResponseOutput() {
+        return new BytesStreamOutput();
+    }
+
     public abstract boolean hasParam(String key);
 
     @Override
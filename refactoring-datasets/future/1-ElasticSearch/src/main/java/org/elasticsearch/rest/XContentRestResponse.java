@@ -81,7 +81,7 @@ public class XContentRestResponse extends AbstractRestResponse {
 
     @Override
     public int contentOffset() throws IOException {
-        return 0;
+        return builder.bytes().arrayOffset();
     }
 
     @Override
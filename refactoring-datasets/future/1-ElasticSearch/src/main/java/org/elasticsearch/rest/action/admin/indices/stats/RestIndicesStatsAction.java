@@ -89,6 +89,7 @@ public class RestIndicesStatsAction extends BaseRestHandler {
             indicesStatsRequest.segments(metrics.contains("segments"));
             indicesStatsRequest.fieldData(metrics.contains("fielddata"));
             indicesStatsRequest.completion(metrics.contains("completion"));
+            indicesStatsRequest.queryCache(metrics.contains("query_cache"));
         }
 
         if (indicesStatsRequest.completion() && (request.hasParam("fields") || request.hasParam("completion_fields"))) {
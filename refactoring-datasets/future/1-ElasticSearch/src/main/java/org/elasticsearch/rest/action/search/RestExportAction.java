@@ -0,0 +1,320 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.rest.action.search;
+
+import org.elasticsearch.ExceptionsHelper;
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.search.*;
+import org.elasticsearch.client.Client;
+import org.elasticsearch.common.Nullable;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.inject.Inject;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.XContentFactory;
+import org.elasticsearch.rest.*;
+import org.elasticsearch.search.Scroll;
+import org.elasticsearch.search.SearchHit;
+
+import java.io.IOException;
+
+import static org.elasticsearch.rest.RestRequest.Method.GET;
+import static org.elasticsearch.rest.RestRequest.Method.POST;
+import static org.elasticsearch.rest.RestStatus.BAD_REQUEST;
+import static org.elasticsearch.rest.action.support.RestXContentBuilder.restContentBuilder;
+
+/**
+ * Streams all the hits of a search as newline delimited JSON, one hit per line, in a single chunked HTTP response.
+ * <p/>
+ * The hits are pulled using a scan search, asking for the next batch while the current one is being written, so
+ * that at most one batch is buffered on top of the one being sent. The next batch is only written once the
+ * previous one made it to the connection, so a slow client slows the export down instead of having hits pile up.
+ * <p/>
+ * Failures that happen once the response has started, including shards failing, are written as a last line holding an
+ * <tt>error</tt> field, since the status of the response can't be changed anymore.
+ */
+public class RestExportAction extends BaseRestHandler {
+
+    static final String CONTENT_TYPE = "application/x-ndjson; charset=UTF-8";
+
+    @Inject
+    public RestExportAction(Settings settings, Client client, RestController controller) {
+        super(settings, client);
+        controller.registerHandler(GET, "/_export", this);
+        controller.registerHandler(POST, "/_export", this);
+        controller.registerHandler(GET, "/{index}/_export", this);
+        controller.registerHandler(POST, "/{index}/_export", this);
+        controller.registerHandler(GET, "/{index}/{type}/_export", this);
+        controller.registerHandler(POST, "/{index}/{type}/_export", this);
+    }
+
+    @Override
+    public void handleRequest(final RestRequest request, final RestChannel channel) {
+        final SearchRequest searchRequest;
+        try {
+            if (!(channel instanceof ChunkedRestChannel)) {
+                throw new UnsupportedOperationException("export requires a channel supporting chunked responses");
+            }
+            searchRequest = RestSearchAction.parseSearchRequest(request);
+            searchRequest.searchType(SearchType.SCAN);
+            if (searchRequest.scroll() == null) {
+                searchRequest.scroll(new Scroll(TimeValue.timeValueMinutes(1)));
+            }
+            searchRequest.listenerThreaded(false);
+        } catch (Exception e) {
+            try {
+                XContentBuilder builder = restContentBuilder(request);
+                channel.sendResponse(new XContentRestResponse(request, BAD_REQUEST, builder.startObject().field("error", e.getMessage()).endObject()));
+            } catch (IOException e1) {
+                logger.error("Failed to send failure response", e1);
+            }
+            return;
+        }
+
+        client.search(searchRequest, new ActionListener<SearchResponse>() {
+            @Override
+            public void onResponse(SearchResponse response) {
+                ((ChunkedRestChannel) channel).startChunkedResponse(RestStatus.OK, CONTENT_TYPE);
+                new Export(request, (ChunkedRestChannel) channel, searchRequest.scroll()).start(response);
+            }
+
+            @Override
+            public void onFailure(Throwable e) {
+                try {
+                    channel.sendResponse(new XContentThrowableRestResponse(request, e));
+                } catch (IOException e1) {
+                    logger.error("Failed to send failure response", e1);
+                }
+            }
+        });
+    }
+
+    class Export implements ActionListener<SearchResponse> {
+
+        private final RestRequest request;
+        private final ChunkedRestChannel channel;
+        private final Scroll scroll;
+
+        private String scrollId;
+        // a fetched batch waiting for the previous one to be written
+        private SearchResponse pending;
+        private boolean writing;
+        // set once a chunk couldn't be sent, nothing is fetched or written after that
+        private boolean aborted;
+
+        Export(RestRequest request, ChunkedRestChannel channel, Scroll scroll) {
+            this.request = request;
+            this.channel = channel;
+            this.scroll = scroll;
+        }
+
+        void start(SearchResponse response) {
+            synchronized (this) {
+                this.scrollId = response.getScrollId();
+            }
+            if (response.getFailedShards() > 0) {
+                shardsFailed(response);
+                return;
+            }
+            next(response.getScrollId());
+        }
+
+        void next(String scrollId) {
+            synchronized (this) {
+                this.scrollId = scrollId;
+                if (aborted) {
+                    return;
+                }
+            }
+            SearchScrollRequest scrollRequest = new SearchScrollRequest(scrollId).scroll(scroll);
+            scrollRequest.listenerThreaded(false);
+            client.searchScroll(scrollRequest, this);
+        }
+
+        @Override
+        public void onResponse(SearchResponse response) {
+            boolean drop;
+            synchronized (this) {
+                scrollId = response.getScrollId();
+                drop = aborted;
+                if (!drop) {
+                    if (writing) {
+                        pending = response;
+                        return;
+                    }
+                    writing = true;
+                }
+            }
+            if (drop) {
+                // the batch was in flight when sending failed
+                clearScroll();
+                return;
+            }
+            write(response);
+        }
+
+        @Override
+        public void onFailure(Throwable e) {
+            logger.debug("failed to export [{}]", e, request.path());
+            BytesReference error = null;
+            try {
+                BytesStreamOutput out = new BytesStreamOutput();
+                XContentBuilder builder = XContentFactory.jsonBuilder(out);
+                builder.startObject().field("error", ExceptionsHelper.detailedMessage(e)).endObject().flush();
+                out.write('\n');
+                error = out.bytes();
+            } catch (IOException e1) {
+                logger.error("Failed to build export failure", e1);
+            }
+            sendErrorAndFinish(error);
+        }
+
+        private void shardsFailed(SearchResponse response) {
+            logger.debug("failed to export [{}], [{}] of [{}] shards failed", request.path(), response.getFailedShards(), response.getTotalShards());
+            BytesReference error = null;
+            try {
+                BytesStreamOutput out = new BytesStreamOutput();
+                XContentBuilder builder = XContentFactory.jsonBuilder(out);
+                builder.startObject();
+                builder.field("error", "[" + response.getFailedShards() + "] of [" + response.getTotalShards() + "] shards failed");
+                builder.startArray("failures");
+                for (ShardSearchFailure failure : response.getShardFailures()) {
+                    builder.startObject();
+                    if (failure.shard() != null) {
+                        builder.field("index", failure.shard().index());
+                        builder.field("shard", failure.shard().shardId());
+                    }
+                    builder.field("status", failure.status().getStatus());
+                    builder.field("reason", failure.reason());
+                    builder.endObject();
+                }
+                builder.endArray();
+                builder.endObject().flush();
+                out.write('\n');
+                error = out.bytes();
+            } catch (IOException e) {
+                logger.error("Failed to build export failure", e);
+            }
+            sendErrorAndFinish(error);
+        }
+
+        private void sendErrorAndFinish(@Nullable BytesReference error) {
+            if (error != null) {
+                channel.sendChunk(error, new ActionListener<Void>() {
+                    @Override
+                    public void onResponse(Void aVoid) {
+                        finish();
+                    }
+
+                    @Override
+                    public void onFailure(Throwable e) {
+                        finish();
+                    }
+                });
+            } else {
+                finish();
+            }
+        }
+
+        private void write(SearchResponse response) {
+            if (response.getFailedShards() > 0) {
+                // the hits of the failed shards would be missing from the export
+                shardsFailed(response);
+                return;
+            }
+            SearchHit[] hits = response.getHits().hits();
+            if (hits.length == 0) {
+                finish();
+                return;
+            }
+            BytesReference chunk;
+            try {
+                BytesStreamOutput out = new BytesStreamOutput();
+                for (SearchHit hit : hits) {
+                    XContentBuilder builder = XContentFactory.jsonBuilder(out);
+                    hit.toXContent(builder, request);
+                    builder.flush();
+                    out.write('\n');
+                }
+                chunk = out.bytes();
+            } catch (Throwable e) {
+                onFailure(e);
+                return;
+            }
+            // fetch the next batch while this one is sent
+            next(response.getScrollId());
+            channel.sendChunk(chunk, new ActionListener<Void>() {
+                @Override
+                public void onResponse(Void aVoid) {
+                    SearchResponse next;
+                    synchronized (Export.this) {
+                        next = pending;
+                        pending = null;
+                        if (next == null) {
+                            writing = false;
+                            return;
+                        }
+                    }
+                    write(next);
+                }
+
+                @Override
+                public void onFailure(Throwable e) {
+                    // the client went away, stop exporting and drop the batch that might already be fetched
+                    logger.debug("failed to send export chunk for [{}]", e, request.path());
+                    synchronized (Export.this) {
+                        aborted = true;
+                        pending = null;
+                    }
+                    clearScroll();
+                }
+            });
+        }
+
+        private void finish() {
+            channel.endChunkedResponse();
+            clearScroll();
+        }
+
+        private void clearScroll() {
+            String scrollId;
+            synchronized (this) {
+                scrollId = this.scrollId;
+            }
+            if (scrollId == null) {
+                return;
+            }
+            ClearScrollRequest clearScrollRequest = new ClearScrollRequest();
+            clearScrollRequest.addScrollId(scrollId);
+            client.clearScroll(clearScrollRequest, new ActionListener<ClearScrollResponse>() {
+                @Override
+                public void onResponse(ClearScrollResponse response) {
+                }
+
+                @Override
+                public void onFailure(Throwable e) {
+                    logger.debug("failed to clear scroll [{}]", e, request.path());
+                }
+            });
+        }
+    }
+}
@@ -21,7 +21,6 @@ package org.elasticsearch.rest.action.support;
 
 import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.bytes.BytesReference;
-import org.elasticsearch.common.io.stream.BytesStreamOutput;
 import org.elasticsearch.common.xcontent.*;
 import org.elasticsearch.rest.RestRequest;
 
@@ -38,7 +37,14 @@ public class RestXContentBuilder {
     }
 
     public static XContentBuilder restContentBuilder(RestRequest request, @Nullable BytesReference autoDetectSource) throws IOException {
-        XContentType contentType = XContentType.fromRestContentType(request.param("format", request.header("Content-Type")));
+        // an explicit format wins, then what the client accepts, then the format the client sent us
+        XContentType contentType = XContentType.fromRestContentType(request.param("format"));
+        if (contentType == null) {
+            contentType = XContentType.fromAcceptHeader(request.header("Accept"));
+        }
+        if (contentType == null) {
+            contentType = XContentType.fromRestContentType(request.header("Content-Type"));
+        }
         if (contentType == null) {
             // try and guess it from the auto detect source
             if (autoDetectSource != null) {
@@ -49,7 +55,7 @@ public class RestXContentBuilder {
             // default to JSON
             contentType = XContentType.JSON;
         }
-        XContentBuilder builder = new XContentBuilder(XContentFactory.xContent(contentType), new BytesStreamOutput());
+        XContentBuilder builder = new XContentBuilder(XContentFactory.xContent(contentType), request.newResponseOutput());
         if (request.paramAsBoolean("pretty", false)) {
             builder.prettyPrint().lfAtEnd();
         }
@@ -23,8 +23,11 @@ import com.carrotsearch.hppc.ObjectOpenHashSet;
 import com.carrotsearch.hppc.ObjectSet;
 import com.carrotsearch.hppc.cursors.ObjectCursor;
 import com.google.common.collect.ImmutableMap;
+import jsr166e.ForkJoinPool;
+import jsr166e.ForkJoinWorkerThread;
 import org.apache.lucene.index.AtomicReaderContext;
 import org.apache.lucene.index.NumericDocValues;
+import org.apache.lucene.index.Terms;
 import org.apache.lucene.search.TopDocs;
 import org.elasticsearch.ElasticsearchException;
 import org.elasticsearch.ExceptionsHelper;
@@ -42,22 +45,24 @@ import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.common.util.BigArrays;
 import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
 import org.elasticsearch.common.util.concurrent.ConcurrentMapLong;
+import org.elasticsearch.common.util.concurrent.EsExecutors;
 import org.elasticsearch.common.xcontent.XContentFactory;
 import org.elasticsearch.common.xcontent.XContentHelper;
 import org.elasticsearch.common.xcontent.XContentParser;
 import org.elasticsearch.index.engine.Engine;
-import org.elasticsearch.index.fielddata.FieldDataType;
-import org.elasticsearch.index.fielddata.IndexFieldDataService;
+import org.elasticsearch.index.fielddata.*;
 import org.elasticsearch.index.mapper.DocumentMapper;
 import org.elasticsearch.index.mapper.FieldMapper;
 import org.elasticsearch.index.mapper.FieldMapper.Loading;
 import org.elasticsearch.index.mapper.MapperService;
+import org.elasticsearch.index.mapper.core.CompletionFieldMapper;
 import org.elasticsearch.index.mapper.internal.ParentFieldMapper;
 import org.elasticsearch.index.search.stats.StatsGroupsParseElement;
 import org.elasticsearch.index.service.IndexService;
 import org.elasticsearch.index.shard.service.IndexShard;
 import org.elasticsearch.indices.IndicesLifecycle;
 import org.elasticsearch.indices.IndicesService;
+import org.elasticsearch.indices.cache.query.IndicesQueryCache;
 import org.elasticsearch.indices.warmer.IndicesWarmer;
 import org.elasticsearch.indices.warmer.IndicesWarmer.WarmerContext;
 import org.elasticsearch.script.ScriptService;
@@ -70,15 +75,19 @@ import org.elasticsearch.search.internal.InternalScrollSearchRequest;
 import org.elasticsearch.search.internal.SearchContext;
 import org.elasticsearch.search.internal.ShardSearchRequest;
 import org.elasticsearch.search.query.*;
+import org.elasticsearch.search.suggest.completion.Completion090PostingsFormat;
 import org.elasticsearch.search.warmer.IndexWarmersMetaData;
 import org.elasticsearch.threadpool.ThreadPool;
 
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Executor;
 import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
 
 import static org.elasticsearch.common.unit.TimeValue.timeValueMinutes;
@@ -103,6 +112,8 @@ public class SearchService extends AbstractLifecycleComponent<SearchService> {
 
     private final IndicesWarmer indicesWarmer;
 
+    private final IndicesQueryCache indicesQueryCache;
+
     private final ScriptService scriptService;
 
     private final CacheRecycler cacheRecycler;
@@ -121,6 +132,8 @@ public class SearchService extends AbstractLifecycleComponent<SearchService> {
 
     private final ScheduledFuture<?> keepAliveReaper;
 
+    private final ForkJoinPool concurrentSearchPool;
+
     private final AtomicLong idGenerator = new AtomicLong();
 
     private final ConcurrentMapLong<SearchContext> activeContexts = ConcurrentCollections.newConcurrentMapLongWithAggressiveConcurrency();
@@ -128,13 +141,14 @@ public class SearchService extends AbstractLifecycleComponent<SearchService> {
     private final ImmutableMap<String, SearchParseElement> elementParsers;
 
     @Inject
-    public SearchService(Settings settings, ClusterService clusterService, IndicesService indicesService, IndicesLifecycle indicesLifecycle, IndicesWarmer indicesWarmer, ThreadPool threadPool,
+    public SearchService(Settings settings, ClusterService clusterService, IndicesService indicesService, IndicesLifecycle indicesLifecycle, IndicesWarmer indicesWarmer, IndicesQueryCache indicesQueryCache, ThreadPool threadPool,
                          ScriptService scriptService, CacheRecycler cacheRecycler, PageCacheRecycler pageCacheRecycler, BigArrays bigArrays, DfsPhase dfsPhase, QueryPhase queryPhase, FetchPhase fetchPhase) {
         super(settings);
         this.threadPool = threadPool;
         this.clusterService = clusterService;
         this.indicesService = indicesService;
         this.indicesWarmer = indicesWarmer;
+        this.indicesQueryCache = indicesQueryCache;
         this.scriptService = scriptService;
         this.cacheRecycler = cacheRecycler;
         this.pageCacheRecycler = pageCacheRecycler;
@@ -156,8 +170,21 @@ public class SearchService extends AbstractLifecycleComponent<SearchService> {
 
         this.keepAliveReaper = threadPool.scheduleWithFixedDelay(new Reaper(), keepAliveInterval);
 
+        // executes the slices of shards that are configured to search concurrently, threads are only started on demand
+        final String concurrentThreadName = EsExecutors.threadName(settings, "search_concurrent");
+        this.concurrentSearchPool = new ForkJoinPool(componentSettings.getAsInt("concurrent.pool_size", EsExecutors.boundedNumberOfProcessors(settings)),
+                new ForkJoinPool.ForkJoinWorkerThreadFactory() {
+                    @Override
+                    public ForkJoinWorkerThread newThread(ForkJoinPool pool) {
+                        ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+                        thread.setName(concurrentThreadName + "[T#" + thread.getPoolIndex() + "]");
+                        return thread;
+                    }
+                }, null, false);
+
         this.indicesWarmer.addListener(new NormsWarmer());
         this.indicesWarmer.addListener(new FieldDataWarmer());
+        this.indicesWarmer.addListener(new CompletionWarmer());
         this.indicesWarmer.addListener(new SearchWarmer());
     }
 
@@ -176,6 +203,12 @@ public class SearchService extends AbstractLifecycleComponent<SearchService> {
     @Override
     protected void doClose() throws ElasticsearchException {
         keepAliveReaper.cancel(false);
+        concurrentSearchPool.shutdown();
+        try {
+            concurrentSearchPool.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
     }
 
     public DfsSearchResult executeDfsPhase(ShardSearchRequest request) throws ElasticsearchException {
@@ -250,7 +283,11 @@ public class SearchService extends AbstractLifecycleComponent<SearchService> {
             context.indexShard().searchService().onPreQueryPhase(context);
             long time = System.nanoTime();
             contextProcessing(context);
-            queryPhase.execute(context);
+            if (indicesQueryCache.canCache(request, context)) {
+                indicesQueryCache.loadIntoContext(request, context, queryPhase);
+            } else {
+                queryPhase.execute(context);
+            }
             if (context.searchType() == SearchType.COUNT) {
                 freeContext(context.id());
             } else {
@@ -496,6 +533,10 @@ public class SearchService extends AbstractLifecycleComponent<SearchService> {
         Engine.Searcher engineSearcher = searcher == null ? indexShard.acquireSearcher("search") : searcher;
         SearchContext context = new DefaultSearchContext(idGenerator.incrementAndGet(), request, shardTarget, engineSearcher, indexService, indexShard, scriptService, cacheRecycler, pageCacheRecycler, bigArrays);
         SearchContext.setCurrent(context);
+        int concurrentSlices = indexShard.searchService().concurrentSlices();
+        if (concurrentSlices > 1) {
+            context.searcher().concurrentSearch(concurrentSearchPool, concurrentSlices, indexShard.searchService().concurrentMinDocsPerSlice());
+        }
         try {
             context.scroll(request.scroll());
 
@@ -725,7 +766,10 @@ public class SearchService extends AbstractLifecycleComponent<SearchService> {
                         if (parentFieldMapper.active()) {
                             warmUp.put(indexName, parentFieldMapper);
                         }
-                    } else if (fieldDataType.getLoading() != Loading.EAGER && warmUp.containsKey(indexName)) {
+                    } else if (warmUp.containsKey(indexName)) {
+                        continue;
+                    } else if (fieldDataType.getLoading() == Loading.EAGER
+                            || (fieldMapper.hasDocValues() && fieldDataType.docValuesFirst(indexMetaData.settings()))) {
                         warmUp.put(indexName, fieldMapper);
                     }
                 }
@@ -741,7 +785,10 @@ public class SearchService extends AbstractLifecycleComponent<SearchService> {
                         public void run() {
                             try {
                                 final long start = System.nanoTime();
-                                indexFieldDataService.getForField(fieldMapper).load(ctx);
+                                AtomicFieldData<?> fieldData = indexFieldDataService.getForField(fieldMapper).load(ctx);
+                                if (fieldMapper.hasDocValues()) {
+                                    touch(fieldData, ctx.reader().maxDoc());
+                                }
                                 if (indexShard.warmerService().logger().isTraceEnabled()) {
                                     indexShard.warmerService().logger().trace("warmed fielddata for [{}], took [{}]", fieldMapper.names().name(), TimeValue.timeValueNanos(System.nanoTime() - start));
                                 }
@@ -763,6 +810,106 @@ public class SearchService extends AbstractLifecycleComponent<SearchService> {
             };
         }
 
+        /**
+         * Reads the values of all documents, so that the pages of memory mapped doc values are in the file system
+         * cache before the first query runs against the new segment.
+         */
+        static void touch(AtomicFieldData<?> fieldData, int maxDoc) {
+            if (fieldData instanceof AtomicNumericFieldData) {
+                LongValues values = ((AtomicNumericFieldData) fieldData).getLongValues();
+                for (int doc = 0; doc < maxDoc; doc++) {
+                    for (int i = values.setDocument(doc); i > 0; i--) {
+                        values.nextValue();
+                    }
+                }
+            } else if (fieldData instanceof AtomicGeoPointFieldData) {
+                GeoPointValues values = ((AtomicGeoPointFieldData<?>) fieldData).getGeoPointValues();
+                for (int doc = 0; doc < maxDoc; doc++) {
+                    for (int i = values.setDocument(doc); i > 0; i--) {
+                        values.nextValue();
+                    }
+                }
+            }
+        }
+
+    }
+
+    /**
+     * Loads the completion FSTs of new segments that are loaded lazily before the new searcher is released, so
+     * that the first suggestions against a new segment don't pay for loading them. The refresh waits for the
+     * FSTs of the segments that were not loaded yet, eagerly loaded FSTs are already read when the segment is opened.
+     */
+    static class CompletionWarmer extends IndicesWarmer.Listener {
+
+        @Override
+        public TerminationHandle warm(final IndexShard indexShard, IndexMetaData indexMetaData, final WarmerContext context, ThreadPool threadPool) {
+            final Map<String, CompletionFieldMapper> warmUp = new HashMap<String, CompletionFieldMapper>();
+            for (DocumentMapper docMapper : indexShard.mapperService()) {
+                for (FieldMapper<?> fieldMapper : docMapper.mappers().mappers()) {
+                    if (fieldMapper instanceof CompletionFieldMapper && ((CompletionFieldMapper) fieldMapper).fstLoading() == Loading.LAZY
+                            && !warmUp.containsKey(fieldMapper.names().indexName())) {
+                        warmUp.put(fieldMapper.names().indexName(), (CompletionFieldMapper) fieldMapper);
+                    }
+                }
+            }
+            if (warmUp.isEmpty()) {
+                return TerminationHandle.NO_WAIT;
+            }
+            // segments that were already searched before the refresh keep their loaded FSTs
+            final List<Completion090PostingsFormat.CompletionTerms> pendingTerms = new ArrayList<Completion090PostingsFormat.CompletionTerms>();
+            final List<CompletionFieldMapper> pendingMappers = new ArrayList<CompletionFieldMapper>();
+            for (AtomicReaderContext ctx : context.newSearcher().reader().leaves()) {
+                for (CompletionFieldMapper fieldMapper : warmUp.values()) {
+                    Terms terms;
+                    try {
+                        terms = ctx.reader().terms(fieldMapper.names().indexName());
+                    } catch (Throwable t) {
+                        indexShard.warmerService().logger().warn("failed to warm-up completion field [{}]", t, fieldMapper.names().name());
+                        continue;
+                    }
+                    if (terms instanceof Completion090PostingsFormat.CompletionTerms
+                            && !((Completion090PostingsFormat.CompletionTerms) terms).isLoaded(fieldMapper)) {
+                        pendingTerms.add((Completion090PostingsFormat.CompletionTerms) terms);
+                        pendingMappers.add(fieldMapper);
+                    }
+                }
+            }
+            if (pendingTerms.isEmpty()) {
+                return TerminationHandle.NO_WAIT;
+            }
+            // the FSTs are read from the completion file of the segments, so loading has to finish before the new
+            // searcher is released and a segment that gets merged away in the meantime can be closed
+            final Executor executor = threadPool.executor(executor());
+            final CountDownLatch latch = new CountDownLatch(pendingTerms.size());
+            for (int i = 0; i < pendingTerms.size(); i++) {
+                final Completion090PostingsFormat.CompletionTerms terms = pendingTerms.get(i);
+                final CompletionFieldMapper fieldMapper = pendingMappers.get(i);
+                executor.execute(new Runnable() {
+
+                    @Override
+                    public void run() {
+                        try {
+                            final long start = System.nanoTime();
+                            terms.warm(fieldMapper);
+                            if (indexShard.warmerService().logger().isTraceEnabled()) {
+                                indexShard.warmerService().logger().trace("warmed completion field [{}], took [{}]", fieldMapper.names().name(), TimeValue.timeValueNanos(System.nanoTime() - start));
+                            }
+                        } catch (Throwable t) {
+                            indexShard.warmerService().logger().warn("failed to warm-up completion field [{}]", t, fieldMapper.names().name());
+                        } finally {
+                            latch.countDown();
+                        }
+                    }
+
+                });
+            }
+            return new TerminationHandle() {
+                @Override
+                public void awaitTermination() throws InterruptedException {
+                    latch.await();
+                }
+            };
+        }
     }
 
     class SearchWarmer extends IndicesWarmer.Listener {
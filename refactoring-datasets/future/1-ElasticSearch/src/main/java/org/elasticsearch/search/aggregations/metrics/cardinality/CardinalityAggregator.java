@@ -0,0 +1,365 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search.aggregations.metrics.cardinality;
+
+import org.apache.lucene.index.AtomicReaderContext;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.FixedBitSet;
+import org.apache.lucene.util.RamUsageEstimator;
+import org.elasticsearch.common.hash.MurmurHash3;
+import org.elasticsearch.common.lease.Releasable;
+import org.elasticsearch.common.lease.Releasables;
+import org.elasticsearch.common.util.BigArrays;
+import org.elasticsearch.common.util.LongArray;
+import org.elasticsearch.common.util.ObjectArray;
+import org.elasticsearch.index.fielddata.BytesValues;
+import org.elasticsearch.index.fielddata.DoubleValues;
+import org.elasticsearch.index.fielddata.LongValues;
+import org.elasticsearch.index.fielddata.ordinals.Ordinals;
+import org.elasticsearch.search.aggregations.Aggregator;
+import org.elasticsearch.search.aggregations.InternalAggregation;
+import org.elasticsearch.search.aggregations.metrics.MetricsAggregator;
+import org.elasticsearch.search.aggregations.support.AggregationContext;
+import org.elasticsearch.search.aggregations.support.ValueSourceAggregatorFactory;
+import org.elasticsearch.search.aggregations.support.ValuesSource;
+import org.elasticsearch.search.aggregations.support.ValuesSourceConfig;
+import org.elasticsearch.search.aggregations.support.bytes.BytesValuesSource;
+import org.elasticsearch.search.aggregations.support.numeric.NumericValuesSource;
+
+import java.io.IOException;
+
+/**
+ * An aggregator that computes approximate counts of unique values.
+ */
+public class CardinalityAggregator extends MetricsAggregator.SingleValue {
+
+    private final int precision;
+    private final ValuesSource valuesSource;
+
+    private HyperLogLogPlusPlus counts;
+
+    private Collector collector;
+
+    public CardinalityAggregator(String name, long estimatedBucketsCount, ValuesSource valuesSource, int precision, AggregationContext context, Aggregator parent) {
+        super(name, estimatedBucketsCount, context, parent);
+        this.valuesSource = valuesSource;
+        this.precision = precision;
+        this.counts = valuesSource == null ? null : new HyperLogLogPlusPlus(precision, bigArrays, 1);
+    }
+
+    @Override
+    public boolean shouldCollect() {
+        return valuesSource != null;
+    }
+
+    @Override
+    public void setNextReader(AtomicReaderContext reader) {
+        postCollectLastCollector();
+        collector = createCollector();
+    }
+
+    private Collector createCollector() {
+        if (valuesSource instanceof NumericValuesSource) {
+            final NumericValuesSource source = (NumericValuesSource) valuesSource;
+            if (source.isFloatingPoint()) {
+                return new DoubleValuesCollector(counts, source.doubleValues());
+            } else {
+                return new LongValuesCollector(counts, source.longValues());
+            }
+        }
+
+        if (valuesSource instanceof BytesValuesSource.WithOrdinals) {
+            final BytesValues.WithOrdinals values = ((BytesValuesSource.WithOrdinals) valuesSource).bytesValues();
+            final long maxOrd = values.ordinals().getMaxOrd();
+            final long ordinalsMemoryUsage = OrdinalsCollector.memoryOverhead(maxOrd);
+            final long countsMemoryUsage = HyperLogLogPlusPlus.memoryUsage(precision);
+            // only use ordinals if they don't increase memory usage by more than 25%
+            if (maxOrd <= Integer.MAX_VALUE && ordinalsMemoryUsage < countsMemoryUsage / 4) {
+                return new OrdinalsCollector(counts, values, bigArrays);
+            }
+            return new DirectCollector(counts, values);
+        }
+
+        return new DirectCollector(counts, valuesSource.bytesValues());
+    }
+
+    @Override
+    public void collect(int doc, long owningBucketOrdinal) throws IOException {
+        collector.collect(doc, owningBucketOrdinal);
+    }
+
+    private void postCollectLastCollector() {
+        if (collector != null) {
+            try {
+                collector.postCollect();
+                collector.release();
+            } finally {
+                collector = null;
+            }
+        }
+    }
+
+    @Override
+    protected void doPostCollection() {
+        postCollectLastCollector();
+    }
+
+    @Override
+    public double metric(long owningBucketOrd) {
+        return counts == null ? 0 : counts.cardinality(owningBucketOrd);
+    }
+
+    @Override
+    public InternalAggregation buildAggregation(long owningBucketOrdinal) {
+        if (counts == null || owningBucketOrdinal >= counts.maxBucket() || counts.cardinality(owningBucketOrdinal) == 0) {
+            return buildEmptyAggregation();
+        }
+        // We need to build a copy because the returned Aggregation needs remain usable after
+        // this Aggregator (and its HLL++ counters) is released.
+        HyperLogLogPlusPlus copy = new HyperLogLogPlusPlus(precision, BigArrays.NON_RECYCLING_INSTANCE, 1);
+        copy.merge(0, counts, owningBucketOrdinal);
+        return new InternalCardinality(name, copy);
+    }
+
+    @Override
+    public InternalAggregation buildEmptyAggregation() {
+        return new InternalCardinality(name, null);
+    }
+
+    @Override
+    protected void doRelease() {
+        Releasables.release(counts, collector);
+    }
+
+    public static class Factory extends ValueSourceAggregatorFactory.LeafOnly<ValuesSource> {
+
+        private final int precision;
+
+        public Factory(String name, ValuesSourceConfig<ValuesSource> valuesSourceConfig, long precisionThreshold) {
+            super(name, InternalCardinality.TYPE.name(), valuesSourceConfig);
+            this.precision = HyperLogLogPlusPlus.precisionFromThreshold(precisionThreshold);
+        }
+
+        @Override
+        protected Aggregator createUnmapped(AggregationContext context, Aggregator parent) {
+            return new CardinalityAggregator(name, 0, null, precision, context, parent);
+        }
+
+        @Override
+        protected Aggregator create(ValuesSource valuesSource, long expectedBucketsCount, AggregationContext context, Aggregator parent) {
+            return new CardinalityAggregator(name, expectedBucketsCount, valuesSource, precision, context, parent);
+        }
+
+    }
+
+    private static interface Collector extends Releasable {
+
+        void collect(int doc, long bucketOrd);
+
+        void postCollect();
+
+    }
+
+    private static class LongValuesCollector implements Collector {
+
+        private final LongValues values;
+        private final HyperLogLogPlusPlus counts;
+
+        LongValuesCollector(HyperLogLogPlusPlus counts, LongValues values) {
+            this.values = values;
+            this.counts = counts;
+        }
+
+        @Override
+        public void collect(int doc, long bucketOrd) {
+            final int valueCount = values.setDocument(doc);
+            for (int i = 0; i < valueCount; ++i) {
+                counts.collect(bucketOrd, com.carrotsearch.hppc.hash.MurmurHash3.hash(values.nextValue()));
+            }
+        }
+
+        @Override
+        public void postCollect() {
+            // no-op
+        }
+
+        @Override
+        public boolean release() {
+            return true;
+        }
+
+    }
+
+    private static class DoubleValuesCollector implements Collector {
+
+        private final DoubleValues values;
+        private final HyperLogLogPlusPlus counts;
+
+        DoubleValuesCollector(HyperLogLogPlusPlus counts, DoubleValues values) {
+            this.values = values;
+            this.counts = counts;
+        }
+
+        @Override
+        public void collect(int doc, long bucketOrd) {
+            final int valueCount = values.setDocument(doc);
+            for (int i = 0; i < valueCount; ++i) {
+                final long bits = Double.doubleToLongBits(values.nextValue());
+                counts.collect(bucketOrd, com.carrotsearch.hppc.hash.MurmurHash3.hash(bits));
+            }
+        }
+
+        @Override
+        public void postCollect() {
+            // no-op
+        }
+
+        @Override
+        public boolean release() {
+            return true;
+        }
+
+    }
+
+    private static class DirectCollector implements Collector {
+
+        private final MurmurHash3.Hash128 hash = new MurmurHash3.Hash128();
+        private final BytesValues values;
+        private final HyperLogLogPlusPlus counts;
+
+        DirectCollector(HyperLogLogPlusPlus counts, BytesValues values) {
+            this.values = values;
+            this.counts = counts;
+        }
+
+        @Override
+        public void collect(int doc, long bucketOrd) {
+            final int valueCount = values.setDocument(doc);
+            for (int i = 0; i < valueCount; ++i) {
+                final BytesRef value = values.nextValue();
+                MurmurHash3.hash128(value.bytes, value.offset, value.length, 0, hash);
+                counts.collect(bucketOrd, hash.h1);
+            }
+        }
+
+        @Override
+        public void postCollect() {
+            // no-op
+        }
+
+        @Override
+        public boolean release() {
+            return true;
+        }
+
+    }
+
+    /**
+     * Records the ordinals that a bucket visited on the current segment and only hashes every
+     * distinct term once, after collection of the segment is done.
+     */
+    private static class OrdinalsCollector implements Collector {
+
+        private static final long SHALLOW_FIXEDBITSET_SIZE = RamUsageEstimator.shallowSizeOfInstance(FixedBitSet.class);
+
+        /**
+         * Return an approximate memory overhead per bucket for this collector.
+         */
+        public static long memoryOverhead(long maxOrd) {
+            return RamUsageEstimator.NUM_BYTES_OBJECT_REF + SHALLOW_FIXEDBITSET_SIZE + (maxOrd + 7) / 8; // 1 bit per ord
+        }
+
+        private final BigArrays bigArrays;
+        private final BytesValues.WithOrdinals values;
+        private final Ordinals.Docs ordinals;
+        private final int maxOrd;
+        private final HyperLogLogPlusPlus counts;
+        private ObjectArray<FixedBitSet> visitedOrds;
+
+        OrdinalsCollector(HyperLogLogPlusPlus counts, BytesValues.WithOrdinals values, BigArrays bigArrays) {
+            ordinals = values.ordinals();
+            maxOrd = (int) ordinals.getMaxOrd();
+            this.bigArrays = bigArrays;
+            this.counts = counts;
+            this.values = values;
+            visitedOrds = bigArrays.newObjectArray(1);
+        }
+
+        @Override
+        public void collect(int doc, long bucketOrd) {
+            visitedOrds = bigArrays.grow(visitedOrds, bucketOrd + 1);
+            FixedBitSet bits = visitedOrds.get(bucketOrd);
+            if (bits == null) {
+                bits = new FixedBitSet(maxOrd);
+                visitedOrds.set(bucketOrd, bits);
+            }
+            final int valueCount = ordinals.setDocument(doc);
+            for (int i = 0; i < valueCount; ++i) {
+                bits.set((int) ordinals.nextOrd());
+            }
+        }
+
+        @Override
+        public void postCollect() {
+            final FixedBitSet allVisitedOrds = new FixedBitSet(maxOrd);
+            for (long bucket = visitedOrds.size() - 1; bucket >= 0; --bucket) {
+                final FixedBitSet bits = visitedOrds.get(bucket);
+                if (bits != null) {
+                    allVisitedOrds.or(bits);
+                }
+            }
+
+            final MurmurHash3.Hash128 hash = new MurmurHash3.Hash128();
+            final LongArray hashes = bigArrays.newLongArray(maxOrd, false);
+            boolean success = false;
+            try {
+                for (int ord = nextSetBit(allVisitedOrds, 0); ord != -1; ord = nextSetBit(allVisitedOrds, ord + 1)) {
+                    final BytesRef value = values.getValueByOrd(ord);
+                    MurmurHash3.hash128(value.bytes, value.offset, value.length, 0, hash);
+                    hashes.set(ord, hash.h1);
+                }
+
+                for (long bucket = visitedOrds.size() - 1; bucket >= 0; --bucket) {
+                    final FixedBitSet bits = visitedOrds.get(bucket);
+                    if (bits != null) {
+                        for (int ord = nextSetBit(bits, 0); ord != -1; ord = nextSetBit(bits, ord + 1)) {
+                            counts.collect(bucket, hashes.get(ord));
+                        }
+                    }
+                }
+                success = true;
+            } finally {
+                Releasables.release(success, hashes);
+            }
+        }
+
+        private static int nextSetBit(FixedBitSet bits, int index) {
+            return index < bits.length() ? bits.nextSetBit(index) : -1;
+        }
+
+        @Override
+        public boolean release() {
+            Releasables.release(visitedOrds);
+            return true;
+        }
+
+    }
+
+}
@@ -0,0 +1,390 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search.aggregations.metrics.cardinality;
+
+import com.carrotsearch.hppc.hash.MurmurHash3;
+import org.apache.lucene.util.OpenBitSet;
+import org.apache.lucene.util.packed.PackedInts;
+import org.elasticsearch.ElasticsearchIllegalArgumentException;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.lease.Releasable;
+import org.elasticsearch.common.lease.Releasables;
+import org.elasticsearch.common.util.BigArrays;
+import org.elasticsearch.common.util.ByteArray;
+import org.elasticsearch.common.util.IntArray;
+
+import java.io.IOException;
+
+/**
+ * Hyperloglog++ counter, implemented based on pseudo code from
+ * http://static.googleusercontent.com/media/research.google.com/fr//pubs/archive/40671.pdf
+ *
+ * This implementation is different from the original implementation in that it uses a hash table instead of a sorted list for linear
+ * counting. Although this requires more space and makes hyperloglog (which is less accurate) used sooner, this is also considerably faster.
+ * The hash table and the hyperloglog registers of a bucket share the same bytes in a single {@link ByteArray}: when the hash table
+ * fills up, its content is read back and the bytes are reused to store the registers.
+ *
+ * Trying to understand what this class does without having read the paper is considered adventurous.
+ */
+public final class HyperLogLogPlusPlus implements Releasable {
+
+    public static final int MIN_PRECISION = 4;
+    public static final int MAX_PRECISION = 18;
+
+    private static final float MAX_LOAD_FACTOR = 0.75f;
+    private static final int P2 = 25;
+    private static final boolean LINEAR_COUNTING = false;
+    private static final boolean HYPERLOGLOG = true;
+
+    /**
+     * Compute the required precision so that <code>count</code> distinct entries
+     * would be counted with linear counting.
+     */
+    public static int precisionFromThreshold(long count) {
+        final long hashTableEntries = (long) Math.ceil(count / MAX_LOAD_FACTOR);
+        int precision = PackedInts.bitsRequired(hashTableEntries * 4);
+        precision = Math.max(precision, MIN_PRECISION);
+        precision = Math.min(precision, MAX_PRECISION);
+        return precision;
+    }
+
+    /**
+     * Return the expected per-bucket memory usage for the given precision.
+     */
+    public static long memoryUsage(int precision) {
+        return 1L << precision;
+    }
+
+    /**
+     * Compute a linear counting estimate given the number of registers <code>m</code>
+     * and the number of empty registers <code>v</code>.
+     */
+    static double linearCounting(long m, long v) {
+        return m * Math.log((double) m / v);
+    }
+
+    private final BigArrays bigArrays;
+    // true for buckets that use hyperloglog, false for those that use linear counting
+    private final OpenBitSet algorithm;
+    // m bytes per bucket, either a hash table of encoded hashes or the hyperloglog registers
+    private ByteArray runLens;
+    // number of entries in the hash table of buckets that use linear counting
+    private IntArray sizes;
+    private final int p;
+    private final int m;
+    private final int capacity;
+    private final int threshold;
+    private final double alphaMM;
+    private int[] scratch;
+    private byte[] zeros;
+
+    public HyperLogLogPlusPlus(int precision, BigArrays bigArrays, long initialBucketCount) {
+        if (precision < MIN_PRECISION) {
+            throw new ElasticsearchIllegalArgumentException("precision must be >= " + MIN_PRECISION);
+        }
+        if (precision > MAX_PRECISION) {
+            throw new ElasticsearchIllegalArgumentException("precision must be <= " + MAX_PRECISION);
+        }
+        p = precision;
+        m = 1 << p;
+        capacity = m / 4; // every entry of the hash table is a 4-bytes int
+        threshold = (int) (capacity * MAX_LOAD_FACTOR);
+        this.bigArrays = bigArrays;
+        algorithm = new OpenBitSet();
+        runLens = bigArrays.newByteArray(initialBucketCount << p);
+        sizes = bigArrays.newIntArray(initialBucketCount);
+        final double alpha;
+        switch (p) {
+        case 4:
+            alpha = 0.673;
+            break;
+        case 5:
+            alpha = 0.697;
+            break;
+        default:
+            alpha = 0.7213 / (1 + 1.079 / m);
+            break;
+        }
+        alphaMM = alpha * m * m;
+    }
+
+    public int precision() {
+        return p;
+    }
+
+    public long maxBucket() {
+        return sizes.size();
+    }
+
+    private void ensureCapacity(long numBuckets) {
+        runLens = bigArrays.grow(runLens, numBuckets << p);
+        sizes = bigArrays.grow(sizes, numBuckets);
+    }
+
+    /**
+     * Add the given hash to the counter of the given bucket.
+     */
+    public void collect(long bucket, long hash) {
+        ensureCapacity(bucket + 1);
+        if (algorithm.get(bucket)) {
+            collectHll(bucket, index(hash, p), runLen(hash, p));
+        } else {
+            collectLc(bucket, encodeHash(hash, p));
+        }
+    }
+
+    /**
+     * Return the estimated number of distinct values of the given bucket.
+     */
+    public long cardinality(long bucket) {
+        if (bucket >= maxBucket()) {
+            return 0;
+        }
+        if (algorithm.get(bucket)) {
+            return cardinalityHll(bucket);
+        } else {
+            return cardinalityLc(bucket);
+        }
+    }
+
+    /**
+     * Merge the counts of <code>otherBucket</code> of <code>other</code> into <code>thisBucket</code>.
+     */
+    public void merge(long thisBucket, HyperLogLogPlusPlus other, long otherBucket) {
+        if (p != other.p) {
+            throw new ElasticsearchIllegalArgumentException("Cannot merge counters with different precisions: " + p + " != " + other.p);
+        }
+        if (otherBucket >= other.maxBucket()) {
+            return;
+        }
+        ensureCapacity(thisBucket + 1);
+        if (other.algorithm.get(otherBucket)) {
+            if (!algorithm.get(thisBucket)) {
+                upgradeToHll(thisBucket);
+            }
+            final long thisStart = thisBucket << p;
+            final long otherStart = otherBucket << p;
+            for (int i = 0; i < m; ++i) {
+                final byte runLen = other.runLens.get(otherStart + i);
+                if (runLen > runLens.get(thisStart + i)) {
+                    runLens.set(thisStart + i, runLen);
+                }
+            }
+        } else {
+            for (int slot = 0; slot < capacity; ++slot) {
+                final int k = other.get(otherBucket, slot);
+                if (k != 0) {
+                    if (algorithm.get(thisBucket)) {
+                        collectHll(thisBucket, decodeIndex(k, p), decodeRunLen(k, p));
+                    } else {
+                        collectLc(thisBucket, k);
+                    }
+                }
+            }
+        }
+    }
+
+    private void collectHll(long bucket, int index, int runLen) {
+        final long bucketIndex = (bucket << p) + index;
+        if (runLens.get(bucketIndex) < runLen) {
+            runLens.set(bucketIndex, (byte) runLen);
+        }
+    }
+
+    private void collectLc(long bucket, int k) {
+        if (add(bucket, k) && sizes.increment(bucket, 1) > threshold) {
+            upgradeToHll(bucket);
+        }
+    }
+
+    private void upgradeToHll(long bucket) {
+        assert !algorithm.get(bucket);
+        if (scratch == null) {
+            scratch = new int[capacity];
+            zeros = new byte[m];
+        }
+        // read the hash table before its bytes get reused for the registers
+        int size = 0;
+        for (int slot = 0; slot < capacity; ++slot) {
+            final int k = get(bucket, slot);
+            if (k != 0) {
+                scratch[size++] = k;
+            }
+        }
+        runLens.set(bucket << p, zeros, 0, m);
+        sizes.set(bucket, 0);
+        algorithm.set(bucket);
+        for (int i = 0; i < size; ++i) {
+            collectHll(bucket, decodeIndex(scratch[i], p), decodeRunLen(scratch[i], p));
+        }
+    }
+
+    private long cardinalityHll(long bucket) {
+        double inverseSum = 0;
+        int zeros = 0;
+        final long start = bucket << p;
+        for (long i = start, end = start + m; i < end; ++i) {
+            final int runLen = runLens.get(i);
+            inverseSum += 1. / (1L << runLen);
+            if (runLen == 0) {
+                ++zeros;
+            }
+        }
+        final double e = alphaMM / inverseSum;
+        if (e <= 2.5 * m && zeros != 0) {
+            // small range correction
+            return Math.round(linearCounting(m, zeros));
+        }
+        return Math.round(e);
+    }
+
+    private long cardinalityLc(long bucket) {
+        final long m = 1L << P2;
+        final long v = m - sizes.get(bucket);
+        return Math.round(linearCounting(m, v));
+    }
+
+    // hash table of the linear counting mode, 0 is used as a marker of empty slots
+
+    private int get(long bucket, int slot) {
+        final long index = (bucket << p) + ((long) slot << 2);
+        return ((runLens.get(index) & 0xFF) << 24)
+                | ((runLens.get(index + 1) & 0xFF) << 16)
+                | ((runLens.get(index + 2) & 0xFF) << 8)
+                | (runLens.get(index + 3) & 0xFF);
+    }
+
+    private void set(long bucket, int slot, int value) {
+        final long index = (bucket << p) + ((long) slot << 2);
+        runLens.set(index, (byte) (value >>> 24));
+        runLens.set(index + 1, (byte) (value >>> 16));
+        runLens.set(index + 2, (byte) (value >>> 8));
+        runLens.set(index + 3, (byte) value);
+    }
+
+    /** Add <code>k</code> to the hash table of the given bucket, returns true if it was not present already. */
+    private boolean add(long bucket, int k) {
+        assert k != 0;
+        final int mask = capacity - 1;
+        for (int slot = MurmurHash3.hash(k) & mask; ; slot = (slot + 1) & mask) {
+            final int v = get(bucket, slot);
+            if (v == 0) {
+                set(bucket, slot, k);
+                return true;
+            } else if (v == k) {
+                return false;
+            }
+        }
+    }
+
+    // hash encoding for the linear counting mode, see section 5.3 of the paper
+
+    private static int index(long hash, int p) {
+        return (int) (hash >>> (64 - p));
+    }
+
+    private static int runLen(long hash, int p) {
+        return 1 + Math.min(Long.numberOfLeadingZeros(hash << p), 64 - p);
+    }
+
+    static int encodeHash(long hash, int p) {
+        final int index25 = (int) (hash >>> (64 - P2));
+        if ((index25 & ((1 << (P2 - p)) - 1)) == 0) {
+            // the bits between p and P2 are all zero, store the run length explicitly
+            final int runLen = runLen(hash, P2) + (P2 - p);
+            return (index25 << 7) | (runLen << 1) | 1;
+        } else {
+            return index25 << 1;
+        }
+    }
+
+    static int decodeIndex(int encoded, int p) {
+        if ((encoded & 1) != 0) {
+            return encoded >>> (7 + P2 - p);
+        } else {
+            return encoded >>> (1 + P2 - p);
+        }
+    }
+
+    static int decodeRunLen(int encoded, int p) {
+        if ((encoded & 1) != 0) {
+            return (encoded >>> 1) & 0x3F;
+        } else {
+            final int index25 = encoded >>> 1;
+            return Integer.numberOfLeadingZeros(index25 << (32 - P2 + p)) + 1;
+        }
+    }
+
+    @Override
+    public boolean release() {
+        Releasables.release(runLens, sizes);
+        return true;
+    }
+
+    /**
+     * Serialize the counts of the given bucket.
+     */
+    public void writeTo(long bucket, StreamOutput out) throws IOException {
+        out.writeVInt(p);
+        if (bucket < maxBucket() && algorithm.get(bucket)) {
+            out.writeBoolean(HYPERLOGLOG);
+            final long start = bucket << p;
+            for (long i = start, end = start + m; i < end; ++i) {
+                out.writeByte(runLens.get(i));
+            }
+        } else {
+            out.writeBoolean(LINEAR_COUNTING);
+            if (bucket >= maxBucket()) {
+                out.writeVLong(0);
+                return;
+            }
+            out.writeVLong(sizes.get(bucket));
+            for (int slot = 0; slot < capacity; ++slot) {
+                final int k = get(bucket, slot);
+                if (k != 0) {
+                    out.writeInt(k);
+                }
+            }
+        }
+    }
+
+    /**
+     * Read counts that have been serialized with {@link #writeTo(long, StreamOutput)} into a new single-bucket counter.
+     */
+    public static HyperLogLogPlusPlus readFrom(StreamInput in, BigArrays bigArrays) throws IOException {
+        final int precision = in.readVInt();
+        final HyperLogLogPlusPlus counts = new HyperLogLogPlusPlus(precision, bigArrays, 1);
+        final boolean algorithm = in.readBoolean();
+        if (algorithm == LINEAR_COUNTING) {
+            final long size = in.readVLong();
+            for (long i = 0; i < size; ++i) {
+                counts.collectLc(0, in.readInt());
+            }
+        } else {
+            counts.algorithm.set(0);
+            for (int i = 0; i < counts.m; ++i) {
+                counts.runLens.set(i, in.readByte());
+            }
+        }
+        return counts;
+    }
+
+}
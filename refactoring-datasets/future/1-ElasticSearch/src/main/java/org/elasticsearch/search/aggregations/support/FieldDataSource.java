@@ -20,6 +20,7 @@ package org.elasticsearch.search.aggregations.support;
 
 import com.google.common.primitives.Longs;
 import org.apache.lucene.index.AtomicReaderContext;
+import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.util.ArrayUtil;
 import org.apache.lucene.util.BytesRef;
 import org.apache.lucene.util.BytesRefHash;
@@ -28,6 +29,7 @@ import org.elasticsearch.common.lucene.ReaderContextAware;
 import org.elasticsearch.common.util.CollectionUtils;
 import org.elasticsearch.index.fielddata.*;
 import org.elasticsearch.index.fielddata.AtomicFieldData.Order;
+import org.elasticsearch.index.fielddata.ordinals.Ordinals;
 import org.elasticsearch.script.SearchScript;
 import org.elasticsearch.search.aggregations.support.FieldDataSource.Bytes.SortedAndUnique.SortedUniqueBytesValues;
 import org.elasticsearch.search.aggregations.support.bytes.ScriptBytesValues;
@@ -152,6 +154,17 @@ public abstract class FieldDataSource {
 
             public abstract BytesValues.WithOrdinals bytesValues();
 
+            /**
+             * Values of the current segment whose ordinals are global to the top level reader.
+             * {@link #globalMaxOrd(IndexReader)} must have been called before.
+             */
+            public abstract BytesValues.WithOrdinals globalBytesValues();
+
+            /**
+             * Loads the global ordinals of the top level reader and returns the maximum global ordinal (exclusive).
+             */
+            public abstract long globalMaxOrd(IndexReader indexReader);
+
             public static class FieldData extends WithOrdinals implements ReaderContextAware {
 
                 protected boolean needsHashes;
@@ -160,6 +173,11 @@ public abstract class FieldDataSource {
                 protected AtomicFieldData.WithOrdinals<?> atomicFieldData;
                 private BytesValues.WithOrdinals bytesValues;
 
+                private AtomicReaderContext reader;
+                protected IndexFieldData.WithOrdinals<?> globalFieldData;
+                protected AtomicFieldData.WithOrdinals<?> globalAtomicFieldData;
+                private BytesValues.WithOrdinals globalBytesValues;
+
                 public FieldData(IndexFieldData.WithOrdinals<?> indexFieldData, MetaData metaData) {
                     this.indexFieldData = indexFieldData;
                     this.metaData = metaData;
@@ -177,10 +195,17 @@ public abstract class FieldDataSource {
 
                 @Override
                 public void setNextReader(AtomicReaderContext reader) {
+                    this.reader = reader;
                     atomicFieldData = indexFieldData.load(reader);
                     if (bytesValues != null) {
                         bytesValues = atomicFieldData.getBytesValues(needsHashes);
                     }
+                    if (globalFieldData != null) {
+                        globalAtomicFieldData = globalFieldData.load(reader);
+                        if (globalBytesValues != null) {
+                            globalBytesValues = globalAtomicFieldData.getBytesValues(needsHashes);
+                        }
+                    }
                 }
 
                 @Override
@@ -191,6 +216,28 @@ public abstract class FieldDataSource {
                     return bytesValues;
                 }
 
+                @Override
+                public BytesValues.WithOrdinals globalBytesValues() {
+                    if (globalBytesValues == null) {
+                        globalBytesValues = globalAtomicFieldData.getBytesValues(needsHashes);
+                    }
+                    return globalBytesValues;
+                }
+
+                @Override
+                public long globalMaxOrd(IndexReader indexReader) {
+                    if (globalFieldData == null) {
+                        globalFieldData = indexFieldData.loadGlobal(indexReader);
+                        if (reader != null) {
+                            globalAtomicFieldData = globalFieldData.load(reader);
+                        }
+                    }
+                    if (indexReader.leaves().isEmpty()) {
+                        return Ordinals.MIN_ORDINAL;
+                    }
+                    return globalFieldData.load(indexReader.leaves().get(0)).getBytesValues(false).ordinals().getMaxOrd();
+                }
+
             }
 
         }
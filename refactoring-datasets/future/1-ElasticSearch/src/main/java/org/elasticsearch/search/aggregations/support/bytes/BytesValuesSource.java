@@ -18,6 +18,7 @@
  */
 package org.elasticsearch.search.aggregations.support.bytes;
 
+import org.apache.lucene.index.IndexReader;
 import org.elasticsearch.index.fielddata.BytesValues;
 import org.elasticsearch.search.aggregations.support.FieldDataSource;
 import org.elasticsearch.search.aggregations.support.ValuesSource;
@@ -57,6 +58,14 @@ public class BytesValuesSource implements ValuesSource {
             return source.bytesValues();
         }
 
+        public BytesValues.WithOrdinals globalBytesValues() {
+            return source.globalBytesValues();
+        }
+
+        public long globalMaxOrd(IndexReader indexReader) {
+            return source.globalMaxOrd(indexReader);
+        }
+
     }
 
 }
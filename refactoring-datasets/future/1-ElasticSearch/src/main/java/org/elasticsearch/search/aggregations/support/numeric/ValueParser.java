@@ -84,7 +84,9 @@ public interface ValueParser {
 
         @Override
         public long parseLong(String value, SearchContext searchContext) {
-            return parser.parse(value, searchContext.nowInMillis());
+            // only resolve the current time if it is used, so the request can still be cached otherwise
+            long now = value.startsWith("now") ? searchContext.nowInMillis() : 0;
+            return parser.parse(value, now);
         }
 
         @Override
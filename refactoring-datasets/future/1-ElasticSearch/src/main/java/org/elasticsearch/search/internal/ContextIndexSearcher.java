@@ -19,8 +19,11 @@
 
 package org.elasticsearch.search.internal;
 
+import jsr166e.ForkJoinPool;
+import jsr166e.ForkJoinTask;
 import org.apache.lucene.index.AtomicReaderContext;
 import org.apache.lucene.search.*;
+import org.elasticsearch.ExceptionsHelper;
 import org.elasticsearch.common.lucene.MinimumScoreCollector;
 import org.elasticsearch.common.lucene.MultiCollector;
 import org.elasticsearch.common.lucene.search.FilteredCollector;
@@ -32,6 +35,9 @@ import org.elasticsearch.search.dfs.CachedDfSource;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * Context-aware extension of {@link IndexSearcher}.
@@ -59,6 +65,11 @@ public class ContextIndexSearcher extends IndexSearcher {
     private boolean enableMainDocIdSetCollector;
     private DocIdSetCollector mainDocIdSetCollector;
 
+    private ForkJoinPool concurrentPool;
+    private int concurrentSlices = 1;
+    private int concurrentMinDocsPerSlice;
+    private boolean concurrentSearchDisabled;
+
     public ContextIndexSearcher(SearchContext searchContext, Engine.Searcher searcher) {
         super(searcher.reader());
         in = searcher.searcher();
@@ -96,6 +107,26 @@ public class ContextIndexSearcher extends IndexSearcher {
         this.enableMainDocIdSetCollector = true;
     }
 
+    /**
+     * Allows the top docs of the main query to be collected concurrently, on up to <tt>slices</tt> slices of the
+     * segments of the reader, each holding at least <tt>minDocsPerSlice</tt> documents. Slices are executed on the
+     * provided pool, and the main query only runs concurrently if no main query collectors (facets, aggregations)
+     * need to see all the matching documents.
+     */
+    public void concurrentSearch(ForkJoinPool pool, int slices, int minDocsPerSlice) {
+        this.concurrentPool = pool;
+        this.concurrentSlices = slices;
+        this.concurrentMinDocsPerSlice = minDocsPerSlice;
+    }
+
+    /**
+     * Forces the main query to run on a single thread, because it holds state that is shared across segments and
+     * so can't be used by several slices at the same time.
+     */
+    public void disableConcurrentSearch() {
+        this.concurrentSearchDisabled = true;
+    }
+
     public void inStage(Stage stage) {
         this.currentState = stage;
     }
@@ -191,6 +222,161 @@ public class ContextIndexSearcher extends IndexSearcher {
         }
     }
 
+    @Override
+    protected TopDocs search(Weight weight, ScoreDoc after, int nDocs) throws IOException {
+        final List<AtomicReaderContext>[] slices = concurrentSlices();
+        if (slices == null) {
+            return super.search(weight, after, nDocs);
+        }
+        final int limit = Math.max(1, Math.min(nDocs, getIndexReader().maxDoc()));
+        final TopScoreDocCollector[] collectors = new TopScoreDocCollector[slices.length];
+        for (int i = 0; i < slices.length; i++) {
+            collectors[i] = TopScoreDocCollector.create(limit, after, !weight.scoresDocsOutOfOrder());
+        }
+        searchConcurrently(slices, weight, collectors);
+        final TopDocs[] topDocs = new TopDocs[slices.length];
+        for (int i = 0; i < slices.length; i++) {
+            topDocs[i] = collectors[i].topDocs();
+        }
+        return resetShardIndex(TopDocs.merge(null, limit, topDocs));
+    }
+
+    @Override
+    protected TopFieldDocs search(Weight weight, FieldDoc after, int nDocs, Sort sort, boolean fillFields, boolean doDocScores, boolean doMaxScore) throws IOException {
+        final List<AtomicReaderContext>[] slices = concurrentSlices();
+        if (slices == null || !fillFields) {
+            // merging sorted top docs requires the sort values
+            return super.search(weight, after, nDocs, sort, fillFields, doDocScores, doMaxScore);
+        }
+        final int limit = Math.max(1, Math.min(nDocs, getIndexReader().maxDoc()));
+        final TopFieldCollector[] collectors = new TopFieldCollector[slices.length];
+        for (int i = 0; i < slices.length; i++) {
+            collectors[i] = TopFieldCollector.create(sort, limit, after, true, doDocScores, doMaxScore, !weight.scoresDocsOutOfOrder());
+        }
+        searchConcurrently(slices, weight, collectors);
+        final TopFieldDocs[] topDocs = new TopFieldDocs[slices.length];
+        for (int i = 0; i < slices.length; i++) {
+            topDocs[i] = (TopFieldDocs) collectors[i].topDocs();
+        }
+        return (TopFieldDocs) resetShardIndex(TopDocs.merge(sort, limit, topDocs));
+    }
+
+    /**
+     * Returns the slices to execute the main query on, or <tt>null</tt> if it should not be executed concurrently.
+     * Slices are contiguous ranges of segments with about the same number of documents, so that merging the top
+     * docs of the slices breaks ties on the doc id just like a single threaded search does.
+     */
+    @SuppressWarnings("unchecked")
+    private List<AtomicReaderContext>[] concurrentSlices() {
+        if (concurrentPool == null || concurrentSlices <= 1 || concurrentSearchDisabled || currentState != Stage.MAIN_QUERY
+                || enableMainDocIdSetCollector || (queryCollectors != null && !queryCollectors.isEmpty())) {
+            return null;
+        }
+        final List<AtomicReaderContext> leaves = getIndexReader().leaves();
+        final int maxDoc = getIndexReader().maxDoc();
+        int numSlices = Math.min(concurrentSlices, leaves.size());
+        if (concurrentMinDocsPerSlice > 0) {
+            numSlices = Math.min(numSlices, maxDoc / concurrentMinDocsPerSlice);
+        }
+        if (numSlices <= 1) {
+            return null;
+        }
+        final List<AtomicReaderContext>[] slices = new List[numSlices];
+        int slice = 0;
+        long docsInSlices = 0;
+        slices[0] = new ArrayList<AtomicReaderContext>();
+        for (int i = 0; i < leaves.size(); i++) {
+            final AtomicReaderContext leaf = leaves.get(i);
+            // move to the next slice once this one holds its share of the documents, while keeping
+            // at least one segment for each of the remaining slices
+            if (!slices[slice].isEmpty() && slice < numSlices - 1
+                    && (docsInSlices >= (long) maxDoc * (slice + 1) / numSlices || leaves.size() - i == numSlices - 1 - slice)) {
+                slices[++slice] = new ArrayList<AtomicReaderContext>();
+            }
+            slices[slice].add(leaf);
+            docsInSlices += leaf.reader().maxDoc();
+        }
+        return slice == numSlices - 1 ? slices : null;
+    }
+
+    private void searchConcurrently(final List<AtomicReaderContext>[] slices, final Weight weight, final Collector[] collectors) throws IOException {
+        final AtomicBoolean timedOut = new AtomicBoolean();
+        try {
+            final List<ForkJoinTask<Void>> tasks = new ArrayList<ForkJoinTask<Void>>(slices.length - 1);
+            for (int i = 1; i < slices.length; i++) {
+                final int slice = i;
+                tasks.add(concurrentPool.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() throws Exception {
+                        // queries and filters may look up the search context while creating their weights and scorers
+                        SearchContext.setCurrent(searchContext);
+                        try {
+                            // each slice gets its own weight so that no scorer state is shared with other slices
+                            final Weight sliceWeight = createNormalizedWeight(weight.getQuery());
+                            searchSlice(slices[slice], sliceWeight, collectors[slice], timedOut);
+                        } finally {
+                            SearchContext.removeCurrent();
+                        }
+                        return null;
+                    }
+                }));
+            }
+            // the searching thread executes the first slice itself
+            Throwable failure = null;
+            try {
+                searchSlice(slices[0], weight, collectors[0], timedOut);
+            } catch (Throwable t) {
+                failure = t;
+            }
+            for (ForkJoinTask<Void> task : tasks) {
+                try {
+                    task.get();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    failure = failure == null ? e : failure;
+                } catch (ExecutionException e) {
+                    failure = failure == null ? e.getCause() : failure;
+                }
+            }
+            if (failure != null) {
+                if (failure instanceof IOException) {
+                    throw (IOException) failure;
+                }
+                throw ExceptionsHelper.convertToRuntime(failure);
+            }
+            if (timedOut.get()) {
+                searchContext.queryResult().searchTimedOut(true);
+            }
+        } finally {
+            searchContext.clearReleasables();
+        }
+    }
+
+    private void searchSlice(List<AtomicReaderContext> leaves, Weight weight, Collector collector, AtomicBoolean timedOut) throws IOException {
+        if (searchContext.timeoutInMillis() != -1) {
+            collector = new TimeLimitingCollector(collector, TimeLimitingCollector.getGlobalCounter(), searchContext.timeoutInMillis());
+        }
+        if (searchContext.parsedPostFilter() != null) {
+            collector = new FilteredCollector(collector, searchContext.parsedPostFilter().filter());
+        }
+        if (searchContext.minimumScore() != null) {
+            collector = new MinimumScoreCollector(collector, searchContext.minimumScore());
+        }
+        try {
+            super.search(leaves, weight, collector);
+        } catch (TimeLimitingCollector.TimeExceededException e) {
+            timedOut.set(true);
+        }
+    }
+
+    private static TopDocs resetShardIndex(TopDocs topDocs) {
+        // merging sets the index of the slice a doc comes from, which is not the index of the shard
+        for (ScoreDoc scoreDoc : topDocs.scoreDocs) {
+            scoreDoc.shardIndex = -1;
+        }
+        return topDocs;
+    }
+
     @Override
     public Explanation explain(Query query, int doc) throws IOException {
         try {
@@ -299,7 +299,8 @@ public class DefaultSearchContext extends SearchContext {
         return this;
     }
 
-    public long nowInMillis() {
+    @Override
+    protected long nowInMillisImpl() {
         return request.nowInMillis();
     }
 
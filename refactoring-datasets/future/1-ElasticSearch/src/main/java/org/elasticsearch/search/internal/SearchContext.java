@@ -66,6 +66,8 @@ public abstract class SearchContext implements Releasable {
 
     private static ThreadLocal<SearchContext> current = new ThreadLocal<SearchContext>();
 
+    private boolean nowInMillisUsed;
+
     public static void setCurrent(SearchContext value) {
         current.set(value);
         QueryParseContext.setTypes(value.types());
@@ -111,7 +113,23 @@ public abstract class SearchContext implements Releasable {
 
     public abstract SearchContext queryBoost(float queryBoost);
 
-    public abstract long nowInMillis();
+    /**
+     * The time the request was issued at, used to resolve <tt>now</tt>. Calling it marks the results of the
+     * request as depending on the time they were computed at, see {@link #nowInMillisUsed()}.
+     */
+    public final long nowInMillis() {
+        nowInMillisUsed = true;
+        return nowInMillisImpl();
+    }
+
+    /**
+     * Did executing the request depend on the time it was issued at?
+     */
+    public final boolean nowInMillisUsed() {
+        return nowInMillisUsed;
+    }
+
+    protected abstract long nowInMillisImpl();
 
     public abstract Scroll scroll();
 
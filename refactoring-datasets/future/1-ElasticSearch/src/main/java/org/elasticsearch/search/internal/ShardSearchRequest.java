@@ -24,6 +24,7 @@ import org.elasticsearch.action.search.SearchType;
 import org.elasticsearch.cluster.routing.ShardRouting;
 import org.elasticsearch.common.Strings;
 import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.search.Scroll;
@@ -168,6 +169,21 @@ public class ShardSearchRequest extends TransportRequest {
         return this;
     }
 
+    /**
+     * Returns the part of the request that determines the result of the query phase on a given version of the shard.
+     * The time the request was issued at is left out on purpose, see {@link org.elasticsearch.indices.cache.query.IndicesQueryCache}.
+     */
+    public BytesReference cacheKey() throws IOException {
+        BytesStreamOutput out = new BytesStreamOutput();
+        out.writeByte(searchType.id());
+        out.writeVInt(numberOfShards);
+        out.writeBytesReference(source);
+        out.writeBytesReference(extraSource);
+        out.writeStringArray(types);
+        out.writeStringArrayNullable(filteringAliases);
+        return out.bytes().copyBytesArray();
+    }
+
     @Override
     public void readFrom(StreamInput in) throws IOException {
         super.readFrom(in);
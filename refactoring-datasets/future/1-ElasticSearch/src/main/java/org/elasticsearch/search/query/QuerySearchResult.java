@@ -149,7 +149,16 @@ public class QuerySearchResult extends TransportResponse implements QuerySearchR
     @Override
     public void readFrom(StreamInput in) throws IOException {
         super.readFrom(in);
-        id = in.readLong();
+        long id = in.readLong();
+        readFromWithId(id, in);
+    }
+
+    /**
+     * Reads everything but the transport headers and the id, which are taken from the given id instead.
+     * Used to reconstruct a result that was written using {@link #writeToNoId(StreamOutput)}.
+     */
+    public void readFromWithId(long id, StreamInput in) throws IOException {
+        this.id = id;
 //        shardTarget = readSearchShardTarget(in);
         from = in.readVInt();
         size = in.readVInt();
@@ -170,6 +179,13 @@ public class QuerySearchResult extends TransportResponse implements QuerySearchR
     public void writeTo(StreamOutput out) throws IOException {
         super.writeTo(out);
         out.writeLong(id);
+        writeToNoId(out);
+    }
+
+    /**
+     * Writes everything but the transport headers and the id, see {@link #readFromWithId(long, StreamInput)}.
+     */
+    public void writeToNoId(StreamOutput out) throws IOException {
 //        shardTarget.writeTo(out);
         out.writeVInt(from);
         out.writeVInt(size);
@@ -50,23 +50,33 @@ public class AnalyzingCompletionLookupProvider extends CompletionLookupProvider
     public static final int SERIALIZE_PRESERVE_SEPERATORS = 1;
     public static final int SERIALIZE_HAS_PAYLOADS = 2;
     public static final int SERIALIZE_PRESERVE_POSITION_INCREMENTS = 4;
+    public static final int SERIALIZE_LOAD_LAZILY = 8;
 
     private static final int MAX_SURFACE_FORMS_PER_ANALYZED_FORM = 256;
     private static final int MAX_GRAPH_EXPANSIONS = -1;
 
     public static final String CODEC_NAME = "analyzing";
     public static final int CODEC_VERSION_START = 1;
-    public static final int CODEC_VERSION_LATEST = 2;
+    public static final int CODEC_VERSION_SERIALIZED_LABELS = 2;
+    // the per field meta data is written in front of the FST so the FST can be skipped and loaded lazily
+    public static final int CODEC_VERSION_META_FIRST = 3;
+    public static final int CODEC_VERSION_LATEST = CODEC_VERSION_META_FIRST;
 
     private boolean preserveSep;
     private boolean preservePositionIncrements;
     private int maxSurfaceFormsPerAnalyzedForm;
     private int maxGraphExpansions;
     private boolean hasPayloads;
+    private volatile boolean loadLazily;
     private final XAnalyzingSuggester prototype;
 
     public AnalyzingCompletionLookupProvider(boolean preserveSep, boolean exactFirst, boolean preservePositionIncrements, boolean hasPayloads) {
+        this(preserveSep, exactFirst, preservePositionIncrements, hasPayloads, false);
+    }
+
+    public AnalyzingCompletionLookupProvider(boolean preserveSep, boolean exactFirst, boolean preservePositionIncrements, boolean hasPayloads, boolean loadLazily) {
         this.preserveSep = preserveSep;
+        this.loadLazily = loadLazily;
         this.preservePositionIncrements = preservePositionIncrements;
         this.hasPayloads = hasPayloads;
         this.maxSurfaceFormsPerAnalyzedForm = MAX_SURFACE_FORMS_PER_ANALYZED_FORM;
@@ -82,6 +92,14 @@ public class AnalyzingCompletionLookupProvider extends CompletionLookupProvider
         return "analyzing";
     }
 
+    /**
+     * Sets whether the FSTs of segments written from now on are loaded when their segment is opened
+     * or only once they are needed.
+     */
+    public void loadLazily(boolean loadLazily) {
+        this.loadLazily = loadLazily;
+    }
+
     @Override
     public FieldsConsumer consumer(final IndexOutput output) throws IOException {
         CodecUtil.writeHeader(output, CODEC_NAME, CODEC_VERSION_LATEST);
@@ -146,8 +164,7 @@ public class AnalyzingCompletionLookupProvider extends CompletionLookupProvider
                          */
                         if (build != null) {
                             fieldOffsets.put(field, output.getFilePointer());
-                            build.save(output);
-                            /* write some more meta-info */
+                            /* write some meta-info, followed by the FST */
                             output.writeVInt(postingsConsumer.getMaxAnalyzedPathsForOneInput());
                             output.writeVInt(maxSurfaceFormsPerAnalyzedForm);
                             output.writeInt(maxGraphExpansions); // can be negative
@@ -155,11 +172,13 @@ public class AnalyzingCompletionLookupProvider extends CompletionLookupProvider
                             options |= preserveSep ? SERIALIZE_PRESERVE_SEPERATORS : 0;
                             options |= hasPayloads ? SERIALIZE_HAS_PAYLOADS : 0;
                             options |= preservePositionIncrements ? SERIALIZE_PRESERVE_POSITION_INCREMENTS : 0;
+                            options |= loadLazily ? SERIALIZE_LOAD_LAZILY : 0;
                             output.writeVInt(options);
                             output.writeVInt(XAnalyzingSuggester.SEP_LABEL);
                             output.writeVInt(XAnalyzingSuggester.END_BYTE);
                             output.writeVInt(XAnalyzingSuggester.PAYLOAD_SEP);
                             output.writeVInt(XAnalyzingSuggester.HOLE_CHARACTER);
+                            build.save(output);
                         }
                     }
                 };
@@ -203,8 +222,7 @@ public class AnalyzingCompletionLookupProvider extends CompletionLookupProvider
 
 
     @Override
-    public LookupFactory load(IndexInput input) throws IOException {
-        long sizeInBytes = 0;
+    public LookupFactory load(final IndexInput input) throws IOException {
         int version = CodecUtil.checkHeader(input, CODEC_NAME, CODEC_VERSION_START, CODEC_VERSION_LATEST);
         final Map<String, AnalyzingSuggestHolder> lookupMap = new HashMap<String, AnalyzingSuggestHolder>();
         input.seek(input.length() - 8);
@@ -219,10 +237,13 @@ public class AnalyzingCompletionLookupProvider extends CompletionLookupProvider
             meta.put(offset, name);
         }
 
+        boolean retainsInput = false;
         for (Map.Entry<Long, String> entry : meta.entrySet()) {
             input.seek(entry.getKey());
-            FST<Pair<Long, BytesRef>> fst = new FST<Pair<Long, BytesRef>>(input, new PairOutputs<Long, BytesRef>(
-                    PositiveIntOutputs.getSingleton(), ByteSequenceOutputs.getSingleton()));
+            FST<Pair<Long, BytesRef>> fst = null;
+            if (version < CODEC_VERSION_META_FIRST) {
+                fst = readFST(input);
+            }
             int maxAnalyzedPathsForOneInput = input.readVInt();
             int maxSurfaceFormsPerAnalyzedForm = input.readVInt();
             int maxGraphExpansions = input.readInt();
@@ -248,15 +269,25 @@ public class AnalyzingCompletionLookupProvider extends CompletionLookupProvider
                     holeCharacter = input.readVInt();
             }
 
-            AnalyzingSuggestHolder holder = new AnalyzingSuggestHolder(preserveSep, preservePositionIncrements, maxSurfaceFormsPerAnalyzedForm, maxGraphExpansions,
-                    hasPayloads, maxAnalyzedPathsForOneInput, fst, sepLabel, payloadSep, endByte, holeCharacter);
-            sizeInBytes += fst.sizeInBytes();
+            AnalyzingSuggestHolder holder;
+            if (fst != null) {
+                holder = new AnalyzingSuggestHolder(preserveSep, preservePositionIncrements, maxSurfaceFormsPerAnalyzedForm, maxGraphExpansions,
+                        hasPayloads, maxAnalyzedPathsForOneInput, fst, sepLabel, payloadSep, endByte, holeCharacter);
+            } else if ((options & SERIALIZE_LOAD_LAZILY) != 0) {
+                // the FST is read from the file on first use, the input stays open until the segment is closed
+                holder = new AnalyzingSuggestHolder(preserveSep, preservePositionIncrements, maxSurfaceFormsPerAnalyzedForm, maxGraphExpansions,
+                        hasPayloads, maxAnalyzedPathsForOneInput, input, input.getFilePointer(), sepLabel, payloadSep, endByte, holeCharacter);
+                retainsInput = true;
+            } else {
+                holder = new AnalyzingSuggestHolder(preserveSep, preservePositionIncrements, maxSurfaceFormsPerAnalyzedForm, maxGraphExpansions,
+                        hasPayloads, maxAnalyzedPathsForOneInput, readFST(input), sepLabel, payloadSep, endByte, holeCharacter);
+            }
             lookupMap.put(entry.getValue(), holder);
         }
-        final long ramBytesUsed = sizeInBytes;
+        final boolean closeInput = retainsInput;
         return new LookupFactory() {
             @Override
-            public Lookup getLookup(FieldMapper<?> mapper, CompletionSuggestionContext suggestionContext) {
+            public Lookup getLookup(FieldMapper<?> mapper, CompletionSuggestionContext suggestionContext) throws IOException {
                 AnalyzingSuggestHolder analyzingSuggestHolder = lookupMap.get(mapper.names().indexName());
                 if (analyzingSuggestHolder == null) {
                     return null;
@@ -269,14 +300,14 @@ public class AnalyzingCompletionLookupProvider extends CompletionLookupProvider
                             analyzingSuggestHolder.maxSurfaceFormsPerAnalyzedForm, analyzingSuggestHolder.maxGraphExpansions,
                             suggestionContext.getFuzzyEditDistance(), suggestionContext.isFuzzyTranspositions(),
                             suggestionContext.getFuzzyPrefixLength(), suggestionContext.getFuzzyMinLength(), suggestionContext.isFuzzyUnicodeAware(),
-                            analyzingSuggestHolder.fst, analyzingSuggestHolder.hasPayloads,
+                            analyzingSuggestHolder.fst(), analyzingSuggestHolder.hasPayloads,
                             analyzingSuggestHolder.maxAnalyzedPathsForOneInput, analyzingSuggestHolder.sepLabel, analyzingSuggestHolder.payloadSep, analyzingSuggestHolder.endByte,
                             analyzingSuggestHolder.holeCharacter);
 
                 } else {
                     suggester = new XAnalyzingSuggester(mapper.indexAnalyzer(), mapper.searchAnalyzer(), flags,
                             analyzingSuggestHolder.maxSurfaceFormsPerAnalyzedForm, analyzingSuggestHolder.maxGraphExpansions,
-                            analyzingSuggestHolder.preservePositionIncrements, analyzingSuggestHolder.fst, analyzingSuggestHolder.hasPayloads,
+                            analyzingSuggestHolder.preservePositionIncrements, analyzingSuggestHolder.fst(), analyzingSuggestHolder.hasPayloads,
                             analyzingSuggestHolder.maxAnalyzedPathsForOneInput, analyzingSuggestHolder.sepLabel, analyzingSuggestHolder.payloadSep, analyzingSuggestHolder.endByte,
                             analyzingSuggestHolder.holeCharacter);
                 }
@@ -292,14 +323,15 @@ public class AnalyzingCompletionLookupProvider extends CompletionLookupProvider
                 }
 
                 for (Map.Entry<String, AnalyzingSuggestHolder> entry : lookupMap.entrySet()) {
-                    sizeInBytes += entry.getValue().fst.sizeInBytes();
+                    // FSTs that were not loaded yet don't use any memory
+                    long fstSize = entry.getValue().fstSizeInBytes();
+                    sizeInBytes += fstSize;
                     if (fields == null || fields.length == 0) {
                         continue;
                     }
                     for (String field : fields) {
                         // support for getting fields by regex as in fielddata
                         if (Regex.simpleMatch(field, entry.getKey())) {
-                            long fstSize = entry.getValue().fst.sizeInBytes();
                             completionFields.addTo(field, fstSize);
                         }
                     }
@@ -315,11 +347,32 @@ public class AnalyzingCompletionLookupProvider extends CompletionLookupProvider
 
             @Override
             public long ramBytesUsed() {
-                return ramBytesUsed;
+                long sizeInBytes = 0;
+                for (AnalyzingSuggestHolder holder : lookupMap.values()) {
+                    sizeInBytes += holder.fstSizeInBytes();
+                }
+                return sizeInBytes;
+            }
+
+            @Override
+            public boolean retainsInput() {
+                return closeInput;
+            }
+
+            @Override
+            public void close() throws IOException {
+                if (closeInput) {
+                    input.close();
+                }
             }
         };
     }
 
+    private static FST<Pair<Long, BytesRef>> readFST(IndexInput input) throws IOException {
+        return new FST<Pair<Long, BytesRef>>(input, new PairOutputs<Long, BytesRef>(
+                PositiveIntOutputs.getSingleton(), ByteSequenceOutputs.getSingleton()));
+    }
+
     static class AnalyzingSuggestHolder {
         final boolean preserveSep;
         final boolean preservePositionIncrements;
@@ -327,7 +380,10 @@ public class AnalyzingCompletionLookupProvider extends CompletionLookupProvider
         final int maxGraphExpansions;
         final boolean hasPayloads;
         final int maxAnalyzedPathsForOneInput;
-        final FST<Pair<Long, BytesRef>> fst;
+        // null until first used if the FST is loaded lazily
+        volatile FST<Pair<Long, BytesRef>> fst;
+        private final IndexInput fstInput;
+        private final long fstPointer;
         final int sepLabel;
         final int payloadSep;
         final int endByte;
@@ -346,11 +402,56 @@ public class AnalyzingCompletionLookupProvider extends CompletionLookupProvider
             this.hasPayloads = hasPayloads;
             this.maxAnalyzedPathsForOneInput = maxAnalyzedPathsForOneInput;
             this.fst = fst;
+            this.fstInput = null;
+            this.fstPointer = -1;
             this.sepLabel = sepLabel;
             this.payloadSep = payloadSep;
             this.endByte = endByte;
             this.holeCharacter = holeCharacter;
         }
+
+        public AnalyzingSuggestHolder(boolean preserveSep, boolean preservePositionIncrements, int maxSurfaceFormsPerAnalyzedForm, int maxGraphExpansions, boolean hasPayloads, int maxAnalyzedPathsForOneInput, IndexInput fstInput, long fstPointer, int sepLabel, int payloadSep, int endByte, int holeCharacter) {
+            this.preserveSep = preserveSep;
+            this.preservePositionIncrements = preservePositionIncrements;
+            this.maxSurfaceFormsPerAnalyzedForm = maxSurfaceFormsPerAnalyzedForm;
+            this.maxGraphExpansions = maxGraphExpansions;
+            this.hasPayloads = hasPayloads;
+            this.maxAnalyzedPathsForOneInput = maxAnalyzedPathsForOneInput;
+            this.fstInput = fstInput;
+            this.fstPointer = fstPointer;
+            this.sepLabel = sepLabel;
+            this.payloadSep = payloadSep;
+            this.endByte = endByte;
+            this.holeCharacter = holeCharacter;
+        }
+
+        /**
+         * Returns the FST, reading it from the (usually memory mapped) completion file of the segment
+         * if it is loaded lazily and was not used before.
+         */
+        FST<Pair<Long, BytesRef>> fst() throws IOException {
+            FST<Pair<Long, BytesRef>> fst = this.fst;
+            if (fst == null) {
+                synchronized (this) {
+                    fst = this.fst;
+                    if (fst == null) {
+                        IndexInput input = fstInput.clone();
+                        input.seek(fstPointer);
+                        this.fst = fst = readFST(input);
+                    }
+                }
+            }
+            return fst;
+        }
+
+        boolean isLoaded() {
+            return fst != null;
+        }
+
+        long fstSizeInBytes() {
+            FST<Pair<Long, BytesRef>> fst = this.fst;
+            return fst == null ? 0 : fst.sizeInBytes();
+        }
     }
 
     @Override
@@ -37,6 +37,7 @@ import org.elasticsearch.search.suggest.completion.CompletionTokenStream.ToFinit
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
 import java.io.IOException;
 import java.util.Comparator;
 import java.util.Iterator;
@@ -213,6 +214,7 @@ public class Completion090PostingsFormat extends PostingsFormat {
             IndexInput input = state.directory.openInput(suggestFSTFile, state.context);
             CodecUtil.checkHeader(input, CODEC_NAME, SUGGEST_CODEC_VERSION, SUGGEST_CODEC_VERSION);
             FieldsProducer delegateProducer = null;
+            LookupFactory lookupFactory = null;
             boolean success = false;
             try {
                 PostingsFormat delegatePostingsFormat = PostingsFormat.forName(input.readString());
@@ -231,16 +233,15 @@ public class Completion090PostingsFormat extends PostingsFormat {
                     // TODO: maybe we can do this in a fully lazy fashion based on some configuration
                     // eventually we should have some kind of curciut breaker that prevents us from going OOM here
                     // with some configuration
-                    this.lookupFactory = completionLookupProvider.load(input);
-                } else {
-                    this.lookupFactory = null;
+                    lookupFactory = completionLookupProvider.load(input);
                 }
+                this.lookupFactory = lookupFactory;
                 this.delegateProducer = delegateProducer;
                 success = true;
             } finally {
                 if (!success) {
                     IOUtils.closeWhileHandlingException(delegateProducer, input);
-                } else {
+                } else if (lookupFactory == null || !lookupFactory.retainsInput()) {
                     IOUtils.close(input);
                 }
             }
@@ -248,7 +249,7 @@ public class Completion090PostingsFormat extends PostingsFormat {
 
         @Override
         public void close() throws IOException {
-            IOUtils.close(delegateProducer);
+            IOUtils.close(delegateProducer, lookupFactory);
         }
 
         @Override
@@ -284,10 +285,24 @@ public class Completion090PostingsFormat extends PostingsFormat {
             this.lookup = lookup;
         }
 
-        public Lookup getLookup(FieldMapper<?> mapper, CompletionSuggestionContext suggestionContext) {
+        public Lookup getLookup(FieldMapper<?> mapper, CompletionSuggestionContext suggestionContext) throws IOException {
             return lookup.getLookup(mapper, suggestionContext);
         }
 
+        /**
+         * Loads the FST of the field if it is loaded lazily and was not loaded yet.
+         */
+        public void warm(FieldMapper<?> mapper) throws IOException {
+            lookup.warm(mapper);
+        }
+
+        /**
+         * Whether the FST of the field is in memory, either because it is loaded eagerly or because it was used.
+         */
+        public boolean isLoaded(FieldMapper<?> mapper) {
+            return lookup.isLoaded(mapper);
+        }
+
         public CompletionStats stats(String ... fields) {
             return lookup.stats(fields);
         }
@@ -363,10 +378,33 @@ public class Completion090PostingsFormat extends PostingsFormat {
         return completionStats;
     }
 
-    public static abstract class LookupFactory {
-        public abstract Lookup getLookup(FieldMapper<?> mapper, CompletionSuggestionContext suggestionContext);
+    public static abstract class LookupFactory implements Closeable {
+        public abstract Lookup getLookup(FieldMapper<?> mapper, CompletionSuggestionContext suggestionContext) throws IOException;
         public abstract CompletionStats stats(String ... fields);
         abstract AnalyzingCompletionLookupProvider.AnalyzingSuggestHolder getAnalyzingSuggestHolder(FieldMapper<?> mapper);
         public abstract long ramBytesUsed();
+
+        public void warm(FieldMapper<?> mapper) throws IOException {
+            AnalyzingCompletionLookupProvider.AnalyzingSuggestHolder holder = getAnalyzingSuggestHolder(mapper);
+            if (holder != null) {
+                holder.fst();
+            }
+        }
+
+        public boolean isLoaded(FieldMapper<?> mapper) {
+            AnalyzingCompletionLookupProvider.AnalyzingSuggestHolder holder = getAnalyzingSuggestHolder(mapper);
+            return holder == null || holder.isLoaded();
+        }
+
+        /**
+         * Whether the factory reads FSTs lazily from the input it was loaded from, and closes it on {@link #close()}.
+         */
+        public boolean retainsInput() {
+            return false;
+        }
+
+        @Override
+        public void close() throws IOException {
+        }
     }
 }
@@ -18,38 +18,59 @@
  */
 package org.elasticsearch.search.suggest.completion;
 
-import com.google.common.collect.Maps;
-import org.apache.lucene.index.AtomicReader;
 import org.apache.lucene.index.AtomicReaderContext;
 import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.index.Terms;
 import org.apache.lucene.search.suggest.Lookup;
 import org.apache.lucene.util.CharsRef;
 import org.apache.lucene.util.CollectionUtil;
+import org.apache.lucene.util.PriorityQueue;
 import org.apache.lucene.util.UnicodeUtil;
 import org.elasticsearch.ElasticsearchException;
+import org.elasticsearch.ExceptionsHelper;
 import org.elasticsearch.common.bytes.BytesArray;
+import org.elasticsearch.common.inject.Inject;
+import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.text.StringText;
+import org.elasticsearch.common.util.concurrent.EsExecutors;
+import org.elasticsearch.common.util.concurrent.EsRejectedExecutionException;
 import org.elasticsearch.index.mapper.core.CompletionFieldMapper;
 import org.elasticsearch.search.suggest.Suggest;
 import org.elasticsearch.search.suggest.SuggestContextParser;
 import org.elasticsearch.search.suggest.Suggester;
 import org.elasticsearch.search.suggest.completion.CompletionSuggestion.Entry.Option;
+import org.elasticsearch.threadpool.ThreadPool;
 
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.Comparator;
-import java.util.List;
-import java.util.Map;
+import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 public class CompletionSuggester extends Suggester<CompletionSuggestionContext> {
 
-    private static final ScoreComparator scoreComparator = new ScoreComparator();
+    private final ThreadPool threadPool;
 
+    private final boolean concurrentEnabled;
+
+    private final int concurrentMinSegments;
+
+    private final int concurrentMaxThreads;
+
+    @Inject
+    public CompletionSuggester(Settings settings, ThreadPool threadPool) {
+        this.threadPool = threadPool;
+        Settings componentSettings = settings.getComponentSettings(getClass());
+        // when enabled, the segments of a shard are looked up in parallel on the suggest pool
+        this.concurrentEnabled = componentSettings.getAsBoolean("concurrent.enabled", false);
+        this.concurrentMinSegments = componentSettings.getAsInt("concurrent.min_segments", 4);
+        this.concurrentMaxThreads = componentSettings.getAsInt("concurrent.max_threads", EsExecutors.boundedNumberOfProcessors(settings));
+    }
 
     @Override
     protected Suggest.Suggestion<? extends Suggest.Suggestion.Entry<? extends Suggest.Suggestion.Entry.Option>> innerExecute(String name,
-            CompletionSuggestionContext suggestionContext, IndexReader indexReader, CharsRef spare) throws IOException {
+            final CompletionSuggestionContext suggestionContext, IndexReader indexReader, CharsRef spare) throws IOException {
         if (suggestionContext.mapper() == null || !(suggestionContext.mapper() instanceof CompletionFieldMapper)) {
             throw new ElasticsearchException("Field [" + suggestionContext.getField() + "] is not a completion suggest field");
         }
@@ -60,45 +81,157 @@ public class CompletionSuggester extends Suggester<CompletionSuggestionContext>
         CompletionSuggestion.Entry completionSuggestEntry = new CompletionSuggestion.Entry(new StringText(spare.toString()), 0, spare.length());
         completionSuggestion.addTerm(completionSuggestEntry);
 
-        String fieldName = suggestionContext.getField();
-        Map<String, CompletionSuggestion.Entry.Option> results = Maps.newHashMapWithExpectedSize(indexReader.leaves().size() * suggestionContext.getSize());
-        for (AtomicReaderContext atomicReaderContext : indexReader.leaves()) {
-            AtomicReader atomicReader = atomicReaderContext.reader();
-            Terms terms = atomicReader.fields().terms(fieldName);
-            if (terms instanceof Completion090PostingsFormat.CompletionTerms) {
-                final Completion090PostingsFormat.CompletionTerms lookupTerms = (Completion090PostingsFormat.CompletionTerms) terms;
-                final Lookup lookup = lookupTerms.getLookup(suggestionContext.mapper(), suggestionContext);
-                if (lookup == null) {
-                    // we don't have a lookup for this segment.. this might be possible if a merge dropped all
-                    // docs from the segment that had a value in this segment.
-                    continue;
-                }
-                List<Lookup.LookupResult> lookupResults = lookup.lookup(spare, false, suggestionContext.getSize());
-                for (Lookup.LookupResult res : lookupResults) {
-
-                    final String key = res.key.toString();
-                    final float score = res.value;
-                    final Option value = results.get(key);
-                    if (value == null) {
-                        final Option option = new CompletionSuggestion.Entry.Option(new StringText(key), score, res.payload == null ? null
-                                : new BytesArray(res.payload));
-                        results.put(key, option);
-                    } else if (value.getScore() < score) {
-                        value.setScore(score);
-                        value.setPayload(res.payload == null ? null : new BytesArray(res.payload));
+        final List<AtomicReaderContext> leaves = indexReader.leaves();
+        final String text = spare.toString();
+        final List<Lookup.LookupResult>[] segmentResults = new List[leaves.size()];
+        if (concurrentEnabled && concurrentMaxThreads > 1 && leaves.size() >= concurrentMinSegments) {
+            lookupConcurrently(leaves, text, suggestionContext, segmentResults);
+        } else {
+            for (int i = 0; i < leaves.size(); i++) {
+                segmentResults[i] = lookup(leaves.get(i), text, suggestionContext);
+            }
+        }
+
+        for (Option option : topOptions(segmentResults, suggestionContext.getSize())) {
+            completionSuggestEntry.addOption(option);
+        }
+        return completionSuggestion;
+    }
+
+    private static List<Lookup.LookupResult> lookup(AtomicReaderContext atomicReaderContext, CharSequence text, CompletionSuggestionContext suggestionContext) throws IOException {
+        Terms terms = atomicReaderContext.reader().fields().terms(suggestionContext.getField());
+        if (terms instanceof Completion090PostingsFormat.CompletionTerms) {
+            final Completion090PostingsFormat.CompletionTerms lookupTerms = (Completion090PostingsFormat.CompletionTerms) terms;
+            final Lookup lookup = lookupTerms.getLookup(suggestionContext.mapper(), suggestionContext);
+            if (lookup == null) {
+                // we don't have a lookup for this segment.. this might be possible if a merge dropped all
+                // docs from the segment that had a value in this segment.
+                return null;
+            }
+            return lookup.lookup(text, false, suggestionContext.getSize());
+        }
+        return null;
+    }
+
+    /**
+     * Looks up the segments on the suggest thread pool. The calling thread takes part in the lookups, so the
+     * suggestion completes even if no pool thread is available.
+     */
+    private void lookupConcurrently(final List<AtomicReaderContext> leaves, final CharSequence text, final CompletionSuggestionContext suggestionContext,
+                                    final List<Lookup.LookupResult>[] segmentResults) throws IOException {
+        final AtomicInteger nextSegment = new AtomicInteger();
+        final CountDownLatch latch = new CountDownLatch(leaves.size());
+        final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+        final Runnable worker = new Runnable() {
+            @Override
+            public void run() {
+                for (int i = nextSegment.getAndIncrement(); i < leaves.size(); i = nextSegment.getAndIncrement()) {
+                    try {
+                        if (failure.get() == null) {
+                            segmentResults[i] = lookup(leaves.get(i), text, suggestionContext);
+                        }
+                    } catch (Throwable t) {
+                        failure.compareAndSet(null, t);
+                    } finally {
+                        latch.countDown();
                     }
                 }
             }
+        };
+        Executor executor = threadPool.executor(ThreadPool.Names.SUGGEST);
+        int forks = Math.min(concurrentMaxThreads, leaves.size()) - 1;
+        for (int i = 0; i < forks; i++) {
+            try {
+                executor.execute(worker);
+            } catch (EsRejectedExecutionException e) {
+                // the pool is busy, the calling thread does the remaining lookups
+                break;
+            }
         }
-        final List<CompletionSuggestion.Entry.Option> options = new ArrayList<CompletionSuggestion.Entry.Option>(results.values());
-        CollectionUtil.introSort(options, scoreComparator);
+        worker.run();
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ElasticsearchException("interrupted while looking up completions", e);
+        }
+        Throwable t = failure.get();
+        if (t != null) {
+            if (t instanceof IOException) {
+                throw (IOException) t;
+            }
+            throw ExceptionsHelper.convertToElastic(t);
+        }
+    }
 
-        int optionCount = Math.min(suggestionContext.getSize(), options.size());
-        for (int i = 0 ; i < optionCount ; i++) {
-            completionSuggestEntry.addOption(options.get(i));
+    /**
+     * Merges the results of all segments into the top <tt>size</tt> options. The results of a segment are sorted
+     * by score, so the first time a suggestion shows up while merging carries its best score and only as many
+     * results as needed to fill the options are looked at.
+     */
+    static List<Option> topOptions(List<Lookup.LookupResult>[] segmentResults, int size) {
+        SegmentResultsQueue queue = new SegmentResultsQueue(segmentResults.length);
+        for (List<Lookup.LookupResult> results : segmentResults) {
+            if (results != null && !results.isEmpty()) {
+                List<Lookup.LookupResult> sorted = new ArrayList<Lookup.LookupResult>(results);
+                CollectionUtil.timSort(sorted, lookupResultComparator);
+                queue.add(new SegmentResults(sorted));
+            }
         }
+        final List<Option> options = new ArrayList<Option>(size);
+        final Set<String> keys = new HashSet<String>();
+        while (options.size() < size && queue.size() > 0) {
+            SegmentResults top = queue.top();
+            Lookup.LookupResult res = top.current();
+            final String key = res.key.toString();
+            if (keys.add(key)) {
+                options.add(new CompletionSuggestion.Entry.Option(new StringText(key), res.value, res.payload == null ? null
+                        : new BytesArray(res.payload)));
+            }
+            if (top.next()) {
+                queue.updateTop();
+            } else {
+                queue.pop();
+            }
+        }
+        return options;
+    }
 
-        return completionSuggestion;
+    private static final Comparator<Lookup.LookupResult> lookupResultComparator = new Comparator<Lookup.LookupResult>() {
+        @Override
+        public int compare(Lookup.LookupResult o1, Lookup.LookupResult o2) {
+            return o1.value < o2.value ? 1 : (o1.value == o2.value ? 0 : -1);
+        }
+    };
+
+    private static final class SegmentResults {
+        private final List<Lookup.LookupResult> results;
+        private int index;
+
+        SegmentResults(List<Lookup.LookupResult> results) {
+            this.results = results;
+        }
+
+        Lookup.LookupResult current() {
+            return results.get(index);
+        }
+
+        boolean next() {
+            return ++index < results.size();
+        }
+    }
+
+    private static final class SegmentResultsQueue extends PriorityQueue<SegmentResults> {
+
+        SegmentResultsQueue(int maxSize) {
+            super(maxSize);
+        }
+
+        @Override
+        protected boolean lessThan(SegmentResults a, SegmentResults b) {
+            // the top of the queue is the segment with the best current score
+            return a.current().value > b.current().value;
+        }
     }
 
     @Override
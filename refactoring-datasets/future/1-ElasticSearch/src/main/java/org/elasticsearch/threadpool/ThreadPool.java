@@ -31,6 +31,7 @@ import org.elasticsearch.common.io.FileSystemUtils;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.common.io.stream.Streamable;
+import org.elasticsearch.common.metrics.HistogramMetric;
 import org.elasticsearch.common.settings.ImmutableSettings;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.unit.SizeValue;
@@ -132,6 +133,8 @@ public class ThreadPool extends AbstractComponent {
         this.scheduler = new ScheduledThreadPoolExecutor(1, EsExecutors.daemonThreadFactory(settings, "scheduler"), new EsAbortPolicy());
         this.scheduler.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
         this.scheduler.setContinueExistingPeriodicTasksAfterShutdownPolicy(false);
+        // the arrival rate moving averages expect to be ticked every 5 seconds
+        this.scheduler.scheduleAtFixedRate(new LoggingRunnable(new ArrivalRateTicker()), 5, 5, TimeUnit.SECONDS);
         if (nodeSettingsService != null) {
             nodeSettingsService.addListener(new ApplySettings());
         }
@@ -180,6 +183,15 @@ public class ThreadPool extends AbstractComponent {
             long rejected = -1;
             int largest = -1;
             long completed = -1;
+            HistogramMetric.Snapshot queueTime = null;
+            HistogramMetric.Snapshot executionTime = null;
+            double arrivalRate = -1;
+            if (holder.executor instanceof EsThreadPoolExecutor) {
+                EsThreadPoolExecutor esThreadPoolExecutor = (EsThreadPoolExecutor) holder.executor;
+                queueTime = esThreadPoolExecutor.queueTime();
+                executionTime = esThreadPoolExecutor.executionTime();
+                arrivalRate = esThreadPoolExecutor.arrivalRate();
+            }
             if (holder.executor instanceof ThreadPoolExecutor) {
                 ThreadPoolExecutor threadPoolExecutor = (ThreadPoolExecutor) holder.executor;
                 threads = threadPoolExecutor.getPoolSize();
@@ -192,7 +204,13 @@ public class ThreadPool extends AbstractComponent {
                     rejected = ((XRejectedExecutionHandler) rejectedExecutionHandler).rejected();
                 }
             }
-            stats.add(new ThreadPoolStats.Stats(name, threads, queue, active, rejected, largest, completed));
+            if (queueTime != null) {
+                stats.add(new ThreadPoolStats.Stats(name, threads, queue, active, rejected, largest, completed,
+                        queueTime.percentile(50), queueTime.percentile(99), queueTime.percentile(99.9),
+                        executionTime.percentile(50), executionTime.percentile(99), executionTime.percentile(99.9), arrivalRate));
+            } else {
+                stats.add(new ThreadPoolStats.Stats(name, threads, queue, active, rejected, largest, completed));
+            }
         }
         return new ThreadPoolStats(stats);
     }
@@ -423,6 +441,18 @@ public class ThreadPool extends AbstractComponent {
         }
     }
 
+    class ArrivalRateTicker implements Runnable {
+
+        @Override
+        public void run() {
+            for (ExecutorHolder holder : executors.values()) {
+                if (holder.executor instanceof EsThreadPoolExecutor) {
+                    ((EsThreadPoolExecutor) holder.executor).tickArrivalRate();
+                }
+            }
+        }
+    }
+
     class LoggingRunnable implements Runnable {
 
         private final Runnable runnable;
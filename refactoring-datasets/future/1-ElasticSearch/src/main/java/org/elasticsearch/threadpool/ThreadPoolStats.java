@@ -19,6 +19,7 @@
 
 package org.elasticsearch.threadpool;
 
+import org.elasticsearch.Version;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.common.io.stream.Streamable;
@@ -44,6 +45,13 @@ public class ThreadPoolStats implements Streamable, ToXContent, Iterable<ThreadP
         private long rejected;
         private int largest;
         private long completed;
+        private long queueTimeP50 = -1;
+        private long queueTimeP99 = -1;
+        private long queueTimeP999 = -1;
+        private long executionTimeP50 = -1;
+        private long executionTimeP99 = -1;
+        private long executionTimeP999 = -1;
+        private double arrivalRate = -1;
 
         Stats() {
 
@@ -59,6 +67,19 @@ public class ThreadPoolStats implements Streamable, ToXContent, Iterable<ThreadP
             this.completed = completed;
         }
 
+        public Stats(String name, int threads, int queue, int active, long rejected, int largest, long completed,
+                     long queueTimeP50, long queueTimeP99, long queueTimeP999,
+                     long executionTimeP50, long executionTimeP99, long executionTimeP999, double arrivalRate) {
+            this(name, threads, queue, active, rejected, largest, completed);
+            this.queueTimeP50 = queueTimeP50;
+            this.queueTimeP99 = queueTimeP99;
+            this.queueTimeP999 = queueTimeP999;
+            this.executionTimeP50 = executionTimeP50;
+            this.executionTimeP99 = executionTimeP99;
+            this.executionTimeP999 = executionTimeP999;
+            this.arrivalRate = arrivalRate;
+        }
+
         public String getName() {
             return this.name;
         }
@@ -87,6 +108,43 @@ public class ThreadPoolStats implements Streamable, ToXContent, Iterable<ThreadP
             return this.completed;
         }
 
+        /**
+         * The median time tasks waited in the queue, in micros, or <tt>-1</tt> if not tracked.
+         */
+        public long getQueueTimeP50() {
+            return queueTimeP50;
+        }
+
+        public long getQueueTimeP99() {
+            return queueTimeP99;
+        }
+
+        public long getQueueTimeP999() {
+            return queueTimeP999;
+        }
+
+        /**
+         * The median time tasks took to execute, in micros, or <tt>-1</tt> if not tracked.
+         */
+        public long getExecutionTimeP50() {
+            return executionTimeP50;
+        }
+
+        public long getExecutionTimeP99() {
+            return executionTimeP99;
+        }
+
+        public long getExecutionTimeP999() {
+            return executionTimeP999;
+        }
+
+        /**
+         * The one minute moving average of submitted tasks per second, or <tt>-1</tt> if not tracked.
+         */
+        public double getArrivalRate() {
+            return arrivalRate;
+        }
+
         @Override
         public void readFrom(StreamInput in) throws IOException {
             name = in.readString();
@@ -96,6 +154,15 @@ public class ThreadPoolStats implements Streamable, ToXContent, Iterable<ThreadP
             rejected = in.readLong();
             largest = in.readInt();
             completed = in.readLong();
+            if (in.getVersion().onOrAfter(Version.V_2_0_0)) {
+                queueTimeP50 = in.readLong();
+                queueTimeP99 = in.readLong();
+                queueTimeP999 = in.readLong();
+                executionTimeP50 = in.readLong();
+                executionTimeP99 = in.readLong();
+                executionTimeP999 = in.readLong();
+                arrivalRate = in.readDouble();
+            }
         }
 
         @Override
@@ -107,6 +174,15 @@ public class ThreadPoolStats implements Streamable, ToXContent, Iterable<ThreadP
             out.writeLong(rejected);
             out.writeInt(largest);
             out.writeLong(completed);
+            if (out.getVersion().onOrAfter(Version.V_2_0_0)) {
+                out.writeLong(queueTimeP50);
+                out.writeLong(queueTimeP99);
+                out.writeLong(queueTimeP999);
+                out.writeLong(executionTimeP50);
+                out.writeLong(executionTimeP99);
+                out.writeLong(executionTimeP999);
+                out.writeDouble(arrivalRate);
+            }
         }
 
         @Override
@@ -130,6 +206,23 @@ public class ThreadPoolStats implements Streamable, ToXContent, Iterable<ThreadP
             if (completed != -1) {
                 builder.field(Fields.COMPLETED, completed);
             }
+            if (queueTimeP50 != -1) {
+                builder.startObject(Fields.QUEUE_TIME);
+                builder.field(Fields.P50_IN_MICROS, queueTimeP50);
+                builder.field(Fields.P99_IN_MICROS, queueTimeP99);
+                builder.field(Fields.P999_IN_MICROS, queueTimeP999);
+                builder.endObject();
+            }
+            if (executionTimeP50 != -1) {
+                builder.startObject(Fields.EXECUTION_TIME);
+                builder.field(Fields.P50_IN_MICROS, executionTimeP50);
+                builder.field(Fields.P99_IN_MICROS, executionTimeP99);
+                builder.field(Fields.P999_IN_MICROS, executionTimeP999);
+                builder.endObject();
+            }
+            if (arrivalRate != -1) {
+                builder.field(Fields.ARRIVAL_RATE, arrivalRate);
+            }
             builder.endObject();
             return builder;
         }
@@ -183,6 +276,12 @@ public class ThreadPoolStats implements Streamable, ToXContent, Iterable<ThreadP
         static final XContentBuilderString REJECTED = new XContentBuilderString("rejected");
         static final XContentBuilderString LARGEST = new XContentBuilderString("largest");
         static final XContentBuilderString COMPLETED = new XContentBuilderString("completed");
+        static final XContentBuilderString QUEUE_TIME = new XContentBuilderString("queue_time");
+        static final XContentBuilderString EXECUTION_TIME = new XContentBuilderString("execution_time");
+        static final XContentBuilderString P50_IN_MICROS = new XContentBuilderString("p50_in_micros");
+        static final XContentBuilderString P99_IN_MICROS = new XContentBuilderString("p99_in_micros");
+        static final XContentBuilderString P999_IN_MICROS = new XContentBuilderString("p999_in_micros");
+        static final XContentBuilderString ARRIVAL_RATE = new XContentBuilderString("arrival_rate");
     }
 
     @Override
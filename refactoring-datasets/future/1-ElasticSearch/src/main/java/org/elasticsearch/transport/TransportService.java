@@ -26,6 +26,7 @@ import org.elasticsearch.cluster.node.DiscoveryNode;
 import org.elasticsearch.common.collect.MapBuilder;
 import org.elasticsearch.common.component.AbstractLifecycleComponent;
 import org.elasticsearch.common.inject.Inject;
+import org.elasticsearch.common.metrics.CounterMetric;
 import org.elasticsearch.common.metrics.MeanMetric;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.transport.BoundTransportAddress;
@@ -114,7 +115,8 @@ public class TransportService extends AbstractLifecycleComponent<TransportServic
     }
 
     public TransportStats stats() {
-        return new TransportStats(transport.serverOpen(), adapter.rxMetric.count(), adapter.rxMetric.sum(), adapter.txMetric.count(), adapter.txMetric.sum());
+        return new TransportStats(transport.serverOpen(), adapter.rxMetric.count(), adapter.rxMetric.sum(), adapter.txMetric.count(), adapter.txMetric.sum(),
+                adapter.copiedMetric.count(), adapter.copyAvoidedMetric.count());
     }
 
     public BoundTransportAddress boundAddress() {
@@ -244,6 +246,8 @@ public class TransportService extends AbstractLifecycleComponent<TransportServic
 
         final MeanMetric rxMetric = new MeanMetric();
         final MeanMetric txMetric = new MeanMetric();
+        final CounterMetric copiedMetric = new CounterMetric();
+        final CounterMetric copyAvoidedMetric = new CounterMetric();
 
         @Override
         public void received(long size) {
@@ -255,6 +259,12 @@ public class TransportService extends AbstractLifecycleComponent<TransportServic
             txMetric.inc(size);
         }
 
+        @Override
+        public void copied(long copiedSize, long copyAvoidedSize) {
+            copiedMetric.inc(copiedSize);
+            copyAvoidedMetric.inc(copyAvoidedSize);
+        }
+
         @Override
         public TransportRequestHandler handler(String action) {
             return serverHandlers.get(action);
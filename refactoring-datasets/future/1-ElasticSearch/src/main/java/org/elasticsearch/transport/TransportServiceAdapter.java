@@ -30,6 +30,12 @@ public interface TransportServiceAdapter {
 
     void sent(long size);
 
+    /**
+     * Called with the number of message bytes that were copied, and the number of bytes a copy was avoided for
+     * by sharing the underlying buffers.
+     */
+    void copied(long copiedSize, long copyAvoidedSize);
+
     TransportRequestHandler handler(String action);
 
     TransportResponseHandler remove(long requestId);
@@ -19,6 +19,7 @@
 
 package org.elasticsearch.transport;
 
+import org.elasticsearch.Version;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.common.io.stream.Streamable;
@@ -36,17 +37,21 @@ public class TransportStats implements Streamable, ToXContent {
     private long rxSize;
     private long txCount;
     private long txSize;
+    private long copiedSize;
+    private long copyAvoidedSize;
 
     TransportStats() {
 
     }
 
-    public TransportStats(long serverOpen, long rxCount, long rxSize, long txCount, long txSize) {
+    public TransportStats(long serverOpen, long rxCount, long rxSize, long txCount, long txSize, long copiedSize, long copyAvoidedSize) {
         this.serverOpen = serverOpen;
         this.rxCount = rxCount;
         this.rxSize = rxSize;
         this.txCount = txCount;
         this.txSize = txSize;
+        this.copiedSize = copiedSize;
+        this.copyAvoidedSize = copyAvoidedSize;
     }
 
     public long serverOpen() {
@@ -89,6 +94,28 @@ public class TransportStats implements Streamable, ToXContent {
         return txSize();
     }
 
+    /**
+     * The number of message bytes that were copied between network buffers and arrays.
+     */
+    public ByteSizeValue copiedSize() {
+        return new ByteSizeValue(copiedSize);
+    }
+
+    public ByteSizeValue getCopiedSize() {
+        return copiedSize();
+    }
+
+    /**
+     * The number of message bytes that were not copied since the underlying buffers were shared instead.
+     */
+    public ByteSizeValue copyAvoidedSize() {
+        return new ByteSizeValue(copyAvoidedSize);
+    }
+
+    public ByteSizeValue getCopyAvoidedSize() {
+        return copyAvoidedSize();
+    }
+
     public static TransportStats readTransportStats(StreamInput in) throws IOException {
         TransportStats stats = new TransportStats();
         stats.readFrom(in);
@@ -102,6 +129,10 @@ public class TransportStats implements Streamable, ToXContent {
         rxSize = in.readVLong();
         txCount = in.readVLong();
         txSize = in.readVLong();
+        if (in.getVersion().onOrAfter(Version.V_2_0_0)) {
+            copiedSize = in.readVLong();
+            copyAvoidedSize = in.readVLong();
+        }
     }
 
     @Override
@@ -111,6 +142,10 @@ public class TransportStats implements Streamable, ToXContent {
         out.writeVLong(rxSize);
         out.writeVLong(txCount);
         out.writeVLong(txSize);
+        if (out.getVersion().onOrAfter(Version.V_2_0_0)) {
+            out.writeVLong(copiedSize);
+            out.writeVLong(copyAvoidedSize);
+        }
     }
 
     @Override
@@ -121,6 +156,8 @@ public class TransportStats implements Streamable, ToXContent {
         builder.byteSizeField(Fields.RX_SIZE_IN_BYTES, Fields.RX_SIZE, rxSize);
         builder.field(Fields.TX_COUNT, txCount);
         builder.byteSizeField(Fields.TX_SIZE_IN_BYTES, Fields.TX_SIZE, txSize);
+        builder.byteSizeField(Fields.COPIED_SIZE_IN_BYTES, Fields.COPIED_SIZE, copiedSize);
+        builder.byteSizeField(Fields.COPY_AVOIDED_SIZE_IN_BYTES, Fields.COPY_AVOIDED_SIZE, copyAvoidedSize);
         builder.endObject();
         return builder;
     }
@@ -134,5 +171,9 @@ public class TransportStats implements Streamable, ToXContent {
         static final XContentBuilderString TX_COUNT = new XContentBuilderString("tx_count");
         static final XContentBuilderString TX_SIZE = new XContentBuilderString("tx_size");
         static final XContentBuilderString TX_SIZE_IN_BYTES = new XContentBuilderString("tx_size_in_bytes");
+        static final XContentBuilderString COPIED_SIZE = new XContentBuilderString("copied_size");
+        static final XContentBuilderString COPIED_SIZE_IN_BYTES = new XContentBuilderString("copied_size_in_bytes");
+        static final XContentBuilderString COPY_AVOIDED_SIZE = new XContentBuilderString("copy_avoided_size");
+        static final XContentBuilderString COPY_AVOIDED_SIZE_IN_BYTES = new XContentBuilderString("copy_avoided_size_in_bytes");
     }
 }
\ No newline at end of file
@@ -37,6 +37,9 @@ public class ChannelBufferStreamInput extends StreamInput {
     private final int startIndex;
     private final int endIndex;
 
+    private long bytesCopied;
+    private long bytesReferenced;
+
     public ChannelBufferStreamInput(ChannelBuffer buffer) {
         this(buffer, buffer.readableBytes());
     }
@@ -55,6 +58,7 @@ public class ChannelBufferStreamInput extends StreamInput {
     public BytesReference readBytesReference(int length) throws IOException {
         ChannelBufferBytesReference ref = new ChannelBufferBytesReference(buffer.slice(buffer.readerIndex(), length));
         buffer.skipBytes(length);
+        bytesReferenced += length;
         return ref;
     }
 
@@ -65,9 +69,24 @@ public class ChannelBufferStreamInput extends StreamInput {
         }
         BytesRef bytesRef = new BytesRef(buffer.array(), buffer.arrayOffset() + buffer.readerIndex(), length);
         buffer.skipBytes(length);
+        bytesReferenced += length;
         return bytesRef;
     }
 
+    /**
+     * The number of bytes that were copied out of the buffer into arrays.
+     */
+    public long bytesCopied() {
+        return bytesCopied;
+    }
+
+    /**
+     * The number of bytes that were handed out as references to the buffer, without copying them.
+     */
+    public long bytesReferenced() {
+        return bytesReferenced;
+    }
+
     @Override
     public int available() throws IOException {
         return endIndex - buffer.readerIndex();
@@ -103,6 +122,7 @@ public class ChannelBufferStreamInput extends StreamInput {
 
         len = Math.min(available, len);
         buffer.readBytes(b, off, len);
+        bytesCopied += len;
         return len;
     }
 
@@ -80,7 +80,7 @@ public class MessageChannelHandler extends SimpleChannelUpstreamHandler {
 
         // netty always copies a buffer, either in NioWorker in its read handler, where it copies to a fresh
         // buffer, or in the cumlation buffer, which is cleaned each time
-        StreamInput streamIn = ChannelBufferStreamInputFactory.create(buffer, size);
+        ChannelBufferStreamInput streamIn = ChannelBufferStreamInputFactory.create(buffer, size);
 
         long requestId = buffer.readLong();
         byte status = buffer.readByte();
@@ -138,6 +138,7 @@ public class MessageChannelHandler extends SimpleChannelUpstreamHandler {
             }
         }
         wrappedStream.close();
+        transportServiceAdapter.copied(streamIn.bytesCopied(), streamIn.bytesReferenced());
     }
 
     private void handleResponse(StreamInput buffer, final TransportResponseHandler handler) {
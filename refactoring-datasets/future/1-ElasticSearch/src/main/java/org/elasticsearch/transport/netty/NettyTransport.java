@@ -21,20 +21,24 @@ package org.elasticsearch.transport.netty;
 
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Lists;
+import org.apache.lucene.util.Counter;
 import org.elasticsearch.ElasticsearchException;
 import org.elasticsearch.ElasticsearchIllegalArgumentException;
 import org.elasticsearch.ElasticsearchIllegalStateException;
 import org.elasticsearch.Version;
 import org.elasticsearch.cluster.node.DiscoveryNode;
 import org.elasticsearch.common.Strings;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.bytes.PagedBytesReference;
 import org.elasticsearch.common.component.AbstractLifecycleComponent;
 import org.elasticsearch.common.compress.CompressorFactory;
 import org.elasticsearch.common.inject.Inject;
-import org.elasticsearch.common.io.stream.BytesStreamOutput;
 import org.elasticsearch.common.io.stream.HandlesStreamOutput;
+import org.elasticsearch.common.io.stream.ReleasableBytesStreamOutput;
 import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.common.netty.NettyStaticSetup;
 import org.elasticsearch.common.netty.OpenChannelsHandler;
+import org.elasticsearch.common.netty.ReleaseChannelFutureListener;
 import org.elasticsearch.common.network.NetworkService;
 import org.elasticsearch.common.network.NetworkUtils;
 import org.elasticsearch.common.settings.Settings;
@@ -44,6 +48,7 @@ import org.elasticsearch.common.transport.PortsRange;
 import org.elasticsearch.common.transport.TransportAddress;
 import org.elasticsearch.common.unit.ByteSizeValue;
 import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.common.util.BigArrays;
 import org.elasticsearch.common.util.concurrent.EsExecutors;
 import org.elasticsearch.common.util.concurrent.KeyedLock;
 import org.elasticsearch.monitor.jvm.JvmInfo;
@@ -141,6 +146,8 @@ public class NettyTransport extends AbstractLifecycleComponent<Transport> implem
 
     private final ThreadPool threadPool;
 
+    private final BigArrays bigArrays;
+
     private volatile OpenChannelsHandler serverOpenChannels;
 
     private volatile ClientBootstrap clientBootstrap;
@@ -163,10 +170,15 @@ public class NettyTransport extends AbstractLifecycleComponent<Transport> implem
     // connections while no connect operations is going on... (this might help with 100% CPU when stopping the transport?)
     private final ReadWriteLock globalLock = new ReentrantReadWriteLock();
 
-    @Inject
     public NettyTransport(Settings settings, ThreadPool threadPool, NetworkService networkService, Version version) {
+        this(settings, threadPool, networkService, BigArrays.NON_RECYCLING_INSTANCE, version);
+    }
+
+    @Inject
+    public NettyTransport(Settings settings, ThreadPool threadPool, NetworkService networkService, BigArrays bigArrays, Version version) {
         super(settings);
         this.threadPool = threadPool;
+        this.bigArrays = bigArrays;
         this.networkService = networkService;
         this.version = version;
 
@@ -529,6 +541,24 @@ public class NettyTransport extends AbstractLifecycleComponent<Transport> implem
         return new InetSocketTransportAddress((InetSocketAddress) socketAddress);
     }
 
+    BigArrays bigArrays() {
+        return bigArrays;
+    }
+
+    /**
+     * Wraps the bytes of an outgoing message into a channel buffer and records in the transport stats how many of
+     * them had to be copied to do so.
+     */
+    ChannelBuffer toChannelBuffer(BytesReference bytes) {
+        if (bytes instanceof PagedBytesReference) {
+            final Counter copied = Counter.newCounter();
+            final ChannelBuffer buffer = ((PagedBytesReference) bytes).toChannelBuffer(copied);
+            transportServiceAdapter.copied(copied.get(), bytes.length() - copied.get());
+            return buffer;
+        }
+        return bytes.toChannelBuffer();
+    }
+
     @Override
     public long serverOpen() {
         OpenChannelsHandler channels = serverOpenChannels;
@@ -546,45 +576,51 @@ public class NettyTransport extends AbstractLifecycleComponent<Transport> implem
         byte status = 0;
         status = TransportStatus.setRequest(status);
 
-        BytesStreamOutput bStream = new BytesStreamOutput();
-        bStream.skip(NettyHeader.HEADER_SIZE);
-        StreamOutput stream = bStream;
-        // only compress if asked, and, the request is not bytes, since then only
-        // the header part is compressed, and the "body" can't be extracted as compressed
-        if (options.compress() && (!(request instanceof BytesTransportRequest))) {
-            status = TransportStatus.setCompress(status);
-            stream = CompressorFactory.defaultCompressor().streamOutput(stream);
-        }
-        stream = new HandlesStreamOutput(stream);
-
-        // we pick the smallest of the 2, to support both backward and forward compatibility
-        // note, this is the only place we need to do this, since from here on, we use the serialized version
-        // as the version to use also when the node receiving this request will send the response with
-        Version version = Version.smallest(this.version, node.version());
-
-        stream.setVersion(version);
-        stream.writeString(action);
-
-        ChannelBuffer buffer;
-        // it might be nice to somehow generalize this optimization, maybe a smart "paged" bytes output
-        // that create paged channel buffers, but its tricky to know when to do it (where this option is
-        // more explicit).
-        if (request instanceof BytesTransportRequest) {
-            BytesTransportRequest bRequest = (BytesTransportRequest) request;
-            assert node.version().equals(bRequest.version());
-            bRequest.writeThin(stream);
-            stream.close();
-            ChannelBuffer headerBuffer = bStream.bytes().toChannelBuffer();
-            ChannelBuffer contentBuffer = bRequest.bytes().toChannelBuffer();
-            // false on gathering, cause gathering causes the NIO layer to combine the buffers into a single direct buffer....
-            buffer = new CompositeChannelBuffer(headerBuffer.order(), ImmutableList.<ChannelBuffer>of(headerBuffer, contentBuffer), false);
-        } else {
-            request.writeTo(stream);
-            stream.close();
-            buffer = bStream.bytes().toChannelBuffer();
+        ReleasableBytesStreamOutput bStream = new ReleasableBytesStreamOutput(bigArrays);
+        boolean success = false;
+        try {
+            bStream.skip(NettyHeader.HEADER_SIZE);
+            StreamOutput stream = bStream;
+            // only compress if asked, and, the request is not bytes, since then only
+            // the header part is compressed, and the "body" can't be extracted as compressed
+            if (options.compress() && (!(request instanceof BytesTransportRequest))) {
+                status = TransportStatus.setCompress(status);
+                stream = CompressorFactory.defaultCompressor().streamOutput(stream);
+            }
+            stream = new HandlesStreamOutput(stream);
+
+            // we pick the smallest of the 2, to support both backward and forward compatibility
+            // note, this is the only place we need to do this, since from here on, we use the serialized version
+            // as the version to use also when the node receiving this request will send the response with
+            Version version = Version.smallest(this.version, node.version());
+
+            stream.setVersion(version);
+            stream.writeString(action);
+
+            ChannelBuffer buffer;
+            if (request instanceof BytesTransportRequest) {
+                BytesTransportRequest bRequest = (BytesTransportRequest) request;
+                assert node.version().equals(bRequest.version());
+                bRequest.writeThin(stream);
+                stream.close();
+                ChannelBuffer headerBuffer = toChannelBuffer(bStream.bytes());
+                ChannelBuffer contentBuffer = toChannelBuffer(bRequest.bytes());
+                // false on gathering, cause gathering causes the NIO layer to combine the buffers into a single direct buffer....
+                buffer = new CompositeChannelBuffer(headerBuffer.order(), ImmutableList.<ChannelBuffer>of(headerBuffer, contentBuffer), false);
+            } else {
+                request.writeTo(stream);
+                stream.close();
+                // the pages of the stream are written as they are, and given back once the write completes
+                buffer = toChannelBuffer(bStream.bytes());
+            }
+            NettyHeader.writeHeader(buffer, requestId, status, version);
+            targetChannel.write(buffer).addListener(new ReleaseChannelFutureListener(bStream));
+            success = true;
+        } finally {
+            if (!success) {
+                bStream.release();
+            }
         }
-        NettyHeader.writeHeader(buffer, requestId, status, version);
-        targetChannel.write(buffer);
 
         // We handle close connection exception in the #exceptionCaught method, which is the main reason we want to add this future
 //        channelFuture.addListener(new ChannelFutureListener() {
@@ -24,7 +24,9 @@ import org.elasticsearch.common.compress.CompressorFactory;
 import org.elasticsearch.common.io.ThrowableObjectOutputStream;
 import org.elasticsearch.common.io.stream.BytesStreamOutput;
 import org.elasticsearch.common.io.stream.HandlesStreamOutput;
+import org.elasticsearch.common.io.stream.ReleasableBytesStreamOutput;
 import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.netty.ReleaseChannelFutureListener;
 import org.elasticsearch.transport.*;
 import org.elasticsearch.transport.support.TransportStatus;
 import org.jboss.netty.buffer.ChannelBuffer;
@@ -71,21 +73,30 @@ public class NettyTransportChannel implements TransportChannel {
         byte status = 0;
         status = TransportStatus.setResponse(status);
 
-        BytesStreamOutput bStream = new BytesStreamOutput();
-        bStream.skip(NettyHeader.HEADER_SIZE);
-        StreamOutput stream = bStream;
-        if (options.compress()) {
-            status = TransportStatus.setCompress(status);
-            stream = CompressorFactory.defaultCompressor().streamOutput(stream);
-        }
-        stream = new HandlesStreamOutput(stream);
-        stream.setVersion(version);
-        response.writeTo(stream);
-        stream.close();
+        ReleasableBytesStreamOutput bStream = new ReleasableBytesStreamOutput(transport.bigArrays());
+        boolean success = false;
+        try {
+            bStream.skip(NettyHeader.HEADER_SIZE);
+            StreamOutput stream = bStream;
+            if (options.compress()) {
+                status = TransportStatus.setCompress(status);
+                stream = CompressorFactory.defaultCompressor().streamOutput(stream);
+            }
+            stream = new HandlesStreamOutput(stream);
+            stream.setVersion(version);
+            response.writeTo(stream);
+            stream.close();
 
-        ChannelBuffer buffer = bStream.bytes().toChannelBuffer();
-        NettyHeader.writeHeader(buffer, requestId, status, version);
-        channel.write(buffer);
+            // the pages of the stream are written as they are, and given back once the write completes
+            ChannelBuffer buffer = transport.toChannelBuffer(bStream.bytes());
+            NettyHeader.writeHeader(buffer, requestId, status, version);
+            channel.write(buffer).addListener(new ReleaseChannelFutureListener(bStream));
+            success = true;
+        } finally {
+            if (!success) {
+                bStream.release();
+            }
+        }
     }
 
     @Override
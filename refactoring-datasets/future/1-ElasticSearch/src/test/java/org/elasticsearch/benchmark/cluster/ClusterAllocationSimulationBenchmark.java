@@ -0,0 +1,122 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.benchmark.cluster;
+
+import org.elasticsearch.cluster.ClusterState;
+import org.elasticsearch.cluster.metadata.IndexMetaData;
+import org.elasticsearch.cluster.metadata.MetaData;
+import org.elasticsearch.cluster.node.DiscoveryNodes;
+import org.elasticsearch.cluster.routing.RoutingTable;
+import org.elasticsearch.cluster.routing.allocation.AllocationService;
+import org.elasticsearch.cluster.routing.allocation.RoutingAllocation;
+import org.elasticsearch.common.logging.ESLogger;
+import org.elasticsearch.common.logging.Loggers;
+import org.elasticsearch.common.settings.ImmutableSettings;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.test.ElasticsearchAllocationTestCase;
+
+import java.util.Random;
+
+import static org.elasticsearch.cluster.routing.ShardRoutingState.INITIALIZING;
+import static org.elasticsearch.cluster.routing.ShardRoutingState.RELOCATING;
+
+/**
+ * Simulates the lifecycle of a large cluster on the allocation service alone: the initial allocation of all shards,
+ * growing the cluster and losing nodes, each time rerouting and starting shards until the cluster settles. Reports
+ * the number of reroutes and the time they took, per phase.
+ */
+public class ClusterAllocationSimulationBenchmark {
+
+    private static final ESLogger logger = Loggers.getLogger(ClusterAllocationSimulationBenchmark.class);
+
+    public static void main(String[] args) {
+        final int numIndices = 5000;
+        final int numShards = 10;
+        final int numReplicas = 1;
+        final int numberOfNodes = 120;
+        final int numberOfAddedNodes = 10;
+        final int numberOfRemovedNodes = 5;
+        AllocationService strategy = ElasticsearchAllocationTestCase.createAllocationService(ImmutableSettings.builder()
+                .put("cluster.routing.allocation.node_concurrent_recoveries", 100)
+                .put("cluster.routing.allocation.node_initial_primaries_recoveries", 100)
+                .put("cluster.routing.allocation.cluster_concurrent_rebalance", 500)
+                .build(), new Random(1));
+
+        MetaData.Builder mb = MetaData.builder();
+        for (int i = 1; i <= numIndices; i++) {
+            mb.put(IndexMetaData.builder("test_" + i).numberOfShards(numShards).numberOfReplicas(numReplicas));
+        }
+        MetaData metaData = mb.build();
+        RoutingTable.Builder rb = RoutingTable.builder();
+        for (int i = 1; i <= numIndices; i++) {
+            rb.addAsNew(metaData.index("test_" + i));
+        }
+        DiscoveryNodes.Builder nb = DiscoveryNodes.builder();
+        for (int i = 1; i <= numberOfNodes; i++) {
+            nb.put(ElasticsearchAllocationTestCase.newNode("node" + i));
+        }
+        ClusterState clusterState = ClusterState.builder().metaData(metaData).routingTable(rb).nodes(nb).build();
+        logger.info("simulating [{}] shards on [{}] nodes", metaData.totalNumberOfShards(), numberOfNodes);
+
+        clusterState = settle("initial allocation", strategy, clusterState);
+
+        nb = DiscoveryNodes.builder(clusterState.nodes());
+        for (int i = 1; i <= numberOfAddedNodes; i++) {
+            nb.put(ElasticsearchAllocationTestCase.newNode("node" + (numberOfNodes + i)));
+        }
+        clusterState = settle("adding " + numberOfAddedNodes + " nodes", strategy, ClusterState.builder(clusterState).nodes(nb).build());
+
+        nb = DiscoveryNodes.builder(clusterState.nodes());
+        for (int i = 1; i <= numberOfRemovedNodes; i++) {
+            nb.remove("node" + i);
+        }
+        settle("removing " + numberOfRemovedNodes + " nodes", strategy, ClusterState.builder(clusterState).nodes(nb).build());
+    }
+
+    /**
+     * Reroutes and starts all initializing shards until there is nothing left to allocate, recover or relocate.
+     */
+    private static ClusterState settle(String phase, AllocationService strategy, ClusterState clusterState) {
+        int reroutes = 0;
+        long rerouteNanos = 0;
+        long maxRerouteNanos = 0;
+        long start = System.nanoTime();
+        long rerouteStart = System.nanoTime();
+        RoutingAllocation.Result result = strategy.reroute(clusterState);
+        while (true) {
+            long took = System.nanoTime() - rerouteStart;
+            reroutes++;
+            rerouteNanos += took;
+            maxRerouteNanos = Math.max(maxRerouteNanos, took);
+            clusterState = ClusterState.builder(clusterState).routingResult(result).build();
+            if (clusterState.readOnlyRoutingNodes().shardsWithState(INITIALIZING).isEmpty()
+                    && clusterState.readOnlyRoutingNodes().shardsWithState(RELOCATING).isEmpty()) {
+                break;
+            }
+            // starting shards reroutes as well
+            rerouteStart = System.nanoTime();
+            result = strategy.applyStartedShards(clusterState, clusterState.readOnlyRoutingNodes().shardsWithState(INITIALIZING));
+        }
+        logger.info("[{}] settled after [{}] reroutes, took [{}], reroute avg [{}], max [{}], unassigned [{}]", phase, reroutes,
+                TimeValue.timeValueNanos(System.nanoTime() - start), TimeValue.timeValueNanos(rerouteNanos / reroutes),
+                TimeValue.timeValueNanos(maxRerouteNanos), clusterState.readOnlyRoutingNodes().unassigned().size());
+        return clusterState;
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.benchmark.inject;
+
+import org.elasticsearch.cluster.ClusterService;
+import org.elasticsearch.cluster.metadata.IndexMetaData;
+import org.elasticsearch.common.StopWatch;
+import org.elasticsearch.common.logging.ESLogger;
+import org.elasticsearch.common.logging.Loggers;
+import org.elasticsearch.common.settings.ImmutableSettings;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.index.service.IndexService;
+import org.elasticsearch.indices.IndicesService;
+import org.elasticsearch.node.Node;
+import org.elasticsearch.node.internal.InternalNode;
+
+import static org.elasticsearch.node.NodeBuilder.nodeBuilder;
+
+/**
+ * Measures node startup time, and the time it takes a node to build the injectors of an index and of its shard
+ * (which is what every node allocated a shard of a new index goes through).
+ */
+public class IndexCreationBenchmark {
+
+    private static final ESLogger logger = Loggers.getLogger(IndexCreationBenchmark.class);
+
+    private static final int NUMBER_OF_NODES = 5;
+    private static final int WARMUP_ITERATIONS = 200;
+    private static final int ITERATIONS = 1000;
+
+    public static void main(String[] args) throws Exception {
+        Settings settings = ImmutableSettings.settingsBuilder()
+                .put("gateway.type", "none")
+                .put("cluster.name", "index-creation-benchmark")
+                .put("http.enabled", false)
+                .build();
+
+        // the first node pays for loading the classes, the following ones show the cost of building the node injector
+        Node[] nodes = new Node[NUMBER_OF_NODES];
+        for (int i = 0; i < nodes.length; i++) {
+            StopWatch stopWatch = new StopWatch().start();
+            nodes[i] = nodeBuilder().settings(settings).local(true).node();
+            stopWatch.stop();
+            logger.info("started node [{}] in [{}]", i, stopWatch.totalTime());
+        }
+        try {
+            InternalNode node = (InternalNode) nodes[0];
+            IndicesService indicesService = node.injector().getInstance(IndicesService.class);
+            String localNodeId = node.injector().getInstance(ClusterService.class).localNode().id();
+            Settings indexSettings = ImmutableSettings.settingsBuilder()
+                    .put(IndexMetaData.SETTING_NUMBER_OF_SHARDS, 1)
+                    .put(IndexMetaData.SETTING_NUMBER_OF_REPLICAS, 0)
+                    .build();
+
+            long indexNanos = 0;
+            long shardNanos = 0;
+            for (int i = 0; i < WARMUP_ITERATIONS + ITERATIONS; i++) {
+                String index = "index_" + i;
+                long start = System.nanoTime();
+                IndexService indexService = indicesService.createIndex(index, indexSettings, localNodeId);
+                long indexCreated = System.nanoTime();
+                indexService.createShard(0);
+                long shardCreated = System.nanoTime();
+                if (i >= WARMUP_ITERATIONS) {
+                    indexNanos += indexCreated - start;
+                    shardNanos += shardCreated - indexCreated;
+                }
+                indexService.removeShard(0, "benchmark");
+                indicesService.removeIndex(index, "benchmark");
+            }
+            logger.info("average index injector creation [{}ms], average shard injector creation [{}ms], over [{}] iterations",
+                    indexNanos / ITERATIONS / 1000000.0, shardNanos / ITERATIONS / 1000000.0, ITERATIONS);
+        } finally {
+            for (Node node : nodes) {
+                node.close();
+            }
+        }
+    }
+}
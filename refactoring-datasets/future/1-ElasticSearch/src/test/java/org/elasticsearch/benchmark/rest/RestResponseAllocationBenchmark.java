@@ -0,0 +1,142 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.benchmark.rest;
+
+import org.elasticsearch.action.bulk.BulkRequest;
+import org.elasticsearch.cache.recycler.PageCacheRecycler;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.elasticsearch.common.logging.ESLogger;
+import org.elasticsearch.common.logging.Loggers;
+import org.elasticsearch.common.settings.ImmutableSettings;
+import org.elasticsearch.common.util.BigArrays;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.XContentFactory;
+import org.elasticsearch.common.xcontent.XContentType;
+import org.elasticsearch.http.netty.NettyHttpRequest;
+import org.elasticsearch.rest.RestRequest;
+import org.elasticsearch.threadpool.ThreadPool;
+import org.jboss.netty.buffer.ChannelBuffers;
+import org.jboss.netty.handler.codec.http.DefaultHttpRequest;
+import org.jboss.netty.handler.codec.http.HttpMethod;
+import org.jboss.netty.handler.codec.http.HttpVersion;
+
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+
+import static org.elasticsearch.rest.action.support.RestXContentBuilder.restContentBuilder;
+
+/**
+ * Measures the bytes allocated per REST request to build a search-like response, with and without recycled
+ * response pages, and to parse the same bulk request in JSON and in SMILE.
+ */
+public class RestResponseAllocationBenchmark {
+
+    private static final ESLogger logger = Loggers.getLogger(RestResponseAllocationBenchmark.class);
+
+    private static final int ITERATIONS = 20000;
+    private static final int NUM_HITS = 50;
+    private static final int NUM_BULK_ITEMS = 100;
+
+    public static void main(String[] args) throws Exception {
+        ThreadPool threadPool = new ThreadPool();
+        try {
+            BigArrays recycling = new BigArrays(ImmutableSettings.EMPTY, new PageCacheRecycler(ImmutableSettings.EMPTY, threadPool));
+            for (int round = 0; round < 2; round++) {
+                logger.info("response, non recycling: {} bytes/request", responseAllocation(BigArrays.NON_RECYCLING_INSTANCE));
+                logger.info("response, recycling:     {} bytes/request", responseAllocation(recycling));
+                logger.info("bulk, json:  {} bytes/request", bulkAllocation(XContentType.JSON));
+                logger.info("bulk, smile: {} bytes/request", bulkAllocation(XContentType.SMILE));
+            }
+        } finally {
+            threadPool.shutdownNow();
+        }
+    }
+
+    private static long responseAllocation(BigArrays bigArrays) throws Exception {
+        long checksum = 0;
+        long start = allocatedBytes();
+        for (int i = 0; i < ITERATIONS; i++) {
+            DefaultHttpRequest httpRequest = new DefaultHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.GET, "/test/_search");
+            NettyHttpRequest request = new NettyHttpRequest(httpRequest, null, bigArrays);
+            XContentBuilder builder = buildResponse(request);
+            // what the netty channel hands over to the socket
+            checksum += builder.bytes().toChannelBuffer().readableBytes();
+            // done by the netty channel once the response is written
+            request.releaseResponseOutputs();
+        }
+        long perRequest = (allocatedBytes() - start) / ITERATIONS;
+        if (checksum == 0) {
+            throw new IllegalStateException();
+        }
+        return perRequest;
+    }
+
+    private static XContentBuilder buildResponse(RestRequest request) throws Exception {
+        XContentBuilder builder = restContentBuilder(request);
+        builder.startObject().field("took", 3).field("timed_out", false);
+        builder.startObject("hits").field("total", NUM_HITS).startArray("hits");
+        for (int i = 0; i < NUM_HITS; i++) {
+            builder.startObject().field("_index", "test").field("_type", "type").field("_id", Integer.toString(i)).field("_score", 1.0f);
+            builder.startObject("_source").field("user", "kimchy").field("message", "trying out elasticsearch, so far so good?").field("count", i).endObject();
+            builder.endObject();
+        }
+        builder.endArray().endObject().endObject();
+        return builder;
+    }
+
+    private static long bulkAllocation(XContentType type) throws Exception {
+        BytesReference data = bulkData(type);
+        long items = 0;
+        long start = allocatedBytes();
+        for (int i = 0; i < ITERATIONS; i++) {
+            BulkRequest request = new BulkRequest();
+            request.add(data, false, type, null, null, null, null, true);
+            items += request.numberOfActions();
+        }
+        long perRequest = (allocatedBytes() - start) / ITERATIONS;
+        if (items != (long) ITERATIONS * NUM_BULK_ITEMS) {
+            throw new IllegalStateException();
+        }
+        return perRequest;
+    }
+
+    private static BytesReference bulkData(XContentType type) throws Exception {
+        BytesStreamOutput data = new BytesStreamOutput();
+        byte separator = type.xContent().streamSeparator();
+        for (int i = 0; i < NUM_BULK_ITEMS; i++) {
+            XContentBuilder action = XContentFactory.contentBuilder(type).startObject().startObject("index")
+                    .field("_index", "test").field("_type", "type").field("_id", Integer.toString(i)).endObject().endObject();
+            XContentBuilder source = XContentFactory.contentBuilder(type).startObject()
+                    .field("user", "kimchy").field("message", "trying out elasticsearch, so far so good?").field("count", i).endObject();
+            action.bytes().writeTo(data);
+            data.writeByte(separator);
+            source.bytes().writeTo(data);
+            data.writeByte(separator);
+        }
+        return data.bytes();
+    }
+
+    private static long allocatedBytes() throws Exception {
+        // the HotSpot specific thread bean, accessed through JMX to not depend on its internal interface
+        return (Long) ManagementFactory.getPlatformMBeanServer().invoke(new ObjectName(ManagementFactory.THREAD_MXBEAN_NAME),
+                "getThreadAllocatedBytes", new Object[]{Thread.currentThread().getId()}, new String[]{long.class.getName()});
+    }
+}
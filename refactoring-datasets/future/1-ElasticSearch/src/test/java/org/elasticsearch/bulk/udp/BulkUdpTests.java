@@ -0,0 +1,115 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.bulk.udp;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Predicate;
+import org.elasticsearch.common.settings.ImmutableSettings;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.test.ElasticsearchIntegrationTest;
+import org.elasticsearch.test.ElasticsearchIntegrationTest.ClusterScope;
+import org.elasticsearch.test.ElasticsearchIntegrationTest.Scope;
+import org.junit.Test;
+
+import java.io.DataOutputStream;
+import java.net.*;
+
+import static org.hamcrest.Matchers.equalTo;
+
+@ClusterScope(scope = Scope.TEST, numNodes = 1)
+public class BulkUdpTests extends ElasticsearchIntegrationTest {
+
+    @Override
+    protected Settings nodeSettings(int nodeOrdinal) {
+        return ImmutableSettings.settingsBuilder()
+                .put(super.nodeSettings(nodeOrdinal))
+                .put("bulk.udp.enabled", true)
+                .put("bulk.udp.tcp.enabled", true)
+                .put("bulk.udp.bulk_actions", 7)
+                .put("bulk.udp.flush_interval", "100ms")
+                .build();
+    }
+
+    @Test
+    public void testUdpAndTcpIngest() throws Exception {
+        createIndex("test");
+        ensureYellow();
+        final BulkUdpService service = cluster().getInstance(BulkUdpService.class);
+
+        int numUdpDocs = between(1, 30);
+        byte[] udpData = bulkData("test", 0, numUdpDocs);
+        DatagramSocket socket = new DatagramSocket();
+        try {
+            socket.send(new DatagramPacket(udpData, udpData.length, loopback(service.channel.getLocalAddress())));
+        } finally {
+            socket.close();
+        }
+
+        int numTcpDocs = between(1, 30);
+        Socket tcpSocket = new Socket();
+        try {
+            tcpSocket.connect(loopback(service.tcpChannel.getLocalAddress()));
+            DataOutputStream out = new DataOutputStream(tcpSocket.getOutputStream());
+            // two frames, the second one to an index that needs to be created first
+            byte[] tcpData = bulkData("test", numUdpDocs, numTcpDocs);
+            out.writeInt(tcpData.length);
+            out.write(tcpData);
+            byte[] otherData = bulkData("other", 0, 3);
+            out.writeInt(otherData.length);
+            out.write(otherData);
+            out.flush();
+        } finally {
+            tcpSocket.close();
+        }
+
+        final long expected = numUdpDocs + numTcpDocs;
+        assertTrue(awaitBusy(new Predicate<Object>() {
+            @Override
+            public boolean apply(Object input) {
+                if (!client().admin().indices().prepareExists("other").get().isExists()) {
+                    return false;
+                }
+                refresh();
+                return client().prepareCount("test").get().getCount() == expected
+                        && client().prepareCount("other").get().getCount() == 3;
+            }
+        }));
+
+        BulkUdpService.Stats stats = service.stats();
+        assertThat(stats.getReceivedFrames(), equalTo(3l));
+        assertThat(stats.getDroppedFrames(), equalTo(0l));
+        assertThat(stats.getDroppedActions(), equalTo(0l));
+        assertThat(stats.getFailedActions(), equalTo(0l));
+        assertThat(stats.getQueuedActions(), equalTo(0l));
+    }
+
+    private static InetSocketAddress loopback(SocketAddress address) {
+        return new InetSocketAddress(InetAddress.getLoopbackAddress(), ((InetSocketAddress) address).getPort());
+    }
+
+    private static byte[] bulkData(String index, int from, int numDocs) {
+        StringBuilder data = new StringBuilder();
+        for (int i = from; i < from + numDocs; i++) {
+            data.append("{\"index\":{\"_index\":\"").append(index).append("\",\"_type\":\"type\",\"_id\":\"").append(i).append("\"}}\n");
+            data.append("{\"field\":").append(i).append("}\n");
+        }
+        return data.toString().getBytes(Charsets.UTF_8);
+    }
+}
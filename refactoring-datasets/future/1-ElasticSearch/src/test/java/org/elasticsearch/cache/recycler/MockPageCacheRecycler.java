@@ -28,6 +28,7 @@ import org.elasticsearch.test.TestCluster;
 import org.elasticsearch.threadpool.ThreadPool;
 
 import java.lang.reflect.Array;
+import java.nio.ByteBuffer;
 import java.util.Random;
 import java.util.concurrent.ConcurrentMap;
 
@@ -39,6 +40,10 @@ public class MockPageCacheRecycler extends PageCacheRecycler {
         ACQUIRED_PAGES.clear();
     }
 
+    public static boolean allPagesReleased() {
+        return ACQUIRED_PAGES.isEmpty();
+    }
+
     public static void ensureAllPagesAreReleased() {
         if (ACQUIRED_PAGES.size() > 0) {
             final Throwable t = ACQUIRED_PAGES.entrySet().iterator().next().getValue();
@@ -66,11 +71,15 @@ public class MockPageCacheRecycler extends PageCacheRecycler {
                     throw new IllegalStateException("Releasing a page that has not been acquired");
                 }
                 final T ref = v();
-                for (int i = 0; i < Array.getLength(ref); ++i) {
-                    if (ref instanceof Object[]) {
-                        Array.set(ref, i, null);
-                    } else {
-                        Array.set(ref, i, (byte) random.nextInt(256));
+                if (ref instanceof ByteBuffer) {
+                    randomize((ByteBuffer) ref);
+                } else {
+                    for (int i = 0; i < Array.getLength(ref); ++i) {
+                        if (ref instanceof Object[]) {
+                            Array.set(ref, i, null);
+                        } else {
+                            Array.set(ref, i, (byte) random.nextInt(256));
+                        }
                     }
                 }
                 return v.release();
@@ -136,4 +145,19 @@ public class MockPageCacheRecycler extends PageCacheRecycler {
         return wrap(super.objectPage());
     }
 
+    @Override
+    public V<ByteBuffer> directPage(boolean clear) {
+        final V<ByteBuffer> page = super.directPage(clear);
+        if (!clear) {
+            randomize(page.v());
+        }
+        return wrap(page);
+    }
+
+    private void randomize(ByteBuffer page) {
+        for (int i = 0; i < page.capacity(); ++i) {
+            page.put(i, (byte) random.nextInt(256));
+        }
+    }
+
 }
@@ -21,6 +21,7 @@ package org.elasticsearch.cluster;
 import org.elasticsearch.ElasticsearchException;
 import org.elasticsearch.action.admin.cluster.health.ClusterHealthResponse;
 import org.elasticsearch.action.admin.cluster.tasks.PendingClusterTasksResponse;
+import org.elasticsearch.cluster.metadata.MetaData;
 import org.elasticsearch.cluster.node.DiscoveryNode;
 import org.elasticsearch.cluster.service.PendingClusterTask;
 import org.elasticsearch.common.Nullable;
@@ -42,6 +43,7 @@ import java.util.*;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.elasticsearch.common.settings.ImmutableSettings.settingsBuilder;
 import static org.hamcrest.Matchers.*;
@@ -618,6 +620,157 @@ public class ClusterServiceTests extends ElasticsearchIntegrationTest {
         }
     }
 
+    @Test
+    public void testBatchedUpdateTasks() throws Exception {
+        Settings settings = settingsBuilder()
+                .put("discovery.type", "local")
+                .build();
+        cluster().startNode(settings);
+        ClusterService clusterService = cluster().getInstance(ClusterService.class);
+        final AtomicInteger clusterChanges = new AtomicInteger();
+        clusterService.add(new ClusterStateListener() {
+            @Override
+            public void clusterChanged(ClusterChangedEvent event) {
+                if (event.source().startsWith("batched")) {
+                    clusterChanges.incrementAndGet();
+                }
+            }
+        });
+
+        BlockingTask block = new BlockingTask();
+        clusterService.submitStateUpdateTask("test", Priority.IMMEDIATE, block);
+        int taskCount = randomIntBetween(2, 50);
+        int failingTask = randomInt(taskCount - 1);
+        CountDownLatch latch = new CountDownLatch(taskCount);
+        AtomicInteger completedBatches = new AtomicInteger();
+        List<BatchedTask> tasks = new ArrayList<BatchedTask>(taskCount);
+        for (int i = 0; i < taskCount; i++) {
+            BatchedTask task = new BatchedTask(i, i == failingTask, latch, completedBatches);
+            tasks.add(task);
+            clusterService.submitStateUpdateTask("batched [" + i + "]", Priority.NORMAL, task);
+        }
+        // a task of another class is not part of the batch
+        final CountDownLatch otherLatch = new CountDownLatch(1);
+        clusterService.submitStateUpdateTask("other", Priority.NORMAL, new ClusterStateUpdateTask() {
+            @Override
+            public ClusterState execute(ClusterState currentState) throws Exception {
+                otherLatch.countDown();
+                return currentState;
+            }
+
+            @Override
+            public void onFailure(String source, Throwable t) {
+            }
+        });
+
+        block.release();
+        assertThat(latch.await(10, TimeUnit.SECONDS), equalTo(true));
+        assertThat(otherLatch.await(10, TimeUnit.SECONDS), equalTo(true));
+
+        // all the tasks got executed in order, completed once and published together
+        assertThat(clusterChanges.get(), equalTo(1));
+        assertThat(completedBatches.get(), equalTo(1));
+        Settings transientSettings = clusterService.state().metaData().transientSettings();
+        assertThat(transientSettings.get("batch.completed"), equalTo(Integer.toString(taskCount - 1)));
+        ClusterState publishedState = null;
+        for (BatchedTask task : tasks) {
+            if (task.id == failingTask) {
+                assertThat(task.failure, notNullValue());
+                assertThat(task.acked, equalTo(false));
+                assertThat(task.processedState, nullValue());
+                assertThat(transientSettings.get("batch." + task.id), nullValue());
+            } else {
+                assertThat(task.failure, nullValue());
+                assertThat(task.acked, equalTo(true));
+                assertThat(task.processedState, notNullValue());
+                if (publishedState == null) {
+                    publishedState = task.processedState;
+                }
+                assertThat(task.processedState, sameInstance(publishedState));
+                assertThat(transientSettings.get("batch." + task.id), equalTo(Integer.toString(task.id)));
+            }
+        }
+        assertThat(publishedState.version(), equalTo(clusterService.state().version()));
+    }
+
+    private static class BatchedTask implements AckedClusterStateUpdateTask, BatchedClusterStateUpdateTask {
+
+        private final int id;
+        private final boolean fail;
+        private final CountDownLatch latch;
+        private final AtomicInteger completedBatches;
+        volatile boolean acked;
+        volatile Throwable failure;
+        volatile ClusterState processedState;
+
+        private BatchedTask(int id, boolean fail, CountDownLatch latch, AtomicInteger completedBatches) {
+            this.id = id;
+            this.fail = fail;
+            this.latch = latch;
+            this.completedBatches = completedBatches;
+        }
+
+        @Override
+        public ClusterState execute(ClusterState currentState) throws Exception {
+            if (fail) {
+                throw new ElasticsearchException("simulated failure [" + id + "]");
+            }
+            Settings transientSettings = settingsBuilder().put(currentState.metaData().transientSettings()).put("batch." + id, id).build();
+            return ClusterState.builder(currentState).metaData(MetaData.builder(currentState.metaData()).transientSettings(transientSettings)).build();
+        }
+
+        @Override
+        public ClusterState executeBatchCompleted(ClusterState batchState) throws Exception {
+            completedBatches.incrementAndGet();
+            // counts the tasks that got executed as part of the batch
+            int executed = 0;
+            for (String key : batchState.metaData().transientSettings().getAsMap().keySet()) {
+                if (key.startsWith("batch.") && !key.equals("batch.completed")) {
+                    executed++;
+                }
+            }
+            Settings transientSettings = settingsBuilder().put(batchState.metaData().transientSettings()).put("batch.completed", executed).build();
+            return ClusterState.builder(batchState).metaData(MetaData.builder(batchState.metaData()).transientSettings(transientSettings)).build();
+        }
+
+        @Override
+        public void onFailure(String source, Throwable t) {
+            failure = t;
+            latch.countDown();
+        }
+
+        @Override
+        public void clusterStateProcessed(String source, ClusterState oldState, ClusterState newState) {
+            processedState = newState;
+        }
+
+        @Override
+        public boolean mustAck(DiscoveryNode discoveryNode) {
+            return true;
+        }
+
+        @Override
+        public void onAllNodesAcked(@Nullable Throwable t) {
+            acked = true;
+            latch.countDown();
+        }
+
+        @Override
+        public void onAckTimeout() {
+            latch.countDown();
+        }
+
+        @Override
+        public TimeValue ackTimeout() {
+            return TimeValue.timeValueSeconds(10);
+        }
+
+        @Override
+        public TimeValue timeout() {
+            return TimeValue.timeValueSeconds(10);
+        }
+    }
+
     private static class BlockingTask implements ClusterStateUpdateTask {
         private final CountDownLatch latch = new CountDownLatch(1);
 
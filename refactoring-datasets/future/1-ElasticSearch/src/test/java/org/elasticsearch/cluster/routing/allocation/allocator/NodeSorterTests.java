@@ -0,0 +1,79 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.cluster.routing.allocation.allocator;
+
+import org.elasticsearch.cluster.routing.allocation.allocator.BalancedShardsAllocator.ModelNode;
+import org.elasticsearch.cluster.routing.allocation.allocator.BalancedShardsAllocator.NodeSorter;
+import org.elasticsearch.test.ElasticsearchTestCase;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.hamcrest.Matchers.equalTo;
+
+public class NodeSorterTests extends ElasticsearchTestCase {
+
+    @Test
+    public void testResortMatchesFullSortWithEqualWeights() {
+        // more nodes than the insertion sort threshold of the intro sort, with lots of equal weights
+        int numNodes = randomIntBetween(17, 100);
+        List<ModelNode> nodes = new ArrayList<ModelNode>();
+        for (int i = 0; i < numNodes; i++) {
+            nodes.add(new ModelNode("node_" + i));
+        }
+        Collections.shuffle(nodes, getRandom());
+        ModelNode[] modelNodes = nodes.toArray(new ModelNode[numNodes]);
+        NodeSorter sorter = new NodeSorter(modelNodes, null, null);
+        for (int i = 0; i < numNodes; i++) {
+            sorter.weights[i] = randomIntBetween(0, 2);
+        }
+        sorter.sort(0, numNodes);
+        assertSorted(sorter);
+
+        for (int iter = 0; iter < 10; iter++) {
+            // a relocation changes the weights of two nodes
+            int low = randomInt(numNodes - 1);
+            int high = randomInt(numNodes - 1);
+            sorter.weights[low] = randomIntBetween(0, 2);
+            sorter.weights[high] = randomIntBetween(0, 2);
+            NodeSorter fullSort = new NodeSorter(modelNodes.clone(), null, null);
+            System.arraycopy(sorter.weights, 0, fullSort.weights, 0, numNodes);
+            fullSort.sort(0, numNodes);
+            sorter.resort();
+            assertSorted(sorter);
+            for (int i = 0; i < numNodes; i++) {
+                assertThat(sorter.modelNodes[i].getNodeId(), equalTo(fullSort.modelNodes[i].getNodeId()));
+            }
+        }
+    }
+
+    private void assertSorted(NodeSorter sorter) {
+        for (int i = 1; i < sorter.weights.length; i++) {
+            float previous = sorter.weights[i - 1];
+            float current = sorter.weights[i];
+            assertTrue(previous <= current);
+            if (previous == current) {
+                assertTrue(sorter.modelNodes[i - 1].getNodeId().compareTo(sorter.modelNodes[i].getNodeId()) < 0);
+            }
+        }
+    }
+}
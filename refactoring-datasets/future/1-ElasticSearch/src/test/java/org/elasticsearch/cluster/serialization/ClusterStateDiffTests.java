@@ -0,0 +1,108 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.cluster.serialization;
+
+import org.elasticsearch.cluster.ClusterState;
+import org.elasticsearch.cluster.IncompatibleClusterStateVersionException;
+import org.elasticsearch.cluster.metadata.IndexMetaData;
+import org.elasticsearch.cluster.metadata.MetaData;
+import org.elasticsearch.cluster.node.DiscoveryNodes;
+import org.elasticsearch.cluster.routing.RoutingTable;
+import org.elasticsearch.cluster.routing.allocation.AllocationService;
+import org.elasticsearch.common.io.stream.BytesStreamInput;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.elasticsearch.test.ElasticsearchAllocationTestCase;
+import org.junit.Test;
+
+import static org.elasticsearch.cluster.routing.ShardRoutingState.INITIALIZING;
+import static org.hamcrest.Matchers.*;
+
+/**
+ *
+ */
+public class ClusterStateDiffTests extends ElasticsearchAllocationTestCase {
+
+    @Test
+    public void testApplyDiff() throws Exception {
+        AllocationService strategy = createAllocationService();
+        MetaData.Builder metaDataBuilder = MetaData.builder();
+        RoutingTable.Builder routingTableBuilder = RoutingTable.builder();
+        for (int i = 0; i < 20; i++) {
+            metaDataBuilder.put(IndexMetaData.builder("test" + i).numberOfShards(2).numberOfReplicas(1));
+        }
+        MetaData metaData = metaDataBuilder.build();
+        for (IndexMetaData indexMetaData : metaData) {
+            routingTableBuilder.addAsNew(indexMetaData);
+        }
+        DiscoveryNodes nodes = DiscoveryNodes.builder().put(newNode("node1")).put(newNode("node2")).localNodeId("node1").masterNodeId("node1").build();
+        ClusterState previousState = ClusterState.builder().nodes(nodes).metaData(metaData).routingTable(routingTableBuilder.build()).build();
+        previousState = ClusterState.builder(previousState).routingTable(strategy.reroute(previousState).routingTable()).build();
+
+        // the node receiving the diff holds a deserialized copy of the previous state
+        ClusterState receivedState = ClusterState.Builder.fromBytes(ClusterState.Builder.toBytes(previousState), newNode("node2"));
+        assertThat(receivedState.uuid(), equalTo(previousState.uuid()));
+
+        metaData = MetaData.builder(previousState.metaData())
+                .remove("test0")
+                .put(IndexMetaData.builder("new_index").numberOfShards(1).numberOfReplicas(0))
+                .build();
+        RoutingTable routingTable = RoutingTable.builder(previousState.routingTable())
+                .remove("test0")
+                .addAsNew(metaData.index("new_index"))
+                .build();
+        ClusterState state = ClusterState.builder(previousState).version(previousState.version() + 1).metaData(metaData).routingTable(routingTable).build();
+        state = ClusterState.builder(state).routingTable(strategy.reroute(state).routingTable()).build();
+        state = ClusterState.builder(state).routingTable(strategy.applyStartedShards(state, state.routingNodes().shardsWithState(INITIALIZING)).routingTable()).build();
+        assertThat(state.uuid(), not(equalTo(previousState.uuid())));
+
+        BytesStreamOutput diffOut = new BytesStreamOutput();
+        ClusterState.Builder.writeDiffTo(previousState, state, diffOut);
+        BytesStreamOutput fullOut = new BytesStreamOutput();
+        ClusterState.Builder.writeTo(state, fullOut);
+        // most of the index meta data didn't change, so it must not be part of the diff
+        assertThat(diffOut.bytes().length(), lessThan(fullOut.bytes().length()));
+
+        ClusterState diffState = ClusterState.Builder.readDiffFrom(new BytesStreamInput(diffOut.bytes()), receivedState, newNode("node2"));
+        assertThat(diffState.version(), equalTo(state.version()));
+        assertThat(diffState.uuid(), equalTo(state.uuid()));
+        assertThat(diffState.metaData().indices().size(), equalTo(state.metaData().indices().size()));
+        assertThat(diffState.metaData().hasIndex("test0"), equalTo(false));
+        assertThat(diffState.metaData().hasIndex("new_index"), equalTo(true));
+        assertThat(diffState.metaData().index("test1"), sameInstance(receivedState.metaData().index("test1")));
+        assertThat(diffState.routingTable().prettyPrint(), equalTo(state.routingTable().prettyPrint()));
+        assertThat(diffState.nodes().localNodeId(), equalTo("node2"));
+    }
+
+    @Test(expected = IncompatibleClusterStateVersionException.class)
+    public void testApplyDiffOnWrongState() throws Exception {
+        MetaData metaData = MetaData.builder()
+                .put(IndexMetaData.builder("test").numberOfShards(1).numberOfReplicas(0))
+                .build();
+        DiscoveryNodes nodes = DiscoveryNodes.builder().put(newNode("node1")).localNodeId("node1").masterNodeId("node1").build();
+        ClusterState previousState = ClusterState.builder().nodes(nodes).metaData(metaData).build();
+        ClusterState state = ClusterState.builder(previousState).version(previousState.version() + 1).build();
+
+        BytesStreamOutput out = new BytesStreamOutput();
+        ClusterState.Builder.writeDiffTo(previousState, state, out);
+        // same content, but a different cluster state instance
+        ClusterState otherState = ClusterState.builder(previousState).build();
+        ClusterState.Builder.readDiffFrom(new BytesStreamInput(out.bytes()), otherState, newNode("node1"));
+    }
+}
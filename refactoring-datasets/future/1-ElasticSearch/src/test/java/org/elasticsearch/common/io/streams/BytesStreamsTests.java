@@ -20,10 +20,21 @@
 package org.elasticsearch.common.io.streams;
 
 import org.apache.lucene.util.Constants;
+import org.apache.lucene.util.Counter;
+import org.elasticsearch.cache.recycler.MockPageCacheRecycler;
+import org.elasticsearch.common.bytes.BytesArray;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.bytes.PagedBytesReference;
 import org.elasticsearch.common.io.stream.BytesStreamInput;
 import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.elasticsearch.common.io.stream.ReleasableBytesStreamOutput;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.settings.ImmutableSettings;
 import org.elasticsearch.common.util.BigArrays;
 import org.elasticsearch.test.ElasticsearchTestCase;
+import org.elasticsearch.test.cache.recycler.MockBigArrays;
+import org.elasticsearch.threadpool.ThreadPool;
+import org.jboss.netty.buffer.ChannelBuffer;
 import org.junit.Ignore;
 import org.junit.Test;
 
@@ -343,6 +354,59 @@ public class BytesStreamsTests extends ElasticsearchTestCase {
 
     }
 
+    @Test
+    public void testReleasableBytesSharePages() throws Exception {
+        ReleasableBytesStreamOutput out = new ReleasableBytesStreamOutput(BigArrays.NON_RECYCLING_INSTANCE);
+        int expectedSize = randomIntBetween(0, BigArrays.BYTE_PAGE_SIZE * 3);
+        byte[] expectedData = randomizedByteArrayWithSize(expectedSize);
+        out.writeBytes(expectedData);
+
+        BytesReference bytes = out.bytes();
+        assertEquals(expectedSize, bytes.length());
+        assertArrayEquals(expectedData, bytes.toBytes());
+        assertEquals(new BytesArray(expectedData), bytes);
+        assertEquals(new BytesArray(expectedData).hashCode(), bytes.hashCode());
+
+        ChannelBuffer buffer = bytes.toChannelBuffer();
+        assertEquals(expectedSize, buffer.readableBytes());
+        byte[] fromBuffer = new byte[expectedSize];
+        buffer.readBytes(fromBuffer);
+        assertArrayEquals(expectedData, fromBuffer);
+
+        int from = randomIntBetween(0, expectedSize);
+        int length = randomIntBetween(0, expectedSize - from);
+        BytesReference slice = bytes.slice(from, length);
+        assertEquals(new BytesArray(expectedData, from, length), slice);
+
+        StreamInput in = bytes.streamInput();
+        in.skip(from);
+        assertEquals(new BytesArray(expectedData, from, length), in.readBytesReference(length));
+        in.close();
+
+        assertTrue(out.release());
+    }
+
+    @Test
+    public void testCountCopiedBytes() throws Exception {
+        final boolean offHeap = randomBoolean();
+        final BigArrays bigArrays = new MockBigArrays(ImmutableSettings.settingsBuilder().put("common.util." + BigArrays.OFF_HEAP_ENABLED, offHeap).build(),
+                new MockPageCacheRecycler(ImmutableSettings.EMPTY, new ThreadPool()));
+        ReleasableBytesStreamOutput out = new ReleasableBytesStreamOutput(bigArrays);
+        int expectedSize = randomIntBetween(1, BigArrays.BYTE_PAGE_SIZE * 3);
+        byte[] expectedData = randomizedByteArrayWithSize(expectedSize);
+        out.writeBytes(expectedData);
+
+        Counter copied = Counter.newCounter();
+        ChannelBuffer buffer = ((PagedBytesReference) out.bytes()).toChannelBuffer(copied);
+        // on-heap pages are wrapped, off-heap pages need to be copied
+        assertEquals(offHeap ? expectedSize : 0, copied.get());
+        byte[] fromBuffer = new byte[expectedSize];
+        buffer.readBytes(fromBuffer);
+        assertArrayEquals(expectedData, fromBuffer);
+
+        assertTrue(out.release());
+    }
+
     // create & fill byte[] with randomized data
     protected byte[] randomizedByteArrayWithSize(int size) {
         byte[] data = new byte[size];
@@ -24,6 +24,8 @@ import org.apache.lucene.analysis.TokenStream;
 import org.apache.lucene.analysis.core.KeywordAnalyzer;
 import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
 import org.apache.lucene.analysis.tokenattributes.PayloadAttribute;
+import org.apache.lucene.codecs.PostingsFormat;
+import org.apache.lucene.codecs.lucene46.Lucene46Codec;
 import org.apache.lucene.document.*;
 import org.apache.lucene.document.Field.Store;
 import org.apache.lucene.index.*;
@@ -32,6 +34,7 @@ import org.apache.lucene.store.Directory;
 import org.apache.lucene.util.BytesRef;
 import org.elasticsearch.common.Numbers;
 import org.elasticsearch.common.lucene.Lucene;
+import org.elasticsearch.index.codec.postingsformat.Elasticsearch090PostingsFormat;
 import org.elasticsearch.index.mapper.internal.UidFieldMapper;
 import org.elasticsearch.index.mapper.internal.VersionFieldMapper;
 import org.elasticsearch.index.merge.Merges;
@@ -114,6 +117,80 @@ public class VersionsTests extends ElasticsearchLuceneTestCase {
         dir.close();
     }
 
+    @Test
+    public void testLookupStateReuseAndBloomFilter() throws IOException {
+        Directory dir = newDirectory();
+        IndexWriterConfig iwConf = new IndexWriterConfig(Lucene.VERSION, Lucene.STANDARD_ANALYZER);
+        iwConf.setMergePolicy(NoMergePolicy.NO_COMPOUND_FILES);
+        // the default postings format records a bloom filter for _uid
+        final PostingsFormat postingsFormat = new Elasticsearch090PostingsFormat();
+        iwConf.setCodec(new Lucene46Codec() {
+            @Override
+            public PostingsFormat getPostingsFormatForField(String field) {
+                return postingsFormat;
+            }
+        });
+        IndexWriter writer = new IndexWriter(dir, iwConf);
+        final int numSegments = 2;
+        final int docsPerSegment = 100;
+        for (int i = 0; i < numSegments; ++i) {
+            for (int j = 0; j < docsPerSegment; ++j) {
+                final int id = i * docsPerSegment + j;
+                Document doc = new Document();
+                doc.add(new Field(UidFieldMapper.NAME, Integer.toString(id), UidFieldMapper.Defaults.FIELD_TYPE));
+                doc.add(new NumericDocValuesField(VersionFieldMapper.NAME, id + 1));
+                writer.addDocument(doc);
+            }
+            writer.commit();
+        }
+        DirectoryReader directoryReader = DirectoryReader.open(writer, true);
+        assertThat(directoryReader.leaves().size(), equalTo(numSegments));
+
+        final long[] counts = new long[3];
+        final Versions.LookupListener listener = new Versions.LookupListener() {
+            @Override
+            public void onSegmentLookup(boolean reusedState, boolean skipped) {
+                counts[0]++;
+                if (reusedState) {
+                    counts[1]++;
+                }
+                if (skipped) {
+                    counts[2]++;
+                }
+            }
+        };
+
+        // the uids of the last segment are found without visiting other segments
+        assertThat(Versions.loadVersion(directoryReader, new Term(UidFieldMapper.NAME, "150"), listener), equalTo(151l));
+        assertThat(counts[0], equalTo(1l));
+        assertThat(counts[1], equalTo(0l));
+
+        // the state of the last segment is reused
+        assertThat(Versions.loadVersion(directoryReader, new Term(UidFieldMapper.NAME, "10"), listener), equalTo(11l));
+        assertThat(counts[0], equalTo(3l));
+        assertThat(counts[1], equalTo(1l));
+
+        // uids that do not exist are mostly rejected by the bloom filters
+        counts[0] = counts[1] = counts[2] = 0;
+        for (int i = 0; i < docsPerSegment; ++i) {
+            final int id = numSegments * docsPerSegment + i;
+            assertThat(Versions.loadVersion(directoryReader, new Term(UidFieldMapper.NAME, Integer.toString(id)), listener), equalTo(Versions.NOT_FOUND));
+        }
+        assertThat(counts[0], equalTo((long) numSegments * docsPerSegment));
+        assertThat(counts[1], equalTo((long) numSegments * docsPerSegment));
+        assertThat(counts[2], greaterThan((long) numSegments * docsPerSegment / 2));
+
+        // deletes are visible although the lookup state is shared by all readers of the segment
+        writer.deleteDocuments(new Term(UidFieldMapper.NAME, "10"));
+        directoryReader = reopen(directoryReader);
+        assertThat(Versions.loadVersion(directoryReader, new Term(UidFieldMapper.NAME, "10"), listener), equalTo(Versions.NOT_FOUND));
+        assertThat(Versions.loadVersion(directoryReader, new Term(UidFieldMapper.NAME, "11"), listener), equalTo(12l));
+
+        directoryReader.close();
+        writer.close();
+        dir.close();
+    }
+
     @Test
     public void testNestedDocuments() throws IOException {
         Directory dir = newDirectory();
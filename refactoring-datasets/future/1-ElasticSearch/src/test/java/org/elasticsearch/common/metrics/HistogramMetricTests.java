@@ -0,0 +1,102 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.common.metrics;
+
+import org.elasticsearch.test.ElasticsearchTestCase;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.hamcrest.Matchers.*;
+
+/**
+ */
+public class HistogramMetricTests extends ElasticsearchTestCase {
+
+    @Test
+    public void testBuckets() {
+        for (int i = 0; i < 16; i++) {
+            assertThat(HistogramMetric.bucket(i), equalTo(i));
+            assertThat(HistogramMetric.highestEquivalentValue(i), equalTo((long) i));
+        }
+        assertThat(HistogramMetric.bucket(-5), equalTo(0));
+        assertThat(HistogramMetric.bucket(Long.MAX_VALUE), equalTo(HistogramMetric.BUCKETS - 1));
+        int previous = HistogramMetric.bucket(15);
+        for (int i = 0; i < 10000; i++) {
+            long value = randomInt(Integer.MAX_VALUE);
+            int bucket = HistogramMetric.bucket(value);
+            long highest = HistogramMetric.highestEquivalentValue(bucket);
+            assertThat(highest, greaterThanOrEqualTo(value));
+            // 8 sub buckets per power of two
+            assertThat((double) (highest - value), lessThanOrEqualTo(value / 8d));
+            if (bucket > 0) {
+                assertThat(HistogramMetric.highestEquivalentValue(bucket - 1), lessThan(value));
+            }
+        }
+        for (long value = 16; value < 100000; value++) {
+            int bucket = HistogramMetric.bucket(value);
+            assertThat(bucket, greaterThanOrEqualTo(previous));
+            assertThat(bucket, lessThanOrEqualTo(previous + 1));
+            previous = bucket;
+        }
+    }
+
+    @Test
+    public void testPercentiles() throws Exception {
+        final HistogramMetric histogram = new HistogramMetric();
+        assertThat(histogram.snapshot().count(), equalTo(0l));
+        assertThat(histogram.snapshot().percentile(50), equalTo(0l));
+
+        final long[] values = new long[scaledRandomIntBetween(100, 10000)];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = randomIntBetween(0, 1000000);
+        }
+        Thread[] threads = new Thread[randomIntBetween(1, 4)];
+        for (int t = 0; t < threads.length; t++) {
+            final int offset = t;
+            final int step = threads.length;
+            threads[t] = new Thread() {
+                @Override
+                public void run() {
+                    for (int i = offset; i < values.length; i += step) {
+                        histogram.inc(values[i]);
+                    }
+                }
+            };
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        HistogramMetric.Snapshot snapshot = histogram.snapshot();
+        assertThat(snapshot.count(), equalTo((long) values.length));
+        Arrays.sort(values);
+        for (double percentile : new double[]{0, 50, 90, 99, 99.9, 100}) {
+            long expected = values[Math.max(0, (int) Math.ceil(percentile / 100 * values.length) - 1)];
+            long actual = snapshot.percentile(percentile);
+            assertThat(actual, greaterThanOrEqualTo(expected));
+            assertThat((double) actual, lessThanOrEqualTo(expected + expected / 8d));
+        }
+
+        histogram.clear();
+        assertThat(histogram.snapshot().count(), equalTo(0l));
+    }
+}
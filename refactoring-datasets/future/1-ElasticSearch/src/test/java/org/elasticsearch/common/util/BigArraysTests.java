@@ -22,7 +22,9 @@ package org.elasticsearch.common.util;
 import org.apache.lucene.util.BytesRef;
 import org.elasticsearch.cache.recycler.MockPageCacheRecycler;
 import org.elasticsearch.cache.recycler.PageCacheRecycler;
+import org.elasticsearch.common.breaker.CircuitBreakingException;
 import org.elasticsearch.common.settings.ImmutableSettings;
+import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.test.ElasticsearchTestCase;
 import org.elasticsearch.test.cache.recycler.MockBigArrays;
 import org.elasticsearch.threadpool.ThreadPool;
@@ -34,7 +36,8 @@ public class BigArraysTests extends ElasticsearchTestCase {
 
     public static BigArrays randombigArrays() {
         final PageCacheRecycler recycler = randomBoolean() ? null : new MockPageCacheRecycler(ImmutableSettings.EMPTY, new ThreadPool());
-        return new MockBigArrays(ImmutableSettings.EMPTY, recycler);
+        final Settings settings = ImmutableSettings.settingsBuilder().put("common.util." + BigArrays.OFF_HEAP_ENABLED, randomBoolean()).build();
+        return new MockBigArrays(settings, recycler);
     }
 
     private BigArrays bigArrays;
@@ -239,4 +242,82 @@ public class BigArraysTests extends ElasticsearchTestCase {
         array2.release();
     }
 
+    public void testOffHeapAccounting() {
+        final Settings settings = ImmutableSettings.settingsBuilder().put("common.util." + BigArrays.OFF_HEAP_ENABLED, true).build();
+        final BigArrays bigArrays = new MockBigArrays(settings, new MockPageCacheRecycler(ImmutableSettings.EMPTY, new ThreadPool()));
+        assertTrue(bigArrays.offHeap());
+        final int numPages = randomIntBetween(1, 10);
+        LongArray array = bigArrays.newLongArray(numPages * BigArrays.LONG_PAGE_SIZE, randomBoolean());
+        assertEquals(numPages * BigArrays.PAGE_SIZE_IN_BYTES, bigArrays.offHeapBreaker().getUsed());
+        array = bigArrays.resize(array, 1);
+        assertEquals(BigArrays.PAGE_SIZE_IN_BYTES, bigArrays.offHeapBreaker().getUsed());
+        array = bigArrays.grow(array, 2 * BigArrays.LONG_PAGE_SIZE);
+        assertTrue(bigArrays.offHeapBreaker().getUsed() >= 2 * BigArrays.PAGE_SIZE_IN_BYTES);
+        array.release();
+        assertEquals(0, bigArrays.offHeapBreaker().getUsed());
+    }
+
+    public void testOffHeapLimit() {
+        final Settings settings = ImmutableSettings.settingsBuilder()
+                .put("common.util." + BigArrays.OFF_HEAP_ENABLED, true)
+                .put("common.util." + BigArrays.OFF_HEAP_LIMIT, 4 * BigArrays.PAGE_SIZE_IN_BYTES)
+                .build();
+        final BigArrays bigArrays = new MockBigArrays(settings, new MockPageCacheRecycler(ImmutableSettings.EMPTY, new ThreadPool()));
+        final DoubleArray array = bigArrays.newDoubleArray(3 * BigArrays.DOUBLE_PAGE_SIZE);
+        try {
+            bigArrays.newByteArray(2 * BigArrays.BYTE_PAGE_SIZE);
+            fail("expected the off-heap breaker to trip");
+        } catch (CircuitBreakingException e) {
+            // expected
+        }
+        // pages obtained before the breaker tripped must have been released
+        assertEquals(3 * BigArrays.PAGE_SIZE_IN_BYTES, bigArrays.offHeapBreaker().getUsed());
+        array.release();
+        assertEquals(0, bigArrays.offHeapBreaker().getUsed());
+        MockBigArrays.discardNextCheck();
+    }
+
+    public void testOffHeapByteSliceReusesRef() {
+        final Settings settings = ImmutableSettings.settingsBuilder().put("common.util." + BigArrays.OFF_HEAP_ENABLED, true).build();
+        final BigArrays bigArrays = new MockBigArrays(settings, new MockPageCacheRecycler(ImmutableSettings.EMPTY, new ThreadPool()));
+        final ByteArray array = bigArrays.newByteArray(2 * BigArrays.BYTE_PAGE_SIZE);
+        final byte[] data = new byte[randomIntBetween(1, 100)];
+        getRandom().nextBytes(data);
+        final long offset = BigArrays.BYTE_PAGE_SIZE - randomInt(data.length);
+        array.set(offset, data, 0, data.length);
+        // arrays that the off-heap array didn't allocate itself are never written to
+        final byte[] borrowed = new byte[data.length];
+        final BytesRef ref = new BytesRef(borrowed);
+        assertTrue(array.get(offset, data.length, ref));
+        assertNotSame(borrowed, ref.bytes);
+        assertArrayEquals(new byte[data.length], borrowed);
+        assertEquals(new BytesRef(data), ref);
+        // but the array it allocated for the ref is reused on the next call
+        final byte[] scratch = ref.bytes;
+        assertTrue(array.get(offset, data.length, ref));
+        assertSame(scratch, ref.bytes);
+        assertEquals(new BytesRef(data), ref);
+        // a ref pointing to pages of a heap array is left alone too
+        final ByteArray heapArray = BigArrays.NON_RECYCLING_INSTANCE.newByteArray(BigArrays.BYTE_PAGE_SIZE);
+        heapArray.set(0, data, 0, data.length);
+        final BytesRef heapRef = new BytesRef();
+        assertFalse(heapArray.get(0, data.length, heapRef));
+        array.get(offset - 1, data.length, heapRef);
+        final BytesRef heapSlice = new BytesRef();
+        heapArray.get(0, data.length, heapSlice);
+        assertEquals(new BytesRef(data), heapSlice);
+        heapArray.release();
+        array.release();
+    }
+
+    public void testFreeDirectPagesOverRecyclerLimit() {
+        // with no cached pages, every released off-heap page is freed immediately
+        final Settings recyclerSettings = ImmutableSettings.settingsBuilder().put("cache.recycler." + PageCacheRecycler.LIMIT_OFF_HEAP, 0).build();
+        final Settings settings = ImmutableSettings.settingsBuilder().put("common.util." + BigArrays.OFF_HEAP_ENABLED, true).build();
+        final BigArrays bigArrays = new MockBigArrays(settings, new MockPageCacheRecycler(recyclerSettings, new ThreadPool()));
+        final LongArray array = bigArrays.newLongArray(randomIntBetween(1, 5) * BigArrays.LONG_PAGE_SIZE);
+        array.release();
+        assertEquals(0, bigArrays.offHeapBreaker().getUsed());
+    }
+
 }
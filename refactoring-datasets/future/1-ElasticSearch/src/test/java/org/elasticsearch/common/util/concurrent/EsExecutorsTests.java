@@ -29,6 +29,8 @@ import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
 import static org.hamcrest.Matchers.lessThan;
 
 /**
@@ -233,4 +235,43 @@ public class EsExecutorsTests extends ElasticsearchTestCase {
         assertThat("idle threads didn't shrink below max. (" + pool.getPoolSize() + ")", pool.getPoolSize(), lessThan(max));
         pool.shutdown();
     }
+
+    @Test
+    public void testQueueAndExecutionTime() throws Exception {
+        EsThreadPoolExecutor executor = EsExecutors.newFixed(1, -1, EsExecutors.daemonThreadFactory("test"));
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch wait = new CountDownLatch(1);
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                started.countDown();
+                try {
+                    wait.await();
+                } catch (InterruptedException e) {
+                    throw new RuntimeException(e);
+                }
+            }
+        });
+        int tasks = randomIntBetween(1, 10);
+        for (int i = 0; i < tasks; i++) {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                }
+            });
+        }
+        started.await();
+        Thread.sleep(20);
+        wait.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        assertThat(executor.queueTime().count(), equalTo((long) tasks + 1));
+        assertThat(executor.executionTime().count(), equalTo((long) tasks + 1));
+        // the queued tasks waited on the first one, which itself waited on the latch
+        assertThat(executor.queueTime().percentile(100), greaterThanOrEqualTo(TimeUnit.MILLISECONDS.toMicros(20)));
+        assertThat(executor.executionTime().percentile(100), greaterThanOrEqualTo(TimeUnit.MILLISECONDS.toMicros(20)));
+        executor.tickArrivalRate();
+        assertThat(executor.arrivalRate(), greaterThan(0d));
+    }
 }
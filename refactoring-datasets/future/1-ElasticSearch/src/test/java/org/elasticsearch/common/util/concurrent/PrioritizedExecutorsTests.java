@@ -31,6 +31,7 @@ import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
 import static org.hamcrest.Matchers.is;
 
 /**
@@ -58,6 +59,41 @@ public class PrioritizedExecutorsTests extends ElasticsearchTestCase {
         }
     }
 
+    @Test
+    public void testQueueAndExecutionTime() throws Exception {
+        ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor();
+        // tasks are either all executed or all submitted, since the queue can only compare one kind of task
+        for (boolean submit : new boolean[]{false, true}) {
+            PrioritizedEsThreadPoolExecutor executor = EsExecutors.newSinglePrioritizing(Executors.defaultThreadFactory());
+            List<Integer> results = new ArrayList<Integer>(3);
+            CountDownLatch awaitingLatch = new CountDownLatch(1);
+            CountDownLatch finishedLatch = new CountDownLatch(3);
+            if (submit) {
+                executor.submit(new AwaitingJob(awaitingLatch));
+                executor.submit(new Job(1, Priority.LOW, results, finishedLatch));
+                executor.submit(new CallableJob(2, Priority.LANGUID, results, finishedLatch));
+                executor.submit(new Job(0, Priority.HIGH, results, finishedLatch));
+            } else {
+                executor.execute(new AwaitingJob(awaitingLatch));
+                executor.execute(new Job(1, Priority.LOW, results, finishedLatch));
+                executor.execute(new Job(2, Priority.LANGUID, results, finishedLatch), timer, TimeValue.timeValueMinutes(1), null);
+                executor.execute(new Job(0, Priority.HIGH, results, finishedLatch));
+            }
+            Thread.sleep(20);
+            awaitingLatch.countDown();
+            finishedLatch.await();
+            executor.shutdown();
+            assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+            assertThat(results, equalTo((List<Integer>) Lists.newArrayList(0, 1, 2)));
+            assertThat(executor.queueTime().count(), equalTo(4l));
+            assertThat(executor.executionTime().count(), equalTo(4l));
+            assertThat(executor.queueTime().percentile(100), greaterThanOrEqualTo(TimeUnit.MILLISECONDS.toMicros(20)));
+            assertThat(executor.executionTime().percentile(100), greaterThanOrEqualTo(TimeUnit.MILLISECONDS.toMicros(20)));
+        }
+        timer.shutdownNow();
+    }
+
     @Test
     public void testSubmitPrioritizedExecutorWithRunnables() throws Exception {
         ExecutorService executor = EsExecutors.newSinglePrioritizing(Executors.defaultThreadFactory());
@@ -34,7 +34,10 @@ import org.elasticsearch.common.lucene.Lucene;
 import org.elasticsearch.common.lucene.search.XConstantScoreQuery;
 import org.elasticsearch.common.lucene.search.XFilteredQuery;
 import org.elasticsearch.index.Index;
+import org.elasticsearch.index.cache.filter.admission.AdmissionFilterCache;
 import org.elasticsearch.index.cache.filter.none.NoneFilterCache;
+import org.elasticsearch.indices.cache.filter.IndicesAdmissionFilterCache;
+import org.elasticsearch.node.settings.NodeSettingsService;
 import org.elasticsearch.test.ElasticsearchTestCase;
 import org.junit.Test;
 
@@ -54,6 +57,13 @@ public class FilterCacheTests extends ElasticsearchTestCase {
         verifyCache(new NoneFilterCache(new Index("test"), EMPTY_SETTINGS));
     }
 
+    @Test
+    public void testAdmissionCache() throws Exception {
+        IndicesAdmissionFilterCache indicesFilterCache = new IndicesAdmissionFilterCache(EMPTY_SETTINGS, new NodeSettingsService(EMPTY_SETTINGS));
+        verifyCache(new AdmissionFilterCache(new Index("test"), EMPTY_SETTINGS, indicesFilterCache));
+        indicesFilterCache.close();
+    }
+
     private void verifyCache(FilterCache filterCache) throws Exception {
         Directory dir = new RAMDirectory();
         IndexWriter indexWriter = new IndexWriter(dir, new IndexWriterConfig(Lucene.VERSION, Lucene.STANDARD_ANALYZER));
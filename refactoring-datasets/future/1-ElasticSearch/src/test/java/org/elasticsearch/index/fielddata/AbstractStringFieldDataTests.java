@@ -25,6 +25,7 @@ import org.apache.lucene.document.Document;
 import org.apache.lucene.document.Field;
 import org.apache.lucene.document.Field.Store;
 import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.AtomicReaderContext;
 import org.apache.lucene.index.DirectoryReader;
 import org.apache.lucene.index.Term;
 import org.apache.lucene.queries.TermFilter;
@@ -36,11 +37,14 @@ import org.apache.lucene.util.BytesRef;
 import org.apache.lucene.util.OpenBitSet;
 import org.apache.lucene.util.UnicodeUtil;
 import org.apache.lucene.util._TestUtil;
+import org.elasticsearch.common.breaker.MemoryCircuitBreaker;
 import org.elasticsearch.common.lucene.search.NotFilter;
 import org.elasticsearch.common.lucene.search.XFilteredQuery;
 import org.elasticsearch.index.fielddata.IndexFieldData.XFieldComparatorSource;
 import org.elasticsearch.index.fielddata.fieldcomparator.BytesRefFieldComparatorSource;
 import org.elasticsearch.index.fielddata.fieldcomparator.SortMode;
+import org.elasticsearch.index.fielddata.ordinals.GlobalOrdinalsIndexFieldData;
+import org.elasticsearch.index.fielddata.ordinals.Ordinals;
 import org.elasticsearch.index.search.nested.NestedFieldComparatorSource;
 
 import java.io.IOException;
@@ -423,4 +427,49 @@ public abstract class AbstractStringFieldDataTests extends AbstractFieldDataImpl
         }
         searcher.getIndexReader().close();
     }
+
+    public void testGlobalOrdinals() throws Exception {
+        fillExtendedMvSet();
+        final IndexFieldData<?> indexFieldData = getForField("value");
+        if (!(indexFieldData instanceof IndexFieldData.WithOrdinals)) {
+            return;
+        }
+        final IndexFieldData.WithOrdinals<?> withOrdinals = (IndexFieldData.WithOrdinals<?>) indexFieldData;
+        final DirectoryReader topLevelReader = DirectoryReader.open(writer, true);
+        assertEquals(3, topLevelReader.leaves().size());
+        final IndexFieldData.WithOrdinals<?> globalFieldData = withOrdinals.loadGlobal(topLevelReader);
+        assertSame(globalFieldData, withOrdinals.loadGlobal(topLevelReader));
+
+        final String[] terms = {"!08", "!09", "!10", "02", "03", "04", "05", "06", "07", "08", "09", "10"};
+        for (AtomicReaderContext context : topLevelReader.leaves()) {
+            final BytesValues.WithOrdinals globalValues = globalFieldData.load(context).getBytesValues(randomBoolean());
+            final Ordinals.Docs globalOrdinals = globalValues.ordinals();
+            assertEquals(terms.length + Ordinals.MIN_ORDINAL, globalOrdinals.getMaxOrd());
+            for (long ord = Ordinals.MIN_ORDINAL; ord < globalOrdinals.getMaxOrd(); ++ord) {
+                assertEquals(terms[(int) (ord - Ordinals.MIN_ORDINAL)], globalValues.getValueByOrd(ord).utf8ToString());
+            }
+
+            // global ordinals must resolve to the same terms as the segment ordinals
+            final BytesValues.WithOrdinals segmentValues = withOrdinals.load(context).getBytesValues(false);
+            for (int docId = 0; docId < context.reader().maxDoc(); ++docId) {
+                final int numValues = globalOrdinals.setDocument(docId);
+                assertEquals(segmentValues.setDocument(docId), numValues);
+                long previousOrd = Ordinals.MISSING_ORDINAL;
+                for (int i = 0; i < numValues; ++i) {
+                    final long globalOrd = globalOrdinals.nextOrd();
+                    assertTrue(globalOrd > previousOrd);
+                    previousOrd = globalOrd;
+                    assertEquals(segmentValues.nextValue().utf8ToString(), globalValues.getValueByOrd(globalOrd).utf8ToString());
+                }
+            }
+        }
+
+        // there is no shard to report the unload to, the memory must still be given back to the breaker
+        final MemoryCircuitBreaker breaker = ((GlobalOrdinalsIndexFieldData) globalFieldData).breaker();
+        final long used = breaker.getUsed();
+        final long globalOrdinalsSize = ((GlobalOrdinalsIndexFieldData) globalFieldData).getMemorySizeInBytes();
+        assertTrue(globalOrdinalsSize > 0);
+        topLevelReader.close();
+        assertEquals(used - globalOrdinalsSize, breaker.getUsed());
+    }
 }
@@ -32,7 +32,9 @@ import org.elasticsearch.index.fielddata.plain.*;
 import org.elasticsearch.index.mapper.*;
 import org.elasticsearch.index.mapper.Mapper.BuilderContext;
 import org.elasticsearch.index.mapper.core.*;
+import org.elasticsearch.index.mapper.geo.GeoPointFieldMapper;
 import org.elasticsearch.indices.fielddata.breaker.DummyCircuitBreakerService;
+import org.elasticsearch.indices.fielddata.cache.IndicesFieldDataCache;
 import org.elasticsearch.test.ElasticsearchTestCase;
 import org.elasticsearch.test.index.service.StubIndexService;
 
@@ -132,6 +134,43 @@ public class IndexFieldDataServiceTests extends ElasticsearchTestCase {
         assertTrue(fd instanceof DoubleArrayIndexFieldData);
     }
 
+    @SuppressWarnings("unchecked")
+    public void testDocValuesFirst() {
+        final Settings indexSettings = ImmutableSettings.builder().put(FieldDataType.DOC_VALUES_FIRST, true).build();
+        final IndexFieldDataService ifdService = new IndexFieldDataService(new Index("test"), indexSettings, new IndicesFieldDataCache(ImmutableSettings.Builder.EMPTY_SETTINGS), new DummyCircuitBreakerService());
+        MapperService mapperService = MapperTestUtils.newMapperService(ifdService.index(), indexSettings);
+        ifdService.setIndexService(new StubIndexService(mapperService));
+        final BuilderContext ctx = new BuilderContext(indexSettings, new ContentPath(1));
+
+        for (FieldMapper<?> mapper : Arrays.asList(
+                new ByteFieldMapper.Builder("byte").build(ctx),
+                new IntegerFieldMapper.Builder("int").build(ctx),
+                new LongFieldMapper.Builder("long").build(ctx),
+                new DoubleFieldMapper.Builder("double").build(ctx)
+                )) {
+            assertTrue(mapper.hasDocValues());
+            ifdService.clear();
+            assertTrue(ifdService.getForField(mapper) instanceof BinaryDVNumericIndexFieldData);
+        }
+
+        final GeoPointFieldMapper geoPointMapper = new GeoPointFieldMapper.Builder("geo_point").build(ctx);
+        assertTrue(geoPointMapper.hasDocValues());
+        ifdService.clear();
+        assertTrue(ifdService.getForField(geoPointMapper) instanceof GeoPointBinaryDVIndexFieldData);
+
+        // strings are not affected
+        final StringFieldMapper stringMapper = new StringFieldMapper.Builder("string").tokenized(false).build(ctx);
+        assertFalse(stringMapper.hasDocValues());
+        ifdService.clear();
+        assertTrue(ifdService.getForField(stringMapper) instanceof PagedBytesIndexFieldData);
+
+        // nor are fields with an explicit format
+        final LongFieldMapper arrayMapper = new LongFieldMapper.Builder("long").fieldDataSettings(ImmutableSettings.builder().put("format", "array").build()).build(ctx);
+        assertFalse(arrayMapper.hasDocValues());
+        ifdService.clear();
+        assertTrue(ifdService.getForField(arrayMapper) instanceof PackedArrayIndexFieldData);
+    }
+
     public void testChangeFieldDataFormat() throws Exception {
         final IndexFieldDataService ifdService = new IndexFieldDataService(new Index("test"), new DummyCircuitBreakerService());
         MapperService mapperService = MapperTestUtils.newMapperService(ifdService.index(), ImmutableSettings.Builder.EMPTY_SETTINGS);
@@ -0,0 +1,82 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.fielddata.ordinals;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.TermsEnum;
+import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.common.settings.ImmutableSettings;
+import org.elasticsearch.index.fielddata.AbstractFieldDataTests;
+import org.elasticsearch.index.fielddata.FieldDataType;
+import org.elasticsearch.index.fielddata.IndexFieldData;
+import org.junit.Test;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.nullValue;
+
+public class GlobalOrdinalsBuilderTests extends AbstractFieldDataTests {
+
+    @Override
+    protected FieldDataType getFieldDataType() {
+        return new FieldDataType("string", ImmutableSettings.builder().put("format", "paged_bytes"));
+    }
+
+    @Test
+    public void testOrdinalsTermsEnumSeeks() throws Exception {
+        for (String value : new String[] {"b", "d", "f"}) {
+            Document d = new Document();
+            d.add(new StringField("value", value, Field.Store.NO));
+            writer.addDocument(d);
+        }
+        DirectoryReader reader = DirectoryReader.open(writer, true);
+        IndexFieldData.WithOrdinals<?> indexFieldData = getForField("value");
+        TermsEnum termsEnum = new GlobalOrdinalsBuilder.OrdinalsTermsEnum(indexFieldData.load(reader.leaves().get(0)).getBytesValues(false));
+
+        assertThat(termsEnum.next().utf8ToString(), equalTo("b"));
+        assertThat(termsEnum.ord(), equalTo(0l));
+
+        assertThat(termsEnum.seekCeil(new BytesRef("d")), equalTo(TermsEnum.SeekStatus.FOUND));
+        assertThat(termsEnum.term().utf8ToString(), equalTo("d"));
+        assertThat(termsEnum.ord(), equalTo(1l));
+        assertThat(termsEnum.next().utf8ToString(), equalTo("f"));
+
+        assertThat(termsEnum.seekCeil(new BytesRef("a")), equalTo(TermsEnum.SeekStatus.NOT_FOUND));
+        assertThat(termsEnum.term().utf8ToString(), equalTo("b"));
+        assertThat(termsEnum.ord(), equalTo(0l));
+
+        assertThat(termsEnum.seekCeil(new BytesRef("e")), equalTo(TermsEnum.SeekStatus.NOT_FOUND));
+        assertThat(termsEnum.term().utf8ToString(), equalTo("f"));
+        assertThat(termsEnum.ord(), equalTo(2l));
+        assertThat(termsEnum.next(), nullValue());
+
+        assertThat(termsEnum.seekCeil(new BytesRef("g")), equalTo(TermsEnum.SeekStatus.END));
+        assertThat(termsEnum.next(), nullValue());
+
+        termsEnum.seekExact(1);
+        assertThat(termsEnum.term().utf8ToString(), equalTo("d"));
+        assertThat(termsEnum.ord(), equalTo(1l));
+        assertThat(termsEnum.next().utf8ToString(), equalTo("f"));
+        assertThat(termsEnum.totalTermFreq(), equalTo(-1l));
+        reader.close();
+    }
+}
@@ -51,6 +51,7 @@ public class CompletionFieldMapperTests extends ElasticsearchTestCase {
 
         CompletionFieldMapper completionFieldMapper = (CompletionFieldMapper) fieldMapper;
         assertThat(completionFieldMapper.isStoringPayloads(), is(false));
+        assertThat(completionFieldMapper.fstLoading(), is(FieldMapper.Loading.EAGER));
     }
 
     @Test
@@ -64,6 +65,7 @@ public class CompletionFieldMapperTests extends ElasticsearchTestCase {
                 .field("preserve_separators", false)
                 .field("preserve_position_increments", true)
                 .field("max_input_length", 14)
+                .field("fst_loading", "lazy")
 
                 .endObject().endObject()
                 .endObject().endObject().string();
@@ -85,6 +87,7 @@ public class CompletionFieldMapperTests extends ElasticsearchTestCase {
         assertThat(Boolean.valueOf(configMap.get("preserve_separators").toString()), is(false));
         assertThat(Boolean.valueOf(configMap.get("preserve_position_increments").toString()), is(true));
         assertThat(Integer.valueOf(configMap.get("max_input_length").toString()), is(14));
+        assertThat(configMap.get("fst_loading").toString(), is("lazy"));
     }
 
     @Test
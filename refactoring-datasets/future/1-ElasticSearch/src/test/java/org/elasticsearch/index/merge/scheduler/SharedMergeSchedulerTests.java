@@ -0,0 +1,214 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.merge.scheduler;
+
+import com.google.common.base.Predicate;
+import org.apache.lucene.analysis.core.KeywordAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.LogDocMergePolicy;
+import org.apache.lucene.index.MergePolicy;
+import org.apache.lucene.index.NoMergeScheduler;
+import org.apache.lucene.store.RAMDirectory;
+import org.apache.lucene.util.CollectionUtil;
+import org.elasticsearch.Version;
+import org.elasticsearch.action.admin.indices.stats.IndicesStatsResponse;
+import org.elasticsearch.common.io.stream.BytesStreamInput;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.elasticsearch.common.lucene.Lucene;
+import org.elasticsearch.common.settings.ImmutableSettings;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.index.merge.MergeStats;
+import org.elasticsearch.indices.merge.IndicesMergeScheduler;
+import org.elasticsearch.test.ElasticsearchIntegrationTest;
+import org.elasticsearch.test.ElasticsearchIntegrationTest.ClusterScope;
+import org.elasticsearch.test.ElasticsearchIntegrationTest.Scope;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.elasticsearch.test.hamcrest.ElasticsearchAssertions.assertAcked;
+import static org.elasticsearch.test.hamcrest.ElasticsearchAssertions.assertHitCount;
+import static org.hamcrest.Matchers.*;
+
+/**
+ */
+@ClusterScope(scope = Scope.SUITE, numNodes = 1)
+public class SharedMergeSchedulerTests extends ElasticsearchIntegrationTest {
+
+    @Override
+    protected Settings nodeSettings(int nodeOrdinal) {
+        // a single merge making progress at once, so concurrent merges of the shards get paused
+        return ImmutableSettings.settingsBuilder()
+                .put("indices.merge.max_thread_count", 1)
+                .put("indices.merge.max_merge_count", 2)
+                .put(super.nodeSettings(nodeOrdinal)).build();
+    }
+
+    @Test
+    public void testMergesAcrossShards() throws Exception {
+        assertAcked(prepareCreate("test").setSettings(ImmutableSettings.settingsBuilder()
+                .put("index.number_of_shards", 4)
+                .put("index.number_of_replicas", 0)
+                .put("index.merge.scheduler.type", "shared")
+                .put("index.merge.policy.segments_per_tier", 2)
+                .put("index.merge.policy.max_merge_at_once", 2)));
+        ensureGreen();
+
+        int numDocs = 0;
+        for (int i = 0; i < 20; i++) {
+            for (int j = 0; j < 10; j++) {
+                client().prepareIndex("test", "type", Integer.toString(numDocs++)).setSource("field", "value" + j).get();
+            }
+            client().admin().indices().prepareFlush("test").get();
+        }
+        client().admin().indices().prepareOptimize("test").setWaitForMerge(true).setMaxNumSegments(1).get();
+        refresh();
+        assertHitCount(client().prepareCount("test").get(), numDocs);
+
+        IndicesStatsResponse stats = client().admin().indices().prepareStats("test").clear().setMerge(true).get();
+        MergeStats mergeStats = stats.getTotal().getMerge();
+        assertThat(mergeStats.getTotal(), greaterThan(0l));
+        assertThat(mergeStats.getCurrent(), equalTo(0l));
+
+        for (IndicesMergeScheduler scheduler : cluster().getInstances(IndicesMergeScheduler.class)) {
+            assertThat(scheduler.maxThreadCount(), equalTo(1));
+            assertThat(scheduler.runningMerges(), equalTo(0));
+            assertThat(scheduler.pausedMerges(), equalTo(0));
+            assertThat(scheduler.queuedWriters(), equalTo(0));
+        }
+    }
+
+    @Test
+    public void testLargerMergesArePaused() throws Exception {
+        final IndicesMergeScheduler scheduler = new IndicesMergeScheduler(ImmutableSettings.settingsBuilder()
+                .put("indices.merge.max_thread_count", 1)
+                .put("indices.merge.max_merge_count", 3).build());
+        LogDocMergePolicy mergePolicy = new LogDocMergePolicy();
+        mergePolicy.setMergeFactor(2);
+        // merges are only registered with the writer, they are executed through the scheduler below
+        IndexWriter writer = new IndexWriter(new RAMDirectory(), new IndexWriterConfig(Lucene.VERSION, new KeywordAnalyzer())
+                .setMergePolicy(mergePolicy).setMergeScheduler(NoMergeScheduler.INSTANCE));
+        // three pairs of segments of growing size, so three merges of growing size
+        for (int numDocs : new int[]{1, 1, 10, 10, 100, 100}) {
+            for (int i = 0; i < numDocs; i++) {
+                Document doc = new Document();
+                doc.add(new StringField("field", "value" + i, Field.Store.YES));
+                writer.addDocument(doc);
+            }
+            writer.commit();
+        }
+        assertThat(writer.hasPendingMerges(), equalTo(true));
+
+        final CountDownLatch started = new CountDownLatch(3);
+        final CountDownLatch release = new CountDownLatch(1);
+        final List<MergePolicy.OneMerge> merges = new CopyOnWriteArrayList<MergePolicy.OneMerge>();
+        final AtomicLong throttledTimeInMillis = new AtomicLong();
+        final AtomicInteger doneMerges = new AtomicInteger();
+        IndicesMergeScheduler.MergeSource source = new IndicesMergeScheduler.MergeSource() {
+            @Override
+            public void doMerge(IndexWriter writer, MergePolicy.OneMerge merge) {
+                merges.add(merge);
+                started.countDown();
+                try {
+                    release.await();
+                    writer.merge(merge);
+                } catch (Exception e) {
+                    throw new RuntimeException(e);
+                }
+            }
+
+            @Override
+            public void onThrottled(long millis) {
+                throttledTimeInMillis.addAndGet(millis);
+                doneMerges.incrementAndGet();
+            }
+        };
+        try {
+            scheduler.merge(writer, source);
+            assertThat(started.await(10, TimeUnit.SECONDS), equalTo(true));
+
+            // more merges are running than max_thread_count, only the smallest makes progress
+            assertThat(scheduler.runningMerges(), equalTo(3));
+            assertThat(scheduler.pausedMerges(), equalTo(2));
+            List<MergePolicy.OneMerge> bySize = new ArrayList<MergePolicy.OneMerge>(merges.subList(0, 3));
+            CollectionUtil.timSort(bySize, new Comparator<MergePolicy.OneMerge>() {
+                @Override
+                public int compare(MergePolicy.OneMerge o1, MergePolicy.OneMerge o2) {
+                    return Long.compare(o1.estimatedMergeBytes, o2.estimatedMergeBytes);
+                }
+            });
+            assertThat(bySize.get(0).estimatedMergeBytes, lessThan(bySize.get(1).estimatedMergeBytes));
+            assertThat(bySize.get(0).getPause(), equalTo(false));
+            assertThat(bySize.get(1).getPause(), equalTo(true));
+            assertThat(bySize.get(2).getPause(), equalTo(true));
+
+            // make sure the paused merges are paused for at least a millisecond
+            Thread.sleep(10);
+            release.countDown();
+            assertThat(awaitBusy(new Predicate<Object>() {
+                @Override
+                public boolean apply(Object input) {
+                    return doneMerges.get() == merges.size() && scheduler.runningMerges() == 0 && scheduler.queuedWriters() == 0;
+                }
+            }), equalTo(true));
+            assertThat(scheduler.pausedMerges(), equalTo(0));
+            assertThat(throttledTimeInMillis.get(), greaterThan(0l));
+            assertThat(writer.hasPendingMerges(), equalTo(false));
+        } finally {
+            release.countDown();
+            writer.close();
+            scheduler.close();
+        }
+    }
+
+    @Test
+    public void testThrottledTimeSerialization() throws Exception {
+        MergeStats stats = new MergeStats();
+        stats.add(1, 2, 3, 4, 0, 0, 0, 5);
+
+        BytesStreamOutput out = new BytesStreamOutput();
+        stats.writeTo(out);
+        BytesStreamInput in = new BytesStreamInput(out.bytes());
+        MergeStats read = MergeStats.readMergeStats(in);
+        assertThat(read.getTotal(), equalTo(1l));
+        assertThat(read.getTotalThrottledTimeInMillis(), equalTo(5l));
+
+        out = new BytesStreamOutput();
+        out.setVersion(Version.V_1_0_0);
+        stats.writeTo(out);
+        in = new BytesStreamInput(out.bytes());
+        in.setVersion(Version.V_1_0_0);
+        read = MergeStats.readMergeStats(in);
+        assertThat(read.getTotalSizeInBytes(), equalTo(4l));
+        assertThat(read.getTotalThrottledTimeInMillis(), equalTo(0l));
+        assertThat(in.available(), equalTo(0));
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.percolator;
+
+import org.apache.lucene.index.Term;
+import org.apache.lucene.queries.TermFilter;
+import org.apache.lucene.search.*;
+import org.elasticsearch.common.lucene.search.XBooleanFilter;
+import org.elasticsearch.common.lucene.search.XConstantScoreQuery;
+import org.elasticsearch.common.lucene.search.XFilteredQuery;
+import org.elasticsearch.test.ElasticsearchTestCase;
+import org.junit.Test;
+
+import static org.hamcrest.Matchers.*;
+
+public class RequiredTermsExtractorTests extends ElasticsearchTestCase {
+
+    @Test
+    public void testTermAndPhraseQueries() {
+        assertThat(RequiredTermsExtractor.extract(new TermQuery(new Term("field", "value"))), arrayContaining(new Term("field", "value")));
+
+        PhraseQuery phraseQuery = new PhraseQuery();
+        phraseQuery.add(new Term("field", "quick"));
+        phraseQuery.add(new Term("field", "fox"));
+        assertThat(RequiredTermsExtractor.extract(phraseQuery), arrayContaining(new Term("field", "quick")));
+        assertThat(RequiredTermsExtractor.extract(new PhraseQuery()), nullValue());
+
+        assertThat(RequiredTermsExtractor.extract(new MatchAllDocsQuery()), nullValue());
+        assertThat(RequiredTermsExtractor.extract(new PrefixQuery(new Term("field", "val"))), nullValue());
+    }
+
+    @Test
+    public void testBooleanQuery() {
+        BooleanQuery conjunction = new BooleanQuery();
+        conjunction.add(new PrefixQuery(new Term("field", "val")), BooleanClause.Occur.MUST);
+        conjunction.add(new TermQuery(new Term("field", "value1")), BooleanClause.Occur.MUST);
+        conjunction.add(new TermQuery(new Term("field", "value2")), BooleanClause.Occur.SHOULD);
+        conjunction.add(new TermQuery(new Term("field", "value3")), BooleanClause.Occur.MUST_NOT);
+        assertThat(RequiredTermsExtractor.extract(conjunction), arrayContaining(new Term("field", "value1")));
+
+        BooleanQuery disjunction = new BooleanQuery();
+        disjunction.add(new TermQuery(new Term("field", "value1")), BooleanClause.Occur.SHOULD);
+        disjunction.add(new TermQuery(new Term("field", "value2")), BooleanClause.Occur.SHOULD);
+        disjunction.add(new TermQuery(new Term("field", "value3")), BooleanClause.Occur.MUST_NOT);
+        assertThat(RequiredTermsExtractor.extract(disjunction), arrayContainingInAnyOrder(new Term("field", "value1"), new Term("field", "value2")));
+
+        // one optional clause may match any document
+        disjunction.add(new PrefixQuery(new Term("field", "val")), BooleanClause.Occur.SHOULD);
+        assertThat(RequiredTermsExtractor.extract(disjunction), nullValue());
+
+        BooleanQuery negation = new BooleanQuery();
+        negation.add(new MatchAllDocsQuery(), BooleanClause.Occur.MUST);
+        negation.add(new TermQuery(new Term("field", "value1")), BooleanClause.Occur.MUST_NOT);
+        assertThat(RequiredTermsExtractor.extract(negation), nullValue());
+    }
+
+    @Test
+    public void testFilters() {
+        Query query = new XConstantScoreQuery(new TermFilter(new Term("field", "value")));
+        assertThat(RequiredTermsExtractor.extract(query), arrayContaining(new Term("field", "value")));
+
+        XBooleanFilter booleanFilter = new XBooleanFilter();
+        booleanFilter.add(new TermFilter(new Term("field", "value1")), BooleanClause.Occur.MUST);
+        booleanFilter.add(new TermFilter(new Term("field", "value2")), BooleanClause.Occur.SHOULD);
+        query = new XFilteredQuery(new MatchAllDocsQuery(), booleanFilter);
+        assertThat(RequiredTermsExtractor.extract(query), arrayContaining(new Term("field", "value1")));
+
+        booleanFilter = new XBooleanFilter();
+        booleanFilter.add(new TermFilter(new Term("field", "value1")), BooleanClause.Occur.SHOULD);
+        query = new XFilteredQuery(new MatchAllDocsQuery(), booleanFilter);
+        assertThat(RequiredTermsExtractor.extract(query), nullValue());
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.snapshots.blobstore;
+
+import org.apache.lucene.analysis.core.KeywordAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.SegmentInfos;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.RAMDirectory;
+import org.elasticsearch.common.lucene.Lucene;
+import org.elasticsearch.test.ElasticsearchTestCase;
+import org.junit.Test;
+
+import java.util.zip.Adler32;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+
+public class BlobStoreIndexShardRepositoryTests extends ElasticsearchTestCase {
+
+    @Test
+    public void testCombineAdler32() {
+        for (int iter = 0; iter < 100; iter++) {
+            byte[] data = new byte[randomIntBetween(0, 100000)];
+            getRandom().nextBytes(data);
+            int split = randomIntBetween(0, data.length);
+
+            Adler32 expected = new Adler32();
+            expected.update(data, 0, data.length);
+            Adler32 first = new Adler32();
+            first.update(data, 0, split);
+            Adler32 second = new Adler32();
+            second.update(data, split, data.length - split);
+
+            long combined = BlobStoreIndexShardRepository.combineAdler32(first.getValue(), second.getValue(), data.length - split);
+            assertThat(combined, equalTo(expected.getValue()));
+        }
+    }
+
+    @Test
+    public void testLucene4FilesHaveContentChecksums() throws Exception {
+        Directory directory = new RAMDirectory();
+        IndexWriter writer = new IndexWriter(directory, new IndexWriterConfig(Lucene.VERSION, new KeywordAnalyzer()));
+        for (int i = 0; i < 10; i++) {
+            Document doc = new Document();
+            doc.add(new StringField("field", "value" + i, Field.Store.YES));
+            writer.addDocument(doc);
+            if (rarely()) {
+                writer.commit();
+            }
+        }
+        writer.close();
+        SegmentInfos segmentInfos = Lucene.readSegmentInfos(directory);
+        assertThat(segmentInfos.size(), greaterThan(0));
+        assertThat(BlobStoreIndexShardRepository.filesWithoutContentChecksum(segmentInfos).isEmpty(), equalTo(true));
+        directory.close();
+    }
+}
@@ -21,6 +21,8 @@ package org.elasticsearch.index.translog;
 
 import org.apache.lucene.index.Term;
 import org.elasticsearch.common.bytes.BytesArray;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.index.Index;
 import org.elasticsearch.index.shard.ShardId;
 import org.hamcrest.MatcherAssert;
@@ -261,6 +263,39 @@ public abstract class AbstractSimpleTranslogTests {
         snapshot.release();
     }
 
+    @Test
+    public void testRawOperations() throws IOException {
+        translog.add(new Translog.Create("test", "1", new byte[]{1}));
+        translog.add(new Translog.Index("test", "2", new byte[]{2}));
+        translog.add(new Translog.Delete(newUid("3")));
+
+        Translog.Snapshot snapshot = translog.snapshot();
+        if (!snapshot.supportsRawOperations()) {
+            snapshot.release();
+            return;
+        }
+        assertThat(snapshot.hasNext(), equalTo(true));
+        long firstEnd = snapshot.position();
+        assertThat(snapshot.hasNext(), equalTo(true));
+        assertThat(snapshot.hasNext(), equalTo(true));
+        // operations are deserialized lazily, on next()
+        assertThat(((Translog.Delete) snapshot.next()).uid(), equalTo(newUid("3")));
+        assertThat(snapshot.hasNext(), equalTo(false));
+
+        BytesReference raw = snapshot.rawOperations(firstEnd, snapshot.position());
+        StreamInput in = raw.streamInput();
+        int size = in.readInt();
+        Translog.Index index = (Translog.Index) TranslogStreams.readTranslogOperation(in);
+        assertThat(index.id(), equalTo("2"));
+        assertThat(index.source().toBytes(), equalTo(new byte[]{2}));
+        int secondSize = in.readInt();
+        assertThat(4 + size + 4 + secondSize, equalTo(raw.length()));
+        Translog.Delete delete = (Translog.Delete) TranslogStreams.readTranslogOperation(in);
+        assertThat(delete.uid(), equalTo(newUid("3")));
+        assertThat(in.read(), equalTo(-1));
+        snapshot.release();
+    }
+
     private Term newUid(String id) {
         return new Term("_uid", id);
     }
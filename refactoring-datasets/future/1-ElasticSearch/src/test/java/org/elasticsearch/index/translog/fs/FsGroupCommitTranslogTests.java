@@ -0,0 +1,127 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.translog.fs;
+
+import org.elasticsearch.common.io.FileSystemUtils;
+import org.elasticsearch.common.settings.ImmutableSettings;
+import org.elasticsearch.index.translog.AbstractSimpleTranslogTests;
+import org.elasticsearch.index.translog.Translog;
+import org.elasticsearch.index.translog.TranslogStreams;
+import org.elasticsearch.threadpool.ThreadPool;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+/**
+ *
+ */
+public class FsGroupCommitTranslogTests extends AbstractSimpleTranslogTests {
+
+    private static ThreadPool threadPool;
+
+    @BeforeClass
+    public static void createThreadPool() {
+        threadPool = new ThreadPool();
+    }
+
+    @Override
+    protected Translog create() {
+        return new FsTranslog(shardId,
+                ImmutableSettings.settingsBuilder()
+                        .put("index.translog.fs.type", FsTranslogFile.Type.GROUP_COMMIT.name())
+                        .put("index.translog.fs.group_commit.interval", "10ms")
+                        .build(),
+                new File("data/fs-translog"), threadPool);
+    }
+
+    @AfterClass
+    public static void cleanup() throws InterruptedException {
+        threadPool.shutdown();
+        threadPool.awaitTermination(10, TimeUnit.SECONDS);
+        threadPool = null;
+        FileSystemUtils.deleteRecursively(new File("data/fs-translog"), true);
+    }
+
+    @Test
+    public void testConcurrentSyncs() throws Exception {
+        translog.syncOnEachOperation(true);
+        final int numThreads = 8;
+        final int numOpsPerThread = 200;
+        final CyclicBarrier barrier = new CyclicBarrier(numThreads);
+        final CountDownLatch done = new CountDownLatch(numThreads);
+        final CopyOnWriteArrayList<Throwable> failures = new CopyOnWriteArrayList<Throwable>();
+        for (int t = 0; t < numThreads; t++) {
+            final int threadId = t;
+            new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        barrier.await();
+                        for (int i = 0; i < numOpsPerThread; i++) {
+                            Translog.Location location = translog.add(new Translog.Index("test", threadId + "_" + i, new byte[]{(byte) threadId, (byte) i}));
+                            assertThat(TranslogStreams.readSource(translog.read(location)).source.toBytes(), equalTo(new byte[]{(byte) threadId, (byte) i}));
+                        }
+                    } catch (Throwable e) {
+                        failures.add(e);
+                    } finally {
+                        done.countDown();
+                    }
+                }
+            }.start();
+        }
+        done.await();
+        assertThat(failures, empty());
+        assertThat(translog.syncNeeded(), equalTo(false));
+
+        Translog.Snapshot snapshot = translog.snapshot();
+        int count = 0;
+        while (snapshot.hasNext()) {
+            Translog.Index index = (Translog.Index) snapshot.next();
+            assertThat(index.source().length(), equalTo(2));
+            count++;
+        }
+        snapshot.release();
+        assertThat(count, equalTo(numThreads * numOpsPerThread));
+        assertThat(translog.estimatedNumberOfOperations(), equalTo(numThreads * numOpsPerThread));
+    }
+
+    @Test
+    public void testUnsyncedOperationsAreVisibleInSnapshots() throws IOException {
+        // nobody waits for this operation, reading or taking a snapshot should still see it
+        Translog.Location location = translog.add(new Translog.Create("test", "1", new byte[]{1}));
+        assertThat(TranslogStreams.readSource(translog.read(location)).source.toBytes(), equalTo(new byte[]{1}));
+        Translog.Snapshot snapshot = translog.snapshot();
+        assertThat(snapshot.hasNext(), equalTo(true));
+        assertThat(((Translog.Create) snapshot.next()).source().toBytes(), equalTo(new byte[]{1}));
+        assertThat(snapshot.hasNext(), equalTo(false));
+        snapshot.release();
+        assertThat(translog.syncNeeded(), equalTo(false));
+    }
+}
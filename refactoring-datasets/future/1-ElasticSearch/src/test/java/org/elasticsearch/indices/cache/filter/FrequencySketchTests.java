@@ -0,0 +1,85 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.indices.cache.filter;
+
+import org.elasticsearch.test.ElasticsearchTestCase;
+import org.junit.Test;
+
+import static org.hamcrest.Matchers.*;
+
+/**
+ */
+public class FrequencySketchTests extends ElasticsearchTestCase {
+
+    @Test
+    public void testFrequency() {
+        FrequencySketch sketch = new FrequencySketch(1024);
+        int key = randomInt();
+        assertThat(sketch.frequency(key), equalTo(0));
+        int times = randomIntBetween(1, FrequencySketch.MAX_FREQUENCY);
+        for (int i = 0; i < times; i++) {
+            sketch.increment(key);
+        }
+        // a count-min sketch never under estimates without concurrent updates
+        assertThat(sketch.frequency(key), greaterThanOrEqualTo(times));
+        for (int i = 0; i < 100; i++) {
+            sketch.increment(key);
+        }
+        assertThat(sketch.frequency(key), equalTo(FrequencySketch.MAX_FREQUENCY));
+    }
+
+    @Test
+    public void testHotKeysStandOut() {
+        FrequencySketch sketch = new FrequencySketch(4096);
+        for (int i = 0; i < 1000; i++) {
+            sketch.increment(i);
+            if (i % 10 == 0) {
+                for (int hot = 0; hot < 5; hot++) {
+                    sketch.increment(-1 - hot);
+                }
+            }
+        }
+        for (int hot = 0; hot < 5; hot++) {
+            assertThat(sketch.frequency(-1 - hot), equalTo(FrequencySketch.MAX_FREQUENCY));
+        }
+        int overEstimated = 0;
+        for (int i = 0; i < 1000; i++) {
+            if (sketch.frequency(i) > 1) {
+                overEstimated++;
+            }
+        }
+        assertThat(overEstimated, lessThan(50));
+    }
+
+    @Test
+    public void testReset() {
+        FrequencySketch sketch = new FrequencySketch(1024);
+        int hot = randomInt();
+        for (int i = 0; i < FrequencySketch.MAX_FREQUENCY; i++) {
+            sketch.increment(hot);
+        }
+        assertThat(sketch.frequency(hot), equalTo(FrequencySketch.MAX_FREQUENCY));
+        // enough distinct keys to trigger the halving of all counters
+        for (int i = 0; i < 20000; i++) {
+            sketch.increment(hot + 1 + i);
+        }
+        assertThat(sketch.frequency(hot), lessThan(FrequencySketch.MAX_FREQUENCY));
+    }
+}
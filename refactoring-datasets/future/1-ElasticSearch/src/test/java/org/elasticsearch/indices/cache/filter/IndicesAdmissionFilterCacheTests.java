@@ -0,0 +1,117 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.indices.cache.filter;
+
+import org.apache.lucene.search.DocIdSet;
+import org.apache.lucene.util.FixedBitSet;
+import org.elasticsearch.common.lucene.docset.DocIdSets;
+import org.elasticsearch.common.settings.ImmutableSettings;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.index.cache.filter.FilterCacheStats;
+import org.elasticsearch.index.cache.filter.ShardFilterCache;
+import org.elasticsearch.index.shard.ShardId;
+import org.elasticsearch.node.settings.NodeSettingsService;
+import org.elasticsearch.test.ElasticsearchTestCase;
+import org.junit.Test;
+
+import static org.hamcrest.Matchers.*;
+
+/**
+ */
+public class IndicesAdmissionFilterCacheTests extends ElasticsearchTestCase {
+
+    private IndicesAdmissionFilterCache newCache(long sizeInBytes) {
+        Settings settings = ImmutableSettings.settingsBuilder()
+                .put(IndicesFilterCache.INDICES_CACHE_FILTER_SIZE, sizeInBytes + "b")
+                .put("indices.cache.filter.admission.stripes", 1)
+                .build();
+        return new IndicesAdmissionFilterCache(settings, new NodeSettingsService(settings));
+    }
+
+    private static DocIdSet docIdSet() {
+        FixedBitSet bitSet = new FixedBitSet(1024);
+        bitSet.set(0, 512);
+        return bitSet;
+    }
+
+    @Test
+    public void testOnlyRepeatedFiltersAreCached() {
+        IndicesAdmissionFilterCache cache = newCache(1024 * 1024);
+        ShardFilterCache shardFilterCache = new ShardFilterCache(new ShardId("test", 0), ImmutableSettings.EMPTY);
+        Object readerKey = new Object();
+        DocIdSet docIdSet = docIdSet();
+
+        assertThat(cache.get(readerKey, "once"), nullValue());
+        assertFalse(cache.mayAdmit(readerKey, "once", shardFilterCache));
+        assertFalse(cache.put(readerKey, "once", docIdSet, shardFilterCache));
+        assertThat(cache.get(readerKey, "once"), nullValue());
+        assertTrue(cache.mayAdmit(readerKey, "once", shardFilterCache));
+        assertTrue(cache.put(readerKey, "once", docIdSet, shardFilterCache));
+        assertThat(cache.get(readerKey, "once"), sameInstance(docIdSet));
+
+        FilterCacheStats stats = shardFilterCache.stats();
+        assertThat(stats.getAdmissions(), equalTo(1l));
+        assertThat(stats.getRejections(), equalTo(2l));
+        assertThat(stats.getMemorySizeInBytes(), equalTo(DocIdSets.sizeInBytes(docIdSet)));
+
+        cache.clear(readerKey);
+        assertThat(cache.get(readerKey, "once"), nullValue());
+        assertThat(shardFilterCache.stats().getMemorySizeInBytes(), equalTo(0l));
+        assertThat(shardFilterCache.stats().getEvictions(), equalTo(0l));
+    }
+
+    @Test
+    public void testHotEntriesAreNotEvictedByColderOnes() {
+        long entrySize = DocIdSets.sizeInBytes(docIdSet());
+        IndicesAdmissionFilterCache cache = newCache(entrySize * 2);
+        ShardFilterCache shardFilterCache = new ShardFilterCache(new ShardId("test", 0), ImmutableSettings.EMPTY);
+        Object readerKey = new Object();
+
+        for (String hot : new String[]{"hot1", "hot2"}) {
+            for (int i = 0; i < 5; i++) {
+                cache.get(readerKey, hot);
+            }
+            assertTrue(cache.put(readerKey, hot, docIdSet(), shardFilterCache));
+        }
+        assertThat(cache.sizeInBytes(), equalTo(entrySize * 2));
+
+        // seen twice, but less often than what's cached
+        cache.get(readerKey, "cold");
+        cache.get(readerKey, "cold");
+        assertFalse(cache.put(readerKey, "cold", docIdSet(), shardFilterCache));
+        assertThat(cache.get(readerKey, "hot1"), notNullValue());
+        assertThat(cache.get(readerKey, "hot2"), notNullValue());
+
+        // more popular than the least recently used entry, which gets evicted
+        for (int i = 0; i < 15; i++) {
+            cache.get(readerKey, "hotter");
+        }
+        assertTrue(cache.put(readerKey, "hotter", docIdSet(), shardFilterCache));
+        assertThat(cache.sizeInBytes(), equalTo(entrySize * 2));
+        assertThat(shardFilterCache.stats().getEvictions(), equalTo(1l));
+        assertThat(shardFilterCache.stats().getRejections(), equalTo(1l));
+        assertThat(shardFilterCache.stats().getAdmissions(), equalTo(3l));
+        assertThat(shardFilterCache.stats().getMemorySizeInBytes(), equalTo(entrySize * 2));
+
+        cache.close();
+        assertThat(cache.sizeInBytes(), equalTo(0l));
+        assertThat(shardFilterCache.stats().getMemorySizeInBytes(), equalTo(0l));
+    }
+}
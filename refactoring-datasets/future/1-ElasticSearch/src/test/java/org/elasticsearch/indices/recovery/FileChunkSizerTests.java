@@ -0,0 +1,83 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.indices.recovery;
+
+import org.elasticsearch.test.ElasticsearchTestCase;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.Matchers.equalTo;
+
+public class FileChunkSizerTests extends ElasticsearchTestCase {
+
+    private static final long FAST = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final long SLOW = TimeUnit.SECONDS.toNanos(1);
+
+    @Test
+    public void testGrowsUpToMax() {
+        FileChunkSizer sizer = new FileChunkSizer(512, 4096);
+        assertThat(sizer.chunkSize(), equalTo(512));
+        sizer.onChunkAcknowledged(512, FAST);
+        assertThat(sizer.chunkSize(), equalTo(1024));
+        sizer.onChunkAcknowledged(1024, FAST);
+        sizer.onChunkAcknowledged(2048, FAST);
+        assertThat(sizer.chunkSize(), equalTo(4096));
+        sizer.onChunkAcknowledged(4096, FAST);
+        assertThat(sizer.chunkSize(), equalTo(4096));
+    }
+
+    @Test
+    public void testShrinksDownToMin() {
+        FileChunkSizer sizer = new FileChunkSizer(512, 4096);
+        sizer.onChunkAcknowledged(512, FAST);
+        sizer.onChunkAcknowledged(1024, FAST);
+        assertThat(sizer.chunkSize(), equalTo(2048));
+        sizer.onChunkAcknowledged(2048, SLOW);
+        assertThat(sizer.chunkSize(), equalTo(1024));
+        sizer.onChunkAcknowledged(1024, SLOW);
+        sizer.onChunkAcknowledged(512, SLOW);
+        assertThat(sizer.chunkSize(), equalTo(512));
+    }
+
+    @Test
+    public void testShortChunksDoNotGrow() {
+        // the last chunk of a file is usually shorter, acknowledging it quickly says nothing about larger chunks
+        FileChunkSizer sizer = new FileChunkSizer(512, 4096);
+        sizer.onChunkAcknowledged(100, FAST);
+        assertThat(sizer.chunkSize(), equalTo(512));
+    }
+
+    @Test
+    public void testFixedWhenMaxBelowMin() {
+        FileChunkSizer sizer = new FileChunkSizer(512, 10);
+        sizer.onChunkAcknowledged(512, FAST);
+        assertThat(sizer.chunkSize(), equalTo(512));
+    }
+
+    @Test
+    public void testThroughput() {
+        FileChunkSizer sizer = new FileChunkSizer(512, 512);
+        assertThat(sizer.throughput(), equalTo(0l));
+        sizer.onChunkAcknowledged(512, TimeUnit.MILLISECONDS.toNanos(500));
+        sizer.onChunkAcknowledged(512, TimeUnit.MILLISECONDS.toNanos(500));
+        assertThat(sizer.throughput(), equalTo(1024l));
+    }
+}
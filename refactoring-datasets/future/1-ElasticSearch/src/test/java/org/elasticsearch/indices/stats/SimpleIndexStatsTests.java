@@ -27,10 +27,16 @@ import org.elasticsearch.action.admin.indices.stats.CommonStatsFlags.Flag;
 import org.elasticsearch.action.admin.indices.stats.IndicesStatsRequestBuilder;
 import org.elasticsearch.action.admin.indices.stats.IndicesStatsResponse;
 import org.elasticsearch.action.get.GetResponse;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.action.search.SearchType;
+import org.elasticsearch.cluster.metadata.IndexMetaData;
 import org.elasticsearch.common.Priority;
 import org.elasticsearch.common.bytes.BytesReference;
 import org.elasticsearch.common.io.stream.BytesStreamInput;
 import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.elasticsearch.common.settings.ImmutableSettings;
+import org.elasticsearch.indices.cache.query.IndicesQueryCache;
+import org.elasticsearch.search.aggregations.bucket.terms.Terms;
 import org.elasticsearch.test.ElasticsearchIntegrationTest;
 import org.elasticsearch.test.ElasticsearchIntegrationTest.ClusterScope;
 import org.elasticsearch.test.ElasticsearchIntegrationTest.Scope;
@@ -40,6 +46,11 @@ import java.io.IOException;
 import java.util.EnumSet;
 import java.util.Random;
 
+import static org.elasticsearch.index.query.QueryBuilders.rangeQuery;
+import static org.elasticsearch.search.aggregations.AggregationBuilders.dateRange;
+import static org.elasticsearch.search.aggregations.AggregationBuilders.terms;
+import static org.elasticsearch.test.hamcrest.ElasticsearchAssertions.assertAcked;
+import static org.elasticsearch.test.hamcrest.ElasticsearchAssertions.assertSearchResponse;
 import static org.hamcrest.Matchers.*;
 
 /**
@@ -315,10 +326,103 @@ public class SimpleIndexStatsTests extends ElasticsearchIntegrationTest {
         }
     }
 
+    @Test
+    public void testQueryCache() throws Exception {
+        assertAcked(prepareCreate("idx").setSettings(ImmutableSettings.builder()
+                .put(IndexMetaData.SETTING_NUMBER_OF_SHARDS, 2)
+                .put(IndexMetaData.SETTING_NUMBER_OF_REPLICAS, 0)
+                .put(IndicesQueryCache.INDEX_CACHE_QUERY_ENABLED, true)));
+        ensureGreen();
+        for (int i = 0; i < 10; i++) {
+            client().prepareIndex("idx", "type", Integer.toString(i)).setSource("s", "value" + (i % 3)).get();
+        }
+        refresh();
+
+        SearchResponse first = client().prepareSearch("idx").setSearchType(SearchType.COUNT)
+                .addAggregation(terms("terms").field("s")).get();
+        assertSearchResponse(first);
+        IndicesStatsResponse stats = client().admin().indices().prepareStats("idx").clear().setQueryCache(true).get();
+        assertThat(stats.getTotal().getQueryCache().getMissCount(), equalTo(2l));
+        assertThat(stats.getTotal().getQueryCache().getHitCount(), equalTo(0l));
+        assertThat(stats.getTotal().getQueryCache().getMemorySizeInBytes(), greaterThan(0l));
+
+        // the same request is served from the cache, size:0 query_then_fetch searches are cached as well
+        SearchResponse second = client().prepareSearch("idx").setSearchType(SearchType.COUNT)
+                .addAggregation(terms("terms").field("s")).get();
+        assertSearchResponse(second);
+        assertThat(second.getHits().getTotalHits(), equalTo(10l));
+        Terms terms = second.getAggregations().get("terms");
+        assertThat(terms.getBuckets().size(), equalTo(3));
+        assertThat(terms.getBucketByKey("value0").getDocCount(), equalTo(4l));
+        assertSearchResponse(client().prepareSearch("idx").setSearchType(SearchType.QUERY_THEN_FETCH).setSize(0).addAggregation(terms("terms").field("s")).get());
+        assertSearchResponse(client().prepareSearch("idx").setSearchType(SearchType.QUERY_THEN_FETCH).setSize(0).addAggregation(terms("terms").field("s")).get());
+        stats = client().admin().indices().prepareStats("idx").clear().setQueryCache(true).get();
+        assertThat(stats.getTotal().getQueryCache().getMissCount(), equalTo(4l));
+        assertThat(stats.getTotal().getQueryCache().getHitCount(), equalTo(4l));
+
+        // a refresh that changes the reader of a shard invalidates the cached results of that shard
+        client().prepareIndex("idx", "type", "10").setSource("s", "value0").get();
+        refresh();
+        SearchResponse third = client().prepareSearch("idx").setSearchType(SearchType.COUNT)
+                .addAggregation(terms("terms").field("s")).get();
+        assertSearchResponse(third);
+        terms = third.getAggregations().get("terms");
+        assertThat(terms.getBucketByKey("value0").getDocCount(), equalTo(5l));
+        stats = client().admin().indices().prepareStats("idx").clear().setQueryCache(true).get();
+        assertThat(stats.getTotal().getQueryCache().getMissCount(), equalTo(5l));
+        assertThat(stats.getTotal().getQueryCache().getHitCount(), equalTo(5l));
+
+        // searches that return hits are never cached
+        assertSearchResponse(client().prepareSearch("idx").get());
+        stats = client().admin().indices().prepareStats("idx").clear().setQueryCache(true).get();
+        assertThat(stats.getTotal().getQueryCache().getMissCount(), equalTo(5l));
+
+        // and the cache can be disabled again
+        assertAcked(client().admin().indices().prepareUpdateSettings("idx")
+                .setSettings(ImmutableSettings.builder().put(IndicesQueryCache.INDEX_CACHE_QUERY_ENABLED, false)));
+        assertSearchResponse(client().prepareSearch("idx").setSearchType(SearchType.COUNT).addAggregation(terms("terms").field("s")).get());
+        stats = client().admin().indices().prepareStats("idx").clear().setQueryCache(true).get();
+        assertThat(stats.getTotal().getQueryCache().getMissCount(), equalTo(5l));
+        assertThat(stats.getTotal().getQueryCache().getHitCount(), equalTo(5l));
+    }
+
+    @Test
+    public void testQueryCacheSkipsRequestsRelativeToNow() throws Exception {
+        assertAcked(prepareCreate("idx").setSettings(ImmutableSettings.builder()
+                .put(IndexMetaData.SETTING_NUMBER_OF_SHARDS, 1)
+                .put(IndexMetaData.SETTING_NUMBER_OF_REPLICAS, 0)
+                .put(IndicesQueryCache.INDEX_CACHE_QUERY_ENABLED, true))
+                .addMapping("type", "d", "type=date"));
+        ensureGreen();
+        client().prepareIndex("idx", "type", "1").setSource("d", "2014-01-01").get();
+        refresh();
+
+        // the results of requests relative to now change over time, without a refresh
+        for (int i = 0; i < 2; i++) {
+            assertSearchResponse(client().prepareSearch("idx").setSearchType(SearchType.COUNT)
+                    .setQuery(rangeQuery("d").gte("now-15m")).get());
+            assertSearchResponse(client().prepareSearch("idx").setSearchType(SearchType.COUNT)
+                    .addAggregation(dateRange("range").field("d").addUnboundedTo("now-15m")).get());
+        }
+        IndicesStatsResponse stats = client().admin().indices().prepareStats("idx").clear().setQueryCache(true).get();
+        assertThat(stats.getTotal().getQueryCache().getMissCount(), equalTo(0l));
+        assertThat(stats.getTotal().getQueryCache().getHitCount(), equalTo(0l));
+        assertThat(stats.getTotal().getQueryCache().getMemorySizeInBytes(), equalTo(0l));
+
+        // while absolute dates are cached
+        for (int i = 0; i < 2; i++) {
+            assertSearchResponse(client().prepareSearch("idx").setSearchType(SearchType.COUNT)
+                    .setQuery(rangeQuery("d").gte("2013-12-31||+1d")).get());
+        }
+        stats = client().admin().indices().prepareStats("idx").clear().setQueryCache(true).get();
+        assertThat(stats.getTotal().getQueryCache().getMissCount(), equalTo(1l));
+        assertThat(stats.getTotal().getQueryCache().getHitCount(), equalTo(1l));
+    }
+
     @Test
     public void testFlagOrdinalOrder() {
         Flag[] flags = new Flag[]{Flag.Store, Flag.Indexing, Flag.Get, Flag.Search, Flag.Merge, Flag.Flush, Flag.Refresh,
-                Flag.FilterCache, Flag.IdCache, Flag.FieldData, Flag.Docs, Flag.Warmer, Flag.Percolate, Flag.Completion, Flag.Segments, Flag.Translog};
+                Flag.FilterCache, Flag.IdCache, Flag.FieldData, Flag.Docs, Flag.Warmer, Flag.Percolate, Flag.Completion, Flag.Segments, Flag.Translog, Flag.QueryCache};
 
         assertThat(flags.length, equalTo(Flag.values().length));
         for (int i = 0; i < flags.length; i++) {
@@ -376,6 +480,9 @@ public class SimpleIndexStatsTests extends ElasticsearchIntegrationTest {
             case Translog:
                 builder.setTranslog(set);
                 break;
+            case QueryCache:
+                builder.setQueryCache(set);
+                break;
             default:
                 fail("new flag? " + flag);
                 break;
@@ -416,6 +523,8 @@ public class SimpleIndexStatsTests extends ElasticsearchIntegrationTest {
                 return response.getSegments() != null;
             case Translog:
                 return response.getTranslog() != null;
+            case QueryCache:
+                return response.getQueryCache() != null;
             default:
                 fail("new flag? " + flag);
                 return false;
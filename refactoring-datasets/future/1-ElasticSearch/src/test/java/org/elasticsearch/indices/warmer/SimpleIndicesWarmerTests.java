@@ -29,15 +29,18 @@ import org.elasticsearch.action.admin.indices.stats.IndicesStatsResponse;
 import org.elasticsearch.action.admin.indices.warmer.delete.DeleteWarmerResponse;
 import org.elasticsearch.action.admin.indices.warmer.get.GetWarmersResponse;
 import org.elasticsearch.action.admin.indices.warmer.put.PutWarmerResponse;
+import org.elasticsearch.action.search.SearchResponse;
 import org.elasticsearch.client.Requests;
 import org.elasticsearch.cluster.ClusterState;
 import org.elasticsearch.common.settings.ImmutableSettings;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.xcontent.json.JsonXContent;
 import org.elasticsearch.index.engine.Segment;
+import org.elasticsearch.index.fielddata.FieldDataType;
 import org.elasticsearch.index.mapper.FieldMapper.Loading;
 import org.elasticsearch.index.query.QueryBuilders;
 import org.elasticsearch.search.SearchService;
+import org.elasticsearch.search.sort.SortOrder;
 import org.elasticsearch.search.warmer.IndexWarmerMissingException;
 import org.elasticsearch.search.warmer.IndexWarmersMetaData;
 import org.elasticsearch.test.ElasticsearchIntegrationTest;
@@ -45,6 +48,7 @@ import org.hamcrest.Matchers;
 import org.junit.Test;
 
 import java.util.Locale;
+import java.util.Map;
 
 import static org.hamcrest.Matchers.*;
 
@@ -345,4 +349,33 @@ public class SimpleIndicesWarmerTests extends ElasticsearchIntegrationTest {
         }
     }
 
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testDocValuesFirst() throws Exception {
+        client().admin().indices().prepareCreate("test")
+                .setSettings(ImmutableSettings.builder().put("number_of_shards", 1).put("number_of_replicas", 0).put(FieldDataType.DOC_VALUES_FIRST, true))
+                .addMapping("type", "num", "type=long", "loc", "type=geo_point", "text", "type=string")
+                .get();
+        ensureGreen();
+        int numDocs = scaledRandomIntBetween(10, 100);
+        for (int i = 0; i < numDocs; i++) {
+            client().prepareIndex("test", "type", Integer.toString(i))
+                    .setSource("num", numDocs - i, "loc", (i % 90) + "," + (i % 180), "text", "value").get();
+        }
+        refresh();
+
+        Map<String, Object> properties = (Map<String, Object>) client().admin().indices().prepareGetMappings("test").get()
+                .mappings().get("test").get("type").sourceAsMap().get("properties");
+        assertThat(((Map<String, Object>) properties.get("num")).get("doc_values"), equalTo((Object) true));
+        assertThat(((Map<String, Object>) properties.get("loc")).get("doc_values"), equalTo((Object) true));
+        assertThat(((Map<String, Object>) properties.get("text")).get("doc_values"), nullValue());
+
+        SearchResponse response = client().prepareSearch("test").addSort("num", SortOrder.ASC).setSize(1).get();
+        assertThat(response.getHits().getAt(0).id(), equalTo(Integer.toString(numDocs - 1)));
+        // served from doc values, nothing is loaded on the heap
+        IndicesStatsResponse stats = client().admin().indices().prepareStats("test").clear().setFieldData(true).get();
+        assertThat(stats.getTotal().getFieldData().getMemorySizeInBytes(), equalTo(0l));
+    }
+
 }
@@ -0,0 +1,127 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.percolator;
+
+import org.elasticsearch.action.percolate.PercolateResponse;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.test.ElasticsearchIntegrationTest;
+import org.elasticsearch.test.ElasticsearchIntegrationTest.ClusterScope;
+import org.elasticsearch.test.ElasticsearchIntegrationTest.Scope;
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.elasticsearch.action.percolate.PercolateSourceBuilder.docBuilder;
+import static org.elasticsearch.common.settings.ImmutableSettings.settingsBuilder;
+import static org.elasticsearch.common.xcontent.XContentFactory.jsonBuilder;
+import static org.elasticsearch.index.query.FilterBuilders.termFilter;
+import static org.elasticsearch.index.query.QueryBuilders.*;
+import static org.elasticsearch.percolator.PercolatorTests.convertFromTextArray;
+import static org.elasticsearch.test.hamcrest.ElasticsearchAssertions.assertMatchCount;
+import static org.elasticsearch.test.hamcrest.ElasticsearchAssertions.assertNoFailures;
+import static org.hamcrest.Matchers.*;
+
+/**
+ * Checks that percolating in chunks on the concurrent pool, and skipping queries based on their required terms,
+ * gives the same results as executing every registered query.
+ */
+@ClusterScope(scope = Scope.TEST)
+public class ChunkedPercolatorTests extends ElasticsearchIntegrationTest {
+
+    @Override
+    protected Settings nodeSettings(int nodeOrdinal) {
+        return settingsBuilder()
+                .put(super.nodeSettings(nodeOrdinal))
+                .put("percolator.concurrent.enabled", true)
+                .put("percolator.concurrent.chunk_size", randomIntBetween(1, 20))
+                .build();
+    }
+
+    @Test
+    public void testChunkedPercolation() throws Exception {
+        client().admin().indices().prepareCreate("test")
+                .setSettings(settingsBuilder().put("index.number_of_shards", randomIntBetween(1, 2)))
+                .addMapping("type", "field1", "type=string,index=not_analyzed", "field2", "type=string,index=not_analyzed")
+                .execute().actionGet();
+        ensureGreen();
+
+        final int numValues = 10;
+        final int numQueries = randomIntBetween(50, 200);
+        final Set<String>[] expectedMatches = new Set[numValues];
+        for (int i = 0; i < numValues; i++) {
+            expectedMatches[i] = new HashSet<String>();
+        }
+        for (int i = 0; i < numQueries; i++) {
+            final String id = Integer.toString(i);
+            final int value = i % numValues;
+            XContentBuilder source = jsonBuilder().startObject().field("query");
+            switch (i % 4) {
+                case 0:
+                    source.value(termQuery("field1", "value" + value));
+                    expectedMatches[value].add(id);
+                    break;
+                case 1:
+                    source.value(boolQuery().must(termQuery("field1", "value" + value)).must(prefixQuery("field2", "val")));
+                    expectedMatches[value].add(id);
+                    break;
+                case 2:
+                    // not extractable, so always executed
+                    source.value(prefixQuery("field1", "value" + value));
+                    expectedMatches[value].add(id);
+                    break;
+                default:
+                    source.value(filteredQuery(matchAllQuery(), termFilter("field2", "other")));
+                    break;
+            }
+            client().prepareIndex("test", PercolatorService.TYPE_NAME, id).setSource(source.endObject()).execute().actionGet();
+        }
+        refresh();
+
+        for (int value = 0; value < numValues; value++) {
+            XContentBuilder doc = jsonBuilder().startObject().field("field1", "value" + value).field("field2", "value").endObject();
+            PercolateResponse response = client().preparePercolate()
+                    .setIndices("test").setDocumentType("type")
+                    .setPercolateDoc(docBuilder().setDoc(doc))
+                    .execute().actionGet();
+            assertMatchCount(response, expectedMatches[value].size());
+            assertThat(convertFromTextArray(response.getMatches(), "test"), arrayContainingInAnyOrder(expectedMatches[value].toArray(new String[0])));
+
+            response = client().preparePercolate()
+                    .setIndices("test").setDocumentType("type").setOnlyCount(true)
+                    .setPercolateDoc(docBuilder().setDoc(doc))
+                    .execute().actionGet();
+            assertNoFailures(response);
+            assertThat(response.getCount(), equalTo((long) expectedMatches[value].size()));
+
+            final int size = randomIntBetween(1, 5);
+            response = client().preparePercolate()
+                    .setIndices("test").setDocumentType("type").setSize(size)
+                    .setPercolateDoc(docBuilder().setDoc(doc))
+                    .execute().actionGet();
+            assertMatchCount(response, expectedMatches[value].size());
+            assertThat(response.getMatches().length, equalTo(Math.min(size, expectedMatches[value].size())));
+            for (String match : convertFromTextArray(response.getMatches(), "test")) {
+                assertThat(expectedMatches[value], hasItem(match));
+            }
+        }
+    }
+}
@@ -0,0 +1,38 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.recovery;
+
+import org.elasticsearch.common.settings.ImmutableSettings;
+import org.elasticsearch.common.settings.Settings;
+
+/**
+ *
+ */
+public class ConcurrentFileChunksRecoveryTests extends SimpleRecoveryTests {
+
+    @Override
+    protected Settings recoverySettings() {
+        return ImmutableSettings.settingsBuilder()
+                .put("indices.recovery.file_chunk_size", "3b")
+                .put("indices.recovery.max_file_chunk_size", "48b")
+                .put("indices.recovery.concurrent_file_chunks", 5)
+                .build();
+    }
+}
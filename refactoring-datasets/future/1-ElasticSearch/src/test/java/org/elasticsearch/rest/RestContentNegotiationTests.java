@@ -0,0 +1,100 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.rest;
+
+import com.google.common.collect.ImmutableMap;
+import org.elasticsearch.action.index.IndexRequestBuilder;
+import org.elasticsearch.common.Strings;
+import org.elasticsearch.common.settings.ImmutableSettings;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.xcontent.XContentHelper;
+import org.elasticsearch.http.HttpServerTransport;
+import org.elasticsearch.rest.helper.HttpClient;
+import org.elasticsearch.rest.helper.HttpClientResponse;
+import org.elasticsearch.test.ElasticsearchIntegrationTest;
+import org.elasticsearch.test.ElasticsearchIntegrationTest.ClusterScope;
+import org.elasticsearch.test.ElasticsearchIntegrationTest.Scope;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.elasticsearch.common.xcontent.XContentFactory.jsonBuilder;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.startsWith;
+
+@ClusterScope(scope = Scope.SUITE, numNodes = 1)
+public class RestContentNegotiationTests extends ElasticsearchIntegrationTest {
+
+    @Override
+    protected Settings nodeSettings(int nodeOrdinal) {
+        return ImmutableSettings.settingsBuilder()
+                .put("force.http.enabled", true)
+                .put(super.nodeSettings(nodeOrdinal))
+                .build();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testLargeResponse() throws Exception {
+        createIndex("test");
+        ensureYellow();
+        // large enough for the response to span several recycled pages
+        IndexRequestBuilder[] builders = new IndexRequestBuilder[scaledRandomIntBetween(50, 200)];
+        String text = Strings.randomBase64UUID(getRandom()) + " " + Strings.randomBase64UUID(getRandom());
+        for (int i = 0; i < builders.length; i++) {
+            StringBuilder body = new StringBuilder();
+            for (int j = 0; j < 20; j++) {
+                body.append(text).append(' ');
+            }
+            builders[i] = client().prepareIndex("test", "type", Integer.toString(i)).setSource(
+                    jsonBuilder().startObject().field("body", body.toString()).endObject());
+        }
+        indexRandom(true, builders);
+
+        HttpClientResponse response = httpClient().request("/test/_search?size=" + builders.length);
+        assertThat(response.errorCode(), equalTo(RestStatus.OK.getStatus()));
+        assertThat(response.getHeader("Content-Type"), startsWith("application/json"));
+        Map<String, Object> map = XContentHelper.convertToMap(response.response().getBytes("UTF-8"), false).v2();
+        List<Object> hits = (List<Object>) ((Map<String, Object>) map.get("hits")).get("hits");
+        assertThat(hits.size(), equalTo(builders.length));
+    }
+
+    @Test
+    public void testAcceptHeader() throws Exception {
+        HttpClientResponse response = httpClient().request("GET", "/", ImmutableMap.of("Accept", "text/html, application/yaml;q=0.9, */*"));
+        assertThat(response.errorCode(), equalTo(RestStatus.OK.getStatus()));
+        assertThat(response.getHeader("Content-Type"), equalTo("application/yaml"));
+        assertThat(response.response(), startsWith("---"));
+
+        // an explicit format wins over what the client accepts
+        response = httpClient().request("GET", "/?format=json", ImmutableMap.of("Accept", "application/yaml"));
+        assertThat(response.getHeader("Content-Type"), startsWith("application/json"));
+
+        // nothing we can produce, fall back to json
+        response = httpClient().request("GET", "/", ImmutableMap.of("Accept", "*/*"));
+        assertThat(response.getHeader("Content-Type"), startsWith("application/json"));
+    }
+
+    private HttpClient httpClient() {
+        HttpServerTransport httpServerTransport = cluster().getInstance(HttpServerTransport.class);
+        return new HttpClient(httpServerTransport.boundAddress().publishAddress());
+    }
+}
@@ -71,7 +71,7 @@ public class StringTermsTests extends ElasticsearchIntegrationTest {
     }
 
     public static String randomExecutionHint() {
-        return randomFrom(Arrays.asList(null, TermsAggregatorFactory.EXECUTION_HINT_VALUE_MAP, TermsAggregatorFactory.EXECUTION_HINT_VALUE_ORDINALS));
+        return randomFrom(Arrays.asList(null, TermsAggregatorFactory.EXECUTION_HINT_VALUE_MAP, TermsAggregatorFactory.EXECUTION_HINT_VALUE_ORDINALS, TermsAggregatorFactory.EXECUTION_HINT_VALUE_GLOBAL_ORDINALS));
     }
 
     @Before
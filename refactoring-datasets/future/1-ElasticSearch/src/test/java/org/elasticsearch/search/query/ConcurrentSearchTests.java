@@ -0,0 +1,124 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search.query;
+
+import org.elasticsearch.action.index.IndexRequestBuilder;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.index.merge.policy.MergePolicyModule;
+import org.elasticsearch.index.merge.policy.TieredMergePolicyProvider;
+import org.elasticsearch.index.search.stats.ShardSearchService;
+import org.elasticsearch.search.SearchHit;
+import org.elasticsearch.search.sort.SortOrder;
+import org.elasticsearch.test.ElasticsearchIntegrationTest;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.elasticsearch.common.settings.ImmutableSettings.settingsBuilder;
+import static org.elasticsearch.index.query.FilterBuilders.rangeFilter;
+import static org.elasticsearch.index.query.QueryBuilders.*;
+import static org.elasticsearch.index.query.functionscore.ScoreFunctionBuilders.gaussDecayFunction;
+import static org.elasticsearch.search.aggregations.AggregationBuilders.terms;
+import static org.elasticsearch.test.hamcrest.ElasticsearchAssertions.assertNoFailures;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+
+/**
+ */
+public class ConcurrentSearchTests extends ElasticsearchIntegrationTest {
+
+    @Test
+    public void testConcurrentSearchMatchesSequentialSearch() throws Exception {
+        client().admin().indices().prepareCreate("test")
+                .setSettings(settingsBuilder()
+                        .put("index.number_of_shards", 1)
+                        .put("index.number_of_replicas", 0)
+                        // keep the segments around so that there is something to slice
+                        .put(MergePolicyModule.MERGE_POLICY_TYPE_KEY, TieredMergePolicyProvider.class.getName())
+                        .put("index.merge.policy.segments_per_tier", 100)
+                        .put("index.merge.policy.max_merge_at_once", 100))
+                .addMapping("type", "text", "type=string", "value", "type=long").execute().actionGet();
+        ensureGreen();
+
+        final int numSegments = between(4, 8);
+        int numDocs = 0;
+        for (int i = 0; i < numSegments; i++) {
+            List<IndexRequestBuilder> builders = new ArrayList<IndexRequestBuilder>();
+            final int segmentDocs = between(10, 50);
+            for (int j = 0; j < segmentDocs; j++) {
+                String text = randomFrom(new String[] {"foo", "foo bar", "foo bar baz", "bar", "baz foo foo"});
+                builders.add(client().prepareIndex("test", "type", Integer.toString(numDocs++)).setSource("text", text, "value", randomIntBetween(0, 20)));
+            }
+            indexRandom(false, builders.toArray(new IndexRequestBuilder[builders.size()]));
+            refresh();
+        }
+
+        int searchSegments = client().admin().indices().prepareSegments("test").get().getIndices().get("test").getShards().get(0).getShards()[0].getNumberOfSearch();
+        assertThat(searchSegments, greaterThan(1));
+
+        final int size = between(1, numDocs);
+        SearchResponse[] sequential = search(size);
+
+        client().admin().indices().prepareUpdateSettings("test").setSettings(settingsBuilder()
+                .put(ShardSearchService.INDEX_SEARCH_CONCURRENT_SLICES, between(2, 6))
+                .put(ShardSearchService.INDEX_SEARCH_CONCURRENT_MIN_DOCS_PER_SLICE, 0)).execute().actionGet();
+
+        for (int iter = 0; iter < 5; iter++) {
+            SearchResponse[] concurrent = search(size);
+            for (int i = 0; i < sequential.length; i++) {
+                assertSameHits(sequential[i], concurrent[i]);
+            }
+        }
+    }
+
+    private SearchResponse[] search(int size) {
+        SearchResponse[] responses = new SearchResponse[] {
+                client().prepareSearch("test").setQuery(matchQuery("text", "foo bar")).setSize(size).get(),
+                client().prepareSearch("test").setQuery(matchAllQuery()).setSize(size).get(),
+                client().prepareSearch("test").setQuery(matchQuery("text", "baz")).addSort("value", SortOrder.DESC).setSize(size).get(),
+                client().prepareSearch("test").setQuery(matchQuery("text", "foo")).addSort("value", SortOrder.ASC).setTrackScores(true).setSize(size).get(),
+                client().prepareSearch("test").setQuery(matchQuery("text", "foo")).setPostFilter(rangeFilter("value").gte(5)).setMinScore(0.1f).setSize(size).get(),
+                // score functions are positioned on one segment at a time and run on a single thread
+                client().prepareSearch("test").setQuery(functionScoreQuery(matchQuery("text", "foo"), gaussDecayFunction("value", 10, 5))).setSize(size).get(),
+                // aggregations see all documents and run on a single thread
+                client().prepareSearch("test").setQuery(matchQuery("text", "bar")).addAggregation(terms("values").field("value")).setSize(size).get()
+        };
+        for (SearchResponse response : responses) {
+            assertNoFailures(response);
+        }
+        return responses;
+    }
+
+    private static void assertSameHits(SearchResponse expected, SearchResponse actual) {
+        assertThat(actual.getHits().totalHits(), equalTo(expected.getHits().totalHits()));
+        assertThat(actual.getHits().hits().length, equalTo(expected.getHits().hits().length));
+        if (!Float.isNaN(expected.getHits().maxScore())) {
+            assertThat(actual.getHits().maxScore(), equalTo(expected.getHits().maxScore()));
+        }
+        for (int i = 0; i < expected.getHits().hits().length; i++) {
+            SearchHit expectedHit = expected.getHits().getAt(i);
+            SearchHit actualHit = actual.getHits().getAt(i);
+            assertThat(actualHit.id(), equalTo(expectedHit.id()));
+            assertThat(actualHit.score(), equalTo(expectedHit.score()));
+        }
+        assertThat(expected.getHits().totalHits(), greaterThan(0l));
+    }
+}
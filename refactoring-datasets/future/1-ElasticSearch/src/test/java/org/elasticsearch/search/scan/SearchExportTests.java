@@ -0,0 +1,138 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search.scan;
+
+import com.google.common.base.Predicate;
+import com.google.common.collect.Sets;
+import org.elasticsearch.action.admin.cluster.node.stats.NodeStats;
+import org.elasticsearch.action.admin.cluster.node.stats.NodesStatsResponse;
+import org.elasticsearch.action.index.IndexRequestBuilder;
+import org.elasticsearch.common.settings.ImmutableSettings;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.xcontent.XContentHelper;
+import org.elasticsearch.http.HttpServerTransport;
+import org.elasticsearch.rest.RestStatus;
+import org.elasticsearch.rest.helper.HttpClient;
+import org.elasticsearch.rest.helper.HttpClientResponse;
+import org.elasticsearch.test.ElasticsearchIntegrationTest;
+import org.elasticsearch.test.ElasticsearchIntegrationTest.ClusterScope;
+import org.elasticsearch.test.ElasticsearchIntegrationTest.Scope;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.elasticsearch.common.xcontent.XContentFactory.jsonBuilder;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.notNullValue;
+
+@ClusterScope(scope = Scope.SUITE, numNodes = 1)
+public class SearchExportTests extends ElasticsearchIntegrationTest {
+
+    @Override
+    protected Settings nodeSettings(int nodeOrdinal) {
+        return ImmutableSettings.settingsBuilder()
+                .put("force.http.enabled", true)
+                .put(super.nodeSettings(nodeOrdinal))
+                .build();
+    }
+
+    @Test
+    public void testExport() throws Exception {
+        client().admin().indices().prepareCreate("test").setSettings(ImmutableSettings.settingsBuilder().put("index.number_of_shards", between(1, 5))).get();
+        ensureYellow();
+
+        Set<String> expectedIds = Sets.newHashSet();
+        IndexRequestBuilder[] builders = new IndexRequestBuilder[scaledRandomIntBetween(10, 500)];
+        for (int i = 0; i < builders.length; i++) {
+            String user = i % 2 == 0 ? "kimchy1" : "kimchy2";
+            if (i % 2 == 0) {
+                expectedIds.add(Integer.toString(i));
+            }
+            builders[i] = client().prepareIndex("test", "tweet", Integer.toString(i)).setSource(
+                    jsonBuilder().startObject().field("user", user).field("count", i).endObject());
+        }
+        indexRandom(true, builders);
+
+        HttpClientResponse response = httpClient().request("/test/_export?q=user:kimchy1&size=" + between(1, 20));
+        assertThat(response.errorCode(), equalTo(RestStatus.OK.getStatus()));
+        assertThat(response.getHeader("Transfer-Encoding"), equalTo("chunked"));
+
+        Set<String> ids = Sets.newHashSet();
+        for (String line : response.response().split("\n")) {
+            Map<String, Object> hit = XContentHelper.convertToMap(line.getBytes("UTF-8"), false).v2();
+            assertThat(hit.get("_index"), equalTo((Object) "test"));
+            assertThat(hit.get("_source"), notNullValue());
+            String id = (String) hit.get("_id");
+            assertThat("duplicate hit [" + id + "]", ids.add(id), equalTo(true));
+        }
+        assertThat(ids, equalTo(expectedIds));
+
+        // the scroll gets cleared once the export is done
+        assertTrue(awaitBusy(new Predicate<Object>() {
+            @Override
+            public boolean apply(Object input) {
+                NodesStatsResponse nodesStats = client().admin().cluster().prepareNodesStats().setIndices(true).get();
+                for (NodeStats nodeStats : nodesStats.getNodes()) {
+                    if (nodeStats.getIndices().getSearch().getOpenContexts() != 0) {
+                        return false;
+                    }
+                }
+                return true;
+            }
+        }));
+    }
+
+    @Test
+    public void testExportNoHits() throws Exception {
+        createIndex("empty");
+        ensureYellow();
+        HttpClientResponse response = httpClient().request("/empty/_export");
+        assertThat(response.errorCode(), equalTo(RestStatus.OK.getStatus()));
+        assertThat(response.response(), equalTo(""));
+    }
+
+    @Test
+    public void testExportReportsShardFailures() throws Exception {
+        client().admin().indices().prepareCreate("numbers").setSettings(ImmutableSettings.settingsBuilder().put("index.number_of_shards", 1))
+                .addMapping("doc", "value", "type=long").get();
+        client().admin().indices().prepareCreate("strings").setSettings(ImmutableSettings.settingsBuilder().put("index.number_of_shards", 1))
+                .addMapping("doc", "value", "type=string").get();
+        ensureYellow();
+        indexRandom(true, client().prepareIndex("numbers", "doc", "1").setSource("value", 1),
+                client().prepareIndex("strings", "doc", "1").setSource("value", "foo"));
+
+        // the query can't be parsed on the numbers index
+        HttpClientResponse response = httpClient().request("/numbers,strings/_export?q=value:foo");
+        assertThat(response.errorCode(), equalTo(RestStatus.OK.getStatus()));
+        String[] lines = response.response().split("\n");
+        Map<String, Object> last = XContentHelper.convertToMap(lines[lines.length - 1].getBytes("UTF-8"), false).v2();
+        assertThat((String) last.get("error"), equalTo("[1] of [2] shards failed"));
+        List<?> failures = (List<?>) last.get("failures");
+        assertThat(failures.size(), equalTo(1));
+        assertThat(((Map<?, ?>) failures.get(0)).get("index"), equalTo((Object) "numbers"));
+    }
+
+    private HttpClient httpClient() {
+        HttpServerTransport httpServerTransport = cluster().getInstance(HttpServerTransport.class);
+        return new HttpClient(httpServerTransport.boundAddress().publishAddress());
+    }
+}
@@ -71,6 +71,14 @@ public class CompletionSuggestSearchTests extends ElasticsearchIntegrationTest {
     private final String FIELD = RandomStrings.randomAsciiOfLength(getRandom(), 10).toLowerCase(Locale.ROOT);
     private final CompletionMappingBuilder completionMappingBuilder = new CompletionMappingBuilder();
 
+    @Override
+    protected Settings nodeSettings(int nodeOrdinal) {
+        return settingsBuilder()
+                .put("search.suggest.completion.concurrent.enabled", randomBoolean())
+                .put("search.suggest.completion.concurrent.min_segments", between(1, 4))
+                .put(super.nodeSettings(nodeOrdinal)).build();
+    }
+
     @Test
     public void testSimple() throws Exception {
         createIndexAndMapping(completionMappingBuilder);
@@ -891,6 +899,7 @@ public class CompletionSuggestSearchTests extends ElasticsearchIntegrationTest {
                 .field("payloads", completionMappingBuilder.payloads)
                 .field("preserve_separators", completionMappingBuilder.preserveSeparators)
                 .field("preserve_position_increments", completionMappingBuilder.preservePositionIncrements)
+                .field("fst_loading", completionMappingBuilder.fstLoading)
                 .endObject()
                 .endObject().endObject()
                 .endObject())
@@ -950,6 +959,39 @@ public class CompletionSuggestSearchTests extends ElasticsearchIntegrationTest {
         }
     }
 
+    @Test
+    public void testLazyFstLoadingAcrossSegments() throws Exception {
+        completionMappingBuilder.fstLoading("lazy");
+        createIndexAndMappingAndSettings(settingsBuilder().put(SETTING_NUMBER_OF_SHARDS, 1).put(SETTING_NUMBER_OF_REPLICAS, 0), completionMappingBuilder);
+
+        String[] surfaces = {"Foo Fighters", "Foobar", "Fool", "Food", "Football", "Foolish"};
+        // every document ends up in its own segment, one of them shows up twice with a different weight
+        for (int i = 0; i < surfaces.length; i++) {
+            client().prepareIndex(INDEX, TYPE, Integer.toString(i)).setSource(jsonBuilder()
+                    .startObject().startObject(FIELD)
+                    .startArray("input").value(surfaces[i]).endArray()
+                    .field("weight", i + 1)
+                    .endObject().endObject()
+            ).setRefresh(true).get();
+        }
+        client().prepareIndex(INDEX, TYPE, "duplicate").setSource(jsonBuilder()
+                .startObject().startObject(FIELD)
+                .startArray("input").value("Foobar").endArray()
+                .field("weight", 10)
+                .endObject().endObject()
+        ).setRefresh(true).get();
+
+        // the FSTs of the new segments are loaded by the warmer before the refreshes return
+        IndicesStatsResponse indicesStatsResponse = client().admin().indices().prepareStats(INDEX).setIndices(INDEX).setCompletion(true).get();
+        assertThat(indicesStatsResponse.getIndex(INDEX).getPrimaries().completion.getSizeInBytes(), greaterThan(0l));
+
+        assertSuggestions("foo", "Foobar", "Foolish", "Football", "Food", "Fool", "Foo Fighters");
+        SuggestResponse suggestResponse = client().prepareSuggest(INDEX).addSuggestion(
+                new CompletionSuggestionBuilder("top").field(FIELD).text("foo").size(2)
+        ).get();
+        assertSuggestions(suggestResponse, "top", "Foobar", "Foolish");
+    }
+
     @Test // see #3555
     public void testPrunedSegments() throws IOException {
         createIndexAndMappingAndSettings(settingsBuilder().put(SETTING_NUMBER_OF_SHARDS, 1).put(SETTING_NUMBER_OF_REPLICAS, 0), completionMappingBuilder);
@@ -1086,6 +1128,7 @@ public class CompletionSuggestSearchTests extends ElasticsearchIntegrationTest {
         private Boolean payloads = getRandom().nextBoolean();
         private Boolean preserveSeparators = getRandom().nextBoolean();
         private Boolean preservePositionIncrements = getRandom().nextBoolean();
+        private String fstLoading = getRandom().nextBoolean() ? "eager" : "lazy";
 
         public CompletionMappingBuilder searchAnalyzer(String searchAnalyzer) {
             this.searchAnalyzer = searchAnalyzer;
@@ -1107,5 +1150,9 @@ public class CompletionSuggestSearchTests extends ElasticsearchIntegrationTest {
             this.preservePositionIncrements = preservePositionIncrements;
             return this;
         }
+        public CompletionMappingBuilder fstLoading(String fstLoading) {
+            this.fstLoading = fstLoading;
+            return this;
+        }
     }
 }
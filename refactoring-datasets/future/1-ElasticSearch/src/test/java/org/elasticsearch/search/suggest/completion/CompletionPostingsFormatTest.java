@@ -54,6 +54,7 @@ import java.util.HashMap;
 import java.util.List;
 
 import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
 import static org.hamcrest.Matchers.is;
 
 public class CompletionPostingsFormatTest extends ElasticsearchTestCase {
@@ -61,8 +62,9 @@ public class CompletionPostingsFormatTest extends ElasticsearchTestCase {
     @Test
     public void testCompletionPostingsFormat() throws IOException {
         AnalyzingCompletionLookupProviderV1 providerV1 = new AnalyzingCompletionLookupProviderV1(true, false, true, true);
-        AnalyzingCompletionLookupProvider currentProvider = new AnalyzingCompletionLookupProvider(true, false, true, true);
-        List<Completion090PostingsFormat.CompletionLookupProvider> providers = Lists.newArrayList(providerV1, currentProvider);
+        AnalyzingCompletionLookupProviderV2 providerV2 = new AnalyzingCompletionLookupProviderV2(true, false, true, true);
+        AnalyzingCompletionLookupProvider currentProvider = new AnalyzingCompletionLookupProvider(true, false, true, true, randomBoolean());
+        List<Completion090PostingsFormat.CompletionLookupProvider> providers = Lists.newArrayList(providerV1, providerV2, currentProvider);
 
         Completion090PostingsFormat.CompletionLookupProvider randomProvider = providers.get(getRandom().nextInt(providers.size()));
         RAMDirectory dir = new RAMDirectory();
@@ -116,6 +118,59 @@ public class CompletionPostingsFormatTest extends ElasticsearchTestCase {
         dir.close();
     }
 
+    @Test
+    public void testProviderBackwardCompatibilityForVersion2() throws IOException {
+        AnalyzingCompletionLookupProviderV2 providerV2 = new AnalyzingCompletionLookupProviderV2(true, false, true, true);
+        AnalyzingCompletionLookupProvider currentProvider = new AnalyzingCompletionLookupProvider(true, false, true, true, true);
+
+        RAMDirectory dir = new RAMDirectory();
+        writeData(dir, providerV2);
+
+        IndexInput input = dir.openInput("foo.txt", IOContext.DEFAULT);
+        LookupFactory load = currentProvider.load(input);
+        PostingsFormatProvider format = new PreBuiltPostingsFormatProvider(new Elasticsearch090PostingsFormat());
+        NamedAnalyzer analyzer = new NamedAnalyzer("foo", new StandardAnalyzer(TEST_VERSION_CURRENT));
+        CompletionFieldMapper mapper = new CompletionFieldMapper(new Names("foo"), analyzer, analyzer, format, null, true, true, true, Integer.MAX_VALUE, AbstractFieldMapper.MultiFields.empty(), null);
+        // older files always load their FSTs up front
+        assertThat(load.retainsInput(), is(false));
+        assertThat(load.getAnalyzingSuggestHolder(mapper).isLoaded(), is(true));
+        List<LookupResult> result = load.getLookup(mapper, new CompletionSuggestionContext(null)).lookup("ge", false, 10);
+        assertThat(result.get(0).key.toString(), equalTo("Generator - Foo Fighters"));
+        input.close();
+        dir.close();
+    }
+
+    @Test
+    public void testLazyLoading() throws IOException {
+        AnalyzingCompletionLookupProvider provider = new AnalyzingCompletionLookupProvider(true, false, true, true, true);
+
+        RAMDirectory dir = new RAMDirectory();
+        writeData(dir, provider);
+
+        IndexInput input = dir.openInput("foo.txt", IOContext.DEFAULT);
+        LookupFactory load = provider.load(input);
+        PostingsFormatProvider format = new PreBuiltPostingsFormatProvider(new Elasticsearch090PostingsFormat());
+        NamedAnalyzer analyzer = new NamedAnalyzer("foo", new StandardAnalyzer(TEST_VERSION_CURRENT));
+        CompletionFieldMapper mapper = new CompletionFieldMapper(new Names("foo"), analyzer, analyzer, format, null, true, true, true, Integer.MAX_VALUE, AbstractFieldMapper.MultiFields.empty(), null);
+
+        assertThat(load.retainsInput(), is(true));
+        AnalyzingCompletionLookupProvider.AnalyzingSuggestHolder analyzingSuggestHolder = load.getAnalyzingSuggestHolder(mapper);
+        assertThat(analyzingSuggestHolder.isLoaded(), is(false));
+        assertThat(load.ramBytesUsed(), equalTo(0l));
+        assertThat(load.stats().getSizeInBytes(), equalTo(0l));
+
+        load.warm(mapper);
+        assertThat(analyzingSuggestHolder.isLoaded(), is(true));
+        assertThat(load.ramBytesUsed(), greaterThan(0l));
+        assertThat(load.stats().getSizeInBytes(), equalTo(load.ramBytesUsed()));
+
+        List<LookupResult> result = load.getLookup(mapper, new CompletionSuggestionContext(null)).lookup("ge", false, 10);
+        assertThat(result.get(0).key.toString(), equalTo("Generator - Foo Fighters"));
+        assertThat(result.get(0).payload.utf8ToString(), equalTo("id:10"));
+        load.close();
+        dir.close();
+    }
+
     @Test
     public void testDuellCompletions() throws IOException, NoSuchFieldException, SecurityException, IllegalArgumentException,
             IllegalAccessException {
@@ -49,6 +49,7 @@ import org.elasticsearch.test.store.MockDirectoryHelper;
 import org.junit.Test;
 
 import java.io.File;
+import java.io.RandomAccessFile;
 
 import static org.elasticsearch.test.hamcrest.ElasticsearchAssertions.assertAcked;
 import static org.hamcrest.Matchers.*;
@@ -515,6 +516,64 @@ public class SharedClusterSnapshotRestoreTests extends AbstractSnapshotTests {
 
     }
 
+    @Test
+    public void corruptedDataFileRestoreTest() throws Exception {
+        File repositoryLocation = newTempDir(LifecycleScope.TEST);
+        Client client = client();
+        logger.info("-->  creating repository");
+        assertAcked(client.admin().cluster().preparePutRepository("test-repo")
+                .setType("fs").setSettings(ImmutableSettings.settingsBuilder().put("location", repositoryLocation)));
+
+        assertAcked(prepareCreate("test-idx").setSettings(ImmutableSettings.builder().put("index.number_of_shards", 1).put("index.number_of_replicas", 0)));
+        ensureGreen();
+
+        logger.info("--> indexing some data");
+        for (int i = 0; i < 100; i++) {
+            index("test-idx", "doc", Integer.toString(i), "foo", "bar" + i);
+        }
+        refresh();
+        assertThat(client.prepareCount("test-idx").get().getCount(), equalTo(100L));
+
+        logger.info("--> snapshot");
+        CreateSnapshotResponse createSnapshotResponse = client.admin().cluster().prepareCreateSnapshot("test-repo", "test-snap").setWaitForCompletion(true).setIndices("test-idx").get();
+        assertThat(createSnapshotResponse.getSnapshotInfo().state(), equalTo(SnapshotState.SUCCESS));
+        assertThat(createSnapshotResponse.getSnapshotInfo().totalShards(), equalTo(createSnapshotResponse.getSnapshotInfo().successfulShards()));
+
+        logger.info("--> corrupt the largest data file of the snapshot, without changing its length");
+        File largest = null;
+        for (File file : new File(repositoryLocation, "indices/test-idx/0").listFiles()) {
+            if (file.getName().startsWith("__") && (largest == null || file.length() > largest.length())) {
+                largest = file;
+            }
+        }
+        assertThat(largest, notNullValue());
+        RandomAccessFile raf = new RandomAccessFile(largest, "rw");
+        try {
+            long pos = largest.length() / 2;
+            raf.seek(pos);
+            int b = raf.read();
+            raf.seek(pos);
+            raf.write(b ^ 0xff);
+        } finally {
+            raf.close();
+        }
+
+        logger.info("--> delete index");
+        wipeIndices("test-idx");
+        logger.info("--> restore index");
+        ListenableActionFuture<RestoreSnapshotResponse> restoreSnapshotResponseFuture =
+                client.admin().cluster().prepareRestoreSnapshot("test-repo", "test-snap").setWaitForCompletion(true).execute();
+
+        // the recovery of the shard keeps failing on the checksum mismatch, until the index is deleted
+        logger.info("--> wait for the index to appear");
+        assertThat(waitForIndex("test-idx", TimeValue.timeValueSeconds(10)), equalTo(true));
+        logger.info("--> delete index");
+        wipeIndices("test-idx");
+        RestoreSnapshotResponse restoreSnapshotResponse = restoreSnapshotResponseFuture.actionGet(TimeValue.timeValueSeconds(10));
+        assertThat(restoreSnapshotResponse.getRestoreInfo().totalShards(), equalTo(1));
+        assertThat(restoreSnapshotResponse.getRestoreInfo().failedShards(), equalTo(1));
+    }
+
     @Test
     public void unallocatedShardsTest() throws Exception {
         Client client = client();
@@ -64,6 +64,7 @@ import org.elasticsearch.index.merge.scheduler.ConcurrentMergeSchedulerProvider;
 import org.elasticsearch.index.merge.scheduler.MergeSchedulerModule;
 import org.elasticsearch.index.merge.scheduler.MergeSchedulerProvider;
 import org.elasticsearch.index.merge.scheduler.SerialMergeSchedulerProvider;
+import org.elasticsearch.index.merge.scheduler.SharedMergeSchedulerProvider;
 import org.elasticsearch.indices.IndexMissingException;
 import org.elasticsearch.indices.IndexTemplateMissingException;
 import org.elasticsearch.repositories.RepositoryMissingException;
@@ -317,7 +318,10 @@ public abstract class ElasticsearchIntegrationTest extends ElasticsearchTestCase
                     random.nextBoolean() ? random.nextDouble() : random.nextBoolean());
         }
         Class<? extends MergePolicyProvider<?>> mergePolicy = TieredMergePolicyProvider.class;
-        switch (random.nextInt(5)) {
+        switch (random.nextInt(6)) {
+            case 5:
+                builder.put(MergeSchedulerModule.MERGE_SCHEDULER_TYPE_KEY, SharedMergeSchedulerProvider.class.getName());
+                break;
             case 4:
                 mergePolicy = LogByteSizeMergePolicyProvider.class;
                 break;
@@ -334,7 +338,10 @@ public abstract class ElasticsearchIntegrationTest extends ElasticsearchTestCase
         if (random.nextBoolean()) {
             builder.put(MergeSchedulerProvider.FORCE_ASYNC_MERGE, random.nextBoolean());
         }
-        switch (random.nextInt(5)) {
+        switch (random.nextInt(6)) {
+            case 5:
+                builder.put(MergeSchedulerModule.MERGE_SCHEDULER_TYPE_KEY, SharedMergeSchedulerProvider.class.getName());
+                break;
             case 4:
                 builder.put(MergeSchedulerModule.MERGE_SCHEDULER_TYPE_KEY, SerialMergeSchedulerProvider.class.getName());
                 break;
@@ -128,7 +128,14 @@ public abstract class ElasticsearchTestCase extends AbstractRandomizedTest {
     }
 
     @After
-    public void ensureAllPagesReleased() {
+    public void ensureAllPagesReleased() throws InterruptedException {
+        // the pages of outgoing transport messages are released once netty wrote them, which can happen
+        // after the response to the message was received. Let's wait for some time for them.
+        awaitBusy(new Predicate<Object>() {
+            public boolean apply(Object o) {
+                return MockPageCacheRecycler.allPagesReleased();
+            }
+        }, 5, TimeUnit.SECONDS);
         MockPageCacheRecycler.ensureAllPagesAreReleased();
     }
 
@@ -139,7 +146,12 @@ public abstract class ElasticsearchTestCase extends AbstractRandomizedTest {
     }
 
     @After
-    public void ensureAllArraysReleased() {
+    public void ensureAllArraysReleased() throws InterruptedException {
+        awaitBusy(new Predicate<Object>() {
+            public boolean apply(Object o) {
+                return MockBigArrays.allArraysReleased();
+            }
+        }, 5, TimeUnit.SECONDS);
         MockBigArrays.ensureAllArraysAreReleased();
     }
 
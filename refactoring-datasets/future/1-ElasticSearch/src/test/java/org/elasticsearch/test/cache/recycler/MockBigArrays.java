@@ -56,6 +56,10 @@ public class MockBigArrays extends BigArrays {
         ACQUIRED_ARRAYS.clear();
     }
 
+    public static boolean allArraysReleased() {
+        return ACQUIRED_ARRAYS.isEmpty();
+    }
+
     public static void ensureAllArraysAreReleased() {
         if (DISCARD) {
             DISCARD = false;
@@ -289,8 +293,8 @@ public class MockBigArrays extends BigArrays {
         }
 
         @Override
-        public void get(long index, int len, BytesRef ref) {
-            in.get(index, len, ref);
+        public boolean get(long index, int len, BytesRef ref) {
+            return in.get(index, len, ref);
         }
 
         @Override